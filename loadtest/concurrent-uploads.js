@@ -0,0 +1,46 @@
+// Concurrent upload load test for the statement processor, run with k6 (https://k6.io):
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e VUS=200 -e RECORDS=5000 loadtest/concurrent-uploads.js
+//
+// Run it once against a pod with spring.threads.virtual.enabled=false and once with true, with the same
+// resources, and compare http_reqs (uploads per second), http_req_duration and http_req_failed, and the
+// hikaricp_connections_pending of the pod. Measured results are in the README, "Virtual Threads and Load Testing".
+// Every upload uses references no other upload uses, so all files are accepted and persisted.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const RECORDS = parseInt(__ENV.RECORDS || '5000');
+
+export const options = {
+    scenarios: {
+        uploads: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '200'),
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+function csvFile(firstReference) {
+    const lines = ['Reference,AccountNumber,Description,Start Balance,Mutation,End Balance'];
+    for (let i = 0; i < RECORDS; i++) {
+        lines.push(`${firstReference + i},NL91RABO0315273637,Clothes from Jan Bakker,21.60,-41.83,-20.23`);
+    }
+    return lines.join('\n');
+}
+
+export default function () {
+    // Disjoint reference ranges per virtual user and iteration
+    const firstReference = (__VU * 100000 + __ITER) * RECORDS;
+    const response = http.post(`${BASE_URL}/api/v1/statements`, {
+        file: http.file(csvFile(firstReference), 'records.csv', 'text/csv'),
+    });
+    check(response, {
+        'status is 200': (r) => r.status === 200,
+        'no failed records': (r) => r.status === 200 && r.json('failedRecords').length === 0,
+    });
+}
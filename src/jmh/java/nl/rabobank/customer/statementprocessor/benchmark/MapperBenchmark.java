@@ -0,0 +1,73 @@
+package nl.rabobank.customer.statementprocessor.benchmark;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.boundary.dto.StatementCsv;
+import nl.rabobank.customer.statementprocessor.boundary.dto.StatementXml;
+import nl.rabobank.customer.statementprocessor.control.mapper.CsvToStatementMapper;
+import nl.rabobank.customer.statementprocessor.control.mapper.CustomerStatementToStatementMapper;
+import nl.rabobank.customer.statementprocessor.control.mapper.XmlToStatementMapper;
+import nl.rabobank.customer.statementprocessor.entity.model.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the mappers between the parsed DTOs, {@link CustomerStatement} and the {@link Statement} entity,
+ * one operation maps a whole file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int recordCount;
+
+    private List<StatementCsv> statementCsvs;
+    private List<StatementXml> statementXmls;
+    private List<CustomerStatement> customerStatements;
+    private CsvToStatementMapper csvToStatementMapper;
+    private XmlToStatementMapper xmlToStatementMapper;
+    private CustomerStatementToStatementMapper customerStatementToStatementMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var statementData = StatementData.generate(recordCount, 0.0, 0.0);
+        statementCsvs = statementData.statementCsvs();
+        statementXmls = statementData.statementXmls();
+        customerStatements = statementData.customerStatements();
+        csvToStatementMapper = new CsvToStatementMapper();
+        xmlToStatementMapper = new XmlToStatementMapper();
+        customerStatementToStatementMapper = new CustomerStatementToStatementMapper();
+    }
+
+    @Benchmark
+    public List<CustomerStatement> csvToStatementMapper() {
+        return csvToStatementMapper.fromCsvToStatementList(statementCsvs);
+    }
+
+    @Benchmark
+    public List<CustomerStatement> xmlToStatementMapper() {
+        return xmlToStatementMapper.fromXmlToStatementList(statementXmls);
+    }
+
+    @Benchmark
+    public List<Statement> customerStatementToStatementMapper() {
+        return customerStatementToStatementMapper.toStatementList(customerStatements);
+    }
+}
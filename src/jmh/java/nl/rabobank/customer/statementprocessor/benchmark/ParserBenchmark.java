@@ -0,0 +1,94 @@
+package nl.rabobank.customer.statementprocessor.benchmark;
+
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import nl.rabobank.customer.statementprocessor.control.mapper.CsvToStatementMapper;
+import nl.rabobank.customer.statementprocessor.control.mapper.XmlToStatementMapper;
+import nl.rabobank.customer.statementprocessor.control.parser.CsvFileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.FileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.TokenizingCsvFileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.XmlFileParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the streaming CSV and XML parsers, one operation parses a whole file.
+ * The CSV file is parsed by both CSV engines, Jackson databinding and the byte-level tokenizer.
+ * Files are written to a temporary directory once per trial and read through the page cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int recordCount;
+
+    private Path directory;
+    private Path csvFile;
+    private Path xmlFile;
+    private CsvFileParser csvFileParser;
+    private TokenizingCsvFileParser tokenizingCsvFileParser;
+    private XmlFileParser xmlFileParser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("statement-benchmark");
+        var statementData = StatementData.generate(recordCount, 0.0, 0.0);
+        csvFile = statementData.writeCsv(directory.resolve("statements.csv"));
+        xmlFile = statementData.writeXml(directory.resolve("statements.xml"));
+        csvFileParser = new CsvFileParser(new CsvToStatementMapper(), new CsvMapper());
+        tokenizingCsvFileParser = new TokenizingCsvFileParser();
+        xmlFileParser = new XmlFileParser(new XmlToStatementMapper(), new XmlMapper());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(xmlFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long csvFileParser(Blackhole blackhole) throws IOException {
+        return parse(csvFileParser, csvFile, blackhole);
+    }
+
+    @Benchmark
+    public long tokenizingCsvFileParser(Blackhole blackhole) throws IOException {
+        return parse(tokenizingCsvFileParser, csvFile, blackhole);
+    }
+
+    @Benchmark
+    public long xmlFileParser(Blackhole blackhole) throws IOException {
+        return parse(xmlFileParser, xmlFile, blackhole);
+    }
+
+    private static long parse(FileParser fileParser, Path file, Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            return fileParser.parse(inputStream, file.getFileName().toString(), blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package nl.rabobank.customer.statementprocessor.benchmark;
+
+import nl.rabobank.customer.statementprocessor.StatementProcessorApplication;
+import nl.rabobank.customer.statementprocessor.control.mapper.CustomerStatementToStatementMapper;
+import nl.rabobank.customer.statementprocessor.entity.model.Statement;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementBatchWriter;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementRepository;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of accepted statements through JPA {@code saveAll} compared to the JDBC batch writer, from
+ * statement entities and straight from columnar batches, against the in-memory H2 database of the application. One operation inserts one row, so the score reads as rows per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    private static final int ROW_COUNT = 100_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    private ConfigurableApplicationContext applicationContext;
+    private StatementRepository statementRepository;
+    private StatementBatchWriter statementBatchWriter;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private List<Statement> statements;
+    private List<StatementColumns> columnBatches;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        applicationContext = new SpringApplicationBuilder(StatementProcessorApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.root=WARN");
+        statementRepository = applicationContext.getBean(StatementRepository.class);
+        statementBatchWriter = applicationContext.getBean(StatementBatchWriter.class);
+        transactionTemplate = applicationContext.getBean(TransactionTemplate.class);
+        jdbcTemplate = applicationContext.getBean(JdbcTemplate.class);
+        var mapper = applicationContext.getBean(CustomerStatementToStatementMapper.class);
+        var customerStatements = StatementData.generate(ROW_COUNT, 0.0, 0.0).customerStatements();
+        statements = mapper.toStatementList(customerStatements);
+        columnBatches = new ArrayList<>();
+        for (var customerStatement : customerStatements) {
+            if (columnBatches.isEmpty() || columnBatches.getLast().isFull()) {
+                columnBatches.add(new StatementColumns(BATCH_SIZE));
+            }
+            columnBatches.getLast().add(customerStatement);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE statement");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public Integer jpaSaveAll() {
+        // saveAll assigns the generated ids to the entities, so every invocation works on fresh copies
+        List<Statement> copies = new ArrayList<>(statements.size());
+        for (var statement : statements) {
+            copies.add(new Statement(statement.getReference(), statement.getAccountNumber(),
+                    statement.getStartBalance(), statement.getMutation(), statement.getDescription(),
+                    statement.getEndBalance()));
+        }
+        return transactionTemplate.execute(status -> statementRepository.saveAll(copies).size());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public Integer jdbcBatchWrite() {
+        return transactionTemplate.execute(status -> statementBatchWriter.write(statements));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public Integer jdbcBatchWriteColumns() {
+        return transactionTemplate.execute(status -> {
+            int savedCount = 0;
+            for (var columns : columnBatches) {
+                savedCount += statementBatchWriter.writeColumns(columns);
+            }
+            return savedCount;
+        });
+    }
+}
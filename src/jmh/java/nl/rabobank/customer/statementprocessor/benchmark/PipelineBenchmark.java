@@ -0,0 +1,125 @@
+package nl.rabobank.customer.statementprocessor.benchmark;
+
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.control.mapper.CsvToStatementMapper;
+import nl.rabobank.customer.statementprocessor.control.mapper.XmlToStatementMapper;
+import nl.rabobank.customer.statementprocessor.control.parser.CsvFileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.FileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.TokenizingCsvFileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.XmlFileParser;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import nl.rabobank.customer.statementprocessor.util.StatementValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of parsing and validating a file, the way StatementProcessorService streams an upload
+ * without persisting it. One operation processes a whole file.
+ * The tokenizing CSV parser is measured both creating a statement per record and filling a reused columnar batch,
+ * as the service does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int recordCount;
+
+    @Param({"0.0", "0.01"})
+    double duplicateRatio;
+
+    @Param({"0.0", "0.01"})
+    double errorRatio;
+
+    private Path directory;
+    private Path csvFile;
+    private Path xmlFile;
+    private CsvFileParser csvFileParser;
+    private TokenizingCsvFileParser tokenizingCsvFileParser;
+    private XmlFileParser xmlFileParser;
+    private StatementValidator statementValidator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("statement-benchmark");
+        var statementData = StatementData.generate(recordCount, duplicateRatio, errorRatio);
+        csvFile = statementData.writeCsv(directory.resolve("statements.csv"));
+        xmlFile = statementData.writeXml(directory.resolve("statements.xml"));
+        csvFileParser = new CsvFileParser(new CsvToStatementMapper(), new CsvMapper());
+        tokenizingCsvFileParser = new TokenizingCsvFileParser();
+        xmlFileParser = new XmlFileParser(new XmlToStatementMapper(), new XmlMapper());
+        statementValidator = new StatementValidator();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(xmlFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<ValidationResult> csvParseAndValidate() throws IOException {
+        return parseAndValidate(csvFileParser, csvFile);
+    }
+
+    @Benchmark
+    public List<ValidationResult> tokenizedCsvParseAndValidate() throws IOException {
+        return parseAndValidate(tokenizingCsvFileParser, csvFile);
+    }
+
+    @Benchmark
+    public List<ValidationResult> tokenizedCsvColumnsParseAndValidate() throws IOException {
+        var session = statementValidator.newSession();
+        var columns = new StatementColumns(BATCH_SIZE);
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(csvFile))) {
+            tokenizingCsvFileParser.parse(inputStream, csvFile.getFileName().toString(), columns, row -> {
+                session.validate(columns, row, session.getRecordCount());
+                if (columns.isFull()) {
+                    columns.clear();
+                }
+            });
+        }
+        return session.getValidationResults();
+    }
+
+    @Benchmark
+    public List<ValidationResult> xmlParseAndValidate() throws IOException {
+        return parseAndValidate(xmlFileParser, xmlFile);
+    }
+
+    private List<ValidationResult> parseAndValidate(FileParser fileParser, Path file) throws IOException {
+        var session = statementValidator.newSession();
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            fileParser.parse(inputStream, file.getFileName().toString(), session::validate);
+        }
+        return session.getValidationResults();
+    }
+}
@@ -0,0 +1,150 @@
+package nl.rabobank.customer.statementprocessor.benchmark;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.boundary.dto.StatementCsv;
+import nl.rabobank.customer.statementprocessor.boundary.dto.StatementXml;
+import nl.rabobank.customer.statementprocessor.util.FixedPointAmount;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of statement records for the benchmarks.
+ * A fraction of the records reuses the reference of an earlier record and a fraction has an end balance that is
+ * off by one cent, so the validator has duplicates and balance failures to report.
+ */
+public final class StatementData {
+
+    private static final long SEED = 20240101L;
+    private static final long FIRST_REFERENCE = 100_000L;
+    private static final String CSV_HEADER = "Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n";
+    private static final String[] ACCOUNT_NUMBERS = {"NL91RABO0315273637", "NL27SNSB0917829871",
+            "NL69ABNA0433647324", "NL74ABNA0248990274", "NL93ABNA0585619023", "NL43AEGO0773393871"};
+    private static final String[] DESCRIPTIONS = {"Clothes from Jan Bakker", "Clothes for Willem Dekker",
+            "Subscription for Peter de Vries", "Tickets from Richard Bakker", "Flowers for Willem Dekker",
+            "Tickets for Peter Theuß"};
+
+    private final List<CustomerStatement> customerStatements;
+
+    private StatementData(List<CustomerStatement> customerStatements) {
+        this.customerStatements = customerStatements;
+    }
+
+    /**
+     * @param recordCount    The number of records to generate.
+     * @param duplicateRatio The fraction of records that repeat an earlier reference.
+     * @param errorRatio     The fraction of records with an invalid end balance.
+     * @return The generated data set.
+     */
+    public static StatementData generate(int recordCount, double duplicateRatio, double errorRatio) {
+        var random = new SplittableRandom(SEED);
+        List<CustomerStatement> customerStatements = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            long reference = i > 0 && random.nextDouble() < duplicateRatio
+                    ? FIRST_REFERENCE + random.nextInt(i)
+                    : FIRST_REFERENCE + i;
+            long startBalance = random.nextLong(-100_000, 1_000_000);
+            long mutation = random.nextLong(-50_000, 50_000);
+            long endBalance = startBalance + mutation + (random.nextDouble() < errorRatio ? 1 : 0);
+            customerStatements.add(new CustomerStatement(reference,
+                    ACCOUNT_NUMBERS[random.nextInt(ACCOUNT_NUMBERS.length)],
+                    FixedPointAmount.toBigDecimal(startBalance),
+                    FixedPointAmount.toBigDecimal(mutation),
+                    DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+                    FixedPointAmount.toBigDecimal(endBalance)));
+        }
+        return new StatementData(customerStatements);
+    }
+
+    public List<CustomerStatement> customerStatements() {
+        return customerStatements;
+    }
+
+    public List<StatementCsv> statementCsvs() {
+        return customerStatements.stream()
+                .map(statement -> new StatementCsv(statement.reference(), statement.accountNumber(),
+                        statement.description(), statement.startBalance(), statement.mutation(), statement.endBalance()))
+                .toList();
+    }
+
+    public List<StatementXml> statementXmls() {
+        return customerStatements.stream()
+                .map(statement -> new StatementXml(statement.reference(), statement.accountNumber(),
+                        statement.description(), statement.startBalance(), statement.mutation(), statement.endBalance()))
+                .toList();
+    }
+
+    /**
+     * Writes the records as a CSV file in the upload format, including the header line.
+     *
+     * @param file The file to write.
+     * @return The written file.
+     */
+    public Path writeCsv(Path file) {
+        return write(file, writer -> {
+            writer.write(CSV_HEADER);
+            for (var statement : customerStatements) {
+                writer.write(Long.toString(statement.reference()));
+                writer.write(',');
+                writer.write(statement.accountNumber());
+                writer.write(',');
+                writer.write(statement.description());
+                writer.write(',');
+                writer.write(statement.startBalance().toPlainString());
+                writer.write(',');
+                writer.write(signed(statement.mutation()));
+                writer.write(',');
+                writer.write(statement.endBalance().toPlainString());
+                writer.write('\n');
+            }
+        });
+    }
+
+    /**
+     * Writes the records as an XML file in the upload format.
+     *
+     * @param file The file to write.
+     * @return The written file.
+     */
+    public Path writeXml(Path file) {
+        return write(file, writer -> {
+            writer.write("<records>\n");
+            for (var statement : customerStatements) {
+                writer.write("  <record reference=\"" + statement.reference() + "\">\n");
+                writer.write("    <accountNumber>" + statement.accountNumber() + "</accountNumber>\n");
+                writer.write("    <description>" + statement.description() + "</description>\n");
+                writer.write("    <startBalance>" + statement.startBalance().toPlainString() + "</startBalance>\n");
+                writer.write("    <mutation>" + signed(statement.mutation()) + "</mutation>\n");
+                writer.write("    <endBalance>" + statement.endBalance().toPlainString() + "</endBalance>\n");
+                writer.write("  </record>\n");
+            }
+            writer.write("</records>\n");
+        });
+    }
+
+    private static String signed(BigDecimal amount) {
+        return amount.signum() >= 0 ? "+" + amount.toPlainString() : amount.toPlainString();
+    }
+
+    private static Path write(Path file, ContentWriter contentWriter) {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            contentWriter.write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(Writer writer) throws IOException;
+    }
+}
@@ -0,0 +1,63 @@
+package nl.rabobank.customer.statementprocessor.benchmark;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.util.StatementValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link StatementValidator}, one operation validates a whole file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class StatementValidatorBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int recordCount;
+
+    @Param({"0.0", "0.01"})
+    double duplicateRatio;
+
+    @Param({"0.0", "0.01"})
+    double errorRatio;
+
+    private List<CustomerStatement> customerStatements;
+    private StatementValidator statementValidator;
+    private StatementValidator parallelStatementValidator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customerStatements = StatementData.generate(recordCount, duplicateRatio, errorRatio).customerStatements();
+        statementValidator = new StatementValidator(Integer.MAX_VALUE, ForkJoinPool.commonPool());
+        parallelStatementValidator = new StatementValidator(1, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public List<ValidationResult> validateParsedStatements() {
+        return statementValidator.validateParsedStatements(customerStatements);
+    }
+
+    @Benchmark
+    public List<ValidationResult> validateParsedStatementsInParallel() {
+        return parallelStatementValidator.validateParsedStatements(customerStatements);
+    }
+}
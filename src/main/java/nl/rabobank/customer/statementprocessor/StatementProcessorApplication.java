@@ -1,5 +1,6 @@
 package nl.rabobank.customer.statementprocessor;
 
+import nl.rabobank.customer.statementprocessor.boundary.cli.StatementBatchRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,7 +8,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class StatementProcessorApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(StatementProcessorApplication.class, args);
+		var context = SpringApplication.run(StatementProcessorApplication.class, args);
+		if (context.getEnvironment().matchesProfiles(StatementBatchRunner.PROFILE)) {
+			// The batch is done once the application has started, exit with the outcome of the batch
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
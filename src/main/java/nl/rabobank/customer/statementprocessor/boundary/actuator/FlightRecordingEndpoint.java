@@ -0,0 +1,165 @@
+package nl.rabobank.customer.statementprocessor.boundary.actuator;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.web.server.ConditionalOnManagementPort;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Actuator endpoint recording the application with JDK Flight Recorder on demand, for profiling a slow instance
+ * without attaching any tools to it. {@code POST /actuator/flightrecording/60s/profile} records for the given
+ * duration with the given settings and returns the {@code .jfr} file, to open in JDK Mission Control or
+ * {@code jfr print}. The settings, and then the duration, can be left out of the path.
+ * Besides the JDK events the recording holds the events of the statement pipeline, in the
+ * {@code Statement Processor} category: a file processed, a file parsed, the statements of a file validated and a
+ * batch of statements persisted.
+ * The recording takes {@code statement.flight-recording.default-duration} unless given, at most
+ * {@code statement.flight-recording.max-duration}, which cannot be configured beyond five minutes. One recording is
+ * taken at a time, the request waits for it.
+ * <p>
+ * The endpoint only exists when the actuator listens on its own port ({@code management.server.port}), which is
+ * meant to be reachable from the cluster only, and it has to be exposed explicitly. The recording leaves out the
+ * events holding the environment variables, system properties and JVM arguments, which may hold secrets.
+ */
+@Component
+@ConditionalOnManagementPort(ManagementPortType.DIFFERENT)
+@WebEndpoint(id = "flightrecording")
+public class FlightRecordingEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecordingEndpoint.class);
+    private static final String DEFAULT_SETTINGS = "default";
+    private static final String RECORDING_NAME = "statement-processor-on-demand";
+    private static final Duration MAX_DURATION_LIMIT = Duration.ofMinutes(5);
+    private static final List<String> SENSITIVE_EVENTS = List.of("jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty", "jdk.InitialSecurityProperty", "jdk.JVMInformation");
+
+    private final Duration defaultDuration;
+    private final Duration maxDuration;
+    private final AtomicBoolean isRecording = new AtomicBoolean();
+
+    /**
+     * @param defaultDuration The duration of a recording that is requested without one.
+     * @param maxDuration     The longest recording that can be requested, at most five minutes.
+     */
+    public FlightRecordingEndpoint(
+            @Value("${statement.flight-recording.default-duration:PT30S}") Duration defaultDuration,
+            @Value("${statement.flight-recording.max-duration:PT1M}") Duration maxDuration) {
+        if (maxDuration.compareTo(MAX_DURATION_LIMIT) > 0) {
+            throw new IllegalArgumentException("The maximum flight recording duration " + maxDuration
+                    + " exceeds " + MAX_DURATION_LIMIT);
+        }
+        this.defaultDuration = defaultDuration;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * Records the application for the default duration with the default settings and returns the recording.
+     *
+     * @return The recording, like {@link #record(Duration, String)}.
+     */
+    @WriteOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> record() {
+        return record(defaultDuration, DEFAULT_SETTINGS);
+    }
+
+    /**
+     * Records the application for a while with the default settings and returns the recording.
+     *
+     * @param duration How long to record.
+     * @return The recording, like {@link #record(Duration, String)}.
+     */
+    @WriteOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> record(@Selector Duration duration) {
+        return record(duration, DEFAULT_SETTINGS);
+    }
+
+    /**
+     * Records the application for a while and returns the recording.
+     *
+     * @param duration How long to record.
+     * @param settings The JDK settings to record with: {@code default} (about 1% overhead) or {@code profile} (more
+     *                 detail, about 2% overhead).
+     * @return The {@code .jfr} file, {@code 400} for a duration or settings that are not supported or {@code 429}
+     * while another recording is taken.
+     */
+    @WriteOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> record(@Selector Duration duration, @Selector String settings) {
+        if (!duration.isPositive() || duration.compareTo(maxDuration) > 0) {
+            log.warn("Rejected a flight recording of {}, the maximum is {}", duration, maxDuration);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            log.warn("Rejected a flight recording with unknown settings {}: {}", settings, e.getMessage());
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (!isRecording.compareAndSet(false, true)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            Path file = record(configuration, duration);
+            // The file is deleted once the response has been written
+            var recording = new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+            return new WebEndpointResponse<>(recording, WebEndpointResponse.STATUS_OK);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the flight recording", e);
+        } finally {
+            isRecording.set(false);
+        }
+    }
+
+    /**
+     * @return The file holding the recording.
+     */
+    private static Path record(Configuration configuration, Duration duration) throws IOException {
+        Path file = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+        try (var recording = new Recording(configuration)) {
+            recording.setName(RECORDING_NAME);
+            SENSITIVE_EVENTS.forEach(recording::disable);
+            recording.start();
+            log.info("Started a flight recording of {} with {} settings", duration, configuration.getName());
+            sleep(duration);
+            recording.stop();
+            recording.dump(file);
+            log.info("Finished the flight recording of {} bytes", Files.size(file));
+            return file;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the duration of the recording, an interrupt ends the recording early.
+     */
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Flight recording interrupted, returning what was recorded so far");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package nl.rabobank.customer.statementprocessor.boundary.cli;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import nl.rabobank.customer.statementprocessor.util.MappedFileResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Processes statement files from the command line, for bulk back-fills without the web server.
+ * Active with the {@code cli} profile, every non-option argument is a file or a directory that is searched for
+ * {@code .csv} and {@code .xml} files, also gzipped, and {@code .zip} archives:
+ * <pre>
+ * java -jar statementprocessor.jar --spring.profiles.active=cli /data/2019 /data/2020/records.csv
+ * </pre>
+ * Files are processed concurrently on {@code statement.cli.concurrency} threads. A file that admission control rejects
+ * because the memory budget is used up by the other files is tried again after the advised delay, so a long back-fill
+ * does not fail on a busy budget. When all files are done an aggregate
+ * throughput summary is logged and the application exits with {@link #EXIT_FAILED_FILES} if any file failed
+ * validation or could not be processed, or {@link #EXIT_NO_FILES} if no files were found.
+ */
+@Component
+@Profile(StatementBatchRunner.PROFILE)
+public class StatementBatchRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String PROFILE = "cli";
+    public static final int EXIT_FAILED_FILES = 1;
+    public static final int EXIT_NO_FILES = 2;
+
+    private static final Logger log = LoggerFactory.getLogger(StatementBatchRunner.class);
+    private static final double BYTES_PER_MB = 1024d * 1024d;
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final StatementProcessorService processorService;
+    private final int concurrency;
+    private volatile int exitCode;
+
+    /**
+     * @param processorService The service processing the files.
+     * @param concurrency      The number of files processed at the same time.
+     */
+    public StatementBatchRunner(StatementProcessorService processorService,
+                                @Value("${statement.cli.concurrency:4}") int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.processorService = processorService;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        List<Path> files = findStatementFiles(args.getNonOptionArgs());
+        if (files.isEmpty()) {
+            log.error("No .csv, .xml or .zip files found in {}", args.getNonOptionArgs());
+            exitCode = EXIT_NO_FILES;
+            return;
+        }
+
+        log.info("Processing {} files with a concurrency of {}", files.size(), concurrency);
+        long start = System.nanoTime();
+        List<FileResult> results = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(concurrency)) {
+            List<Future<FileResult>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(executor.submit(() -> processFile(file)));
+            }
+            for (Future<FileResult> future : futures) {
+                results.add(getResult(future));
+            }
+        }
+        logSummary(results, System.nanoTime() - start);
+        exitCode = results.stream().allMatch(FileResult::succeeded) ? 0 : EXIT_FAILED_FILES;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @param arguments Files and directories.
+     * @return The statement files of the arguments, directories are searched recursively.
+     * @throws UncheckedIOException if a directory cannot be read.
+     */
+    private static List<Path> findStatementFiles(List<String> arguments) {
+        List<Path> files = new ArrayList<>();
+        for (String argument : arguments) {
+            try (Stream<Path> paths = Files.walk(Path.of(argument))) {
+                paths.filter(Files::isRegularFile)
+                        .filter(StatementBatchRunner::isStatementFile)
+                        .sorted()
+                        .forEach(files::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + argument, e);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isStatementFile(Path file) {
+        return StatementProcessorService.isSupportedFileName(file.getFileName().toString());
+    }
+
+    private FileResult processFile(Path file) {
+        var recordCount = new AtomicLong();
+        long size = 0;
+        try {
+            size = Files.size(file);
+            var report = processWhenAdmitted(file, recordCount);
+            if (!report.failedRecords().isEmpty()) {
+                log.warn("File {} has {} failed records, report {}", file, report.failedRecords().size(),
+                        report.reportId());
+                return new FileResult(recordCount.get(), size, false);
+            }
+            log.info("Processed file {} with {} records", file, recordCount.get());
+            return new FileResult(recordCount.get(), size, true);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to process file {}", file, e);
+            return new FileResult(recordCount.get(), size, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while waiting to process file {}", file);
+            return new FileResult(recordCount.get(), size, false);
+        }
+    }
+
+    /**
+     * Processes a file, trying again while admission control rejects it.
+     *
+     * @param file        The statement file.
+     * @param recordCount Receives the number of records read.
+     * @return The report of the file.
+     * @throws InterruptedException if the thread is interrupted while waiting to try again.
+     */
+    private Report processWhenAdmitted(Path file, AtomicLong recordCount) throws InterruptedException {
+        while (true) {
+            try {
+                return processorService.process(file.getFileName().toString(), new MappedFileResource(file),
+                        ProcessingOptions.defaults().withProgressListener(recordCount::set));
+            } catch (UploadRejectedException e) {
+                log.info("File {} is not admitted yet, trying again in {}: {}", file, e.getRetryAfter(), e.getMessage());
+                Thread.sleep(e.getRetryAfter());
+            }
+        }
+    }
+
+    private static FileResult getResult(Future<FileResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // processFile handles its own failures
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void logSummary(List<FileResult> results, long elapsedNanos) {
+        long failedFiles = results.stream().filter(result -> !result.succeeded()).count();
+        long records = results.stream().mapToLong(FileResult::records).sum();
+        double megabytes = results.stream().mapToLong(FileResult::bytes).sum() / BYTES_PER_MB;
+        double seconds = Math.max(elapsedNanos, 1) / NANOS_PER_SECOND;
+        log.info("Processed {} files ({} failed), {} records, {} MB in {} s",
+                results.size(), failedFiles, records, String.format("%.1f", megabytes), String.format("%.2f", seconds));
+        log.info("Throughput: {} files/s, {} records/s, {} MB/s",
+                String.format("%.1f", results.size() / seconds),
+                String.format("%.0f", records / seconds),
+                String.format("%.1f", megabytes / seconds));
+    }
+
+    private record FileResult(long records, long bytes, boolean succeeded) {
+    }
+}
@@ -0,0 +1,144 @@
+package nl.rabobank.customer.statementprocessor.boundary.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobState;
+import nl.rabobank.customer.statementprocessor.boundary.dto.UploadStatus;
+import nl.rabobank.customer.statementprocessor.boundary.dto.response.ErrorResponse;
+import nl.rabobank.customer.statementprocessor.control.service.ChunkedUploadService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.InputStream;
+
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_PROCESSOR_API;
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_TAG;
+
+/**
+ * REST controller for resumable uploads of customer statements.
+ * A file is sent in numbered chunks, each with its checksum, and processed while the chunks arrive. An upload that
+ * broke off resumes after the number of chunks received, which its status tells.
+ */
+@RestController
+@RequestMapping("/api/v1/statements/uploads")
+@Tag(name = CUSTOMER_STATEMENT_TAG, description = CUSTOMER_STATEMENT_PROCESSOR_API)
+public class ChunkedUploadController {
+
+    private static final String CONTENT_DIGEST = "Content-Digest";
+
+    private final ChunkedUploadService uploadService;
+
+    public ChunkedUploadController(ChunkedUploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    @Operation(summary = "Start a resumable upload of a customer statement. Supports CSV and XML formats.",
+            description = "This endpoint starts an upload of the named file, whose chunks are sent to the returned location. " +
+                    "Files of any size can be uploaded this way, the multipart size limit does not apply."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload started.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = UploadStatus.class),
+                            examples = @ExampleObject(value = """
+                                    {"uploadId": "9b2e6f0c-1d4a-4e8b-b7c3-5a0f2d9e8c71","status": "RUNNING","fileName": "records.csv",
+                                    "receivedChunks": 0,"receivedBytes": 0,"recordsProcessed": 0}
+                                    """))),
+            @ApiResponse(responseCode = "400", description = "Bad request due to invalid file format.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Too many uploads are waiting, try again later.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadStatus> createUpload(@RequestParam("fileName") String fileName) {
+        var upload = uploadService.create(fileName);
+        var location = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                .path("/{uploadId}")
+                .buildAndExpand(upload.uploadId())
+                .toUri();
+        return ResponseEntity.created(location).body(upload);
+    }
+
+    @Operation(summary = "Send the next chunk of a resumable upload.",
+            description = "Chunks are numbered from 1 and sent in order, each with the SHA-256 digest of its content in a " +
+                    "Content-Digest header, such as sha-256=:<base64 digest>:. Sending the last received chunk again is accepted."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Chunk received.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = UploadStatus.class))),
+            @ApiResponse(responseCode = "400", description = "The chunk is empty, too large or does not match its digest, send it again.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "No upload with the given ID, or it expired.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Not the next chunk, or the upload accepts no more chunks.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @PutMapping(path = "/{uploadId}/chunks/{chunkNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadStatus> putChunk(@PathVariable String uploadId, @PathVariable int chunkNumber,
+                                                 @RequestHeader(CONTENT_DIGEST) String contentDigest,
+                                                 InputStream chunk) {
+        return ResponseEntity.ok(uploadService.appendChunk(uploadId, chunkNumber, contentDigest, chunk));
+    }
+
+    @Operation(summary = "Get the status of a resumable upload.",
+            description = "Returns the number of chunks and bytes received, to resume the upload from, and the progress of processing."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload found.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = UploadStatus.class))),
+            @ApiResponse(responseCode = "404", description = "No upload with the given ID, or it expired.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @GetMapping(path = "/{uploadId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadStatus> getUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok(uploadService.getUpload(uploadId));
+    }
+
+    @Operation(summary = "Complete a resumable upload after its last chunk.",
+            description = "Returns the report once the rest of the file is processed. If processing takes longer the upload is " +
+                    "accepted, its status and report are available at the location of the upload."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File processed.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = UploadStatus.class))),
+            @ApiResponse(responseCode = "202", description = "File still being processed.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = UploadStatus.class))),
+            @ApiResponse(responseCode = "404", description = "No upload with the given ID, or it expired.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "409", description = "No chunk was received, or the upload accepts no more chunks.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @PostMapping(path = "/{uploadId}/complete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadStatus> completeUpload(@PathVariable String uploadId) {
+        var upload = uploadService.complete(uploadId);
+        boolean isFinished = upload.status() == JobState.COMPLETED || upload.status() == JobState.FAILED;
+        return isFinished ? ResponseEntity.ok(upload) : ResponseEntity.accepted().body(upload);
+    }
+
+    @Operation(summary = "Cancel a resumable upload.", description = "Nothing of the file of a cancelled upload is saved.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload cancelled."),
+            @ApiResponse(responseCode = "404", description = "No upload with the given ID, or it expired.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @DeleteMapping(path = "/{uploadId}")
+    public ResponseEntity<Void> cancelUpload(@PathVariable String uploadId) {
+        uploadService.cancel(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,63 @@
+package nl.rabobank.customer.statementprocessor.boundary.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ReportPage;
+import nl.rabobank.customer.statementprocessor.boundary.dto.response.ErrorResponse;
+import nl.rabobank.customer.statementprocessor.control.service.ReportService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_PROCESSOR_API;
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_TAG;
+
+/**
+ * REST controller serving the stored reports of processed customer statement files.
+ */
+@RestController
+@RequestMapping("/api/v1/reports")
+@Tag(name = CUSTOMER_STATEMENT_TAG, description = CUSTOMER_STATEMENT_PROCESSOR_API)
+public class ReportController {
+
+    private final ReportService reportService;
+
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
+    }
+
+    @Operation(summary = "Get the failed records of a report page by page.",
+            description = "Returns the failed records of the report created when a file was processed, in the order " +
+                    "they were reported. Pass the returned nextCursor to get the next page, the last page has no nextCursor."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report found.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ReportPage.class),
+                            examples = @ExampleObject(value = """
+                                    {"reportId": 7091186762284010000,"failedRecords": [{"reference": 112806,
+                                    "description": "Clothes for Willem Dekker","errorMessage": "Duplicate transaction reference detected."}],
+                                    "nextCursor": 0}
+                                    """))),
+            @ApiResponse(responseCode = "404", description = "No report with the given ID.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @GetMapping(path = "/{reportId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ReportPage> getReport(
+            @PathVariable long reportId,
+            @Parameter(description = "The nextCursor of the previous page, omit for the first page")
+            @RequestParam(required = false) Long cursor,
+            @Parameter(description = "The number of failed records per page")
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(reportService.getReportPage(reportId, cursor, size));
+    }
+}
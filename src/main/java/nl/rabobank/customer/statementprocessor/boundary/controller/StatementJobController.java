@@ -0,0 +1,84 @@
+package nl.rabobank.customer.statementprocessor.boundary.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobStatus;
+import nl.rabobank.customer.statementprocessor.boundary.dto.response.ErrorResponse;
+import nl.rabobank.customer.statementprocessor.control.service.StatementJobService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_PROCESSOR_API;
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_TAG;
+
+/**
+ * REST controller for processing customer statements asynchronously.
+ * An upload is accepted as a job right away, its status and report are polled afterwards.
+ */
+@RestController
+@RequestMapping("/api/v1/statements/jobs")
+@Tag(name = CUSTOMER_STATEMENT_TAG, description = CUSTOMER_STATEMENT_PROCESSOR_API)
+public class StatementJobController {
+
+    private final StatementJobService jobService;
+
+    public StatementJobController(StatementJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @Operation(summary = "Upload customer statement for asynchronous processing. Supports CSV and XML formats.",
+            description = "This endpoint accepts a customer statement file in CSV or XML format and returns a job right away. " +
+                    "The status of the job, including the report once processing is done, is available at the returned location."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Customer statement accepted for processing.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = JobStatus.class),
+                            examples = @ExampleObject(value = """
+                                    {"jobId": "3f1c9a52-8d0e-4b7a-9a3e-2f6f0b8f4c11","status": "QUEUED","fileName": "records.csv","recordsProcessed": 0}
+                                    """))),
+            @ApiResponse(responseCode = "400", description = "Bad request due to invalid file format.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Too many jobs are waiting, try again later.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JobStatus> submitStatementUpload(@RequestParam("file") MultipartFile file) {
+        var job = jobService.submit(file);
+        var location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{jobId}")
+                .buildAndExpand(job.jobId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    @Operation(summary = "Get the status of an asynchronous processing job.",
+            description = "Returns the state and progress of the job, and the validation report once the job is completed."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job found.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = JobStatus.class),
+                            examples = @ExampleObject(value = """
+                                    {"jobId": "3f1c9a52-8d0e-4b7a-9a3e-2f6f0b8f4c11","status": "COMPLETED","fileName": "records.csv",
+                                    "recordsProcessed": 10,"report": {"reportId": 7091186762284010000,"failedRecords": []}}
+                                    """))),
+            @ApiResponse(responseCode = "404", description = "No job with the given ID, or it expired.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @GetMapping(path = "/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JobStatus> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(jobService.getJob(jobId));
+    }
+}
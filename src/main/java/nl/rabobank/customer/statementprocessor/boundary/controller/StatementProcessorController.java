@@ -9,27 +9,38 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
 import nl.rabobank.customer.statementprocessor.boundary.dto.response.ErrorResponse;
+import nl.rabobank.customer.statementprocessor.control.service.AcceptanceMode;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.StageTimings;
 import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_PROCESSOR_API;
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.CUSTOMER_STATEMENT_TAG;
 
 /**
  * REST controller responsible for processing customer statements.
- * This controller provides endpoints for handling customer statement files.
+ * This controller provides endpoints for handling customer statement files, uploaded as multipart form data or
+ * sent as the raw request body.
  */
 @RestController
 @RequestMapping("/api/v1/statements")
 @Tag(name = CUSTOMER_STATEMENT_TAG, description = CUSTOMER_STATEMENT_PROCESSOR_API)
 public class StatementProcessorController {
 
+    static final String TEXT_CSV_VALUE = "text/csv";
+    static final String SERVER_TIMING = "Server-Timing";
+
     private final StatementProcessorService processorService;
 
     public StatementProcessorController(StatementProcessorService processorService) {
@@ -38,7 +49,8 @@ public class StatementProcessorController {
 
     @Operation(summary = "Upload customer statement. Supports CSV and XML formats.",
             description = "This endpoint allows you to upload customer statement files in CSV or XML format. " +
-                    "The system will process the uploaded file and return a report with the validation results."
+                    "The system will process the uploaded file and return a report with the validation results. " +
+                    "With acceptanceMode=PARTIAL the valid records are saved even if others fail, the report counts both."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Customer statement processed successfully.",
@@ -63,9 +75,51 @@ public class StatementProcessorController {
                                     }"""))),
     })
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Report> processStatementUpload(@RequestParam("file") MultipartFile file) {
-        var report = processorService.process(file);
+    public ResponseEntity<Report> processStatementUpload(@RequestParam("file") MultipartFile file,
+                                                         @RequestParam(name = "acceptanceMode", required = false)
+                                                         AcceptanceMode acceptanceMode) {
+        var timings = new StageTimings();
+        var report = processorService.process(file.getOriginalFilename(), file,
+                ProcessingOptions.defaults().withAcceptanceMode(acceptanceMode).withTimings(timings));
+        var response = ResponseEntity.ok();
+        if (timings.isRecorded()) {
+            // The time of every stage of the pipeline, shown by the network panel of browser developer tools
+            response.header(SERVER_TIMING, timings.toServerTiming());
+        }
+        return response.body(report);
+    }
+
+    @Operation(summary = "Send a customer statement file as the request body. Supports CSV and XML formats.",
+            description = "Streams the request body straight into the parser, so files are not limited by the maximum " +
+                    "multipart file size. The Content-Type header determines the format of the file, a body sent with " +
+                    "Content-Encoding gzip is inflated while it is parsed."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Customer statement processed successfully.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = Report.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request due to invalid file content.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "415", description = "Unsupported media type, only CSV and XML file formats are allowed.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorResponse.class))),
+    })
+    @PostMapping(consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Report> processStatementBody(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                       @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+                                                       String contentEncoding,
+                                                       InputStream body) {
+        var report = processorService.process(getFileName(contentType, contentEncoding), () -> body,
+                ProcessingOptions.defaults());
         return ResponseEntity.ok(report);
     }
 
+    /**
+     * @param contentType     The content type of a request body, one of the consumed types.
+     * @param contentEncoding The content encoding of a request body, if any.
+     * @return A file name with the extension matching the content type, and {@code .gz} for a gzipped body.
+     */
+    private static String getFileName(MediaType contentType, String contentEncoding) {
+        String fileName = MediaType.parseMediaType(TEXT_CSV_VALUE).includes(contentType) ? "statement.csv" : "statement.xml";
+        return "gzip".equalsIgnoreCase(contentEncoding) ? fileName + ".gz" : fileName;
+    }
 }
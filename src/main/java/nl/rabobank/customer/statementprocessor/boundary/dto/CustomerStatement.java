@@ -1,10 +1,18 @@
 package nl.rabobank.customer.statementprocessor.boundary.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotNull;
+import nl.rabobank.customer.statementprocessor.util.FixedPointAmount;
 
 import java.math.BigDecimal;
 
+/**
+ * A parsed customer statement.
+ * Next to the {@link BigDecimal} amounts the statement carries the same amounts as a {@code long} number of cents
+ * (see {@link FixedPointAmount}), computed once when the statement is created, so validation can work on
+ * primitives. A cents value is {@link FixedPointAmount#NOT_REPRESENTABLE} when the amount does not fit.
+ */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record CustomerStatement(
         @NotNull Long reference,
@@ -12,5 +20,17 @@ public record CustomerStatement(
         @NotNull BigDecimal startBalance,
         @NotNull BigDecimal mutation,
         @NotNull String description,
-        @NotNull BigDecimal endBalance
-) {}
\ No newline at end of file
+        @NotNull BigDecimal endBalance,
+        @JsonIgnore long startBalanceCents,
+        @JsonIgnore long mutationCents,
+        @JsonIgnore long endBalanceCents
+) {
+
+    public CustomerStatement(Long reference, String accountNumber, BigDecimal startBalance,
+                             BigDecimal mutation, String description, BigDecimal endBalance) {
+        this(reference, accountNumber, startBalance, mutation, description, endBalance,
+                FixedPointAmount.toCents(startBalance),
+                FixedPointAmount.toCents(mutation),
+                FixedPointAmount.toCents(endBalance));
+    }
+}
@@ -0,0 +1,11 @@
+package nl.rabobank.customer.statementprocessor.boundary.dto;
+
+/**
+ * Lifecycle of an asynchronous statement processing job.
+ */
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
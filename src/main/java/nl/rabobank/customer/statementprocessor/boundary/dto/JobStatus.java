@@ -0,0 +1,14 @@
+package nl.rabobank.customer.statementprocessor.boundary.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Status of an asynchronous statement processing job")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobStatus(
+        @Schema(description = "Unique job ID") String jobId,
+        @Schema(description = "Current state of the job") JobState status,
+        @Schema(description = "Name of the uploaded file") String fileName,
+        @Schema(description = "Number of records processed so far") long recordsProcessed,
+        @Schema(description = "Validation report, present once the job is completed") Report report,
+        @Schema(description = "Reason of the failure, present if the job failed") String error) {}
@@ -9,4 +9,18 @@ import java.util.List;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record Report(
         @Schema(description = "Unique report ID") Long reportId,
-        @Schema(description = "List of failed records")  List<ValidationResult> failedRecords) {}
+        @Schema(description = "List of failed records")  List<ValidationResult> failedRecords,
+        @Schema(description = "Number of saved records, only when partially accepted") Long acceptedRecords,
+        @Schema(description = "Number of rejected records, only when partially accepted") Long rejectedRecords) {
+
+    public Report(Long reportId, List<ValidationResult> failedRecords) {
+        this(reportId, failedRecords, null, null);
+    }
+
+    /**
+     * @return This report with the number of saved and rejected records of a partially accepted file.
+     */
+    public Report withCounts(long acceptedRecords, long rejectedRecords) {
+        return new Report(reportId, failedRecords, acceptedRecords, rejectedRecords);
+    }
+}
@@ -0,0 +1,13 @@
+package nl.rabobank.customer.statementprocessor.boundary.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Page of the failed records of a stored report")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReportPage(
+        @Schema(description = "Unique report ID") Long reportId,
+        @Schema(description = "Failed records of this page, in the order they were reported") List<ValidationResult> failedRecords,
+        @Schema(description = "Cursor of the next page, absent on the last page") Long nextCursor) {}
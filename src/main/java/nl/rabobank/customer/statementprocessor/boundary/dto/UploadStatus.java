@@ -0,0 +1,16 @@
+package nl.rabobank.customer.statementprocessor.boundary.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Status of a resumable upload and of the processing of its file")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UploadStatus(
+        @Schema(description = "Unique upload ID") String uploadId,
+        @Schema(description = "Current state of the processing of the file") JobState status,
+        @Schema(description = "Name of the uploaded file") String fileName,
+        @Schema(description = "Number of chunks received, the next chunk is numbered one higher") int receivedChunks,
+        @Schema(description = "Number of bytes received, the offset in the file of the next chunk") long receivedBytes,
+        @Schema(description = "Number of records processed so far") long recordsProcessed,
+        @Schema(description = "Validation report, present once the file is processed") Report report,
+        @Schema(description = "Reason of the failure, present if processing failed") String error) {}
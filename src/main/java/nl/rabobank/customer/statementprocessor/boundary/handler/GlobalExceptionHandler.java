@@ -2,8 +2,17 @@ package nl.rabobank.customer.statementprocessor.boundary.handler;
 
 import nl.rabobank.customer.statementprocessor.boundary.dto.response.ErrorResponse;
 import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidChunkException;
 import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
+import nl.rabobank.customer.statementprocessor.control.exception.JobNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.exception.ReportNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadConflictException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -42,6 +51,123 @@ public class GlobalExceptionHandler {
                 .body(errorResponse);
     }
 
+    /**
+     * Handles JobNotFoundException by returning a not found response with the error message.
+     *
+     * @param e The JobNotFoundException thrown when polling an unknown job.
+     * @return A ResponseEntity containing an error message and HTTP status 404.
+     */
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleJobNotFoundException(JobNotFoundException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Job not found", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles ReportNotFoundException by returning a not found response with the error message.
+     *
+     * @param e The ReportNotFoundException thrown when reading an unknown report.
+     * @return A ResponseEntity containing an error message and HTTP status 404.
+     */
+    @ExceptionHandler(ReportNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleReportNotFoundException(ReportNotFoundException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Report not found", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles UploadNotFoundException by returning a not found response with the error message.
+     *
+     * @param e The UploadNotFoundException thrown when using an unknown upload.
+     * @return A ResponseEntity containing an error message and HTTP status 404.
+     */
+    @ExceptionHandler(UploadNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleUploadNotFoundException(UploadNotFoundException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Upload not found", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles InvalidChunkException by returning a bad request response, the chunk is to be sent again.
+     *
+     * @param e The InvalidChunkException thrown when a chunk is empty, too large or does not match its digest.
+     * @return A ResponseEntity containing an error message and HTTP status 400.
+     */
+    @ExceptionHandler(InvalidChunkException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidChunkException(InvalidChunkException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Invalid chunk", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles UploadConflictException by returning a conflict response with the error message.
+     *
+     * @param e The UploadConflictException thrown when a chunk is out of order or the upload accepts no more chunks.
+     * @return A ResponseEntity containing an error message and HTTP status 409.
+     */
+    @ExceptionHandler(UploadConflictException.class)
+    public ResponseEntity<ErrorResponse> handleUploadConflictException(UploadConflictException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Upload conflict", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles TaskRejectedException by returning a service unavailable response when the job queue is full.
+     *
+     * @param e The TaskRejectedException thrown when no more jobs can be queued.
+     * @return A ResponseEntity containing an error message and HTTP status 503.
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleTaskRejectedException(TaskRejectedException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Too many jobs", "The job queue is full, please try again later.");
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles UploadRejectedException by returning a too many requests response when there is no memory to process
+     * the file, telling the client when to try again.
+     *
+     * @param e The UploadRejectedException thrown when the file is not admitted.
+     * @return A ResponseEntity containing an error message, a Retry-After header and HTTP status 429.
+     */
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleUploadRejectedException(UploadRejectedException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Too many uploads", e.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Handles DuplicateKeyException, raised by the unique reference column when a statement with an already stored
+     * reference is saved by uploads running at the same time, by returning a conflict response. Other integrity
+     * violations, such as a missing account number, are left to the generic handler.
+     *
+     * @param e The DuplicateKeyException thrown while saving the statements.
+     * @return A ResponseEntity containing an error message and HTTP status 409.
+     */
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<ErrorResponse> handleDuplicateKeyException(DuplicateKeyException e) {
+        ErrorResponse errorResponse = new ErrorResponse("Duplicate reference",
+                "A transaction reference of the file is already processed, nothing of the file was saved.");
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(errorResponse);
+    }
+
     /**
      * Handles general exceptions by returning an internal server error response with the error message.
      *
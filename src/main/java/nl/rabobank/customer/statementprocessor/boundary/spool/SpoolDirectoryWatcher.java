@@ -0,0 +1,264 @@
+package nl.rabobank.customer.statementprocessor.boundary.spool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.response.ErrorResponse;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import nl.rabobank.customer.statementprocessor.util.MappedFileResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Processes statement files dropped in a spool directory, as an alternative to uploading them over HTTP.
+ * The directory is watched with a {@link WatchService}. Every new {@code .csv} or {@code .xml} file, also gzipped, and
+ * every {@code .zip} archive is read through memory-mapped windows and processed by the
+ * {@link StatementProcessorService}, one file at a time. Afterwards the file is moved to the done directory, or to the failed directory if it has validation errors or cannot be processed,
+ * with its report written next to it as {@code <file name>.report.json}.
+ *
+ * Files must appear in the directory completely, write them under another name (e.g. {@code records.csv.part}) and
+ * rename them when done. Files already in the directory at startup are processed first. A file that admission control
+ * rejects because the memory budget is temporarily used up stays in the directory and is tried again after the
+ * advised delay.
+ */
+@Component
+@ConditionalOnProperty(name = "statement.spool.enabled", havingValue = "true")
+public class SpoolDirectoryWatcher implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(SpoolDirectoryWatcher.class);
+    static final String REPORT_SUFFIX = ".report.json";
+
+    private final StatementProcessorService processorService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Path doneDirectory;
+    private final Path failedDirectory;
+    private volatile WatchService watchService;
+    private volatile Thread worker;
+    private volatile CountDownLatch stopping;
+
+    /**
+     * @param processorService The service processing the files.
+     * @param objectMapper     The mapper writing the report files.
+     * @param directory        The directory to watch.
+     * @param doneDirectory    The directory processed files are moved to.
+     * @param failedDirectory  The directory files with validation errors or processing errors are moved to.
+     */
+    public SpoolDirectoryWatcher(StatementProcessorService processorService,
+                                 ObjectMapper objectMapper,
+                                 @Value("${statement.spool.directory}") String directory,
+                                 @Value("${statement.spool.done-directory:${statement.spool.directory}/done}") String doneDirectory,
+                                 @Value("${statement.spool.failed-directory:${statement.spool.directory}/failed}") String failedDirectory) {
+        this.processorService = processorService;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory).toAbsolutePath();
+        this.doneDirectory = Path.of(doneDirectory).toAbsolutePath();
+        this.failedDirectory = Path.of(failedDirectory).toAbsolutePath();
+    }
+
+    /**
+     * Starts watching the spool directory, creating the directories if they do not exist.
+     *
+     * @throws UncheckedIOException if the directory cannot be watched.
+     */
+    @Override
+    public void start() {
+        try {
+            Files.createDirectories(directory);
+            Files.createDirectories(doneDirectory);
+            Files.createDirectories(failedDirectory);
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot watch spool directory " + directory, e);
+        }
+        log.info("Watching spool directory {}", directory);
+        stopping = new CountDownLatch(1);
+        worker = Thread.ofPlatform().name("statement-spool").start(this::watch);
+    }
+
+    /**
+     * Stops watching the directory, after the file in progress is processed. A file waiting to be admitted stays in
+     * the directory and is processed after a restart.
+     */
+    @Override
+    public void stop() {
+        stopping.countDown();
+        try {
+            watchService.close();
+            worker.join();
+        } catch (IOException e) {
+            log.warn("Failed to close the watch service of spool directory {}", directory, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        var currentWorker = worker;
+        return currentWorker != null && currentWorker.isAlive();
+    }
+
+    private void watch() {
+        processExistingFiles();
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (var event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, pick up every file that is still waiting
+                    processExistingFiles();
+                } else {
+                    processIfStatementFile(directory.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                log.error("Spool directory {} is no longer accessible", directory);
+                return;
+            }
+        }
+    }
+
+    private void processExistingFiles() {
+        List<Path> files;
+        try (Stream<Path> entries = Files.list(directory)) {
+            files = entries.sorted().toList();
+        } catch (IOException e) {
+            log.error("Failed to list spool directory {}", directory, e);
+            return;
+        }
+        files.forEach(this::processIfStatementFile);
+    }
+
+    private void processIfStatementFile(Path file) {
+        if (StatementProcessorService.isSupportedFileName(file.getFileName().toString()) && Files.isRegularFile(file)) {
+            processFile(file);
+        }
+    }
+
+    /**
+     * Processes a file and moves it with its report to the done or failed directory.
+     *
+     * @param file The spooled file.
+     */
+    private void processFile(Path file) {
+        String fileName = file.getFileName().toString();
+        Object result;
+        Path targetDirectory;
+        try {
+            Optional<Report> admittedReport = processWhenAdmitted(file, fileName);
+            if (admittedReport.isEmpty()) {
+                log.info("Stopped waiting for admission of spooled file {}, it stays in the spool directory", file);
+                return;
+            }
+            var report = admittedReport.get();
+            result = report;
+            targetDirectory = report.failedRecords().isEmpty() ? doneDirectory : failedDirectory;
+        } catch (RuntimeException e) {
+            // Keep watching, the file and the error are kept in the failed directory
+            log.error("Failed to process spooled file {}", file, e);
+            result = new ErrorResponse("File processing failed", e.getMessage());
+            targetDirectory = failedDirectory;
+        }
+
+        try {
+            Path target = Files.move(file, availableTarget(targetDirectory, fileName));
+            writeReport(target.resolveSibling(target.getFileName() + REPORT_SUFFIX), result);
+            log.info("Moved spooled file {} to {}", fileName, target);
+        } catch (IOException e) {
+            log.error("Failed to move spooled file {} to {}", file, targetDirectory, e);
+        }
+    }
+
+    /**
+     * Processes a file, trying again while admission control rejects it. Such a file is not broken, it is kept in the
+     * spool directory until the memory budget allows processing it.
+     *
+     * @param file     The spooled file.
+     * @param fileName The name of the file.
+     * @return The report of the file, empty if the watcher stopped while waiting for admission.
+     */
+    private Optional<Report> processWhenAdmitted(Path file, String fileName) {
+        while (true) {
+            try {
+                return Optional.of(processorService.process(fileName, new MappedFileResource(file),
+                        ProcessingOptions.defaults()));
+            } catch (UploadRejectedException e) {
+                log.warn("Spooled file {} is not admitted, trying again in {}: {}", file, e.getRetryAfter(), e.getMessage());
+                if (awaitStop(e.getRetryAfter())) {
+                    return Optional.empty();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param timeout The time to wait.
+     * @return {@code true} if the watcher is stopped or the thread is interrupted within the time.
+     */
+    private boolean awaitStop(Duration timeout) {
+        try {
+            return stopping.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    /**
+     * Writes a report under a temporary name and renames it, so a report file is always complete.
+     *
+     * @param reportFile The report file.
+     * @param result     The report or the error of a file.
+     * @throws IOException if the report cannot be written.
+     */
+    private void writeReport(Path reportFile, Object result) throws IOException {
+        Path partFile = reportFile.resolveSibling(reportFile.getFileName() + ".part");
+        objectMapper.writeValue(partFile.toFile(), result);
+        Files.move(partFile, reportFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param targetDirectory The directory to move a file to.
+     * @param fileName        The name of the file.
+     * @return The path of the file in the directory, with a timestamp added if a file of the same name is there.
+     */
+    private static Path availableTarget(Path targetDirectory, String fileName) {
+        Path target = targetDirectory.resolve(fileName);
+        if (Files.notExists(target)) {
+            return target;
+        }
+        int extension = fileName.lastIndexOf('.');
+        return targetDirectory.resolve(fileName.substring(0, extension) + "-" + System.currentTimeMillis()
+                + fileName.substring(extension));
+    }
+}
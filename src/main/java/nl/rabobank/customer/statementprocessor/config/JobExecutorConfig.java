@@ -0,0 +1,91 @@
+package nl.rabobank.customer.statementprocessor.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration of the worker pools running asynchronous statement processing jobs and resumable uploads.
+ * Spring Boot only auto-configures its application task executor when there is no other executor, so it is declared
+ * here as well, keeping {@code @Async} methods and asynchronous MVC requests off the statement pools.
+ */
+@Configuration
+public class JobExecutorConfig {
+
+    /**
+     * Provides the executor Spring Boot would have auto-configured, following the {@code spring.task.execution}
+     * properties: a thread pool, or a new virtual thread per task with virtual threads enabled.
+     *
+     * @param threadPoolBuilder  Builder of the auto-configured thread pool.
+     * @param simpleAsyncBuilder Builder of the auto-configured executor of virtual threads.
+     * @param virtualThreads     Whether tasks run on virtual threads.
+     * @return the application task executor.
+     */
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder threadPoolBuilder,
+                                                     SimpleAsyncTaskExecutorBuilder simpleAsyncBuilder,
+                                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return virtualThreads ? simpleAsyncBuilder.build() : threadPoolBuilder.build();
+    }
+
+    /**
+     * Provides a bounded pool for the jobs. Uploads beyond the queue capacity are rejected instead of piling up.
+     *
+     * With virtual threads enabled the workers are virtual threads, the pool then only bounds the number of jobs.
+     *
+     * @param poolSize       The number of jobs processed concurrently.
+     * @param queueCapacity  The number of jobs waiting for a worker.
+     * @param virtualThreads Whether the workers are virtual threads.
+     * @return a configured ThreadPoolTaskExecutor instance.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor statementJobExecutor(@Value("${statement.jobs.pool-size:2}") int poolSize,
+                                                       @Value("${statement.jobs.queue-capacity:16}") int queueCapacity,
+                                                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("statement-job-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("statement-job-", 0).factory());
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Provides a bounded pool processing resumable uploads. An upload occupies a worker while its chunks arrive, so
+     * the uploads have a pool of their own and cannot hold up the jobs.
+     *
+     * @param poolSize       The number of uploads processed concurrently.
+     * @param queueCapacity  The number of uploads waiting for a worker, their chunks are stored meanwhile.
+     * @param virtualThreads Whether the workers are virtual threads.
+     * @return a configured ThreadPoolTaskExecutor instance.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor statementUploadExecutor(@Value("${statement.uploads.pool-size:4}") int poolSize,
+                                                          @Value("${statement.uploads.queue-capacity:16}") int queueCapacity,
+                                                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("statement-upload-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("statement-upload-", 0).factory());
+        }
+        // An upload still receiving chunks cannot finish, interrupting it saves nothing of its file
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
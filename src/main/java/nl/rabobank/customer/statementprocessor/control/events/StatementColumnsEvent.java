@@ -0,0 +1,23 @@
+package nl.rabobank.customer.statementprocessor.control.events;
+
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Objects;
+
+/**
+ * A batch of accepted statements in columnar form. The publisher clears and refills the batch once the event is
+ * handled, so the batch is only valid during a synchronous listener.
+ */
+public class StatementColumnsEvent extends ApplicationEvent {
+    private final StatementColumns columns;
+
+    public StatementColumnsEvent(Object source, StatementColumns columns) {
+        super(source);
+        this.columns = Objects.requireNonNull(columns, "columns cannot be null");
+    }
+
+    public StatementColumns getColumns() {
+        return columns;
+    }
+}
@@ -1,6 +1,7 @@
 package nl.rabobank.customer.statementprocessor.control.events;
 
-import nl.rabobank.customer.statementprocessor.entity.repository.StatementRepository;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementBatchWriter;
+import nl.rabobank.customer.statementprocessor.util.jfr.StatementsPersistedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
@@ -10,17 +11,19 @@ import java.util.List;
 import java.util.Optional;
 
 /**
- * The {@code StatementsEventListener} class listens for {@link StatementEvent} and processes
- * the event by saving the statements to the database using the {@link StatementRepository}.
- * It ensures that only valid events with statements are processed.
+ * The {@code StatementsEventListener} class listens for {@link StatementEvent} and {@link StatementColumnsEvent} and
+ * processes the event by saving the statements to the database using the {@link StatementBatchWriter}, and for
+ * {@link StatementsRetractedEvent} to remove saved statements again.
+ * It ensures that only valid events with statements are processed. Every saved batch is recorded as a
+ * {@link StatementsPersistedEvent} when Flight Recorder is recording.
  */
 @Component
 public class StatementsEventListener {
     private static final Logger log = LoggerFactory.getLogger(StatementsEventListener.class);
-    private final StatementRepository statementRepository;
+    private final StatementBatchWriter statementBatchWriter;
 
-    public StatementsEventListener(StatementRepository statementRepository) {
-        this.statementRepository = statementRepository;
+    public StatementsEventListener(StatementBatchWriter statementBatchWriter) {
+        this.statementBatchWriter = statementBatchWriter;
     }
 
     /**
@@ -34,8 +37,59 @@ public class StatementsEventListener {
         if (isEmpty(statementEvent)) return;
 
         log.info("Handling StatementEvent and saving it to DB...");
-        statementRepository.saveAll(statementEvent.getStatements());
-        log.info("Done saving StatementEvent to DB.");
+        var event = new StatementsPersistedEvent();
+        event.begin();
+        int savedCount = statementBatchWriter.write(statementEvent.getStatements());
+        commit(event, statementEvent, savedCount);
+        log.info("Done saving {} statements of StatementEvent to DB.", savedCount);
+    }
+
+    /**
+     * Handles the {@link StatementColumnsEvent} when it is published, on the publishing thread.
+     * Saves the rows of the batch to the database straight from its columns.
+     *
+     * @param statementColumnsEvent the event that contains the batch to be saved
+     */
+    @EventListener
+    public void handleColumnsEvent(StatementColumnsEvent statementColumnsEvent) {
+        if (statementColumnsEvent == null || statementColumnsEvent.getColumns().isEmpty()) {
+            log.info("No statements to process.");
+            return;
+        }
+
+        log.info("Handling StatementColumnsEvent and saving it to DB...");
+        var event = new StatementsPersistedEvent();
+        event.begin();
+        int savedCount = statementBatchWriter.writeColumns(statementColumnsEvent.getColumns());
+        commit(event, statementColumnsEvent, savedCount);
+        log.info("Done saving {} statements of StatementColumnsEvent to DB.", savedCount);
+    }
+
+    /**
+     * Handles the {@link StatementsRetractedEvent} when it is published, on the publishing thread.
+     * Deletes the statements with the retracted references.
+     *
+     * @param statementsRetractedEvent the event that contains the references of the statements to remove
+     */
+    @EventListener
+    public void handleRetractedEvent(StatementsRetractedEvent statementsRetractedEvent) {
+        int deletedCount = statementBatchWriter.deleteByReferences(statementsRetractedEvent.getReferences());
+        log.info("Removed {} retracted statements from DB.", deletedCount);
+    }
+
+    /**
+     * Records the saving of a batch as a Flight Recorder event, if Flight Recorder is recording it.
+     *
+     * @param event            the started Flight Recorder event
+     * @param applicationEvent the event that contained the statements
+     * @param savedCount       the number of saved statements
+     */
+    private static void commit(StatementsPersistedEvent event, Object applicationEvent, int savedCount) {
+        if (event.shouldCommit()) {
+            event.event = applicationEvent.getClass().getSimpleName();
+            event.recordCount = savedCount;
+            event.commit();
+        }
     }
 
     /**
@@ -1,6 +1,7 @@
 package nl.rabobank.customer.statementprocessor.control.events;
 
 import nl.rabobank.customer.statementprocessor.entity.model.Statement;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
@@ -38,6 +39,39 @@ public class StatementsEventPublisher {
         log.info("Done publishing statements event...");
     }
 
+    /**
+     * Publishes a {@link StatementColumnsEvent} with a columnar batch of statements if the batch has rows.
+     * The listeners handle the event synchronously, the batch can be cleared and reused when this method returns.
+     *
+     * @param columns the batch of statements to publish
+     */
+    public void publishColumns(StatementColumns columns) {
+        if (columns == null || columns.isEmpty()) {
+            log.info("No statements to publish.");
+            return;
+        }
+
+        log.info("Start publishing statement columns event...");
+        publisher.publishEvent(new StatementColumnsEvent(this, columns));
+        log.info("Done publishing statement columns event...");
+    }
+
+    /**
+     * Publishes a {@link StatementsRetractedEvent} for the references of saved statements to remove, if there are
+     * any. The listeners handle the event synchronously, within the transaction of the file.
+     *
+     * @param references the references of the statements to remove
+     */
+    public void publishRetracted(long[] references) {
+        if (references == null || references.length == 0) {
+            return;
+        }
+
+        log.info("Start publishing statements retracted event for {} references...", references.length);
+        publisher.publishEvent(new StatementsRetractedEvent(this, references));
+        log.info("Done publishing statements retracted event...");
+    }
+
     /**
      * Checks if the provided list of statements is either {@code null} or empty.
      * Logs a message if no statements are available to publish.
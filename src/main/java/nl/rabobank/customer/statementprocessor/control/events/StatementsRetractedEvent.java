@@ -0,0 +1,22 @@
+package nl.rabobank.customer.statementprocessor.control.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Objects;
+
+/**
+ * References of statements that were saved as accepted and turned out to be duplicates of a later statement of the
+ * same file, so their statements are to be removed again.
+ */
+public class StatementsRetractedEvent extends ApplicationEvent {
+    private final long[] references;
+
+    public StatementsRetractedEvent(Object source, long[] references) {
+        super(source);
+        this.references = Objects.requireNonNull(references, "references cannot be null");
+    }
+
+    public long[] getReferences() {
+        return references;
+    }
+}
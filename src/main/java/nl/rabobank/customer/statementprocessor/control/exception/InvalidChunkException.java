@@ -0,0 +1,7 @@
+package nl.rabobank.customer.statementprocessor.control.exception;
+
+public class InvalidChunkException extends RuntimeException {
+    public InvalidChunkException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package nl.rabobank.customer.statementprocessor.control.exception;
+
+public class JobNotFoundException extends RuntimeException {
+    public JobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package nl.rabobank.customer.statementprocessor.control.exception;
+
+public class ReportNotFoundException extends RuntimeException {
+    public ReportNotFoundException(String message) {
+        super(message);
+    }
+}
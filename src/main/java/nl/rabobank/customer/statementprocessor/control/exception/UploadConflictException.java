@@ -0,0 +1,7 @@
+package nl.rabobank.customer.statementprocessor.control.exception;
+
+public class UploadConflictException extends RuntimeException {
+    public UploadConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package nl.rabobank.customer.statementprocessor.control.exception;
+
+public class UploadNotFoundException extends RuntimeException {
+    public UploadNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package nl.rabobank.customer.statementprocessor.control.exception;
+
+import java.time.Duration;
+
+public class UploadRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UploadRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return How long to wait before uploading the file again.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
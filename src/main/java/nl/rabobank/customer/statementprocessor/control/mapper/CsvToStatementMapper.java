@@ -20,7 +20,7 @@ public class CsvToStatementMapper {
      */
     public List<CustomerStatement> fromCsvToStatementList(List<StatementCsv> csvList) {
         return csvList.stream()
-                .map(this::mapToStatement)
+                .map(this::fromCsvToStatement)
                 .toList();
     }
 
@@ -30,7 +30,7 @@ public class CsvToStatementMapper {
      * @param csvRecord The {@link StatementCsv} to be mapped to a {@link CustomerStatement}.
      * @return A {@link CustomerStatement} object mapped from the given {@link StatementCsv}.
      */
-    private CustomerStatement mapToStatement(StatementCsv csvRecord) {
+    public CustomerStatement fromCsvToStatement(StatementCsv csvRecord) {
         return new CustomerStatement(
                 csvRecord.reference(),
                 csvRecord.accountNumber(),
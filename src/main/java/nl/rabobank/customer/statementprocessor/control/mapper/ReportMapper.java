@@ -4,16 +4,27 @@ import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
 import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
 import org.springframework.stereotype.Component;
 
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.List;
 
 @Component
 public class ReportMapper {
-    private final SecureRandom secureRandom = new SecureRandom();
+    // A DRBG is seeded once and generates in memory. The platform default (NativePRNG) reads /dev/urandom while
+    // holding a monitor, which pins virtual threads on their carrier.
+    private final SecureRandom secureRandom = createSecureRandom();
 
     // Map ValidationResult list into a StatementReport
     public Report mapValidationResultsToReport(List<ValidationResult> failedRecords) {
         long reportId = secureRandom.nextLong();
         return new Report(reportId, failedRecords);
     }
+
+    private static SecureRandom createSecureRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
 }
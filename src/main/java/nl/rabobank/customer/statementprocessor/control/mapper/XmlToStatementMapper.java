@@ -20,7 +20,7 @@ public class XmlToStatementMapper {
      */
     public List<CustomerStatement> fromXmlToStatementList(List<StatementXml> statementCsvs) {
         return statementCsvs.stream()
-                .map(this::mapToStatement)
+                .map(this::fromXmlToStatement)
                 .toList();
     }
 
@@ -30,7 +30,7 @@ public class XmlToStatementMapper {
      * @param statementXml The {@link StatementXml} to be mapped to a {@link CustomerStatement}.
      * @return A {@link CustomerStatement} object mapped from the given {@link StatementXml}.
      */
-    private CustomerStatement mapToStatement(StatementXml statementXml) {
+    public CustomerStatement fromXmlToStatement(StatementXml statementXml) {
         return new CustomerStatement(
                 statementXml.reference(),
                 statementXml.accountNumber(),
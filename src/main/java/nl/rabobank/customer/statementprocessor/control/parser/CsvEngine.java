@@ -0,0 +1,15 @@
+package nl.rabobank.customer.statementprocessor.control.parser;
+
+/**
+ * The parser used for CSV files, selected with {@code statement.parsing.csv-engine}.
+ */
+public enum CsvEngine {
+    /**
+     * Jackson databinding, see {@link CsvFileParser}.
+     */
+    JACKSON,
+    /**
+     * Byte-level tokenizer for the statement layout, see {@link TokenizingCsvFileParser}.
+     */
+    TOKENIZER
+}
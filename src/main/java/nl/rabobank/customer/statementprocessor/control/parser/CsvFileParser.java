@@ -8,14 +8,17 @@ import nl.rabobank.customer.statementprocessor.boundary.dto.StatementCsv;
 import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
 import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
 import nl.rabobank.customer.statementprocessor.control.mapper.CsvToStatementMapper;
+import nl.rabobank.customer.statementprocessor.util.jfr.FileParsedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public final class CsvFileParser implements FileParser {
@@ -48,18 +51,49 @@ public final class CsvFileParser implements FileParser {
      */
     @Override
     public List<CustomerStatement> parseFile(MultipartFile file) {
-        log.info("Start parsing the CSV file: {}", file.getOriginalFilename());
+        List<CustomerStatement> customerStatements = new ArrayList<>();
+        try (InputStream inputStream = file.getInputStream()) {
+            parse(inputStream, file.getOriginalFilename(), customerStatements::add);
+        } catch (IOException e) {
+            log.error("Failed to read CSV file: {}", file.getOriginalFilename(), e);
+            throw new FileParsingException("CSV parsing failed: " + e.getMessage());
+        }
+        return customerStatements;
+    }
 
-        try {
-            var schema = createCsvSchema();
-            var statementCsvList = parseCsvFile(file, schema);
-            log.info("Successfully parsed CSV file: {}", file.getOriginalFilename());
+    /**
+     * Streams a CSV file record by record to the given consumer.
+     *
+     * Records are bound one at a time with Jackson's {@link MappingIterator}, so only the current row is held
+     * in memory. Exceptions thrown by the consumer are propagated unchanged.
+     *
+     * @param inputStream The CSV content to be parsed.
+     * @param fileName    The name of the file, used for logging.
+     * @param consumer    Receives every parsed CustomerStatement.
+     * @return The number of records parsed.
+     * @throws FileParsingException if the content cannot be parsed or the format is invalid.
+     */
+    @Override
+    public long parse(InputStream inputStream, String fileName, Consumer<CustomerStatement> consumer) {
+        log.info("Start parsing the CSV file: {}", fileName);
 
-            return csvToStatementMapper.fromCsvToStatementList(statementCsvList);
-        } catch (Exception e) {
-            log.error("Failed to parse CSV file: {}", file.getOriginalFilename(), e);
+        var event = new FileParsedEvent();
+        var input = event.begin(this, fileName, inputStream);
+        var schema = createCsvSchema();
+        long recordCount = 0;
+        try (MappingIterator<StatementCsv> mappingIterator = openCsvIterator(input, schema)) {
+            while (mappingIterator.hasNextValue()) {
+                consumer.accept(csvToStatementMapper.fromCsvToStatement(mappingIterator.nextValue()));
+                recordCount++;
+            }
+        } catch (IOException e) {
+            log.error("Failed to parse CSV file: {}", fileName, e);
             throw new FileParsingException("CSV parsing failed: " + e.getMessage());
         }
+
+        event.commit(recordCount);
+        log.info("Successfully parsed {} records from CSV file: {}", recordCount, fileName);
+        return recordCount;
     }
 
     /**
@@ -75,19 +109,17 @@ public final class CsvFileParser implements FileParser {
     }
 
     /**
-     * Parses the given CSV file using the provided schema.
+     * Opens a streaming iterator over the given CSV content using the provided schema.
      *
-     * @param file   The CSV file to be parsed.
-     * @param schema The schema to be used for parsing the file.
-     * @return A list of StatementCsv objects parsed from the file.
-     * @throws IOException If an error occurs while reading or parsing the file.
+     * @param inputStream The CSV content to be parsed.
+     * @param schema      The schema to be used for parsing the content.
+     * @return A MappingIterator that binds one StatementCsv per call.
+     * @throws IOException If an error occurs while reading the header of the content.
      */
-    private List<StatementCsv> parseCsvFile(MultipartFile file, CsvSchema schema) throws IOException {
-        try (MappingIterator<StatementCsv> mappingIterator = csvMapper
+    private MappingIterator<StatementCsv> openCsvIterator(InputStream inputStream, CsvSchema schema) throws IOException {
+        return csvMapper
                 .readerWithSchemaFor(StatementCsv.class)
                 .with(schema)
-                .readValues(new String(file.getBytes(), StandardCharsets.UTF_8))) {
-            return mappingIterator.readAll();
-        }
+                .readValues(inputStream);
     }
 }
@@ -3,12 +3,26 @@ package nl.rabobank.customer.statementprocessor.control.parser;
 import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A sealed interface for parsing different types of files into customer statements.
  * It defines a contract for file parsers (CSV, XML) to implement the parsing logic.
+ * CSV files are parsed by one of two engines, see {@link CsvEngine}.
  */
-public sealed interface FileParser permits CsvFileParser, XmlFileParser {
+public sealed interface FileParser permits CsvFileParser, TokenizingCsvFileParser, XmlFileParser {
     List<CustomerStatement> parseFile(MultipartFile file) ;
+
+    /**
+     * Streams the records of the given input to the consumer one at a time, in file order.
+     * The input is read incrementally and is never materialised as a whole.
+     *
+     * @param inputStream The content to parse, the caller remains responsible for closing it.
+     * @param fileName    The name of the file, used for logging.
+     * @param consumer    Receives every parsed {@link CustomerStatement}.
+     * @return The number of records handed to the consumer.
+     */
+    long parse(InputStream inputStream, String fileName, Consumer<CustomerStatement> consumer);
 }
@@ -0,0 +1,587 @@
+package nl.rabobank.customer.statementprocessor.control.parser;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.util.FixedPointAmount;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import nl.rabobank.customer.statementprocessor.util.StringDictionary;
+import nl.rabobank.customer.statementprocessor.util.jfr.FileParsedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Parser for CSV statement files that tokenizes the UTF-8 bytes of the file itself, as an alternative to the Jackson
+ * databinding of {@link CsvFileParser} for the fixed six column layout of a statement file:
+ * {@code Reference,Account Number,Description,Start Balance,Mutation,End Balance}.
+ *
+ * Columns are taken by position and the header line is skipped, like {@link CsvFileParser} does. The reference is
+ * parsed straight from the bytes into a {@code long} and every amount into an unscaled {@code long} and a scale, which
+ * give the cents of the statement and its {@link BigDecimal} without an intermediate {@code String}. Only the account
+ * number and the description become strings, or only dictionary ids when the records are parsed into
+ * {@link StatementColumns}. Fields may be quoted, with {@code ""} for a quote and with commas or line
+ * breaks inside the quotes. Delimiters are ASCII and never part of a multi-byte UTF-8 sequence, so the bytes are
+ * scanned without decoding them. Amounts in another notation, such as an exponent, fall back to {@link BigDecimal}
+ * parsing.
+ */
+@Service
+public final class TokenizingCsvFileParser implements FileParser {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenizingCsvFileParser.class);
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int COLUMN_COUNT = 6;
+    private static final int REFERENCE = 0;
+    private static final int ACCOUNT_NUMBER = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int START_BALANCE = 3;
+    private static final int MUTATION = 4;
+    private static final int END_BALANCE = 5;
+    private static final byte QUOTE = '"';
+    private static final byte SEPARATOR = ',';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    /**
+     * Unscaled values up to this bound can take another digit without overflowing.
+     */
+    private static final long MAX_UNSCALED_BEFORE_DIGIT = (Long.MAX_VALUE - 9) / 10;
+
+    private final int bufferSize;
+
+    public TokenizingCsvFileParser() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize The initial number of bytes read at a time, the buffer grows for longer records.
+     */
+    public TokenizingCsvFileParser(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Parses a CSV file into a list of {@link CustomerStatement} objects.
+     *
+     * @param file The CSV file to be parsed.
+     * @return A list of CustomerStatement objects parsed from the CSV file.
+     * @throws FileParsingException if the file cannot be parsed or the format is invalid.
+     */
+    @Override
+    public List<CustomerStatement> parseFile(MultipartFile file) {
+        List<CustomerStatement> customerStatements = new ArrayList<>();
+        try (InputStream inputStream = file.getInputStream()) {
+            parse(inputStream, file.getOriginalFilename(), customerStatements::add);
+        } catch (IOException e) {
+            log.error("Failed to read CSV file: {}", file.getOriginalFilename(), e);
+            throw new FileParsingException("CSV parsing failed: " + e.getMessage());
+        }
+        return customerStatements;
+    }
+
+    /**
+     * Streams a CSV file record by record to the given consumer.
+     * Only the current buffer of bytes is held in memory. Exceptions thrown by the consumer are propagated unchanged.
+     *
+     * @param inputStream The CSV content to be parsed.
+     * @param fileName    The name of the file, used for logging.
+     * @param consumer    Receives every parsed CustomerStatement.
+     * @return The number of records parsed.
+     * @throws FileParsingException if the content cannot be read or a record is invalid.
+     */
+    @Override
+    public long parse(InputStream inputStream, String fileName, Consumer<CustomerStatement> consumer) {
+        return tokenize(inputStream, fileName, tokenizer -> consumer.accept(tokenizer.toCustomerStatement()));
+    }
+
+    /**
+     * Streams a CSV file record by record into a columnar batch, without creating a {@link CustomerStatement} per
+     * record. The account number and the description are interned straight from the bytes of the file, so only
+     * values that are new to the batch are decoded into strings, and amounts only become {@link BigDecimal} when
+     * they are not representable in cents.
+     * Exceptions thrown by the consumer are propagated unchanged.
+     *
+     * @param inputStream The CSV content to be parsed.
+     * @param fileName    The name of the file, used for logging.
+     * @param columns     The batch every record is added to. The consumer makes room by clearing it when it is full.
+     * @param rowConsumer Receives the row of every parsed record, right after it was added to the batch.
+     * @return The number of records parsed.
+     * @throws FileParsingException if the content cannot be read or a record is invalid.
+     */
+    public long parse(InputStream inputStream, String fileName, StatementColumns columns, IntConsumer rowConsumer) {
+        return tokenize(inputStream, fileName, tokenizer -> rowConsumer.accept(tokenizer.addTo(columns)));
+    }
+
+    /**
+     * @param recordHandler Called for every record, with the tokenizer positioned on the fields of the record.
+     */
+    private long tokenize(InputStream inputStream, String fileName, Consumer<Tokenizer> recordHandler) {
+        log.info("Start tokenizing the CSV file: {}", fileName);
+
+        var event = new FileParsedEvent();
+        var input = event.begin(this, fileName, inputStream);
+        long recordCount;
+        try {
+            recordCount = new Tokenizer(input, bufferSize).parse(recordHandler);
+        } catch (IOException e) {
+            log.error("Failed to read CSV file: {}", fileName, e);
+            throw new FileParsingException("CSV parsing failed: " + e.getMessage());
+        } catch (InvalidRecordException e) {
+            log.error("Failed to parse CSV file: {}: {}", fileName, e.getMessage());
+            throw new FileParsingException("CSV parsing failed: " + e.getMessage());
+        }
+
+        event.commit(recordCount);
+        log.info("Successfully tokenized {} records from CSV file: {}", recordCount, fileName);
+        return recordCount;
+    }
+
+    /**
+     * Tokenizer over one input. The buffer holds the bytes from the start of the current record to the last byte
+     * read; when a record runs past the end of the buffer the record is moved to the front, the buffer is refilled
+     * (and grown if the record fills it) and the record is tokenized again from its start.
+     */
+    private static final class Tokenizer {
+        private final InputStream inputStream;
+        private byte[] buffer;
+        private int recordStart;
+        private int limit;
+        private boolean endOfInput;
+        private long lineNumber;
+        private final int[] fieldStarts = new int[COLUMN_COUNT];
+        private final int[] fieldEnds = new int[COLUMN_COUNT];
+        private final boolean[] quotedFields = new boolean[COLUMN_COUNT];
+        private byte[] unquoted = new byte[64];
+        private final Amount startBalance = new Amount();
+        private final Amount mutation = new Amount();
+        private final Amount endBalance = new Amount();
+
+        private Tokenizer(InputStream inputStream, int bufferSize) {
+            this.inputStream = inputStream;
+            this.buffer = new byte[bufferSize];
+        }
+
+        private long parse(Consumer<Tokenizer> recordHandler) throws IOException {
+            fill();
+            skipByteOrderMark();
+            long recordCount = 0;
+            boolean isHeaderSkipped = false;
+            int fieldCount;
+            while ((fieldCount = nextRecord()) >= 0) {
+                if (fieldCount == 0) {
+                    continue;
+                }
+                if (!isHeaderSkipped) {
+                    // The header names are not needed for the fixed layout
+                    isHeaderSkipped = true;
+                    continue;
+                }
+                if (fieldCount != COLUMN_COUNT) {
+                    throw invalid("expected " + COLUMN_COUNT + " columns but found " + fieldCount);
+                }
+                recordHandler.accept(this);
+                recordCount++;
+            }
+            return recordCount;
+        }
+
+        /**
+         * Tokenizes the next record into the field offsets.
+         *
+         * @return The number of fields of the record, {@code 0} for a blank line or {@code -1} at the end of input.
+         */
+        private int nextRecord() throws IOException {
+            while (true) {
+                if (recordStart == limit && endOfInput) {
+                    return -1;
+                }
+                int end = tokenize();
+                if (end >= 0) {
+                    return end;
+                }
+                if (endOfInput) {
+                    throw new InvalidRecordException("line " + (lineNumber + 1) + ": unterminated quoted field");
+                }
+                compactAndFill();
+            }
+        }
+
+        /**
+         * @return The number of fields, or {@code -1} if the record does not end within the buffer.
+         */
+        private int tokenize() {
+            int position = recordStart;
+            int field = 0;
+            while (true) {
+                int fieldStart = position;
+                boolean quoted = position < limit && buffer[position] == QUOTE;
+                if (quoted) {
+                    position = closingQuote(position + 1);
+                    if (position < 0) {
+                        return -1;
+                    }
+                    position++;
+                }
+                while (position < limit && buffer[position] != SEPARATOR && !isLineEnd(position)) {
+                    position++;
+                }
+                if (position == limit && !endOfInput) {
+                    return -1;
+                }
+                if (field < COLUMN_COUNT) {
+                    fieldStarts[field] = fieldStart;
+                    fieldEnds[field] = position;
+                    quotedFields[field] = quoted;
+                }
+                field++;
+                if (position == limit) {
+                    recordStart = limit;
+                    return endRecord(field);
+                }
+                if (buffer[position] != SEPARATOR) {
+                    if (position + 1 == limit && !endOfInput) {
+                        // A carriage return may be followed by a line feed in the next read
+                        return -1;
+                    }
+                    recordStart = skipLineEnd(position);
+                    return endRecord(field);
+                }
+                position++;
+            }
+        }
+
+        private boolean isBlankLine(int fieldCount) {
+            if (fieldCount != 1 || quotedFields[0]) {
+                return false;
+            }
+            for (int position = fieldStarts[0]; position < fieldEnds[0]; position++) {
+                if (!isBlank(buffer[position])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return The number of fields, {@code 0} if the record is a single unquoted field of blanks.
+         */
+        private int endRecord(int fieldCount) {
+            lineNumber++;
+            return isBlankLine(fieldCount) ? 0 : fieldCount;
+        }
+
+        /**
+         * @param position The first byte after an opening quote.
+         * @return The position of the closing quote, or {@code -1} if it is not in the buffer.
+         */
+        private int closingQuote(int position) {
+            while (position < limit) {
+                if (buffer[position] == QUOTE) {
+                    if (position + 1 == limit && !endOfInput) {
+                        // An escaped quote may continue in the next read
+                        return -1;
+                    }
+                    if (position + 1 == limit || buffer[position + 1] != QUOTE) {
+                        return position;
+                    }
+                    position++;
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        private boolean isLineEnd(int position) {
+            return buffer[position] == LINE_FEED || buffer[position] == CARRIAGE_RETURN;
+        }
+
+        /**
+         * @param position The position of a line feed, carriage return or carriage return and line feed.
+         * @return The position after the line end.
+         */
+        private int skipLineEnd(int position) {
+            if (buffer[position] == CARRIAGE_RETURN && position + 1 < limit && buffer[position + 1] == LINE_FEED) {
+                return position + 2;
+            }
+            return position + 1;
+        }
+
+        private void skipByteOrderMark() {
+            if (limit >= BYTE_ORDER_MARK.length
+                    && Arrays.equals(buffer, 0, BYTE_ORDER_MARK.length, BYTE_ORDER_MARK, 0, BYTE_ORDER_MARK.length)) {
+                recordStart = BYTE_ORDER_MARK.length;
+            }
+        }
+
+        /**
+         * Moves the current record to the front of the buffer, grows the buffer when the record fills it and reads
+         * more bytes.
+         */
+        private void compactAndFill() throws IOException {
+            int length = limit - recordStart;
+            if (recordStart == 0 && length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else {
+                System.arraycopy(buffer, recordStart, buffer, 0, length);
+            }
+            recordStart = 0;
+            limit = length;
+            fill();
+        }
+
+        /**
+         * Reads until the buffer is full or the input ends.
+         */
+        private void fill() throws IOException {
+            int read;
+            while (limit < buffer.length && (read = inputStream.read(buffer, limit, buffer.length - limit)) >= 0) {
+                limit += read;
+            }
+            endOfInput = limit < buffer.length;
+        }
+
+        private CustomerStatement toCustomerStatement() {
+            long reference = parseReference();
+            String accountNumber = text(ACCOUNT_NUMBER);
+            String description = text(DESCRIPTION);
+            parseAmounts();
+            return new CustomerStatement(reference, accountNumber, startBalance.toBigDecimal(),
+                    mutation.toBigDecimal(), description, endBalance.toBigDecimal(), startBalance.cents,
+                    mutation.cents, endBalance.cents);
+        }
+
+        /**
+         * @return The row of the record in the batch.
+         */
+        private int addTo(StatementColumns columns) {
+            long reference = parseReference();
+            int accountNumber = intern(columns.accountNumbers(), ACCOUNT_NUMBER);
+            int description = intern(columns.descriptions(), DESCRIPTION);
+            parseAmounts();
+            int row = columns.add(reference, accountNumber, description, startBalance.cents, mutation.cents,
+                    endBalance.cents);
+            if (!FixedPointAmount.isRepresentable(startBalance.cents, mutation.cents, endBalance.cents)) {
+                columns.setExactAmounts(row, startBalance.toBigDecimal(), mutation.toBigDecimal(),
+                        endBalance.toBigDecimal());
+            }
+            return row;
+        }
+
+        private void parseAmounts() {
+            parseAmount(START_BALANCE, startBalance);
+            parseAmount(MUTATION, mutation);
+            parseAmount(END_BALANCE, endBalance);
+        }
+
+        private long parseReference() {
+            int position = trimmedStart(REFERENCE);
+            int end = trimmedEnd(REFERENCE, position);
+            boolean isNegative = position < end && buffer[position] == '-';
+            if (position < end && (buffer[position] == '-' || buffer[position] == '+')) {
+                position++;
+            }
+            if (position == end) {
+                throw invalid(columnName(REFERENCE) + " is not a number");
+            }
+            long value = 0;
+            for (; position < end; position++) {
+                int digit = buffer[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw invalid(columnName(REFERENCE) + " is not a number");
+                }
+                if (value > MAX_UNSCALED_BEFORE_DIGIT) {
+                    throw invalid(columnName(REFERENCE) + " is out of range");
+                }
+                value = value * 10 + digit;
+            }
+            return isNegative ? -value : value;
+        }
+
+        /**
+         * Parses an amount of the form {@code [+-]digits[.digits]} into an unscaled value and a scale, any other
+         * notation or an amount beyond the range of a {@code long} is parsed by {@link BigDecimal}.
+         */
+        private void parseAmount(int field, Amount amount) {
+            int start = trimmedStart(field);
+            int end = trimmedEnd(field, start);
+            int position = start;
+            boolean isNegative = position < end && buffer[position] == '-';
+            if (position < end && (buffer[position] == '-' || buffer[position] == '+')) {
+                position++;
+            }
+            long unscaled = 0;
+            int digits = 0;
+            int scale = -1;
+            for (; position < end; position++) {
+                byte current = buffer[position];
+                if (current == '.' && scale < 0) {
+                    scale = 0;
+                    continue;
+                }
+                int digit = current - '0';
+                if (digit < 0 || digit > 9 || unscaled > MAX_UNSCALED_BEFORE_DIGIT) {
+                    parseBigDecimal(field, start, end, amount);
+                    return;
+                }
+                unscaled = unscaled * 10 + digit;
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            }
+            if (digits == 0) {
+                parseBigDecimal(field, start, end, amount);
+                return;
+            }
+            amount.value = null;
+            amount.unscaled = isNegative ? -unscaled : unscaled;
+            amount.scale = Math.max(scale, 0);
+            amount.cents = FixedPointAmount.toCents(amount.unscaled, amount.scale);
+        }
+
+        private void parseBigDecimal(int field, int start, int end, Amount amount) {
+            try {
+                amount.value = new BigDecimal(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw invalid(columnName(field) + " is not a number");
+            }
+            amount.cents = FixedPointAmount.toCents(amount.value);
+        }
+
+        /**
+         * @return The UTF-8 text of a field, without the quotes of a quoted field.
+         */
+        private String text(int field) {
+            int start = fieldStarts[field];
+            int end = fieldEnds[field];
+            if (!quotedFields[field]) {
+                return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+            }
+            return new String(unquoted, 0, unquote(field), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return The id of the UTF-8 text of a field in the dictionary, without the quotes of a quoted field.
+         */
+        private int intern(StringDictionary dictionary, int field) {
+            int start = fieldStarts[field];
+            int end = fieldEnds[field];
+            if (!quotedFields[field]) {
+                return dictionary.intern(buffer, start, end - start);
+            }
+            return dictionary.intern(unquoted, 0, unquote(field));
+        }
+
+        private int lastIndexOfQuote(int start, int end) {
+            int position = end - 1;
+            while (position > start && buffer[position] != QUOTE) {
+                position--;
+            }
+            return position;
+        }
+
+        /**
+         * Copies the text between the quotes of a quoted field to {@link #unquoted}, with every {@code ""} replaced
+         * by a single quote.
+         *
+         * @return The number of bytes of the text.
+         */
+        private int unquote(int field) {
+            int start = fieldStarts[field] + 1;
+            int end = lastIndexOfQuote(fieldStarts[field], fieldEnds[field]);
+            if (end + 1 != fieldEnds[field]) {
+                throw invalid(columnName(field) + " has text after its closing quote");
+            }
+            int length = 0;
+            if (unquoted.length < end - start) {
+                unquoted = new byte[Math.max(end - start, unquoted.length * 2)];
+            }
+            for (int position = start; position < end; position++) {
+                unquoted[length++] = buffer[position];
+                if (buffer[position] == QUOTE) {
+                    position++;
+                }
+            }
+            return length;
+        }
+
+        private int trimmedStart(int field) {
+            int start = fieldStarts[field];
+            int end = fieldEnds[field];
+            if (quotedFields[field]) {
+                return start + 1;
+            }
+            while (start < end && isBlank(buffer[start])) {
+                start++;
+            }
+            return start;
+        }
+
+        private int trimmedEnd(int field, int start) {
+            int end = fieldEnds[field];
+            if (quotedFields[field]) {
+                return lastIndexOfQuote(start - 1, end);
+            }
+            while (end > start && isBlank(buffer[end - 1])) {
+                end--;
+            }
+            return end;
+        }
+
+        private static boolean isBlank(byte value) {
+            return value == ' ' || value == '\t';
+        }
+
+        private static String columnName(int field) {
+            return switch (field) {
+                case REFERENCE -> "Reference";
+                case ACCOUNT_NUMBER -> "Account Number";
+                case DESCRIPTION -> "Description";
+                case START_BALANCE -> "Start Balance";
+                case MUTATION -> "Mutation";
+                default -> "End Balance";
+            };
+        }
+
+        private InvalidRecordException invalid(String message) {
+            return new InvalidRecordException("line " + lineNumber + ": " + message);
+        }
+    }
+
+    /**
+     * An amount of the record being parsed, as an unscaled value and a scale, or as a {@link BigDecimal} when it was
+     * parsed by {@link BigDecimal}.
+     */
+    private static final class Amount {
+        private BigDecimal value;
+        private long unscaled;
+        private int scale;
+        private long cents;
+
+        private BigDecimal toBigDecimal() {
+            return value != null ? value : BigDecimal.valueOf(unscaled, scale);
+        }
+    }
+
+    /**
+     * A record that does not match the statement layout, reported as a {@link FileParsingException}.
+     */
+    private static final class InvalidRecordException extends RuntimeException {
+        private InvalidRecordException(String message) {
+            super(message);
+        }
+    }
+}
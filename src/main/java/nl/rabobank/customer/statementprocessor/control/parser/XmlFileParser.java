@@ -2,17 +2,24 @@ package nl.rabobank.customer.statementprocessor.control.parser;
 
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
-import nl.rabobank.customer.statementprocessor.boundary.dto.StatementXmlList;
+import nl.rabobank.customer.statementprocessor.boundary.dto.StatementXml;
 import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
 import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
 import nl.rabobank.customer.statementprocessor.control.mapper.XmlToStatementMapper;
+import nl.rabobank.customer.statementprocessor.util.jfr.FileParsedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service responsible for parsing XML files into customer statements.
@@ -22,6 +29,7 @@ import java.util.List;
 public final class XmlFileParser implements FileParser {
 
     private static final Logger log = LoggerFactory.getLogger(XmlFileParser.class);
+    private static final String RECORD_ELEMENT = "record";
 
     private final XmlToStatementMapper xmlToStatementMapper;
     private final XmlMapper xmlMapper;
@@ -46,16 +54,86 @@ public final class XmlFileParser implements FileParser {
      */
     @Override
     public List<CustomerStatement> parseFile(MultipartFile file) throws InvalidFileException {
-        log.info("XML file processing started for file: {}", file.getOriginalFilename());
-        try {
-            // Deserialize XML data into StatementXmlList
-            var statementXmlList = xmlMapper.readValue(file.getInputStream(), StatementXmlList.class);
-
-            // Map XML records to customer statements
-            return xmlToStatementMapper.fromXmlToStatementList(statementXmlList.records());
+        List<CustomerStatement> customerStatements = new ArrayList<>();
+        try (InputStream inputStream = file.getInputStream()) {
+            parse(inputStream, file.getOriginalFilename(), customerStatements::add);
         } catch (IOException e) {
             log.error("XML processing failed for file: {} with error: {}", file.getOriginalFilename(), e.getMessage());
             throw new FileParsingException("XML processing failed: " + e.getMessage());
         }
+        return customerStatements;
+    }
+
+    /**
+     * Streams the {@code <record>} elements of the XML content to the consumer one at a time.
+     *
+     * A StAX reader walks the children of the {@code <records>} root element and only the current
+     * {@code <record>} element is bound to a {@link StatementXml}, so memory stays flat regardless of the file size
+     * and the first record reaches the consumer before the rest of the file has been read.
+     *
+     * @param inputStream The XML content to be parsed.
+     * @param fileName    The name of the file, used for logging.
+     * @param consumer    Receives every parsed customer statement.
+     * @return The number of records parsed.
+     * @throws FileParsingException if there is an issue with parsing the XML content.
+     */
+    @Override
+    public long parse(InputStream inputStream, String fileName, Consumer<CustomerStatement> consumer) {
+        log.info("XML file processing started for file: {}", fileName);
+
+        var event = new FileParsedEvent();
+        var input = event.begin(this, fileName, inputStream);
+        long recordCount = 0;
+        XMLStreamReader xmlStreamReader = null;
+        try {
+            xmlStreamReader = xmlMapper.getFactory().getXMLInputFactory().createXMLStreamReader(input);
+
+            // Position the reader on the <records> root element
+            xmlStreamReader.nextTag();
+            while (xmlStreamReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                requireRecordElement(xmlStreamReader);
+                var statementXml = xmlMapper.readValue(xmlStreamReader, StatementXml.class);
+                consumer.accept(xmlToStatementMapper.fromXmlToStatement(statementXml));
+                recordCount++;
+            }
+        } catch (IOException | XMLStreamException e) {
+            log.error("XML processing failed for file: {} with error: {}", fileName, e.getMessage());
+            throw new FileParsingException("XML processing failed: " + e.getMessage());
+        } finally {
+            closeQuietly(xmlStreamReader);
+        }
+
+        event.commit(recordCount);
+        log.info("XML file processing finished for file: {} with {} records", fileName, recordCount);
+        return recordCount;
+    }
+
+    /**
+     * Ensures the reader is positioned on a {@code <record>} element.
+     *
+     * @param xmlStreamReader The reader positioned on a child of the root element.
+     * @throws XMLStreamException if the element is not a {@code <record>}.
+     */
+    private static void requireRecordElement(XMLStreamReader xmlStreamReader) throws XMLStreamException {
+        if (!RECORD_ELEMENT.equals(xmlStreamReader.getLocalName())) {
+            throw new XMLStreamException("Unexpected element <" + xmlStreamReader.getLocalName() + ">",
+                    xmlStreamReader.getLocation());
+        }
+    }
+
+    /**
+     * Releases the StAX reader, the underlying input stream is left open for the caller.
+     *
+     * @param xmlStreamReader The reader to close, may be {@code null}.
+     */
+    private static void closeQuietly(XMLStreamReader xmlStreamReader) {
+        if (xmlStreamReader == null) {
+            return;
+        }
+        try {
+            xmlStreamReader.close();
+        } catch (XMLStreamException e) {
+            log.warn("Failed to close XML stream reader: {}", e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+/**
+ * Which statements of a file are saved, selected with {@code statement.processing.acceptance-mode} or per upload.
+ */
+public enum AcceptanceMode {
+    /**
+     * Nothing of a file is saved once any statement of it fails validation.
+     */
+    ALL_OR_NOTHING,
+    /**
+     * The statements that pass validation are saved and only the others are reported. All statements with a
+     * duplicate reference are rejected, also the one that came first.
+     */
+    PARTIAL
+}
@@ -0,0 +1,260 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
+import nl.rabobank.customer.statementprocessor.util.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the statement files of a ZIP archive concurrently.
+ * Every entry is inflated and parsed on a worker thread straight from the archive, without extracting it. The
+ * parsed statements are handed over in chunks through a bounded queue to the thread calling
+ * {@link #read(Path, ObjLongConsumer)}, which validates and saves them, so a slow consumer holds back the workers
+ * instead of piling up statements in memory. Statements of different entries arrive interleaved, each comes with its
+ * position in the archive: the index of its entry in the upper bits and its record index within the entry in the
+ * lower {@value #RECORD_INDEX_BITS} bits.
+ */
+final class ArchiveStatementReader {
+
+    static final int RECORD_INDEX_BITS = 40;
+    private static final Logger log = LoggerFactory.getLogger(ArchiveStatementReader.class);
+    private static final int CHUNK_SIZE = 256;
+    private static final int QUEUED_CHUNKS_PER_WORKER = 4;
+
+    private final EntryParser entryParser;
+    private final Predicate<String> isStatementFile;
+    private final int concurrency;
+
+    /**
+     * @param entryParser     Parses the content of an entry, selected by the name of the entry.
+     * @param isStatementFile Decides from the name of an entry if it is a statement file, other entries are skipped.
+     * @param concurrency     The maximum number of entries parsed at the same time.
+     */
+    ArchiveStatementReader(EntryParser entryParser, Predicate<String> isStatementFile, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.entryParser = entryParser;
+        this.isStatementFile = isStatementFile;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Parses all statement files of an archive like {@link #read(Path, ObjLongConsumer)}. An archive that is not a
+     * file yet is copied to a temporary file first, still compressed, so its entries can be read concurrently. The
+     * content of the archive is read in full either way.
+     *
+     * @param source        The source of the ZIP archive.
+     * @param contentFilter Wraps the content of the archive, to hash it for example.
+     * @param consumer      Receives every statement with its position in the archive.
+     * @return The length of the archive in bytes.
+     * @throws IOException          if the archive cannot be read.
+     * @throws InvalidFileException if the archive has no statement files.
+     * @throws FileParsingException if an entry cannot be parsed.
+     */
+    long read(InputStreamSource source, UnaryOperator<InputStream> contentFilter,
+              ObjLongConsumer<CustomerStatement> consumer) throws IOException {
+        Path temporaryFile = null;
+        try {
+            Path archive;
+            var countedInput = new CountingInputStream(source.getInputStream());
+            try (InputStream inputStream = contentFilter.apply(countedInput)) {
+                if (source instanceof Resource resource && resource.isFile()) {
+                    archive = resource.getFile().toPath();
+                    inputStream.transferTo(OutputStream.nullOutputStream());
+                } else {
+                    temporaryFile = Files.createTempFile("statement-archive-", ".zip");
+                    archive = temporaryFile;
+                    Files.copy(inputStream, archive, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            read(archive, consumer);
+            return countedInput.getCount();
+        } finally {
+            deleteTemporaryFile(temporaryFile);
+        }
+    }
+
+    /**
+     * Parses all statement files of the archive and hands every statement to the consumer, on the calling thread.
+     *
+     * @param archive  The ZIP archive.
+     * @param consumer Receives every statement with its position in the archive.
+     * @throws IOException          if the archive cannot be opened.
+     * @throws InvalidFileException if the archive has no statement files.
+     * @throws FileParsingException if an entry cannot be parsed.
+     */
+    void read(Path archive, ObjLongConsumer<CustomerStatement> consumer) throws IOException {
+        try (var zipFile = new ZipFile(archive.toFile())) {
+            List<? extends ZipEntry> entries = zipFile.stream()
+                    .filter(entry -> !entry.isDirectory() && isStatementFile.test(entry.getName()))
+                    .toList();
+            if (entries.isEmpty()) {
+                throw new InvalidFileException("The archive contains no CSV or XML files");
+            }
+
+            int workers = Math.min(concurrency, entries.size());
+            BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(workers * QUEUED_CHUNKS_PER_WORKER);
+            ExecutorService executor = Executors.newFixedThreadPool(workers,
+                    Thread.ofPlatform().name("statement-archive-", 0).daemon().factory());
+            try {
+                for (int entryIndex = 0; entryIndex < entries.size(); entryIndex++) {
+                    var entry = entries.get(entryIndex);
+                    long firstPosition = (long) entryIndex << RECORD_INDEX_BITS;
+                    executor.execute(() -> readEntry(zipFile, entry, firstPosition, chunks));
+                }
+                consumeChunks(chunks, entries.size(), consumer);
+            } finally {
+                // Stops workers that are still parsing when the consumer failed
+                executor.shutdownNow();
+                executor.close();
+            }
+        }
+    }
+
+    private static void deleteTemporaryFile(Path temporaryFile) {
+        if (temporaryFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporaryFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file {}", temporaryFile, e);
+        }
+    }
+
+    private static void consumeChunks(BlockingQueue<Chunk> chunks, int entryCount,
+                                      ObjLongConsumer<CustomerStatement> consumer) {
+        int remainingEntries = entryCount;
+        while (remainingEntries > 0) {
+            Chunk chunk = take(chunks);
+            if (chunk.failure() != null) {
+                throw chunk.failure();
+            }
+            long position = chunk.firstPosition();
+            for (var statement : chunk.statements()) {
+                consumer.accept(statement, position++);
+            }
+            if (chunk.isLast()) {
+                remainingEntries--;
+            }
+        }
+    }
+
+    private void readEntry(ZipFile zipFile, ZipEntry entry, long firstPosition, BlockingQueue<Chunk> chunks) {
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            var chunk = new ChunkBuilder(firstPosition);
+            entryParser.parse(inputStream, entry.getName(), statement -> {
+                if (chunk.add(statement)) {
+                    put(chunks, chunk.build(false));
+                }
+            });
+            put(chunks, chunk.build(true));
+        } catch (CancellationException e) {
+            // The archive is no longer read
+        } catch (IOException e) {
+            putFailure(chunks, new FileParsingException("Unable to read " + entry.getName() + ": " + e.getMessage()));
+        } catch (FileParsingException e) {
+            putFailure(chunks, new FileParsingException(entry.getName() + ": " + e.getMessage()));
+        } catch (RuntimeException e) {
+            putFailure(chunks, e);
+        }
+    }
+
+    private static void putFailure(BlockingQueue<Chunk> chunks, RuntimeException failure) {
+        try {
+            put(chunks, new Chunk(0, List.of(), true, failure));
+        } catch (CancellationException e) {
+            // The archive is no longer read
+        }
+    }
+
+    private static void put(BlockingQueue<Chunk> chunks, Chunk chunk) {
+        try {
+            chunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Reading the archive was cancelled");
+        }
+    }
+
+    private static Chunk take(BlockingQueue<Chunk> chunks) {
+        try {
+            return chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the archive", e);
+        }
+    }
+
+    /**
+     * Parses the content of a statement file.
+     */
+    @FunctionalInterface
+    interface EntryParser {
+        /**
+         * @param inputStream The content of the file.
+         * @param fileName    The name of the file, which determines its type.
+         * @param consumer    Receives every parsed statement.
+         * @throws IOException if the content cannot be read.
+         */
+        void parse(InputStream inputStream, String fileName, Consumer<CustomerStatement> consumer)
+                throws IOException;
+    }
+
+    /**
+     * Statements of one entry, starting at a position in the archive. The last chunk of an entry marks the entry as
+     * done, a chunk with a failure ends reading the archive.
+     */
+    private record Chunk(long firstPosition, List<CustomerStatement> statements, boolean isLast,
+                         RuntimeException failure) {
+    }
+
+    private static final class ChunkBuilder {
+        private long nextPosition;
+        private List<CustomerStatement> statements = new ArrayList<>(CHUNK_SIZE);
+
+        private ChunkBuilder(long firstPosition) {
+            this.nextPosition = firstPosition;
+        }
+
+        /**
+         * @return {@code true} if the chunk is full.
+         */
+        private boolean add(CustomerStatement statement) {
+            statements.add(statement);
+            return statements.size() == CHUNK_SIZE;
+        }
+
+        private Chunk build(boolean isLast) {
+            var chunk = new Chunk(nextPosition, statements, isLast, null);
+            nextPosition += statements.size();
+            statements = new ArrayList<>(CHUNK_SIZE);
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobState;
+import nl.rabobank.customer.statementprocessor.boundary.dto.UploadStatus;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidChunkException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadConflictException;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mutable state of one resumable upload: the chunks received so far, appended to a temporary file, and the job
+ * validating the file while it grows and saving it once it is complete. Chunks are written by request threads, one
+ * at a time, and read by the job.
+ * A chunk becomes visible to the job once its checksum has been verified, a chunk that fails verification or breaks
+ * off is overwritten by the next attempt.
+ */
+class ChunkedUpload {
+
+    private static final String CHUNK_DIGEST_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StatementJob job;
+    private final Path content;
+    private final FileChannel channel;
+    private final Duration idleTimeout;
+    /**
+     * Held while a chunk is written, so chunks are written one at a time and the file is not closed under a write.
+     * Unlike a monitor it does not pin a virtual thread that blocks on the request body.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    // Guarded by the lock
+    private long receivedBytes;
+    private int receivedChunks;
+    private byte[] lastChunkDigest;
+    private boolean isComplete;
+    private boolean isCancelled;
+    private boolean isClosed;
+
+    /**
+     * @param fileName    The name of the uploaded file.
+     * @param content     The temporary file the chunks are appended to, deleted when the upload is closed.
+     * @param idleTimeout How long the job waits for the next chunk before it fails.
+     * @throws IOException if the temporary file cannot be opened.
+     */
+    ChunkedUpload(String fileName, Path content, Duration idleTimeout) throws IOException {
+        this.job = new StatementJob(fileName);
+        this.content = content;
+        this.channel = FileChannel.open(content, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.idleTimeout = idleTimeout;
+    }
+
+    String getId() {
+        return job.getId();
+    }
+
+    StatementJob getJob() {
+        return job;
+    }
+
+    /**
+     * Appends a chunk to the file. The last received chunk may be sent again, when its response was lost, and is
+     * then ignored.
+     *
+     * @param chunkNumber    The number of the chunk, starting at 1.
+     * @param expectedDigest The SHA-256 digest of the chunk.
+     * @param chunk          The content of the chunk.
+     * @param maxChunkSize   The largest chunk accepted, in bytes.
+     * @return {@code true} if the chunk was appended, {@code false} if it repeats the last received chunk.
+     * @throws UploadConflictException if the chunk is not the next one or the upload accepts no more chunks.
+     * @throws InvalidChunkException   if the chunk is empty, too large or does not match its digest.
+     * @throws IOException             if the chunk cannot be read or written.
+     */
+    boolean append(int chunkNumber, byte[] expectedDigest, InputStream chunk, long maxChunkSize)
+            throws IOException {
+        writeLock.lock();
+        try {
+            return appendChunk(chunkNumber, expectedDigest, chunk, maxChunkSize);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean appendChunk(int chunkNumber, byte[] expectedDigest, InputStream chunk, long maxChunkSize)
+            throws IOException {
+        long position;
+        lock.lock();
+        try {
+            requireReceiving();
+            if (chunkNumber == receivedChunks && MessageDigest.isEqual(expectedDigest, lastChunkDigest)) {
+                return false;
+            }
+            if (chunkNumber != receivedChunks + 1) {
+                throw new UploadConflictException("Expected chunk " + (receivedChunks + 1) + " of upload "
+                        + getId() + " but got chunk " + chunkNumber);
+            }
+            position = receivedBytes;
+        } finally {
+            lock.unlock();
+        }
+
+        // Only this thread writes, the job reads no further than the received bytes
+        var digest = newChunkDigest();
+        long length = write(chunk, position, digest, chunkNumber, maxChunkSize);
+        if (length == 0) {
+            throw new InvalidChunkException("Chunk " + chunkNumber + " is empty");
+        }
+        if (!MessageDigest.isEqual(expectedDigest, digest.digest())) {
+            throw new InvalidChunkException("Checksum of chunk " + chunkNumber + " does not match its content");
+        }
+
+        lock.lock();
+        try {
+            requireReceiving();
+            receivedBytes += length;
+            receivedChunks = chunkNumber;
+            lastChunkDigest = expectedDigest;
+            changed.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the last chunk as received, the job finishes once it has read the file.
+     *
+     * @throws UploadConflictException if no chunk was received or the upload accepts no more chunks.
+     */
+    void complete() {
+        lock.lock();
+        try {
+            requireReceiving();
+            if (receivedChunks == 0) {
+                throw new UploadConflictException("No chunk of upload " + getId() + " was received");
+            }
+            isComplete = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the upload, the job fails without saving anything of the file.
+     */
+    void cancel() {
+        lock.lock();
+        try {
+            isCancelled = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The content of the file, which waits for chunks until the upload is complete.
+     */
+    InputStream openContent() {
+        return new ContentInputStream();
+    }
+
+    /**
+     * Waits until all chunks are received, reading the content as it arrives.
+     *
+     * @throws IOException if the upload is cancelled or no chunk arrives within the idle timeout.
+     */
+    void awaitComplete() throws IOException {
+        try (InputStream inputStream = openContent()) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * @return The complete file, to read once all chunks were received.
+     */
+    Resource getCompleteContent() {
+        return new FileSystemResource(content);
+    }
+
+    /**
+     * Closes and deletes the temporary file once the job is finished, after any chunk being written.
+     */
+    void close() throws IOException {
+        writeLock.lock();
+        try {
+            lock.lock();
+            try {
+                isClosed = true;
+            } finally {
+                lock.unlock();
+            }
+            channel.close();
+            Files.deleteIfExists(content);
+        } finally {
+            writeLock.unlock();
+            finished.countDown();
+        }
+    }
+
+    /**
+     * @param timeout How long to wait.
+     * @return {@code true} if the job finished within the timeout.
+     */
+    boolean awaitFinished(Duration timeout) {
+        try {
+            return finished.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    boolean isFinishedBefore(Instant instant) {
+        return job.isFinishedBefore(instant);
+    }
+
+    UploadStatus toStatus() {
+        int chunks;
+        long bytes;
+        lock.lock();
+        try {
+            chunks = receivedChunks;
+            bytes = receivedBytes;
+        } finally {
+            lock.unlock();
+        }
+        var jobStatus = job.toStatus();
+        return new UploadStatus(jobStatus.jobId(), jobStatus.status(), jobStatus.fileName(), chunks, bytes,
+                jobStatus.recordsProcessed(), jobStatus.report(), jobStatus.error());
+    }
+
+    private void requireReceiving() {
+        if (isCancelled) {
+            throw new UploadConflictException("Upload " + getId() + " was cancelled");
+        }
+        if (isComplete) {
+            throw new UploadConflictException("Upload " + getId() + " is complete, it accepts no more chunks");
+        }
+        // The job fails before the upload is closed
+        var jobStatus = job.toStatus();
+        if (isClosed || jobStatus.status() == JobState.FAILED) {
+            throw new UploadConflictException("Processing of upload " + getId() + " stopped: " + jobStatus.error());
+        }
+    }
+
+    /**
+     * Writes a chunk at the given position of the file, updating its digest.
+     *
+     * @return The length of the chunk.
+     */
+    private long write(InputStream chunk, long position, MessageDigest digest, int chunkNumber, long maxChunkSize)
+            throws IOException {
+        var source = Channels.newChannel(chunk);
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long length = 0;
+        while (source.read(buffer) >= 0) {
+            buffer.flip();
+            length += buffer.remaining();
+            if (length > maxChunkSize) {
+                throw new InvalidChunkException("Chunk " + chunkNumber + " is larger than " + maxChunkSize + " bytes");
+            }
+            digest.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+        return length;
+    }
+
+    private static MessageDigest newChunkDigest() {
+        try {
+            return MessageDigest.getInstance(CHUNK_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(CHUNK_DIGEST_ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Reads the received part of the file, waiting for the next chunk at its end.
+     */
+    private class ContentInputStream extends InputStream {
+
+        private long position;
+
+        @Override
+        public int read() throws IOException {
+            var singleByte = new byte[1];
+            return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            long available = awaitContent();
+            if (available < 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+            position += read;
+            return read;
+        }
+
+        /**
+         * @return The number of received bytes after the position, {@code -1} at the end of a complete upload.
+         */
+        private long awaitContent() throws IOException {
+            lock.lock();
+            try {
+                long remainingNanos = idleTimeout.toNanos();
+                while (true) {
+                    if (isCancelled) {
+                        throw new IOException("Upload " + getId() + " was cancelled");
+                    }
+                    if (position < receivedBytes) {
+                        return receivedBytes - position;
+                    }
+                    if (isComplete) {
+                        return -1;
+                    }
+                    if (remainingNanos <= 0) {
+                        throw new IOException("No chunk of upload " + getId() + " received within " + idleTimeout);
+                    }
+                    remainingNanos = changed.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a chunk of upload " + getId());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.UploadStatus;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidChunkException;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadConflictException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service receiving files in numbered chunks, so files of any size can be uploaded and an upload that broke off
+ * resumes at the last received chunk.
+ * The chunks of an upload are appended to a temporary file, and the file is validated by
+ * {@link StatementProcessorService} while it grows: by the time the last chunk is received most of the file is
+ * validated. Only then is the complete file processed and saved, so the transaction, its connection and the memory
+ * reservation of the file are held for a read of a local file instead of for the whole upload. Validating while the
+ * chunks arrive reserves the memory of its validation session as well, an upload that is not admitted for it is
+ * only validated when the complete file is processed.
+ * Every chunk carries the SHA-256 digest of its content in a {@code Content-Digest} header (RFC 9530), a chunk that
+ * does not match it is rejected and is sent again.
+ * An upload occupies a worker while its chunks arrive, so uploads are processed on a pool of their own, which bounds
+ * the uploads being validated, and an upload receiving no chunk for the idle timeout fails, saving nothing of its
+ * file. Finished uploads are kept for the configured retention.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final String DIGEST_ALGORITHM = "sha-256";
+    private final StatementProcessorService processorService;
+    private final TaskExecutor uploadExecutor;
+    private final long maxChunkSize;
+    private final Duration idleTimeout;
+    private final Duration completionTimeout;
+    private final Duration retention;
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * @param processorService  Service processing the uploaded files.
+     * @param uploadExecutor    Bounded worker pool processing the uploads.
+     * @param maxChunkSize      The largest chunk accepted.
+     * @param idleTimeout       How long an upload waits for its next chunk before it fails.
+     * @param completionTimeout How long completing an upload waits for its report.
+     * @param retention         How long the status of a finished upload stays available.
+     */
+    public ChunkedUploadService(StatementProcessorService processorService,
+                                @Qualifier("statementUploadExecutor") TaskExecutor uploadExecutor,
+                                @Value("${statement.uploads.max-chunk-size:8MB}") DataSize maxChunkSize,
+                                @Value("${statement.uploads.idle-timeout:PT1M}") Duration idleTimeout,
+                                @Value("${statement.uploads.completion-timeout:PT30S}") Duration completionTimeout,
+                                @Value("${statement.uploads.retention:PT1H}") Duration retention) {
+        this.processorService = processorService;
+        this.uploadExecutor = uploadExecutor;
+        this.maxChunkSize = maxChunkSize.toBytes();
+        this.idleTimeout = idleTimeout;
+        this.completionTimeout = completionTimeout;
+        this.retention = retention;
+    }
+
+    /**
+     * Starts an upload, validation of the file starts right away and waits for its chunks.
+     *
+     * @param filename The name of the file (CSV or XML, plain, gzipped or in a ZIP archive).
+     * @return The status of the new upload.
+     * @throws InvalidFileException  if the file type is unsupported or if the file name is missing.
+     * @throws TaskRejectedException if the worker pool and its queue are full.
+     */
+    public UploadStatus create(String filename) throws InvalidFileException {
+        processorService.requireSupportedFileName(filename);
+        evictExpiredUploads();
+
+        var upload = newUpload(filename);
+        uploads.put(upload.getId(), upload);
+        try {
+            uploadExecutor.execute(() -> run(upload));
+        } catch (TaskRejectedException e) {
+            uploads.remove(upload.getId());
+            closeQuietly(upload);
+            throw e;
+        }
+
+        log.info("Started upload {} of file {}", upload.getId(), filename);
+        return upload.toStatus();
+    }
+
+    /**
+     * Appends the next chunk to an upload. Sending the last received chunk again is accepted and ignored.
+     *
+     * @param uploadId      The ID of the upload.
+     * @param chunkNumber   The number of the chunk, starting at 1.
+     * @param contentDigest The {@code Content-Digest} of the chunk, holding its SHA-256 digest.
+     * @param chunk         The content of the chunk.
+     * @return The status of the upload.
+     * @throws UploadNotFoundException if there is no such upload, or it expired.
+     * @throws UploadConflictException if the chunk is not the next one or the upload accepts no more chunks.
+     * @throws InvalidChunkException   if the digest is missing, or the chunk is empty, too large or does not match it.
+     */
+    public UploadStatus appendChunk(String uploadId, int chunkNumber, String contentDigest, InputStream chunk) {
+        var upload = findUpload(uploadId);
+        byte[] expectedDigest = parseContentDigest(contentDigest, chunkNumber);
+        try {
+            if (!upload.append(chunkNumber, expectedDigest, chunk, maxChunkSize)) {
+                log.info("Chunk {} of upload {} was received before", chunkNumber, uploadId);
+            }
+        } catch (IOException e) {
+            throw new FileParsingException("Unable to store chunk " + chunkNumber + ": " + e.getMessage());
+        }
+        return upload.toStatus();
+    }
+
+    /**
+     * @param uploadId The ID of an upload.
+     * @return The current status of the upload, including the number of bytes received.
+     * @throws UploadNotFoundException if there is no such upload, or it expired.
+     */
+    public UploadStatus getUpload(String uploadId) {
+        return findUpload(uploadId).toStatus();
+    }
+
+    /**
+     * Marks the last chunk of an upload as received and waits for the rest of the file to be processed, at most for
+     * the completion timeout.
+     *
+     * @param uploadId The ID of the upload.
+     * @return The status of the upload, with the report if the file was processed in time.
+     * @throws UploadNotFoundException if there is no such upload, or it expired.
+     * @throws UploadConflictException if no chunk was received or the upload accepts no more chunks.
+     */
+    public UploadStatus complete(String uploadId) {
+        var upload = findUpload(uploadId);
+        upload.complete();
+        log.info("Received all chunks of upload {}", uploadId);
+        upload.awaitFinished(completionTimeout);
+        return upload.toStatus();
+    }
+
+    /**
+     * Cancels an upload, nothing of its file is saved.
+     *
+     * @param uploadId The ID of the upload.
+     * @throws UploadNotFoundException if there is no such upload, or it expired.
+     */
+    public void cancel(String uploadId) {
+        var upload = uploads.remove(uploadId);
+        if (upload == null) {
+            throw new UploadNotFoundException("No upload found with id " + uploadId);
+        }
+        upload.cancel();
+        log.info("Cancelled upload {}", uploadId);
+    }
+
+    private void run(ChunkedUpload upload) {
+        var job = upload.getJob();
+        job.start();
+        try {
+            // The records are counted while validating
+            LongConsumer progressListener = recordCount -> {
+            };
+            try {
+                int failedRecords = processorService.validate(job.getFileName(), upload::openContent, job::progress);
+                log.info("Received all of upload {}, {} records failed validation", upload.getId(), failedRecords);
+            } catch (UploadRejectedException e) {
+                log.warn("Upload {} is not validated while its chunks arrive: {}", upload.getId(), e.getMessage());
+                awaitComplete(upload);
+                progressListener = job::progress;
+            }
+            var report = processorService.process(job.getFileName(), upload.getCompleteContent(),
+                    ProcessingOptions.defaults().withProgressListener(progressListener));
+            job.complete(report);
+        } catch (RuntimeException e) {
+            log.error("Upload {} failed", upload.getId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            closeQuietly(upload);
+        }
+    }
+
+    /**
+     * @throws FileParsingException if the upload is cancelled or no chunk arrives within the idle timeout.
+     */
+    private static void awaitComplete(ChunkedUpload upload) {
+        try {
+            upload.awaitComplete();
+        } catch (IOException e) {
+            throw new FileParsingException("Unable to read the file: " + e.getMessage());
+        }
+    }
+
+    private ChunkedUpload findUpload(String uploadId) {
+        var upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw new UploadNotFoundException("No upload found with id " + uploadId);
+        }
+        return upload;
+    }
+
+    private ChunkedUpload newUpload(String filename) {
+        try {
+            return new ChunkedUpload(filename, Files.createTempFile("statement-upload-", ".upload"), idleTimeout);
+        } catch (IOException e) {
+            throw new FileParsingException("Unable to store the upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the SHA-256 digest from a {@code Content-Digest} header such as {@code sha-256=:<base64>:}, which may
+     * list digests of other algorithms as well.
+     */
+    private static byte[] parseContentDigest(String contentDigest, int chunkNumber) {
+        for (String member : contentDigest.split(",")) {
+            int separator = member.indexOf('=');
+            if (separator > 0 && member.substring(0, separator).trim().equalsIgnoreCase(DIGEST_ALGORITHM)) {
+                String value = member.substring(separator + 1).trim();
+                if (value.length() > 2 && value.startsWith(":") && value.endsWith(":")) {
+                    try {
+                        return Base64.getDecoder().decode(value.substring(1, value.length() - 1));
+                    } catch (IllegalArgumentException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        throw new InvalidChunkException("Content-Digest of chunk " + chunkNumber + " holds no " + DIGEST_ALGORITHM
+                + " digest");
+    }
+
+    private void evictExpiredUploads() {
+        var expiry = Instant.now().minus(retention);
+        uploads.values().removeIf(upload -> upload.isFinishedBefore(expiry));
+    }
+
+    private static void closeQuietly(ChunkedUpload upload) {
+        try {
+            upload.close();
+        } catch (IOException e) {
+            log.warn("Unable to delete the temporary file of upload {}", upload.getId(), e);
+        }
+    }
+}
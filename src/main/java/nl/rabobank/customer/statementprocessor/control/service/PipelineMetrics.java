@@ -0,0 +1,71 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer metrics of the statement pipeline, tagged with the format of the file ({@code csv}, {@code xml.gz},
+ * {@code zip}, ...):
+ * <ul>
+ *     <li>{@code statement.pipeline.stage}, a timer with a percentile histogram per stage, one sample per file</li>
+ *     <li>{@code statement.pipeline.records}, the parsed records, its rate gives the records per second</li>
+ *     <li>{@code statement.pipeline.bytes}, the bytes read from the files</li>
+ *     <li>{@code statement.pipeline.duplicates}, the records with a duplicate reference</li>
+ *     <li>{@code statement.pipeline.balance.failures}, the records with an invalid end balance</li>
+ * </ul>
+ * The meters are registered on first use, the registry returns the same meter for the same name and tags.
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param meterRegistry The registry of the pipeline meters.
+     */
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the metrics of a processed file.
+     *
+     * @param format          The format of the file.
+     * @param timings         The time the file spent in every stage.
+     * @param recordCount     The number of records of the file.
+     * @param byteCount       The number of bytes read from the file.
+     * @param duplicateCount  The number of records with a duplicate reference.
+     * @param balanceFailures The number of records with an invalid end balance.
+     */
+    public void record(String format, StageTimings timings, long recordCount, long byteCount, long duplicateCount,
+                       long balanceFailures) {
+        for (StageTimings.Stage stage : StageTimings.Stage.values()) {
+            Timer.builder("statement.pipeline.stage")
+                    .description("Time a file spent in a stage of the statement pipeline")
+                    .tag("stage", stage.metricName())
+                    .tag("format", format)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(timings.get(stage).toNanos(), TimeUnit.NANOSECONDS);
+        }
+        counter("statement.pipeline.records", "Records parsed from statement files", format)
+                .increment(recordCount);
+        counter("statement.pipeline.bytes", "Bytes read from statement files", format)
+                .increment(byteCount);
+        counter("statement.pipeline.duplicates", "Records rejected for a duplicate reference", format)
+                .increment(duplicateCount);
+        counter("statement.pipeline.balance.failures", "Records rejected for an invalid end balance", format)
+                .increment(balanceFailures);
+    }
+
+    private Counter counter(String name, String description, String format) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("format", format)
+                .register(meterRegistry);
+    }
+}
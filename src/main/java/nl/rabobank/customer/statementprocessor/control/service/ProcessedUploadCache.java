@@ -0,0 +1,144 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.util.LruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the reports of recently processed files, keyed on the SHA-256 hash of the file content.
+ * Upstream systems retry uploads, an identical file gets the report of the earlier upload instead of being processed
+ * again. The lengths of the cached files are kept as well, so the content of an upload only has to be hashed up
+ * front when a file of the same length was processed recently. Every lookup is counted as a hit or a miss in the
+ * {@code statement.upload.cache} metric.
+ */
+@Component
+public class ProcessedUploadCache {
+
+    static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+
+    private final LruCache<Key, CachedReport> reports;
+    private final LruCache<Long, Boolean> contentLengths;
+    private final Duration timeToLive;
+    private final int maxFailures;
+    private final InstantSource clock;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param meterRegistry The registry of the hit and miss counters.
+     * @param size          The maximum number of cached reports, {@code 0} disables the cache.
+     * @param timeToLive    How long a report is returned for a repeated upload.
+     * @param maxFailures   The maximum number of failed records of a cached report.
+     */
+    @Autowired
+    public ProcessedUploadCache(MeterRegistry meterRegistry,
+                                @Value("${statement.upload-cache.size:100}") int size,
+                                @Value("${statement.upload-cache.ttl:PT1H}") Duration timeToLive,
+                                @Value("${statement.reports.cache-max-failures:10000}") int maxFailures) {
+        this(meterRegistry, size, timeToLive, maxFailures, InstantSource.system());
+    }
+
+    /**
+     * @param meterRegistry The registry of the hit and miss counters.
+     * @param size          The maximum number of cached reports, {@code 0} disables the cache.
+     * @param timeToLive    How long a report is returned for a repeated upload.
+     * @param maxFailures   The maximum number of failed records of a cached report.
+     * @param clock         The clock deciding when a cached report expires.
+     */
+    public ProcessedUploadCache(MeterRegistry meterRegistry, int size, Duration timeToLive, int maxFailures,
+                                InstantSource clock) {
+        this.reports = new LruCache<>(size);
+        this.contentLengths = new LruCache<>(size);
+        this.timeToLive = timeToLive;
+        this.maxFailures = maxFailures;
+        this.clock = clock;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+    }
+
+    /**
+     * @return A new digest for the content hash of a file.
+     */
+    public static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(CONTENT_HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Looks up the report of an earlier upload with the same content.
+     *
+     * @param format        The format of the file, the same content in another format is another file.
+     * @param contentLength The length of the file, or {@code -1} if it is unknown.
+     * @param contentHash   Computes the content hash of the file, only called if a file of the same length is cached.
+     * @return The report of the earlier upload, or empty if the file was not processed recently.
+     */
+    public Optional<Report> find(String format, long contentLength, Supplier<byte[]> contentHash) {
+        if (contentLength < 0 || contentLengths.get(contentLength) == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        var key = new Key(format, contentLength, HexFormat.of().formatHex(contentHash.get()));
+        var cachedReport = reports.get(key);
+        if (cachedReport == null || cachedReport.isExpired(clock.instant())) {
+            if (cachedReport != null) {
+                reports.remove(key);
+            }
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cachedReport.report());
+    }
+
+    /**
+     * Caches the report of a processed file. Reports of files with an unknown length and reports with more than the
+     * maximum number of failed records are not cached.
+     *
+     * @param format        The format of the file.
+     * @param contentLength The length of the file, or {@code -1} if it is unknown.
+     * @param contentHash   The content hash of the file.
+     * @param report        The report of the file.
+     */
+    public void put(String format, long contentLength, byte[] contentHash, Report report) {
+        if (contentLength < 0 || report.failedRecords().size() > maxFailures) {
+            return;
+        }
+        var key = new Key(format, contentLength, HexFormat.of().formatHex(contentHash));
+        reports.put(key, new CachedReport(report, clock.instant().plus(timeToLive)));
+        contentLengths.put(contentLength, Boolean.TRUE);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("statement.upload.cache")
+                .description("Lookups of uploads in the cache of processed files")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(String format, long contentLength, String contentHash) {
+    }
+
+    private record CachedReport(Report report, Instant expiresAt) {
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import java.util.function.LongConsumer;
+
+/**
+ * How the {@link StatementProcessorService} processes a file.
+ *
+ * @param acceptanceMode   Which statements of the file are saved, or {@code null} for the configured mode.
+ * @param progressListener Receives the number of records processed so far.
+ * @param timings          Receives the time the file spent in every stage, nothing if the file was processed before.
+ */
+public record ProcessingOptions(AcceptanceMode acceptanceMode, LongConsumer progressListener, StageTimings timings) {
+
+    /**
+     * @return Options for the configured acceptance mode, without progress, recording the stages in new timings.
+     */
+    public static ProcessingOptions defaults() {
+        return new ProcessingOptions(null, recordCount -> {
+        }, new StageTimings());
+    }
+
+    /**
+     * @param acceptanceMode Which statements of the file are saved, or {@code null} for the configured mode.
+     * @return These options with the acceptance mode.
+     */
+    public ProcessingOptions withAcceptanceMode(AcceptanceMode acceptanceMode) {
+        return new ProcessingOptions(acceptanceMode, progressListener, timings);
+    }
+
+    /**
+     * @param progressListener Receives the number of records processed so far.
+     * @return These options with the progress listener.
+     */
+    public ProcessingOptions withProgressListener(LongConsumer progressListener) {
+        return new ProcessingOptions(acceptanceMode, progressListener, timings);
+    }
+
+    /**
+     * @param timings Receives the time the file spent in every stage.
+     * @return These options with the timings.
+     */
+    public ProcessingOptions withTimings(StageTimings timings) {
+        return new ProcessingOptions(acceptanceMode, progressListener, timings);
+    }
+}
@@ -0,0 +1,97 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ReportPage;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.control.exception.ReportNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.mapper.ReportMapper;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementReportStore;
+import nl.rabobank.customer.statementprocessor.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Service responsible for creating, storing and reading validation reports.
+ * Recently generated reports are kept in an LRU cache, so paging through them does not hit the database.
+ * Reports with more failed records than {@code statement.reports.cache-max-failures} are only read from the database.
+ */
+@Service
+public class ReportService {
+
+    private final ReportMapper reportMapper;
+    private final StatementReportStore reportStore;
+    private final LruCache<Long, Report> recentReports;
+    private final int cacheMaxFailures;
+    private final int maxPageSize;
+
+    /**
+     * @param reportMapper     Mapper creating reports with a unique ID.
+     * @param reportStore      Store of the reports.
+     * @param cacheSize        Number of recently generated reports kept in memory.
+     * @param cacheMaxFailures Maximum number of failed records of a report kept in memory.
+     * @param maxPageSize      Maximum number of failed records per page.
+     */
+    public ReportService(ReportMapper reportMapper,
+                         StatementReportStore reportStore,
+                         @Value("${statement.reports.cache-size:100}") int cacheSize,
+                         @Value("${statement.reports.cache-max-failures:10000}") int cacheMaxFailures,
+                         @Value("${statement.reports.max-page-size:1000}") int maxPageSize) {
+        this.reportMapper = reportMapper;
+        this.reportStore = reportStore;
+        this.recentReports = new LruCache<>(cacheSize);
+        this.cacheMaxFailures = cacheMaxFailures;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Creates a report for the validation results of a file and stores it.
+     *
+     * @param failedRecords The validation errors of the file.
+     * @return The stored report.
+     */
+    public Report saveReport(List<ValidationResult> failedRecords) {
+        var report = reportMapper.mapValidationResultsToReport(failedRecords);
+        reportStore.save(report);
+        if (failedRecords.size() <= cacheMaxFailures) {
+            recentReports.put(report.reportId(), report);
+        }
+        return report;
+    }
+
+    /**
+     * Reads a page of the failed records of a stored report.
+     *
+     * @param reportId The ID of the report.
+     * @param cursor   The cursor returned with the previous page, {@code null} for the first page.
+     * @param size     The requested number of failed records, limited to the maximum page size.
+     * @return The page of failed records, with the cursor of the next page if there is one.
+     * @throws ReportNotFoundException if there is no report with the given ID.
+     */
+    public ReportPage getReportPage(long reportId, Long cursor, int size) throws ReportNotFoundException {
+        long after = cursor == null ? -1 : Math.max(-1, cursor);
+        int pageSize = Math.clamp(size, 1, maxPageSize);
+
+        var cachedReport = recentReports.get(reportId);
+        if (cachedReport != null) {
+            var failedRecords = cachedReport.failedRecords();
+            int from = (int) Math.min(failedRecords.size(), Math.max(0, after + 1));
+            int to = Math.min(failedRecords.size(), from + pageSize);
+            return toPage(reportId, failedRecords.subList(from, to), after, to < failedRecords.size());
+        }
+
+        long reportKey = reportStore.findReportKey(reportId)
+                .orElseThrow(() -> new ReportNotFoundException("No report found with id " + reportId));
+        // Read one record more than the page to know if there is a next page
+        var failedRecords = reportStore.findValidationErrors(reportKey, after, pageSize + 1);
+        boolean hasNext = failedRecords.size() > pageSize;
+        return toPage(reportId, hasNext ? failedRecords.subList(0, pageSize) : failedRecords, after, hasNext);
+    }
+
+    private static ReportPage toPage(long reportId, List<ValidationResult> failedRecords, long after, boolean hasNext) {
+        // Failed records are stored at consecutive positions, the cursor is the position of the last one of the page
+        Long nextCursor = hasNext ? after + failedRecords.size() : null;
+        return new ReportPage(reportId, List.copyOf(failedRecords), nextCursor);
+    }
+}
@@ -0,0 +1,84 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * The time a file spent in every stage of the statement pipeline. Stages interleave while a file is streamed, the
+ * time of a stage is the sum of all its intervals. Filled by the {@link StatementProcessorService} on the thread
+ * that processes the file, not thread-safe.
+ */
+public final class StageTimings {
+
+    /**
+     * A stage of the pipeline.
+     */
+    public enum Stage {
+        /**
+         * Reading and parsing the file, everything the other stages do not account for.
+         */
+        PARSE,
+        /**
+         * Validating the parsed statements.
+         */
+        VALIDATE,
+        /**
+         * Adding parsed statements to the columnar batch, done by the tokenizing CSV parser itself while parsing.
+         */
+        MAP,
+        /**
+         * Saving the batches of accepted statements.
+         */
+        PERSIST;
+
+        /**
+         * @return The name of the stage in metric tags and in the {@code Server-Timing} header.
+         */
+        public String metricName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final long[] nanos = new long[Stage.values().length];
+    private boolean isRecorded;
+
+    /**
+     * Adds an interval to a stage.
+     *
+     * @param stage The stage.
+     * @param nanos The length of the interval in nanoseconds.
+     */
+    public void add(Stage stage, long nanos) {
+        this.nanos[stage.ordinal()] += nanos;
+        isRecorded = true;
+    }
+
+    /**
+     * @param stage A stage.
+     * @return The total time of the stage.
+     */
+    public Duration get(Stage stage) {
+        return Duration.ofNanos(nanos[stage.ordinal()]);
+    }
+
+    /**
+     * @return {@code true} if the file went through the pipeline, {@code false} if it was not processed, for
+     * instance because the report of an earlier upload of the same file was returned.
+     */
+    public boolean isRecorded() {
+        return isRecorded;
+    }
+
+    /**
+     * @return The stages as the value of a {@code Server-Timing} header, with durations in milliseconds.
+     */
+    public String toServerTiming() {
+        var serverTiming = new StringJoiner(", ");
+        for (Stage stage : Stage.values()) {
+            serverTiming.add(String.format(Locale.ROOT, "%s;dur=%.3f", stage.metricName(),
+                    nanos[stage.ordinal()] / 1_000_000d));
+        }
+        return serverTiming.toString();
+    }
+}
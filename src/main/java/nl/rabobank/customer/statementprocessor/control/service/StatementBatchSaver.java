@@ -0,0 +1,390 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.control.events.StatementsEventPublisher;
+import nl.rabobank.customer.statementprocessor.util.LongIntHashMap;
+import nl.rabobank.customer.statementprocessor.util.ProcessedReferences;
+import nl.rabobank.customer.statementprocessor.util.ScalableLongBloomFilter;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import nl.rabobank.customer.statementprocessor.util.ValidationSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.SavepointManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Validates the statements of a file and saves the accepted statements in batches. Once a statement fails
+ * validation, no further batches are published for the file.
+ * Statements are collected in the batch first and every stage runs on a whole batch at a time, so the time of
+ * every stage is taken a few times per batch instead of for every statement.
+ * When the session spills references that are not sorted, a duplicate reference is only detected when the file
+ * is finished, but the unique reference column rejects it as soon as its batch is saved. Such batches are saved
+ * within a savepoint, a rejected batch is undone and no further batches are published, the report follows from
+ * the duplicates found when the session is finished.
+ * In partial acceptance every batch is saved without the statements that failed validation. A saved statement
+ * that the session retracts, because a later statement repeats its reference, is deleted again. While duplicate
+ * detection is deferred, a batch rejected by the unique reference column is saved again without the statements
+ * repeating a reference, which the session retracts when it is finished.
+ * The references of all saved statements are put in a filter, so the session does not mistake a statement the
+ * file saved itself for one of an earlier upload. A reference of an earlier upload that the filter mistakes for a
+ * saved one passes validation, the unique reference column then rejects its batch.
+ * Without a savepoint manager the statements are only validated, nothing is saved.
+ * <p>
+ * A saver handles one file and is not thread-safe.
+ */
+final class StatementBatchSaver {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementBatchSaver.class);
+    private final ValidationSession session;
+    private final StatementsEventPublisher statementsEventPublisher;
+    private final ProcessedReferences processedReferences;
+    /**
+     * Savepoints within the transaction of the file, {@code null} if the statements are only validated.
+     */
+    private final SavepointManager savepointManager;
+    /**
+     * The references of all saved statements, {@code null} if the statements are only validated.
+     */
+    private final ScalableLongBloomFilter savedReferences;
+    private final LongConsumer progressListener;
+    private final StageTimings timings;
+    private final int batchSize;
+    private final StatementColumns batch;
+    /**
+     * The position in the file of every row of the batch.
+     */
+    private final long[] positions;
+    private final boolean isPartial;
+    /**
+     * Whether every row of the batch passed validation, in partial acceptance.
+     */
+    private final boolean[] accepted;
+    /**
+     * References left out of batches rejected by the database, mapped to the number of statements with the
+     * reference that passed validation and were left out, negated once the session retracted the reference.
+     */
+    private final LongIntHashMap skippedReferences = new LongIntHashMap();
+    /**
+     * Statements of a parser that does not fill the batch itself, added to the batch when there are enough.
+     */
+    private final List<CustomerStatement> parsedStatements = new ArrayList<>();
+    private long receivedCount;
+    /**
+     * Time spent in the stages after parsing, the rest of the time of the file is spent parsing.
+     */
+    private long consumerNanos;
+    private DataIntegrityViolationException rejectedBatch;
+
+    /**
+     * @param session                  Validates the statements of the file.
+     * @param statementsEventPublisher Publishes the saved and retracted statements.
+     * @param processedReferences      References stored by earlier uploads.
+     * @param savepointManager         Savepoints within the transaction of the file, to undo a batch the database
+     *                                 rejects, or {@code null} to only validate the statements.
+     * @param savedReferences          Receives the references of all saved statements, or {@code null} to only
+     *                                 validate the statements.
+     * @param progressListener         Receives the number of records validated so far.
+     * @param timings                  Receives the time spent in every stage after parsing.
+     * @param batchSize                Number of statements validated and saved at a time.
+     * @param isPartial                Whether the statements that pass validation are saved, even if others fail.
+     */
+    StatementBatchSaver(ValidationSession session, StatementsEventPublisher statementsEventPublisher,
+                        ProcessedReferences processedReferences, SavepointManager savepointManager,
+                        ScalableLongBloomFilter savedReferences, LongConsumer progressListener,
+                        StageTimings timings, int batchSize, boolean isPartial) {
+        this.session = session;
+        this.statementsEventPublisher = statementsEventPublisher;
+        this.processedReferences = processedReferences;
+        this.savepointManager = savepointManager;
+        this.savedReferences = savedReferences;
+        this.progressListener = progressListener;
+        this.timings = timings;
+        this.batchSize = batchSize;
+        this.batch = new StatementColumns(batchSize);
+        this.positions = new long[batchSize];
+        this.accepted = new boolean[batchSize];
+        this.isPartial = isPartial;
+    }
+
+    /**
+     * @return The batch a parser adds the statements of the file to.
+     */
+    StatementColumns batch() {
+        return batch;
+    }
+
+    /**
+     * @return The time spent in the stages after parsing.
+     */
+    long getConsumerNanos() {
+        return consumerNanos;
+    }
+
+    /**
+     * @param row The row of the next statement of the file, added to the batch by the parser.
+     */
+    void accept(int row) {
+        positions[row] = receivedCount++;
+        if (batch.isFull()) {
+            processBatch();
+        }
+    }
+
+    /**
+     * @param customerStatement A statement of the file.
+     * @param position          The position of the statement in the file.
+     */
+    void accept(CustomerStatement customerStatement, long position) {
+        positions[parsedStatements.size()] = position;
+        parsedStatements.add(customerStatement);
+        receivedCount++;
+        if (parsedStatements.size() == batchSize) {
+            processBatch();
+        }
+    }
+
+    /**
+     * Completes the validation and saves the remaining accepted statements.
+     *
+     * @throws DataIntegrityViolationException if a batch was rejected for another reason than a duplicate.
+     */
+    void finish() {
+        validateBatch();
+        long start = System.nanoTime();
+        session.finish();
+        addTime(StageTimings.Stage.VALIDATE, start);
+        if (savepointManager == null) {
+            return;
+        }
+        if (isPartial) {
+            start = System.nanoTime();
+            saveAccepted(false);
+            addTime(StageTimings.Stage.PERSIST, start);
+            requireSkippedRetracted();
+            return;
+        }
+        if (session.hasFailures()) {
+            return;
+        }
+        if (rejectedBatch != null) {
+            throw rejectedBatch;
+        }
+        start = System.nanoTime();
+        saveBatch();
+        addTime(StageTimings.Stage.PERSIST, start);
+    }
+
+    /**
+     * Validates the batch and saves it, unless a statement of the file failed validation. In partial acceptance
+     * the statements that passed validation are saved.
+     */
+    private void processBatch() {
+        validateBatch();
+        if (savepointManager == null) {
+            batch.clear();
+            return;
+        }
+        if (isPartial) {
+            long start = System.nanoTime();
+            saveAccepted(session.isDuplicateDetectionDeferred());
+            addTime(StageTimings.Stage.PERSIST, start);
+        } else if (!session.hasFailures() && rejectedBatch == null) {
+            long start = System.nanoTime();
+            if (session.isDuplicateDetectionDeferred()) {
+                saveWithinSavepoint();
+            } else {
+                saveBatch();
+            }
+            addTime(StageTimings.Stage.PERSIST, start);
+        }
+        batch.clear();
+    }
+
+    private void validateBatch() {
+        long start = System.nanoTime();
+        for (CustomerStatement customerStatement : parsedStatements) {
+            batch.add(customerStatement);
+        }
+        parsedStatements.clear();
+        start = addTime(StageTimings.Stage.MAP, start);
+        for (int row = 0; row < batch.size(); row++) {
+            accepted[row] = session.validate(batch, row, positions[row]);
+            progressListener.accept(session.getRecordCount());
+        }
+        addTime(StageTimings.Stage.VALIDATE, start);
+    }
+
+    private void saveWithinSavepoint() {
+        Object savepoint = savepointManager.createSavepoint();
+        try {
+            saveBatch();
+            savepointManager.releaseSavepoint(savepoint);
+        } catch (DataIntegrityViolationException e) {
+            savepointManager.rollbackToSavepoint(savepoint);
+            log.info("Batch rejected while duplicate detection is deferred, not saving further batches");
+            rejectedBatch = e;
+        }
+    }
+
+    /**
+     * Saves the rows of the batch that passed validation, after taking back the statements the session retracted.
+     *
+     * @param isWithinSavepoint Whether the batch may repeat references, which the database rejects.
+     */
+    private void saveAccepted(boolean isWithinSavepoint) {
+        retract(session.drainRetractedReferences());
+        if (skippedReferences.size() > 0) {
+            // Further occurrences of a skipped reference are duplicates as well
+            for (int row = 0; row < batch.size(); row++) {
+                if (accepted[row] && skippedReferences.get(batch.reference(row)) != LongIntHashMap.MISSING) {
+                    accepted[row] = false;
+                    skip(batch.reference(row));
+                }
+            }
+        }
+        batch.retainRows(accepted);
+        if (isWithinSavepoint) {
+            savePartiallyWithinSavepoint();
+        } else {
+            saveBatch();
+        }
+    }
+
+    /**
+     * Leaves the retracted statements out of the batch and deletes the saved statements with their references.
+     * While duplicate detection is deferred a reference is retracted for every statement with it that passed
+     * validation, those in the batch and those left out of rejected batches were never saved. Only the statement
+     * that is left, if any, was saved, the unique reference column allows no more than one.
+     */
+    private void retract(long[] references) {
+        if (references.length == 0) {
+            return;
+        }
+        // Mapped to the number of retracted statements that may have been saved, -1 once handled
+        var retractedCounts = new LongIntHashMap(references.length);
+        for (long reference : references) {
+            int count = retractedCounts.putIfAbsent(reference, 1);
+            if (count != LongIntHashMap.MISSING) {
+                retractedCounts.put(reference, count + 1);
+            }
+        }
+        for (int row = 0; row < batch.size(); row++) {
+            long reference = batch.reference(row);
+            int count = retractedCounts.get(reference);
+            if (accepted[row] && count > 0) {
+                accepted[row] = false;
+                retractedCounts.put(reference, count - 1);
+            }
+        }
+        long[] savedRetractedReferences = new long[references.length];
+        int savedCount = 0;
+        for (long reference : references) {
+            int count = retractedCounts.get(reference);
+            if (count < 0) {
+                continue;
+            }
+            int skippedCount = skippedReferences.get(reference);
+            if (skippedCount != LongIntHashMap.MISSING) {
+                skippedReferences.put(reference, -Math.abs(skippedCount));
+                count -= Math.abs(skippedCount);
+            }
+            if (count > 0) {
+                savedRetractedReferences[savedCount++] = reference;
+            }
+            retractedCounts.put(reference, -1);
+        }
+        statementsEventPublisher.publishRetracted(Arrays.copyOf(savedRetractedReferences, savedCount));
+    }
+
+    /**
+     * Counts a statement that passed validation and is left out of the batch, because the database rejected its
+     * reference.
+     */
+    private void skip(long reference) {
+        int skippedCount = skippedReferences.putIfAbsent(reference, 1);
+        if (skippedCount != LongIntHashMap.MISSING) {
+            skippedReferences.put(reference, skippedCount < 0 ? skippedCount - 1 : skippedCount + 1);
+        }
+    }
+
+    /**
+     * Saves a batch while duplicate detection is deferred. When the database rejects it, the statements whose
+     * reference is already saved or repeated within the batch are left out and the rest is saved again.
+     *
+     * @throws DataIntegrityViolationException if the batch is rejected again.
+     */
+    private void savePartiallyWithinSavepoint() {
+        Object savepoint = savepointManager.createSavepoint();
+        try {
+            saveBatch();
+            savepointManager.releaseSavepoint(savepoint);
+            return;
+        } catch (DataIntegrityViolationException e) {
+            savepointManager.rollbackToSavepoint(savepoint);
+            rejectedBatch = e;
+        }
+
+        var rowsByReference = new LongIntHashMap(batch.size());
+        Arrays.fill(accepted, 0, batch.size(), true);
+        for (int row = 0; row < batch.size(); row++) {
+            long reference = batch.reference(row);
+            int earlierRow = rowsByReference.putIfAbsent(reference, row);
+            if (earlierRow != LongIntHashMap.MISSING) {
+                accepted[earlierRow] = false;
+                accepted[row] = false;
+            } else if (processedReferences.contains(reference)) {
+                accepted[row] = false;
+            }
+        }
+        for (int row = 0; row < batch.size(); row++) {
+            if (!accepted[row]) {
+                skip(batch.reference(row));
+            }
+        }
+        int skippedCount = batch.size() - batch.retainRows(accepted);
+        log.info("Batch rejected while duplicate detection is deferred, saving it without {} statements",
+                skippedCount);
+        saveBatch();
+    }
+
+    /**
+     * Checks that every statement left out of a rejected batch turned out to be a duplicate within the file, any
+     * other reference was saved by another upload in the meantime.
+     *
+     * @throws DataIntegrityViolationException if a statement was left out without being a duplicate.
+     */
+    private void requireSkippedRetracted() {
+        skippedReferences.forEach((reference, skippedCount) -> {
+            if (skippedCount > 0) {
+                throw rejectedBatch;
+            }
+        });
+    }
+
+    /**
+     * Publishes the batch to be saved and remembers the references of its statements.
+     */
+    private void saveBatch() {
+        statementsEventPublisher.publishColumns(batch);
+        for (int row = 0; row < batch.size(); row++) {
+            savedReferences.put(batch.reference(row));
+        }
+    }
+
+    /**
+     * Adds the time since the start of a stage to the stage.
+     *
+     * @return The end of the stage, the start of the next.
+     */
+    private long addTime(StageTimings.Stage stage, long start) {
+        long end = System.nanoTime();
+        timings.add(stage, end - start);
+        consumerNanos += end - start;
+        return end;
+    }
+}
@@ -0,0 +1,68 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobState;
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobStatus;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Mutable state of one asynchronous job. Written by the worker thread and read by status requests.
+ */
+class StatementJob {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String fileName;
+    private volatile JobState state = JobState.QUEUED;
+    private volatile long recordsProcessed;
+    private volatile Report report;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    StatementJob(String fileName) {
+        this.fileName = fileName;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getFileName() {
+        return fileName;
+    }
+
+    void start() {
+        state = JobState.RUNNING;
+    }
+
+    void progress(long recordsProcessed) {
+        this.recordsProcessed = recordsProcessed;
+    }
+
+    void complete(Report report) {
+        this.report = report;
+        finish(JobState.COMPLETED);
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finish(JobState.FAILED);
+    }
+
+    private void finish(JobState finalState) {
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    boolean isFinishedBefore(Instant instant) {
+        var finished = finishedAt;
+        return finished != null && finished.isBefore(instant);
+    }
+
+    JobStatus toStatus() {
+        // Read the state first: the report and error are written before a job becomes COMPLETED or FAILED
+        var currentState = state;
+        return new JobStatus(id, currentState, fileName, recordsProcessed, report, error);
+    }
+}
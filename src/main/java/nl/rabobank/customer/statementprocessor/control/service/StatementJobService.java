@@ -0,0 +1,128 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobStatus;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
+import nl.rabobank.customer.statementprocessor.control.exception.JobNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service running statement uploads as asynchronous jobs.
+ * An upload is copied to a temporary file, so the request can complete right away, and processed by
+ * {@link StatementProcessorService} on a bounded worker pool. Finished jobs are kept for the configured retention.
+ */
+@Service
+public class StatementJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementJobService.class);
+    private final StatementProcessorService processorService;
+    private final TaskExecutor jobExecutor;
+    private final Duration retention;
+    private final Map<String, StatementJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param processorService Service processing the uploaded files.
+     * @param jobExecutor      Bounded worker pool running the jobs.
+     * @param retention        How long the status of a finished job stays available.
+     */
+    public StatementJobService(StatementProcessorService processorService,
+                               @Qualifier("statementJobExecutor") TaskExecutor jobExecutor,
+                               @Value("${statement.jobs.retention:PT1H}") Duration retention) {
+        this.processorService = processorService;
+        this.jobExecutor = jobExecutor;
+        this.retention = retention;
+    }
+
+    /**
+     * Accepts an upload for asynchronous processing.
+     *
+     * @param file The file containing the customer statements (CSV or XML).
+     * @return The status of the queued job.
+     * @throws InvalidFileException  if the file type is unsupported or if the file name is missing.
+     * @throws TaskRejectedException if the worker pool and its queue are full.
+     */
+    public JobStatus submit(MultipartFile file) throws InvalidFileException {
+        var filename = processorService.requireSupportedFileName(file.getOriginalFilename());
+        evictExpiredJobs();
+
+        var content = copyToTemporaryFile(file);
+        var job = new StatementJob(filename);
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(() -> run(job, content));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            deleteQuietly(content);
+            throw e;
+        }
+
+        log.info("Queued job {} for file {}", job.getId(), filename);
+        return job.toStatus();
+    }
+
+    /**
+     * @param jobId The ID of a job.
+     * @return The current status of the job.
+     * @throws JobNotFoundException if there is no such job, or it expired.
+     */
+    public JobStatus getJob(String jobId) throws JobNotFoundException {
+        var job = jobs.get(jobId);
+        if (job == null) {
+            throw new JobNotFoundException("No job found with id " + jobId);
+        }
+        return job.toStatus();
+    }
+
+    private void run(StatementJob job, Path content) {
+        job.start();
+        try {
+            var report = processorService.process(job.getFileName(), new FileSystemResource(content),
+                    ProcessingOptions.defaults().withProgressListener(job::progress));
+            job.complete(report);
+        } catch (RuntimeException e) {
+            log.error("Job {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        } finally {
+            deleteQuietly(content);
+        }
+    }
+
+    private Path copyToTemporaryFile(MultipartFile file) {
+        try {
+            var content = Files.createTempFile("statement-job-", ".upload");
+            file.transferTo(content);
+            return content;
+        } catch (IOException e) {
+            throw new FileParsingException("Unable to read the file: " + e.getMessage());
+        }
+    }
+
+    private void evictExpiredJobs() {
+        var expiry = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinishedBefore(expiry));
+    }
+
+    private static void deleteQuietly(Path content) {
+        try {
+            Files.deleteIfExists(content);
+        } catch (IOException e) {
+            log.warn("Unable to delete temporary file {}", content, e);
+        }
+    }
+}
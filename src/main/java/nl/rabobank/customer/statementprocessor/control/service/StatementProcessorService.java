@@ -4,125 +4,513 @@ import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
 import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
 import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
 import nl.rabobank.customer.statementprocessor.control.events.StatementsEventPublisher;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
 import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
-import nl.rabobank.customer.statementprocessor.control.mapper.CustomerStatementToStatementMapper;
-import nl.rabobank.customer.statementprocessor.control.mapper.ReportMapper;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.parser.CsvEngine;
 import nl.rabobank.customer.statementprocessor.control.parser.CsvFileParser;
 import nl.rabobank.customer.statementprocessor.control.parser.FileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.TokenizingCsvFileParser;
 import nl.rabobank.customer.statementprocessor.control.parser.XmlFileParser;
+import nl.rabobank.customer.statementprocessor.util.CountingInputStream;
+import nl.rabobank.customer.statementprocessor.util.ProcessedReferences;
+import nl.rabobank.customer.statementprocessor.util.ScalableLongBloomFilter;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
 import nl.rabobank.customer.statementprocessor.util.StatementValidator;
+import nl.rabobank.customer.statementprocessor.util.jfr.FileProcessedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.SavepointManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Service responsible for processing customer statement files, validating, and saving the statements.
- * Supports CSV and XML file formats only.
+ * Supports CSV and XML files, also compressed with gzip ({@code .csv.gz}, {@code .xml.gz}), and ZIP archives of such
+ * files. Compressed content is inflated on the fly while it is parsed. The entries of an archive are parsed
+ * concurrently by the {@link ArchiveStatementReader} and validated as one file, with duplicates detected across
+ * entries and one combined report.
+ * Files are streamed: records are collected in a {@link StatementColumns} batch that is reused for the whole file,
+ * every full batch is validated and saved within a single transaction, which is rolled back when any record of the
+ * file fails validation. The tokenizing CSV parser parses straight into that batch. With {@link AcceptanceMode#PARTIAL}
+ * the transaction is kept and only the records that fail validation are left out, see {@link StatementBatchSaver}.
+ * The time every file spends parsing, validating, mapping and persisting is recorded in the {@link PipelineMetrics},
+ * and every processed file is recorded as a {@link FileProcessedEvent} when Flight Recorder is recording.
+ * Files are admitted by the {@link UploadAdmissionControl} first, which reserves the memory a file needs against a
+ * global budget and makes files wait for it or rejects them.
+ * The report of every file is stored afterwards, in a transaction of its own.
+ * A file with the same content as a recently processed file is not processed again, it gets the report of the
+ * earlier upload from the {@link ProcessedUploadCache}.
  */
 @Service
 public class StatementProcessorService {
 
     private static final Logger log = LoggerFactory.getLogger(StatementProcessorService.class);
-    private final CsvFileParser csvFileParser;
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Distinguishes the cached reports of partially accepted files, which carry counts and saved other statements.
+     */
+    private static final String PARTIAL_CACHE_SUFFIX = "+partial";
+    private static final int SAVED_REFERENCES_INITIAL_CAPACITY = 64 * 1024;
+    private static final double SAVED_REFERENCES_FALSE_POSITIVE_PROBABILITY = 0.001;
+    private final FileParser csvFileParser;
     private final XmlFileParser xmlFileParser;
     private final StatementValidator validator;
-    private final ReportMapper reportMapper;
-    private final CustomerStatementToStatementMapper customerStatementToStatementMapper;
+    private final ProcessedReferences processedReferences;
+    private final ReportService reportService;
+    private final ProcessedUploadCache processedUploadCache;
     private final StatementsEventPublisher statementsEventPublisher;
+    private final PipelineMetrics pipelineMetrics;
+    private final UploadAdmissionControl uploadAdmissionControl;
+    private final TransactionTemplate transactionTemplate;
+    private final SavepointManager savepointManager;
+    private final int batchSize;
+    private final Semaphore transactionPermits;
+    private final ArchiveStatementReader archiveReader;
+    private final AcceptanceMode acceptanceMode;
 
     /**
      * Constructor for initializing dependencies.
      *
-     * @param csvFileParser                     CSV file parser.
+     * @param csvFileParser                     CSV file parser with Jackson databinding.
+     * @param tokenizingCsvFileParser           CSV file parser tokenizing the bytes of the file.
      * @param xmlFileParser                     XML file parser.
      * @param validator                         Validator for customer statements.
-     * @param reportMapper                      Mapper for converting validation results to report.
-     * @param customerStatementToStatementMapper Mapper for converting customer statements to general statements.
+     * @param processedReferences               References stored by earlier uploads.
+     * @param reportService                     Service creating and storing the report of a file.
+     * @param processedUploadCache              Cache of the reports of recently processed files.
      * @param statementsEventPublisher               Publish statement events.
+     * @param pipelineMetrics                   Metrics of the stages of the pipeline.
+     * @param uploadAdmissionControl            Admission of the files being processed against the memory budget.
+     * @param transactionTemplate               Transaction in which all batches of a file are saved.
+     * @param savepointManager                  Savepoints within that transaction, to undo a batch the database rejects.
+     * @param batchSize                         Number of accepted statements published per event.
+     * @param maxConcurrentUploads              Number of files processed at the same time, each holding a connection.
+     * @param archiveConcurrency                Number of entries of a ZIP archive parsed at the same time.
+     * @param csvEngine                         The parser used for CSV files.
+     * @param acceptanceMode                    Which statements of a file are saved, unless an upload asks otherwise.
      */
     public StatementProcessorService(
             CsvFileParser csvFileParser,
+            TokenizingCsvFileParser tokenizingCsvFileParser,
             XmlFileParser xmlFileParser,
             StatementValidator validator,
-            ReportMapper reportMapper,
-            CustomerStatementToStatementMapper customerStatementToStatementMapper,
-            StatementsEventPublisher statementsEventPublisher) {
+            ProcessedReferences processedReferences,
+            ReportService reportService,
+            ProcessedUploadCache processedUploadCache,
+            StatementsEventPublisher statementsEventPublisher,
+            PipelineMetrics pipelineMetrics,
+            UploadAdmissionControl uploadAdmissionControl,
+            TransactionTemplate transactionTemplate,
+            SavepointManager savepointManager,
+            @Value("${statement.processing.batch-size:1000}") int batchSize,
+            @Value("${statement.processing.max-concurrent-uploads:10}") int maxConcurrentUploads,
+            @Value("${statement.processing.archive-concurrency:4}") int archiveConcurrency,
+            @Value("${statement.parsing.csv-engine:jackson}") CsvEngine csvEngine,
+            @Value("${statement.processing.acceptance-mode:all-or-nothing}") AcceptanceMode acceptanceMode) {
 
-        this.csvFileParser = csvFileParser;
+        this.csvFileParser = switch (csvEngine) {
+            case JACKSON -> csvFileParser;
+            case TOKENIZER -> tokenizingCsvFileParser;
+        };
         this.xmlFileParser = xmlFileParser;
         this.validator = validator;
-        this.reportMapper = reportMapper;
-        this.customerStatementToStatementMapper = customerStatementToStatementMapper;
+        this.processedReferences = processedReferences;
+        this.reportService = reportService;
+        this.processedUploadCache = processedUploadCache;
         this.statementsEventPublisher = statementsEventPublisher;
+        this.pipelineMetrics = pipelineMetrics;
+        this.uploadAdmissionControl = uploadAdmissionControl;
+        this.transactionTemplate = transactionTemplate;
+        this.savepointManager = savepointManager;
+        this.batchSize = batchSize;
+        this.transactionPermits = new Semaphore(maxConcurrentUploads, true);
+        this.archiveReader = new ArchiveStatementReader(this::parseFile, StatementProcessorService::isStatementFileName,
+                archiveConcurrency);
+        this.acceptanceMode = acceptanceMode;
     }
 
     /**
-     * Processes the provided file, parses the content, validates the statements, and saves valid statements.
+     * Processes a file: parses the content, validates the statements and saves the statements the acceptance mode
+     * allows. A partially accepted file keeps the statements that pass validation, its report counts the accepted and
+     * rejected records. The stage times and the counts of the file are also recorded in the {@link PipelineMetrics}.
+     * The length of the content is known for a {@link MultipartFile} or a {@link Resource} only; the content of any
+     * other source, such as the body of a request, is read once without buffering it and is not looked up in the
+     * {@link ProcessedUploadCache}.
      *
-     * @param file The file containing the customer statements (CSV or XML).
-     * @return A report containing validation results.
+     * @param filename The name of the file, which determines its type.
+     * @param source   The source of the file content (CSV or XML, plain, gzipped or in a ZIP archive), opened twice if
+     *                 a file of the same length was processed recently.
+     * @param options  The acceptance mode, progress listener and stage timings of the file.
+     * @return A report containing validation results, with the accepted and rejected counts if partially accepted.
      * @throws InvalidFileException if the file type is unsupported or if the file name is missing.
+     * @throws UploadRejectedException if the memory to process the file is not available in time.
      */
-    public Report process(MultipartFile file) throws InvalidFileException {
-        var filename = getFileName(file);
+    public Report process(String filename, InputStreamSource source, ProcessingOptions options)
+            throws InvalidFileException {
+        var event = new FileProcessedEvent();
+        event.begin();
+        requireSupportedFileName(filename);
+        boolean isArchive = isArchive(filename);
+        String format = getFormat(filename);
+        long contentLength = getContentLength(source);
+        boolean isPartial = (options.acceptanceMode() == null ? acceptanceMode : options.acceptanceMode())
+                == AcceptanceMode.PARTIAL;
+        StageTimings timings = options.timings();
+        String cacheFormat = isPartial ? format + PARTIAL_CACHE_SUFFIX : format;
+        event.fileName = filename;
+        event.format = format;
 
-        log.info("Start processing file {}", filename);
+        var cachedReport = processedUploadCache.find(cacheFormat, contentLength,
+                () -> hashContent(source, filename));
+        if (cachedReport.isPresent()) {
+            log.info("File {} was processed before, returning report {}", filename, cachedReport.get().reportId());
+            event.isProcessedBefore = true;
+            event.commit();
+            return cachedReport.get();
+        }
 
-        // Determine the file type and parse accordingly
-        FileParser fileParser = getFileParser(filename);
+        // A file waiting for memory does not hold a transaction permit yet
+        try (var reservation = uploadAdmissionControl.admit(filename, format, contentLength)) {
+            log.info("Start processing file {}", filename);
 
-        var customerStatements = fileParser.parseFile(file);
-        var validationErrors = validator.validateParsedStatements(customerStatements);
+            // The transaction holds a connection for the whole file. Waiting here instead of in the connection pool
+            // keeps any number of (virtual) request threads from timing out on a pool that is sized for far fewer.
+            acquireTransactionPermit(filename);
+            ValidatedFile validatedFile;
+            MessageDigest contentDigest = ProcessedUploadCache.newContentDigest();
+            try {
+                validatedFile = transactionTemplate.execute(status -> {
+                    // Within the transaction of the file the index also finds the statements the file saved itself, a
+                    // reference the file repeats is a duplicate and not already processed
+                    var savedReferences = new ScalableLongBloomFilter(SAVED_REFERENCES_INITIAL_CAPACITY,
+                            SAVED_REFERENCES_FALSE_POSITIVE_PROBABILITY);
+                    try (var session = validator.newSession(reference -> !savedReferences.mightContain(reference)
+                            && processedReferences.contains(reference))) {
+                        var saver = new StatementBatchSaver(session, statementsEventPublisher, processedReferences,
+                                savepointManager, savedReferences, options.progressListener(), timings, batchSize,
+                                isPartial);
+                        long start = System.nanoTime();
+                        long bytesRead = isArchive ? streamArchive(source, filename, saver, contentDigest)
+                                : streamStatements(source, filename, saver, contentDigest);
+                        saver.finish();
+                        timings.add(StageTimings.Stage.PARSE, System.nanoTime() - start - saver.getConsumerNanos());
+                        pipelineMetrics.record(format, timings, session.getRecordCount(), bytesRead,
+                                session.getDuplicateCount(), session.getEndBalanceFailureCount());
+                        event.recordCount = session.getRecordCount();
+                        event.bytes = bytesRead;
+                        if (session.hasFailures() && !isPartial) {
+                            // Nothing of a file with validation errors may be kept
+                            status.setRollbackOnly();
+                        }
+                        // Entries of an archive are validated in the order they are parsed, report them in archive
+                        // order
+                        return new ValidatedFile(isArchive ? session.getValidationResultsInInputOrder()
+                                : session.getValidationResults(), session.getRecordCount());
+                    }
+                });
+            } finally {
+                transactionPermits.release();
+            }
 
-        saveStatements(customerStatements, validationErrors);
+            log.info("Done processing file {}", filename);
+            List<ValidationResult> validationErrors = validatedFile.validationErrors();
+            var report = reportService.saveReport(validationErrors);
+            if (isPartial) {
+                report = report.withCounts(validatedFile.recordCount() - validationErrors.size(),
+                        validationErrors.size());
+            }
+            processedUploadCache.put(cacheFormat, contentLength, contentDigest.digest(), report);
+            event.failedRecords = validationErrors.size();
+            event.commit();
+            return report;
+        }
+    }
 
-        log.info("Done processing file {}", filename);
-        return reportMapper.mapValidationResultsToReport(validationErrors);
+    /**
+     * Parses and validates the content of a file without saving anything, to find the invalid statements of a file
+     * while it is still arriving. No transaction or connection is held, so reading may wait for the content; the
+     * complete file is then saved with {@link #process(String, InputStreamSource, ProcessingOptions)}. The memory of the
+     * validation session is reserved with the {@link UploadAdmissionControl}, like for processing a file.
+     *
+     * @param filename         The name of the file, which determines its type.
+     * @param source           The source of the file content.
+     * @param progressListener Receives the number of records validated so far.
+     * @return The number of records of the file that fail validation.
+     * @throws InvalidFileException if the file type is unsupported or if the file name is missing.
+     * @throws FileParsingException if the file cannot be read.
+     * @throws UploadRejectedException if the memory to validate the file is not available in time.
+     */
+    public int validate(String filename, InputStreamSource source, LongConsumer progressListener)
+            throws InvalidFileException {
+        requireSupportedFileName(filename);
+        try (var reservation = uploadAdmissionControl.admit(filename, getFormat(filename), getContentLength(source));
+             var session = validator.newSession(processedReferences)) {
+            var saver = new StatementBatchSaver(session, statementsEventPublisher, processedReferences, null, null,
+                    progressListener, new StageTimings(), batchSize, false);
+            // Only hashed because the content is read through the digest
+            MessageDigest contentDigest = ProcessedUploadCache.newContentDigest();
+            if (isArchive(filename)) {
+                streamArchive(source, filename, saver, contentDigest);
+            } else {
+                streamStatements(source, filename, saver, contentDigest);
+            }
+            saver.finish();
+            return session.getValidationResults().size();
+        }
     }
 
     /**
-     * Retrieves the file name from the MultipartFile, throwing an exception if it's missing.
+     * Checks that a file name is present and has a supported extension.
      *
-     * @param file The uploaded file.
-     * @return The original file name.
-     * @throws InvalidFileException if the file name is missing.
+     * @param filename The original file name of an upload.
+     * @return The file name.
+     * @throws InvalidFileException if the file name is missing or the file type is unsupported.
      */
-    private String getFileName(MultipartFile file) throws InvalidFileException {
-        var filename = file.getOriginalFilename();
+    public String requireSupportedFileName(String filename) throws InvalidFileException {
         if (filename == null) {
             throw new InvalidFileException("File name is missing from the file");
         }
+        if (!isArchive(filename)) {
+            getFileParser(filename);
+        }
         return filename;
     }
 
     /**
-     * Returns the appropriate file parser based on the file extension.
+     * @param filename The name of a file.
+     * @return {@code true} if the file is a CSV or XML file, optionally gzipped, or a ZIP archive.
+     */
+    public static boolean isSupportedFileName(String filename) {
+        return isStatementFileName(filename) || isArchive(filename);
+    }
+
+    /**
+     * Waits until fewer than the maximum number of files are being processed.
+     *
+     * @param filename The name of the file waiting to be processed.
+     * @throws IllegalStateException if the thread is interrupted while waiting.
+     */
+    private void acquireTransactionPermit(String filename) {
+        try {
+            transactionPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to process file " + filename, e);
+        }
+    }
+
+    /**
+     * Returns the appropriate file parser based on the file extension, ignoring a {@code .gz} extension.
      *
      * @param filename The name of the file to process.
      * @return The file parser (CSV or XML).
      * @throws InvalidFileException if the file type is unsupported.
      */
     private FileParser getFileParser(String filename) throws InvalidFileException {
-        return switch (filename.toLowerCase()) {
+        return switch (withoutGzipExtension(filename.toLowerCase())) {
             case String fileName when fileName.endsWith(".csv") -> csvFileParser;
             case String fileName when fileName.endsWith(".xml") -> xmlFileParser;
             default -> throw new InvalidFileException("Unsupported file type");
         };
     }
 
+    private static boolean isStatementFileName(String filename) {
+        String name = withoutGzipExtension(filename.toLowerCase());
+        return name.endsWith(".csv") || name.endsWith(".xml");
+    }
+
+    private static boolean isArchive(String filename) {
+        return filename.toLowerCase().endsWith(ZIP_EXTENSION);
+    }
+
+    private static boolean isGzip(String filename) {
+        return filename.toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+
+    private static String withoutGzipExtension(String filename) {
+        return isGzip(filename) ? filename.substring(0, filename.length() - GZIP_EXTENSION.length()) : filename;
+    }
+
+    /**
+     * @param filename The name of a supported file.
+     * @return The lower case extension of the file name, including the extension before {@code .gz}.
+     */
+    private static String getFormat(String filename) {
+        String name = withoutGzipExtension(filename.toLowerCase());
+        return name.substring(name.lastIndexOf('.') + 1) + (isGzip(filename) ? GZIP_EXTENSION : "");
+    }
+
+    /**
+     * @param source The source of the file content.
+     * @return The length of the content, or {@code -1} if it is unknown.
+     */
+    private static long getContentLength(InputStreamSource source) {
+        try {
+            return switch (source) {
+                case MultipartFile file -> file.getSize();
+                case Resource resource -> resource.contentLength();
+                default -> -1;
+            };
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
     /**
-     * Publish customer statements to an event if there are no validation errors.
+     * Reads the file once to compute its content hash.
      *
-     * @param customerStatements The list of parsed customer statements.
-     * @param validationErrors   The list of validation errors.
+     * @param source   The source of the file content.
+     * @param filename The name of the uploaded file.
+     * @return The content hash of the file.
+     * @throws FileParsingException if the file cannot be read.
      */
-    private void saveStatements(List<CustomerStatement> customerStatements, List<ValidationResult> validationErrors) {
-        if (validationErrors.isEmpty()) {
-            var statements = customerStatementToStatementMapper.toStatementList(customerStatements);
-            statementsEventPublisher.publish(statements);
+    private static byte[] hashContent(InputStreamSource source, String filename) {
+        MessageDigest contentDigest = ProcessedUploadCache.newContentDigest();
+        try (InputStream inputStream = new DigestInputStream(source.getInputStream(), contentDigest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            log.error("Failed to read file {}", filename, e);
+            throw new FileParsingException("Unable to read the file: " + e.getMessage());
         }
+        return contentDigest.digest();
+    }
+
+    /**
+     * Streams the file through the parser, validating every statement and saving accepted statements in batches.
+     *
+     * @param source        The source of the file content.
+     * @param filename      The name of the uploaded file.
+     * @param saver         Validates and saves the statements of the file.
+     * @param contentDigest Digest updated with the whole content of the file while it is parsed.
+     * @return The length of the file in bytes.
+     * @throws FileParsingException if the file cannot be read.
+     */
+    private long streamStatements(InputStreamSource source, String filename, StatementBatchSaver saver,
+                                  MessageDigest contentDigest) {
+        try (var countedInput = new CountingInputStream(source.getInputStream());
+             InputStream inputStream = new DigestInputStream(countedInput, contentDigest)) {
+            parseFile(keepOpen(inputStream), filename, saver.batch(), saver::accept);
+            // A parser may stop reading before the end of the content, the hash covers all of it
+            inputStream.transferTo(OutputStream.nullOutputStream());
+            return countedInput.getCount();
+        } catch (IOException e) {
+            log.error("Failed to read file {}", filename, e);
+            throw new FileParsingException("Unable to read the file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the entries of a ZIP archive through their parsers with the {@link ArchiveStatementReader}, validating
+     * every statement and saving accepted statements in batches.
+     *
+     * @param source        The source of the archive.
+     * @param filename      The name of the uploaded archive.
+     * @param saver         Validates and saves the statements of all entries.
+     * @param contentDigest Digest updated with the whole content of the archive.
+     * @return The length of the archive in bytes.
+     * @throws FileParsingException if the archive cannot be read.
+     */
+    private long streamArchive(InputStreamSource source, String filename, StatementBatchSaver saver,
+                               MessageDigest contentDigest) {
+        try {
+            return archiveReader.read(source, inputStream -> new DigestInputStream(inputStream, contentDigest),
+                    saver::accept);
+        } catch (IOException e) {
+            log.error("Failed to read archive {}", filename, e);
+            throw new FileParsingException("Unable to read the file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a CSV or XML file, inflating it first if it is gzipped.
+     *
+     * @param inputStream The content of the file, not closed.
+     * @param filename    The name of the file, which determines its type.
+     * @param consumer    Receives every parsed statement.
+     * @throws IOException if the content cannot be read.
+     */
+    private void parseFile(InputStream inputStream, String filename, Consumer<CustomerStatement> consumer)
+            throws IOException {
+        parseFile(inputStream, filename, (fileParser, content) -> fileParser.parse(content, filename, consumer));
+    }
+
+    /**
+     * Parses a CSV or XML file into a columnar batch, inflating it first if it is gzipped. The tokenizing CSV parser
+     * fills the batch itself, the statements of the other parsers are added to it.
+     *
+     * @param inputStream The content of the file, not closed.
+     * @param filename    The name of the file, which determines its type.
+     * @param columns     The batch every parsed statement is added to.
+     * @param rowConsumer Receives the row of every parsed statement, and clears the batch when it is full.
+     * @throws IOException if the content cannot be read.
+     */
+    private void parseFile(InputStream inputStream, String filename, StatementColumns columns,
+                           IntConsumer rowConsumer) throws IOException {
+        parseFile(inputStream, filename, (fileParser, content) -> {
+            switch (fileParser) {
+                case TokenizingCsvFileParser tokenizer -> tokenizer.parse(content, filename, columns, rowConsumer);
+                default -> fileParser.parse(content, filename,
+                        customerStatement -> rowConsumer.accept(columns.add(customerStatement)));
+            }
+        });
+    }
+
+    private void parseFile(InputStream inputStream, String filename, ParserInvocation parserInvocation)
+            throws IOException {
+        FileParser fileParser = getFileParser(filename);
+        if (!isGzip(filename)) {
+            parserInvocation.parse(fileParser, inputStream);
+            return;
+        }
+        try (InputStream inflated = new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE)) {
+            parserInvocation.parse(fileParser, inflated);
+        }
+    }
+
+    /**
+     * Runs the parser of a file on its content, once it is inflated.
+     */
+    @FunctionalInterface
+    private interface ParserInvocation {
+        void parse(FileParser fileParser, InputStream content);
+    }
+
+    /**
+     * @param inputStream A stream to hand to a parser.
+     * @return The stream, ignoring the close of the parser so the rest of the content can still be read.
+     */
+    private static InputStream keepOpen(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public void close() {
+                // Closed by the owner of the stream
+            }
+        };
+    }
+
+    /**
+     * The validation results of a file and the number of records it holds.
+     */
+    private record ValidatedFile(List<ValidationResult> validationErrors, long recordCount) {
     }
 }
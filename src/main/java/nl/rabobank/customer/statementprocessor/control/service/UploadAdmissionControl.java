@@ -0,0 +1,237 @@
+package nl.rabobank.customer.statementprocessor.control.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control of the files being processed at the same time against a global memory budget, so a burst of
+ * large uploads cannot exhaust the heap.
+ * The memory a file needs is estimated from its content length and format: a fixed overhead for the batch and the
+ * parser buffers plus the references the validation session retains, which grow with the number of records and are
+ * bounded by the memory budget of the session ({@code statement.validation.memory-budget}), beyond which it spills.
+ * A file of unknown length is assumed to reach that bound.
+ * A file whose memory fits the budget reserves it right away. Otherwise it waits in line, first come first served,
+ * for at most {@code statement.admission.queue-timeout}. A file is rejected with an {@link UploadRejectedException}
+ * when the line is {@code statement.admission.max-queue-length} long or its wait is over. The memory reserved and
+ * the length of the line are exported as {@code statement.admission.reserved} and {@code statement.admission.queue}.
+ */
+@Component
+public class UploadAdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadAdmissionControl.class);
+
+    /**
+     * Memory of a file regardless of its size: the statement batch, the parser buffers and the inflater of a
+     * compressed file.
+     */
+    static final long FILE_OVERHEAD = DataSize.ofMegabytes(2).toBytes();
+    /**
+     * Heap retained by the validation session per byte of a CSV file: about 100 bytes per reference of a record of
+     * about 90 bytes.
+     */
+    private static final double CSV_RETAINED_PER_BYTE = 1.2;
+    /**
+     * Heap retained by the validation session per byte of an XML file, whose records take about 300 bytes.
+     */
+    private static final double XML_RETAINED_PER_BYTE = 0.4;
+    /**
+     * Ratio of the inflated to the compressed size of a gzipped file or a ZIP archive of statements.
+     */
+    private static final int COMPRESSION_RATIO = 6;
+
+    private final long memoryBudget;
+    private final long sessionMemoryBudget;
+    private final Duration queueTimeout;
+    private final int maxQueueLength;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    /**
+     * The files waiting to be admitted, in order of arrival.
+     */
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicInteger queueLength = new AtomicInteger();
+    private final Counter rejections;
+
+    /**
+     * @param meterRegistry       The registry of the admission metrics.
+     * @param memoryBudget        The memory all files being processed may reserve together.
+     * @param sessionMemoryBudget The memory a validation session retains at most before spilling.
+     * @param queueTimeout        How long a file waits for memory before it is rejected.
+     * @param maxQueueLength      The number of files that can wait for memory, more are rejected right away.
+     */
+    public UploadAdmissionControl(MeterRegistry meterRegistry,
+                                  @Value("${statement.admission.memory-budget:96MB}") DataSize memoryBudget,
+                                  @Value("${statement.validation.memory-budget:32MB}") DataSize sessionMemoryBudget,
+                                  @Value("${statement.admission.queue-timeout:PT30S}") Duration queueTimeout,
+                                  @Value("${statement.admission.max-queue-length:16}") int maxQueueLength) {
+        this.memoryBudget = memoryBudget.toBytes();
+        this.sessionMemoryBudget = sessionMemoryBudget.toBytes();
+        this.queueTimeout = queueTimeout;
+        this.maxQueueLength = maxQueueLength;
+        Gauge.builder("statement.admission.reserved", reservedBytes, AtomicLong::get)
+                .description("Memory reserved by the files being processed")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+        Gauge.builder("statement.admission.queue", queueLength, AtomicInteger::get)
+                .description("Files waiting for memory to be processed")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("statement.admission.rejected")
+                .description("Files rejected for lack of memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserves the memory to process a file, waiting in line for it if needed.
+     *
+     * @param filename      The name of the file, used for logging.
+     * @param format        The format of the file, such as {@code csv}, {@code xml.gz} or {@code zip}.
+     * @param contentLength The length of the content, {@code -1} if unknown.
+     * @return The reservation, to close once the file is processed.
+     * @throws UploadRejectedException if the line is full or the memory is not available in time.
+     */
+    public Reservation admit(String filename, String format, long contentLength) {
+        long bytes = estimateMemory(format, contentLength);
+        lock.lock();
+        try {
+            if (queue.isEmpty() && fits(bytes)) {
+                return reserve(bytes);
+            }
+            if (queue.size() >= maxQueueLength) {
+                throw reject(filename, bytes, "the queue of files waiting for memory is full");
+            }
+            return awaitTurn(filename, bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimates the memory needed to process a file. The estimate is capped at the budget, so even the largest file
+     * can be processed, on its own.
+     *
+     * @param format        The format of the file.
+     * @param contentLength The length of the content, {@code -1} if unknown.
+     * @return The estimated number of bytes.
+     */
+    public long estimateMemory(String format, long contentLength) {
+        long retainedBytes = sessionMemoryBudget;
+        if (contentLength >= 0) {
+            boolean isCompressed = format.endsWith(".gz") || format.equals("zip");
+            double inflatedLength = isCompressed ? (double) contentLength * COMPRESSION_RATIO : contentLength;
+            double retainedPerByte = format.startsWith("xml") ? XML_RETAINED_PER_BYTE : CSV_RETAINED_PER_BYTE;
+            retainedBytes = Math.min(sessionMemoryBudget, (long) (inflatedLength * retainedPerByte));
+        }
+        return Math.min(memoryBudget, FILE_OVERHEAD + retainedBytes);
+    }
+
+    /**
+     * @return The memory reserved by the files being processed.
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * @return The number of files waiting for memory.
+     */
+    public int getQueueLength() {
+        return queueLength.get();
+    }
+
+    private Reservation awaitTurn(String filename, long bytes) {
+        var ticket = new Object();
+        queue.addLast(ticket);
+        queueLength.set(queue.size());
+        log.info("File {} waits for {} bytes of memory, {} of {} bytes are reserved", filename, bytes,
+                reservedBytes.get(), memoryBudget);
+        try {
+            long remainingNanos = queueTimeout.toNanos();
+            while (queue.peekFirst() != ticket || !fits(bytes)) {
+                if (remainingNanos <= 0) {
+                    throw reject(filename, bytes, "no memory became available within " + queueTimeout);
+                }
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+            return reserve(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for memory to process file " + filename, e);
+        } finally {
+            queue.remove(ticket);
+            queueLength.set(queue.size());
+            // The next file in line may fit now
+            released.signalAll();
+        }
+    }
+
+    private boolean fits(long bytes) {
+        return reservedBytes.get() + bytes <= memoryBudget;
+    }
+
+    private Reservation reserve(long bytes) {
+        reservedBytes.addAndGet(bytes);
+        return new Reservation(bytes);
+    }
+
+    private void release(long bytes) {
+        lock.lock();
+        try {
+            reservedBytes.addAndGet(-bytes);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UploadRejectedException reject(String filename, long bytes, String reason) {
+        rejections.increment();
+        log.warn("Rejected file {} needing {} bytes of memory: {}", filename, bytes, reason);
+        // By then the files in line had their turn or were rejected as well
+        return new UploadRejectedException("Too many files are being processed, " + reason + ".",
+                Duration.ofSeconds(Math.max(1, queueTimeout.toSeconds())));
+    }
+
+    /**
+     * Memory reserved for a file, released when closed.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final long bytes;
+        private boolean isReleased;
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return The number of bytes reserved.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (!isReleased) {
+                isReleased = true;
+                release(bytes);
+            }
+        }
+    }
+}
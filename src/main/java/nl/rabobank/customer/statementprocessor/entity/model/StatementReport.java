@@ -11,7 +11,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Not yet implemented on the business logic to save error reports
+ * Represents the report of a processed file in the database.
+ * Reports are written and read with JDBC by StatementReportStore, the entity describes the table.
  */
 @Entity
 public class StatementReport {
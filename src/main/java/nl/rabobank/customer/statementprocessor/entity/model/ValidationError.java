@@ -9,7 +9,8 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 
 /**
- * Not yet implemented on the business logic to save error reports
+ * Represents a failed record of a report in the database, at its position in the report.
+ * Failed records are written and read with JDBC by StatementReportStore, the entity describes the table.
  */
 @Entity
 public class ValidationError {
@@ -17,6 +18,7 @@ public class ValidationError {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    private int failureIndex;
     private Long reference;
     private String description;
     private String errorMessage;
@@ -43,6 +45,14 @@ public class ValidationError {
         this.id = id;
     }
 
+    public int getFailureIndex() {
+        return failureIndex;
+    }
+
+    public void setFailureIndex(int failureIndex) {
+        this.failureIndex = failureIndex;
+    }
+
     public Long getReference() {
         return reference;
     }
@@ -0,0 +1,85 @@
+package nl.rabobank.customer.statementprocessor.entity.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.SavepointManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Savepoints on the JDBC connection of the current transaction.
+ * The JPA transaction manager does not support savepoints, but it exposes the connection of its transaction to JDBC
+ * code, on which the {@link StatementBatchWriter} writes the statements. A savepoint set on that connection undoes
+ * exactly the batches written after it.
+ */
+@Component
+public class JdbcSavepointManager implements SavepointManager {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcSavepointManager.class);
+    private final DataSource dataSource;
+
+    /**
+     * @param dataSource The data source of the transactions.
+     */
+    public JdbcSavepointManager(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return A savepoint on the connection of the current transaction.
+     * @throws NoTransactionException if no transaction holds a connection of the data source.
+     * @throws CannotCreateTransactionException if the savepoint cannot be set.
+     */
+    @Override
+    public Object createSavepoint() {
+        try {
+            return currentConnection().createSavepoint();
+        } catch (SQLException e) {
+            throw new CannotCreateTransactionException("Could not create JDBC savepoint", e);
+        }
+    }
+
+    /**
+     * @param savepoint A savepoint created by {@link #createSavepoint()}.
+     * @throws TransactionSystemException if the transaction cannot be rolled back to the savepoint.
+     */
+    @Override
+    public void rollbackToSavepoint(Object savepoint) {
+        var connectionHolder = currentConnection();
+        try {
+            connectionHolder.getConnection().rollback((Savepoint) savepoint);
+            connectionHolder.resetRollbackOnly();
+        } catch (SQLException e) {
+            throw new TransactionSystemException("Could not roll back to JDBC savepoint", e);
+        }
+    }
+
+    /**
+     * Releases a savepoint, a database that cannot release it keeps it until the transaction ends.
+     *
+     * @param savepoint A savepoint created by {@link #createSavepoint()}.
+     */
+    @Override
+    public void releaseSavepoint(Object savepoint) {
+        try {
+            currentConnection().getConnection().releaseSavepoint((Savepoint) savepoint);
+        } catch (SQLException e) {
+            log.debug("Could not explicitly release JDBC savepoint", e);
+        }
+    }
+
+    private ConnectionHolder currentConnection() {
+        if (!(TransactionSynchronizationManager.getResource(dataSource) instanceof ConnectionHolder connectionHolder)) {
+            throw new NoTransactionException("No transaction holds a JDBC connection to set a savepoint on");
+        }
+        return connectionHolder;
+    }
+}
@@ -0,0 +1,87 @@
+package nl.rabobank.customer.statementprocessor.entity.repository;
+
+import nl.rabobank.customer.statementprocessor.util.LongBloomFilter;
+import nl.rabobank.customer.statementprocessor.util.ProcessedReferences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the references of all stored statements, so validation can reject references of earlier
+ * uploads without a database round-trip per record.
+ * A {@link LongBloomFilter} answers most lookups: a reference it does not contain is certainly not stored. Only
+ * when the filter reports a hit, the reference is checked exactly against the database, which also covers
+ * references added by uploads that were rolled back afterwards.
+ * The index is warmed from {@link StatementRepository} before the application accepts requests and updated by
+ * {@link StatementBatchWriter} on every insert.
+ */
+@Component
+public class ReferenceIndex implements ProcessedReferences, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceIndex.class);
+    private final StatementRepository statementRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final long expectedReferences;
+    private final LongBloomFilter bloomFilter;
+    private final AtomicLong referenceCount = new AtomicLong();
+
+    /**
+     * @param statementRepository      Repository of the stored statements.
+     * @param transactionManager       Transaction manager used to stream the stored references.
+     * @param expectedReferences       The number of references the filter is sized for.
+     * @param falsePositiveProbability The share of unknown references checked against the database needlessly.
+     */
+    public ReferenceIndex(StatementRepository statementRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${statement.reference-index.expected-references:1000000}") long expectedReferences,
+                          @Value("${statement.reference-index.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.statementRepository = statementRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.expectedReferences = expectedReferences;
+        this.bloomFilter = new LongBloomFilter(expectedReferences, falsePositiveProbability);
+    }
+
+    /**
+     * Warms the index with the references of all stored statements.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Long> references = statementRepository.streamAllReferences()) {
+                references.forEach(this::add);
+            }
+        });
+        log.info("Reference index warmed with {} references ({} bits, {} hashes)",
+                referenceCount.get(), bloomFilter.bitCount(), bloomFilter.hashCount());
+    }
+
+    /**
+     * Adds the reference of a stored statement.
+     *
+     * @param reference The reference of the stored statement.
+     */
+    public void add(long reference) {
+        bloomFilter.put(reference);
+        if (referenceCount.incrementAndGet() == expectedReferences + 1) {
+            log.warn("Reference index holds more than {} references, its false positive rate increases",
+                    expectedReferences);
+        }
+    }
+
+    /**
+     * @param reference A transaction reference.
+     * @return {@code true} if a statement with this reference is stored.
+     */
+    @Override
+    public boolean contains(long reference) {
+        return bloomFilter.mightContain(reference) && statementRepository.existsByReference(reference);
+    }
+}
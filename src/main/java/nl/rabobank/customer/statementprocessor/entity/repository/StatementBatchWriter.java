@@ -0,0 +1,148 @@
+package nl.rabobank.customer.statementprocessor.entity.repository;
+
+import nl.rabobank.customer.statementprocessor.entity.model.Statement;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Writes {@link Statement} rows with JDBC batch inserts.
+ * The {@code IDENTITY} id of the statement entity makes Hibernate insert every row with its own round-trip,
+ * this writer sends the rows in multi-row batches instead and leaves id generation to the database.
+ * Every written reference is added to the {@link ReferenceIndex}.
+ */
+@Repository
+public class StatementBatchWriter {
+
+    static final String INSERT_STATEMENT = """
+            INSERT INTO statement (reference, account_number, start_balance, mutation, description, end_balance)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+    static final String DELETE_STATEMENT = "DELETE FROM statement WHERE reference = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceIndex referenceIndex;
+    private final int batchSize;
+
+    /**
+     * @param jdbcTemplate   The JdbcTemplate used to send the batches.
+     * @param referenceIndex The index of stored references.
+     * @param batchSize      The number of rows sent to the database per JDBC batch.
+     */
+    public StatementBatchWriter(JdbcTemplate jdbcTemplate, ReferenceIndex referenceIndex,
+                                @Value("${statement.persistence.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceIndex = referenceIndex;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the statements in JDBC batches. Joins the surrounding transaction if there is one, so all batches
+     * of an upload are committed or rolled back together.
+     *
+     * @param statements The statements to insert.
+     * @return The number of inserted statements.
+     */
+    @Transactional
+    public int write(List<Statement> statements) {
+        if (statements.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_STATEMENT, statements, batchSize, (preparedStatement, statement) -> {
+            preparedStatement.setObject(1, statement.getReference(), Types.BIGINT);
+            preparedStatement.setString(2, statement.getAccountNumber());
+            preparedStatement.setBigDecimal(3, statement.getStartBalance());
+            preparedStatement.setBigDecimal(4, statement.getMutation());
+            preparedStatement.setString(5, statement.getDescription());
+            preparedStatement.setBigDecimal(6, statement.getEndBalance());
+        });
+        for (var statement : statements) {
+            if (statement.getReference() != null) {
+                referenceIndex.add(statement.getReference());
+            }
+        }
+        return statements.size();
+    }
+
+    /**
+     * Inserts the rows of a columnar batch in JDBC batches, binding the parameters straight from the columns without
+     * creating a {@link Statement} per row. Joins the surrounding transaction like {@link #write(List)}.
+     *
+     * @param columns The batch of statements to insert.
+     * @return The number of inserted statements.
+     */
+    @Transactional
+    public int writeColumns(StatementColumns columns) {
+        int size = columns.size();
+        for (int first = 0; first < size; first += batchSize) {
+            jdbcTemplate.batchUpdate(INSERT_STATEMENT, new ColumnsSetter(columns, first,
+                    Math.min(batchSize, size - first)));
+        }
+        for (int row = 0; row < size; row++) {
+            referenceIndex.add(columns.reference(row));
+        }
+        return size;
+    }
+
+    /**
+     * Deletes the statements with the given references in JDBC batches. Joins the surrounding transaction like
+     * {@link #write(List)}. The references stay in the {@link ReferenceIndex}, which confirms every hit against the
+     * database.
+     *
+     * @param references The references of the statements to delete.
+     * @return The number of deleted statements.
+     */
+    @Transactional
+    public int deleteByReferences(long[] references) {
+        int deletedCount = 0;
+        for (int first = 0; first < references.length; first += batchSize) {
+            int count = Math.min(batchSize, references.length - first);
+            int offset = first;
+            int[] updateCounts = jdbcTemplate.batchUpdate(DELETE_STATEMENT, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement preparedStatement, int index) throws SQLException {
+                    preparedStatement.setLong(1, references[offset + index]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+            for (int updateCount : updateCounts) {
+                deletedCount += Math.max(0, updateCount);
+            }
+        }
+        return deletedCount;
+    }
+
+    /**
+     * Binds a range of rows of a columnar batch to the insert statement.
+     */
+    private record ColumnsSetter(StatementColumns columns, int first, int count)
+            implements BatchPreparedStatementSetter {
+
+        @Override
+        public void setValues(PreparedStatement preparedStatement, int index) throws SQLException {
+            int row = first + index;
+            preparedStatement.setLong(1, columns.reference(row));
+            preparedStatement.setString(2, columns.accountNumber(row));
+            preparedStatement.setBigDecimal(3, columns.startBalance(row));
+            preparedStatement.setBigDecimal(4, columns.mutation(row));
+            preparedStatement.setString(5, columns.description(row));
+            preparedStatement.setBigDecimal(6, columns.endBalance(row));
+        }
+
+        @Override
+        public int getBatchSize() {
+            return count;
+        }
+    }
+}
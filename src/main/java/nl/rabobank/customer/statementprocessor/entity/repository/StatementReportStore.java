@@ -0,0 +1,117 @@
+package nl.rabobank.customer.statementprocessor.entity.repository;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Stores reports in the {@code statement_report} and {@code validation_error} tables with JDBC batch inserts,
+ * and reads the failed records back page by page.
+ * Every failed record is stored with its position in the report, pages are read with keyset pagination on that
+ * position so a page costs the same no matter how deep into the report it is.
+ */
+@Repository
+public class StatementReportStore {
+
+    static final String INSERT_REPORT = "INSERT INTO statement_report (report_id) VALUES (?)";
+    static final String INSERT_VALIDATION_ERROR = """
+            INSERT INTO validation_error (report_id, failure_index, reference, description, error_message)
+            VALUES (?, ?, ?, ?, ?)""";
+    static final String SELECT_REPORT_KEY = "SELECT id FROM statement_report WHERE report_id = ?";
+    static final String SELECT_VALIDATION_ERRORS = """
+            SELECT reference, description, error_message FROM validation_error
+            WHERE report_id = ? AND failure_index > ?
+            ORDER BY failure_index
+            LIMIT ?""";
+
+    private static final RowMapper<ValidationResult> VALIDATION_RESULT_ROW_MAPPER = (resultSet, rowNum) ->
+            new ValidationResult(resultSet.getObject("reference", Long.class), resultSet.getString("description"),
+                    resultSet.getString("error_message"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    /**
+     * @param jdbcTemplate The JdbcTemplate used to access the report tables.
+     * @param batchSize    The number of failed records sent to the database per JDBC batch.
+     */
+    public StatementReportStore(JdbcTemplate jdbcTemplate,
+                                @Value("${statement.persistence.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts a report and all its failed records.
+     *
+     * @param report The report to store.
+     * @return The database key of the stored report.
+     */
+    @Transactional
+    public long save(Report report) {
+        var keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_REPORT, new String[]{"id"});
+            preparedStatement.setLong(1, report.reportId());
+            return preparedStatement;
+        }, keyHolder);
+        long reportKey = Objects.requireNonNull(keyHolder.getKey()).longValue();
+
+        List<ValidationResult> failedRecords = report.failedRecords();
+        for (int start = 0; start < failedRecords.size(); start += batchSize) {
+            int batchStart = start;
+            int batchLength = Math.min(batchSize, failedRecords.size() - start);
+            jdbcTemplate.batchUpdate(INSERT_VALIDATION_ERROR, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+                    int failureIndex = batchStart + i;
+                    var failedRecord = failedRecords.get(failureIndex);
+                    preparedStatement.setLong(1, reportKey);
+                    preparedStatement.setInt(2, failureIndex);
+                    preparedStatement.setObject(3, failedRecord.reference(), Types.BIGINT);
+                    preparedStatement.setString(4, failedRecord.description());
+                    preparedStatement.setString(5, failedRecord.errorMessage());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batchLength;
+                }
+            });
+        }
+        return reportKey;
+    }
+
+    /**
+     * @param reportId The public ID of a report.
+     * @return The database key of the report, if it is stored.
+     */
+    public Optional<Long> findReportKey(long reportId) {
+        return jdbcTemplate.queryForList(SELECT_REPORT_KEY, Long.class, reportId).stream().findFirst();
+    }
+
+    /**
+     * Reads the failed records of a report that follow a given position.
+     *
+     * @param reportKey The database key of the report.
+     * @param after     The position of the last failed record already read, {@code -1} to start at the beginning.
+     * @param limit     The maximum number of failed records to read.
+     * @return The failed records, ordered by position.
+     */
+    public List<ValidationResult> findValidationErrors(long reportKey, long after, int limit) {
+        return jdbcTemplate.query(SELECT_VALIDATION_ERRORS, VALIDATION_RESULT_ROW_MAPPER, reportKey, after, limit);
+    }
+}
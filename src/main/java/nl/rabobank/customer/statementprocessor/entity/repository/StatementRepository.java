@@ -2,9 +2,11 @@ package nl.rabobank.customer.statementprocessor.entity.repository;
 
 import nl.rabobank.customer.statementprocessor.entity.model.Statement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface StatementRepository  extends JpaRepository<Statement, Long> {
@@ -12,4 +14,14 @@ public interface StatementRepository  extends JpaRepository<Statement, Long> {
     Statement findByReference(Long reference);
 
     List<Statement> findByAccountNumber(String accountNumber);
-}
\ No newline at end of file
+
+    boolean existsByReference(Long reference);
+
+    /**
+     * Streams the references of all stored statements, must be consumed within a transaction.
+     *
+     * @return The references, the stream must be closed after use.
+     */
+    @Query("select s.reference from statement s where s.reference is not null")
+    Stream<Long> streamAllReferences();
+}
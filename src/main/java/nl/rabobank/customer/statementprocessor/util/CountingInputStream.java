@@ -0,0 +1,46 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream counting the bytes read through it. Skipped bytes are not counted.
+ * Not thread-safe.
+ */
+public final class CountingInputStream extends FilterInputStream {
+
+    private long count;
+
+    /**
+     * @param inputStream The stream to count the bytes of.
+     */
+    public CountingInputStream(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    /**
+     * @return The number of bytes read so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            count++;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+}
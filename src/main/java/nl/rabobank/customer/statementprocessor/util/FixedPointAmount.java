@@ -0,0 +1,85 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point representation of statement amounts as a {@code long} number of cents, matching the
+ * {@code DECIMAL(10, 2)} columns of the statement table.
+ * Amounts with more than two decimals or too many integer digits are not representable and must be handled as
+ * {@link BigDecimal} instead, so every calculation on cents gives exactly the same result as on BigDecimal.
+ */
+public final class FixedPointAmount {
+
+    /**
+     * Marks an amount that has no exact representation in cents.
+     */
+    public static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    public static final int SCALE = 2;
+
+    /**
+     * Keeps every representable amount below 10^15 cents, so the sum of two amounts cannot overflow and the
+     * conversion through {@code double} below stays exact.
+     */
+    private static final int MAX_INTEGER_DIGITS = 13;
+    private static final double CENTS_PER_UNIT = 100d;
+    private static final long[] UNSCALED_LIMITS = {10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L};
+    private static final long[] CENTS_PER_UNSCALED = {100, 10, 1};
+
+    private FixedPointAmount() {
+    }
+
+    /**
+     * Converts an amount to cents.
+     * For amounts with at most two decimals and at most 13 integer digits the unscaled value is below 2^50, so
+     * {@link BigDecimal#doubleValue()} and the multiplication are off by far less than half a cent and rounding
+     * restores the exact number of cents without allocating.
+     *
+     * @param amount The amount to convert, may be {@code null}.
+     * @return The amount in cents, or {@link #NOT_REPRESENTABLE} if it has no exact representation.
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null
+                || amount.scale() < 0
+                || amount.scale() > SCALE
+                || amount.precision() - amount.scale() > MAX_INTEGER_DIGITS) {
+            return NOT_REPRESENTABLE;
+        }
+        return Math.round(amount.doubleValue() * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Converts an amount given as an unscaled value and a scale to cents, with the same result as
+     * {@link #toCents(BigDecimal)} on {@code BigDecimal.valueOf(unscaledValue, scale)}.
+     *
+     * @param unscaledValue The digits of the amount.
+     * @param scale         The number of decimals of the amount.
+     * @return The amount in cents, or {@link #NOT_REPRESENTABLE} if it has no exact representation.
+     */
+    public static long toCents(long unscaledValue, int scale) {
+        // At most 13 integer digits, so the unscaled value has fewer than 13 + scale digits
+        if (scale < 0 || scale > SCALE || Math.abs(unscaledValue) >= UNSCALED_LIMITS[scale]
+                || unscaledValue == Long.MIN_VALUE) {
+            return NOT_REPRESENTABLE;
+        }
+        return unscaledValue * CENTS_PER_UNSCALED[scale];
+    }
+
+    /**
+     * @param cents An amount in cents.
+     * @return The amount as a {@link BigDecimal} with a scale of two.
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * @param startBalance The start balance in cents.
+     * @param mutation     The mutation in cents.
+     * @param endBalance   The end balance in cents.
+     * @return {@code true} if all three amounts have an exact representation in cents.
+     */
+    public static boolean isRepresentable(long startBalance, long mutation, long endBalance) {
+        return startBalance != NOT_REPRESENTABLE && mutation != NOT_REPRESENTABLE && endBalance != NOT_REPRESENTABLE;
+    }
+}
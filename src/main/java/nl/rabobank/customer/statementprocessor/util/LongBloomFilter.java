@@ -0,0 +1,101 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bloom filter over primitive {@code long} values.
+ * {@link #mightContain(long)} never returns {@code false} for a value that was put, and returns {@code true} for a
+ * value that was not put with about the configured probability as long as no more than the expected number of
+ * values were put.
+ * The filter is thread-safe: bits are only ever set, with an atomic bitwise or, so readers never block writers.
+ */
+public final class LongBloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final double LN_2 = Math.log(2);
+    private static final int MAX_HASH_COUNT = 16;
+    private static final long SECOND_HASH_SEED = 0x9E3779B97F4A7C15L;
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions       The number of values the filter is sized for.
+     * @param falsePositiveProbability The probability of a false positive at the expected number of values.
+     */
+    public LongBloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive and the false positive "
+                    + "probability between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN_2 * LN_2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) >>> 6));
+        this.words = new long[wordCount];
+        this.bitCount = (long) wordCount << 6;
+        this.hashCount = (int) Math.max(1, Math.min(MAX_HASH_COUNT,
+                Math.round((double) bitCount / expectedInsertions * LN_2)));
+    }
+
+    /**
+     * Adds a value to the filter.
+     *
+     * @param value The value to add.
+     */
+    public void put(long value) {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1 ^ SECOND_HASH_SEED);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if (((long) WORDS.getAcquire(words, word) & mask) == 0) {
+                WORDS.getAndBitwiseOr(words, word, mask);
+            }
+        }
+    }
+
+    /**
+     * @param value The value to look up.
+     * @return {@code false} if the value was definitely never added, {@code true} if it probably was.
+     */
+    public boolean mightContain(long value) {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1 ^ SECOND_HASH_SEED);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if (((long) WORDS.getAcquire(words, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The size of the filter in bits.
+     */
+    public long bitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return The number of bits set per value.
+     */
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * The MurmurHash3 finalizer, spreading every input bit over all output bits.
+     */
+    private static long mix(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,192 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to primitive {@code int} values.
+ * Keys and values live in two parallel arrays and collisions are resolved by linear probing, so lookups and
+ * inserts neither box the key nor allocate an entry object. The tables only grow, entries cannot be removed.
+ * Not thread-safe.
+ */
+public final class LongIntHashMap {
+
+    /**
+     * Returned by {@link #get(long)} and {@link #putIfAbsent(long, int)} when the key is not present.
+     */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private static final long EMPTY_KEY = 0L;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    // The empty key marks free slots, so an entry for it is kept outside the tables
+    private boolean hasEmptyKey;
+    private int emptyKeyValue;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of entries the map should hold without resizing.
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The value mapped to the key, or {@link #MISSING} if there is none.
+     */
+    public int get(long key) {
+        if (key == EMPTY_KEY) {
+            return hasEmptyKey ? emptyKeyValue : MISSING;
+        }
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY_KEY) {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous value.
+     *
+     * @param key   The key to map.
+     * @param value The value, must not be {@link #MISSING}.
+     */
+    public void put(long key, int value) {
+        insert(key, value, true);
+    }
+
+    /**
+     * Maps the key to the value only if the key is not present yet, probing the table once.
+     *
+     * @param key   The key to map.
+     * @param value The value, must not be {@link #MISSING}.
+     * @return {@link #MISSING} if the value was inserted, otherwise the value already mapped to the key.
+     */
+    public int putIfAbsent(long key, int value) {
+        return insert(key, value, false);
+    }
+
+    /**
+     * @return The number of keys in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Hands every entry of the map to the consumer, in no particular order.
+     *
+     * @param consumer Receives the key and the value of every entry.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasEmptyKey) {
+            consumer.accept(EMPTY_KEY, emptyKeyValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY_KEY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private int insert(long key, int value, boolean replace) {
+        if (value == MISSING) {
+            throw new IllegalArgumentException("Value " + MISSING + " is reserved");
+        }
+        if (key == EMPTY_KEY) {
+            return insertEmptyKey(value, replace);
+        }
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                int previous = values[slot];
+                if (replace) {
+                    values[slot] = value;
+                }
+                return previous;
+            }
+            if (current == EMPTY_KEY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return MISSING;
+            }
+        }
+    }
+
+    private int insertEmptyKey(int value, boolean replace) {
+        if (hasEmptyKey) {
+            int previous = emptyKeyValue;
+            if (replace) {
+                emptyKeyValue = value;
+            }
+            return previous;
+        }
+        hasEmptyKey = true;
+        emptyKeyValue = value;
+        size++;
+        return MISSING;
+    }
+
+    private int slotOf(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift);
+    }
+
+    private void rehash(int capacity) {
+        if (keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("LongIntHashMap cannot grow beyond " + MAX_CAPACITY + " slots");
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int slot = slotOf(key);
+                while (keys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+        // Keep the load factor at 0.5 so probe sequences stay short
+        resizeThreshold = capacity >>> 1;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1L, (long) expectedSize * 2 - 1)) << 1);
+        return (int) Math.min(capacity, MAX_CAPACITY);
+    }
+
+    /**
+     * Receives the entries of a {@link LongIntHashMap}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
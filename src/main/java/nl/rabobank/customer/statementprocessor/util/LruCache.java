@@ -0,0 +1,86 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe cache holding at most a fixed number of entries, evicting the least recently used entry first.
+ * Guarded by a {@link ReentrantLock} rather than {@code synchronized}, so virtual threads waiting for the cache do
+ * not pin their carrier thread.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class LruCache<K, V> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, V> entries;
+
+    /**
+     * @param maxSize The maximum number of entries, {@code 0} disables the cache.
+     */
+    public LruCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The cached value, or {@code null} if there is none.
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a value, evicting the least recently used entry if the cache is full.
+     *
+     * @param key   The key of the value.
+     * @param value The value to cache.
+     */
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            entries.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key The key of the value to remove.
+     */
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of cached entries.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
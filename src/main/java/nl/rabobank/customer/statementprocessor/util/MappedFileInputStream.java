@@ -0,0 +1,134 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Input stream reading a file through memory-mapped windows of a {@link FileChannel}.
+ * The bytes are copied straight from the page cache, without a read system call per buffer. A single mapping is
+ * limited to 2 GB, so larger files are mapped window by window as the stream advances.
+ * A mapping is released when its buffer is garbage collected, not when the stream is closed.
+ */
+public final class MappedFileInputStream extends InputStream {
+
+    /**
+     * Size of a mapped window, 256 MB.
+     */
+    public static final long DEFAULT_WINDOW_SIZE = 1L << 28;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * @param file The file to read.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public MappedFileInputStream(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param file       The file to read.
+     * @param windowSize The number of bytes mapped at a time, at most {@link Integer#MAX_VALUE}.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public MappedFileInputStream(Path file, long windowSize) throws IOException {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window size must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.windowSize = windowSize;
+        try {
+            this.size = channel.size();
+            this.window = map(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!hasRemaining()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (!hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        ensureOpen();
+        long position = windowStart + window.position();
+        long skipped = Math.max(0, Math.min(count, size - position));
+        long target = position + skipped;
+        if (target < windowStart + window.limit()) {
+            window.position((int) (target - windowStart));
+        } else {
+            window = map(Math.min(target, size));
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return (int) Math.min(Integer.MAX_VALUE, size - windowStart - window.position());
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Maps the next window when the current one is read completely.
+     *
+     * @return {@code true} if there are bytes left to read.
+     */
+    private boolean hasRemaining() throws IOException {
+        ensureOpen();
+        if (window.hasRemaining()) {
+            return true;
+        }
+        long next = windowStart + window.limit();
+        if (next >= size) {
+            return false;
+        }
+        window = map(next);
+        return true;
+    }
+
+    private MappedByteBuffer map(long start) throws IOException {
+        windowStart = start;
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (window == null) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * A file on the file system that is read through memory-mapped windows, see {@link MappedFileInputStream}.
+ */
+public class MappedFileResource extends FileSystemResource {
+
+    /**
+     * @param file The file to read.
+     */
+    public MappedFileResource(Path file) {
+        super(file);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new MappedFileInputStream(getFile().toPath());
+    }
+}
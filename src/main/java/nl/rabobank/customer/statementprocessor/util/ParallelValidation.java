@@ -0,0 +1,168 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Validates a list of statements on a {@link ForkJoinPool}.
+ * Records are partitioned by a hash of their reference, so all occurrences of a reference end up in the same
+ * partition and every partition detects its duplicates with its own {@link ValidationSession}. Each partition keeps
+ * its records in input order and the failures are merged by position, which makes the result identical to
+ * validating the list with a single session.
+ */
+final class ParallelValidation {
+
+    private static final int MAX_PARTITIONS = 256;
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    private final StatementValidator validator;
+    private final ForkJoinPool forkJoinPool;
+    private final List<CustomerStatement> customerStatements;
+    private final int partitionCount;
+    private final int chunkCount;
+    private final int chunkSize;
+
+    /**
+     * Partition of every record, stored as an unsigned byte.
+     */
+    private final byte[] partitions;
+    /**
+     * Record indexes grouped by partition, in input order within a partition.
+     */
+    private final int[] partitionedIndexes;
+    /**
+     * Start of every partition in {@link #partitionedIndexes}, with the total count as last element.
+     */
+    private final int[] partitionStarts;
+    /**
+     * Number of records per chunk and partition, turned into the write offset of every chunk in every partition.
+     */
+    private final int[][] chunkOffsets;
+
+    private ParallelValidation(StatementValidator validator, ForkJoinPool forkJoinPool,
+                               List<CustomerStatement> customerStatements) {
+        this.validator = validator;
+        this.forkJoinPool = forkJoinPool;
+        this.customerStatements = customerStatements;
+        int size = customerStatements.size();
+        int parallelism = forkJoinPool.getParallelism();
+        this.partitionCount = Math.min(MAX_PARTITIONS, Integer.highestOneBit(parallelism * PARTITIONS_PER_WORKER - 1) << 1);
+        this.chunkCount = Math.min(size, parallelism * PARTITIONS_PER_WORKER);
+        this.chunkSize = (size + chunkCount - 1) / chunkCount;
+        this.partitions = new byte[size];
+        this.partitionedIndexes = new int[size];
+        this.partitionStarts = new int[partitionCount + 1];
+        this.chunkOffsets = new int[chunkCount][partitionCount];
+    }
+
+    /**
+     * @param validator          The validator providing the checks of a single statement.
+     * @param forkJoinPool       The pool running the partitions.
+     * @param customerStatements The statements to validate, must support fast random access.
+     * @return The validation errors, in the same order as a sequential validation of the list.
+     */
+    static List<ValidationResult> validate(StatementValidator validator, ForkJoinPool forkJoinPool,
+                                           List<CustomerStatement> customerStatements) {
+        return new ParallelValidation(validator, forkJoinPool, customerStatements).run();
+    }
+
+    private List<ValidationResult> run() {
+        forkJoinPool.invoke(new ForEach(0, chunkCount, this::countChunk));
+        computeOffsets();
+        forkJoinPool.invoke(new ForEach(0, chunkCount, this::scatterChunk));
+
+        var sessions = new ValidationSession[partitionCount];
+        forkJoinPool.invoke(new ForEach(0, partitionCount, partition -> sessions[partition] = validatePartition(partition)));
+        return ValidationSession.mergeValidationResults(List.of(sessions));
+    }
+
+    private void countChunk(int chunk) {
+        int[] counts = chunkOffsets[chunk];
+        int end = chunkEnd(chunk);
+        for (int index = chunk * chunkSize; index < end; index++) {
+            int partition = partitionOf(customerStatements.get(index).reference());
+            partitions[index] = (byte) partition;
+            counts[partition]++;
+        }
+    }
+
+    private void computeOffsets() {
+        int offset = 0;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitionStarts[partition] = offset;
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                int count = chunkOffsets[chunk][partition];
+                chunkOffsets[chunk][partition] = offset;
+                offset += count;
+            }
+        }
+        partitionStarts[partitionCount] = offset;
+    }
+
+    private void scatterChunk(int chunk) {
+        int[] offsets = chunkOffsets[chunk];
+        int end = chunkEnd(chunk);
+        for (int index = chunk * chunkSize; index < end; index++) {
+            partitionedIndexes[offsets[partitions[index] & 0xFF]++] = index;
+        }
+    }
+
+    private ValidationSession validatePartition(int partition) {
+        int start = partitionStarts[partition];
+        int end = partitionStarts[partition + 1];
+        var session = validator.newSession(end - start);
+        for (int i = start; i < end; i++) {
+            int index = partitionedIndexes[i];
+            session.validate(customerStatements.get(index), index);
+        }
+        return session;
+    }
+
+    private int chunkEnd(int chunk) {
+        return Math.min(customerStatements.size(), (chunk + 1) * chunkSize);
+    }
+
+    /**
+     * Mixes all bits of the reference into the low bits (the MurmurHash3 finalizer). The sessions hash references
+     * on the high bits of a different multiplication, so a partition does not crowd its map into a few slots.
+     */
+    private int partitionOf(long reference) {
+        long hash = reference;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash & (partitionCount - 1);
+    }
+
+    /**
+     * Runs an action for every index of a range, splitting the range in halves until single indexes remain.
+     */
+    private static final class ForEach extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        private ForEach(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ForEach(from, middle, action), new ForEach(middle, to, action));
+        }
+    }
+}
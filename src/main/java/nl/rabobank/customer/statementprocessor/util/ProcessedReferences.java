@@ -0,0 +1,19 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+/**
+ * Lookup of transaction references that were stored by earlier uploads.
+ */
+@FunctionalInterface
+public interface ProcessedReferences {
+
+    /**
+     * Lookup for validations that only check the statements of the file itself.
+     */
+    ProcessedReferences NONE = reference -> false;
+
+    /**
+     * @param reference A transaction reference.
+     * @return {@code true} if a statement with this reference is already stored.
+     */
+    boolean contains(long reference);
+}
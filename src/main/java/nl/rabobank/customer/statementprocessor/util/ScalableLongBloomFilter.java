@@ -0,0 +1,70 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bloom filter over primitive {@code long} values that grows with the values put, for a set whose size is not known
+ * in advance. Values are put in a chain of {@link LongBloomFilter}s: once one holds its expected number of values the
+ * next is twice as large with half the false positive probability, so the probabilities of all filters add up to at
+ * most twice the configured probability however many values are put.
+ * <p>
+ * A filter is not thread-safe.
+ */
+public final class ScalableLongBloomFilter {
+
+    private final List<LongBloomFilter> filters = new ArrayList<>();
+    private long capacity;
+    private double falsePositiveProbability;
+    private long remaining;
+
+    /**
+     * @param initialCapacity          The number of values the first filter is sized for.
+     * @param falsePositiveProbability The false positive probability of the first filter.
+     */
+    public ScalableLongBloomFilter(long initialCapacity, double falsePositiveProbability) {
+        this.capacity = initialCapacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+        addFilter();
+    }
+
+    /**
+     * Adds a value to the filter.
+     *
+     * @param value The value to add.
+     */
+    public void put(long value) {
+        if (remaining == 0) {
+            capacity *= 2;
+            falsePositiveProbability /= 2;
+            addFilter();
+        }
+        filters.getLast().put(value);
+        remaining--;
+    }
+
+    /**
+     * @param value The value to look up.
+     * @return {@code false} if the value was definitely never added, {@code true} if it probably was.
+     */
+    public boolean mightContain(long value) {
+        for (int index = filters.size() - 1; index >= 0; index--) {
+            if (filters.get(index).mightContain(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The size of all filters in bits.
+     */
+    public long bitCount() {
+        return filters.stream().mapToLong(LongBloomFilter::bitCount).sum();
+    }
+
+    private void addFilter() {
+        filters.add(new LongBloomFilter(capacity, falsePositiveProbability));
+        remaining = capacity;
+    }
+}
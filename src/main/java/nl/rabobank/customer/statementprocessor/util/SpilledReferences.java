@@ -0,0 +1,320 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Bounded-memory record of reference occurrences, to find the duplicate references among more references than fit
+ * in memory.
+ * Occurrences are buffered until their estimated size exceeds the memory budget, then sorted by reference and
+ * written to a temporary run file. {@link #forEachDuplicate(DuplicateConsumer)} merges the sorted runs and reports
+ * every reference that occurs more than once, reading every run sequentially, once for up to
+ * {@value #MAX_MERGE_WIDTH} runs.
+ * Occurrences that arrive sorted by reference are appended to the current run in small batches instead, so an input
+ * that is already sorted is written as a single run without ever buffering more than {@value #SORTED_BATCH_SIZE}
+ * occurrences.
+ * Not thread-safe.
+ */
+public final class SpilledReferences implements Closeable {
+
+    /**
+     * Estimated heap size of a buffered occurrence besides the characters of its description.
+     */
+    static final int OCCURRENCE_OVERHEAD = 72;
+    private static final int SORTED_BATCH_SIZE = 4096;
+    private static final int MAX_MERGE_WIDTH = 64;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final int NO_DESCRIPTION = -1;
+    private static final Comparator<Occurrence> ORDER = Comparator.comparingLong(Occurrence::reference)
+            .thenComparingLong(Occurrence::position);
+
+    private final Path directory;
+    private final long memoryBudget;
+    private final List<Run> runs = new ArrayList<>();
+    private final List<Occurrence> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private boolean isBufferSorted = true;
+    /**
+     * The last run, kept open as long as the buffered occurrences follow its last occurrence.
+     */
+    private RunWriter openRun;
+
+    /**
+     * @param directory    The directory of the temporary run files.
+     * @param memoryBudget The estimated number of bytes of buffered occurrences that triggers writing a run.
+     */
+    public SpilledReferences(Path directory, long memoryBudget) {
+        this.directory = directory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Records an occurrence of a reference.
+     *
+     * @param reference   The reference.
+     * @param position    The position of the occurrence in the input, unique within the input.
+     * @param description The description of the statement, may be {@code null}.
+     * @throws UncheckedIOException if a run cannot be written.
+     */
+    public void add(long reference, long position, String description) {
+        var occurrence = new Occurrence(reference, position, description);
+        if (isBufferSorted && !buffer.isEmpty() && ORDER.compare(occurrence, buffer.getLast()) < 0) {
+            isBufferSorted = false;
+        }
+        buffer.add(occurrence);
+        bufferedBytes += OCCURRENCE_OVERHEAD + (description == null ? 0 : description.length());
+        if ((isBufferSorted && buffer.size() >= SORTED_BATCH_SIZE) || bufferedBytes > memoryBudget) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * @return The number of run files written so far.
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Merges all recorded occurrences and reports every reference with more than one occurrence, in the order of
+     * the references. Afterwards no more occurrences can be added.
+     *
+     * @param consumer Receives every duplicate reference with all its occurrences, ordered by position.
+     * @throws UncheckedIOException if a run cannot be read or written.
+     */
+    public void forEachDuplicate(DuplicateConsumer consumer) {
+        try {
+            closeOpenRun();
+            if (!isBufferSorted) {
+                buffer.sort(ORDER);
+            }
+            // Every merge pass reads the runs once, merging at most MAX_MERGE_WIDTH of them at a time
+            while (runs.size() >= MAX_MERGE_WIDTH) {
+                List<Run> merged = new ArrayList<>(runs.subList(0, MAX_MERGE_WIDTH));
+                runs.subList(0, MAX_MERGE_WIDTH).clear();
+                try (var writer = new RunWriter(Files.createTempFile(directory, "statement-references-", ".run"))) {
+                    runs.add(writer.run);
+                    merge(merged, List.of(), writer::write);
+                }
+                for (Run run : merged) {
+                    Files.deleteIfExists(run.file);
+                }
+            }
+
+            List<Occurrence> group = new ArrayList<>();
+            merge(runs, buffer, occurrence -> {
+                if (!group.isEmpty() && group.getFirst().reference() != occurrence.reference()) {
+                    reportDuplicate(group, consumer);
+                    group.clear();
+                }
+                group.add(occurrence);
+            });
+            reportDuplicate(group, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to merge spilled references", e);
+        }
+    }
+
+    /**
+     * Deletes the run files.
+     */
+    @Override
+    public void close() {
+        try {
+            closeOpenRun();
+            for (Run run : runs) {
+                Files.deleteIfExists(run.file);
+            }
+            runs.clear();
+            buffer.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete spilled references", e);
+        }
+    }
+
+    private static void reportDuplicate(List<Occurrence> group, DuplicateConsumer consumer) {
+        if (group.size() > 1) {
+            consumer.accept(group.getFirst().reference(), List.copyOf(group));
+        }
+    }
+
+    private void writeBuffer() {
+        try {
+            if (!isBufferSorted) {
+                buffer.sort(ORDER);
+            }
+            if (openRun == null || ORDER.compare(buffer.getFirst(), openRun.last) < 0) {
+                closeOpenRun();
+                openRun = new RunWriter(Files.createTempFile(directory, "statement-references-", ".run"));
+                runs.add(openRun.run);
+            }
+            for (Occurrence occurrence : buffer) {
+                openRun.write(occurrence);
+            }
+            buffer.clear();
+            bufferedBytes = 0;
+            isBufferSorted = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill references to " + directory, e);
+        }
+    }
+
+    private void closeOpenRun() throws IOException {
+        if (openRun != null) {
+            openRun.close();
+            openRun = null;
+        }
+    }
+
+    /**
+     * Merges sorted runs and a sorted list of occurrences into one sorted sequence.
+     */
+    private static void merge(List<Run> runs, List<Occurrence> occurrences, Consumer<Occurrence> consumer)
+            throws IOException {
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            PriorityQueue<RunReader> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                    Comparator.comparing(RunReader::head, ORDER));
+            for (Run run : runs) {
+                var reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+            int next = 0;
+            while (!heads.isEmpty() || next < occurrences.size()) {
+                var reader = heads.peek();
+                if (reader == null
+                        || (next < occurrences.size() && ORDER.compare(occurrences.get(next), reader.head) < 0)) {
+                    consumer.accept(occurrences.get(next++));
+                    continue;
+                }
+                heads.poll();
+                consumer.accept(reader.head);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Receives a reference that occurs more than once.
+     */
+    @FunctionalInterface
+    public interface DuplicateConsumer {
+        /**
+         * @param reference   The duplicate reference.
+         * @param occurrences All occurrences of the reference, ordered by position.
+         */
+        void accept(long reference, List<Occurrence> occurrences);
+    }
+
+    /**
+     * An occurrence of a reference.
+     *
+     * @param reference   The reference.
+     * @param position    The position of the occurrence in the input.
+     * @param description The description of the statement, may be {@code null}.
+     */
+    public record Occurrence(long reference, long position, String description) {
+    }
+
+    private static final class Run {
+        private final Path file;
+        private long count;
+
+        private Run(Path file) {
+            this.file = file;
+        }
+    }
+
+    private static final class RunWriter implements Closeable {
+        private final Run run;
+        private final DataOutputStream output;
+        private Occurrence last;
+
+        private RunWriter(Path file) throws IOException {
+            this.run = new Run(file);
+            this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_SIZE));
+        }
+
+        private void write(Occurrence occurrence) {
+            try {
+                output.writeLong(occurrence.reference());
+                output.writeLong(occurrence.position());
+                if (occurrence.description() == null) {
+                    output.writeInt(NO_DESCRIPTION);
+                } else {
+                    byte[] description = occurrence.description().getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(description.length);
+                    output.write(description);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write spilled references to " + run.file, e);
+            }
+            run.count++;
+            last = occurrence;
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    private static final class RunReader implements Closeable {
+        private final DataInputStream input;
+        private long remaining;
+        private Occurrence head;
+
+        private RunReader(Run run) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file), IO_BUFFER_SIZE));
+            this.remaining = run.count;
+        }
+
+        private Occurrence head() {
+            return head;
+        }
+
+        private boolean advance() throws IOException {
+            if (remaining == 0) {
+                head = null;
+                return false;
+            }
+            remaining--;
+            long reference = input.readLong();
+            long position = input.readLong();
+            int length = input.readInt();
+            String description = null;
+            if (length != NO_DESCRIPTION) {
+                description = new String(input.readNBytes(length), StandardCharsets.UTF_8);
+            }
+            head = new Occurrence(reference, position, description);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
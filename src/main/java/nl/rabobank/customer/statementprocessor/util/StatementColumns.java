@@ -0,0 +1,278 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A batch of statements held column by column instead of as {@link CustomerStatement} objects, for validating and
+ * saving the statements of a file without creating an object per statement.
+ * The references and the amounts in cents live in primitive columns in direct memory, outside the heap, and the
+ * account numbers and descriptions are dictionary encoded: a column of ids into a {@link StringDictionary} per
+ * column, so a repeated account number is held once per batch. Amounts without an exact representation in cents
+ * are kept as {@link BigDecimal} for their rows only.
+ * A batch has a fixed capacity and is meant to be filled, consumed and cleared over and over while a file is
+ * streamed, so its columns are allocated once per file.
+ * Not thread-safe.
+ */
+public final class StatementColumns {
+
+    private static final int START_BALANCE = 0;
+    private static final int MUTATION = 1;
+    private static final int END_BALANCE = 2;
+
+    private final int capacity;
+    private final LongBuffer references;
+    private final LongBuffer startBalanceCents;
+    private final LongBuffer mutationCents;
+    private final LongBuffer endBalanceCents;
+    private final IntBuffer accountNumberIds;
+    private final IntBuffer descriptionIds;
+    private final StringDictionary accountNumbers = new StringDictionary();
+    private final StringDictionary descriptions = new StringDictionary();
+    /**
+     * The start balance, mutation and end balance of the rows with an amount that is not representable in cents.
+     */
+    private final Map<Integer, BigDecimal[]> exactAmounts = new HashMap<>();
+    private int size;
+
+    /**
+     * @param capacity The maximum number of rows of the batch.
+     */
+    public StatementColumns(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.references = allocateLongs(capacity);
+        this.startBalanceCents = allocateLongs(capacity);
+        this.mutationCents = allocateLongs(capacity);
+        this.endBalanceCents = allocateLongs(capacity);
+        this.accountNumberIds = allocateInts(capacity);
+        this.descriptionIds = allocateInts(capacity);
+    }
+
+    /**
+     * Adds a statement as the next row.
+     *
+     * @param customerStatement The statement to add.
+     * @return The row of the statement.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int add(CustomerStatement customerStatement) {
+        int row = add(customerStatement.reference(),
+                accountNumbers.intern(customerStatement.accountNumber()),
+                descriptions.intern(customerStatement.description()),
+                customerStatement.startBalanceCents(),
+                customerStatement.mutationCents(),
+                customerStatement.endBalanceCents());
+        if (!FixedPointAmount.isRepresentable(customerStatement.startBalanceCents(),
+                customerStatement.mutationCents(), customerStatement.endBalanceCents())) {
+            setExactAmounts(row, customerStatement.startBalance(), customerStatement.mutation(),
+                    customerStatement.endBalance());
+        }
+        return row;
+    }
+
+    /**
+     * Adds a statement given by its columns as the next row. A row with an amount that is
+     * {@link FixedPointAmount#NOT_REPRESENTABLE} needs its exact amounts set with
+     * {@link #setExactAmounts(int, BigDecimal, BigDecimal, BigDecimal)}.
+     *
+     * @param reference         The reference.
+     * @param accountNumberId   The id of the account number in {@link #accountNumbers()}.
+     * @param descriptionId     The id of the description in {@link #descriptions()}.
+     * @param startBalanceCents The start balance in cents.
+     * @param mutationCents     The mutation in cents.
+     * @param endBalanceCents   The end balance in cents.
+     * @return The row of the statement.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public int add(long reference, int accountNumberId, int descriptionId, long startBalanceCents,
+                   long mutationCents, long endBalanceCents) {
+        if (size == capacity) {
+            throw new IllegalStateException("The batch is full at " + capacity + " statements");
+        }
+        int row = size++;
+        references.put(row, reference);
+        accountNumberIds.put(row, accountNumberId);
+        descriptionIds.put(row, descriptionId);
+        this.startBalanceCents.put(row, startBalanceCents);
+        this.mutationCents.put(row, mutationCents);
+        this.endBalanceCents.put(row, endBalanceCents);
+        return row;
+    }
+
+    /**
+     * Keeps the amounts of a row that has an amount without an exact representation in cents.
+     *
+     * @param row          The row of the statement.
+     * @param startBalance The start balance as parsed.
+     * @param mutation     The mutation as parsed.
+     * @param endBalance   The end balance as parsed.
+     */
+    public void setExactAmounts(int row, BigDecimal startBalance, BigDecimal mutation, BigDecimal endBalance) {
+        Objects.checkIndex(row, size);
+        exactAmounts.put(row, new BigDecimal[]{startBalance, mutation, endBalance});
+    }
+
+    /**
+     * Removes all rows and the values of the dictionaries, keeping the allocated columns.
+     */
+    public void clear() {
+        size = 0;
+        accountNumbers.clear();
+        descriptions.clear();
+        exactAmounts.clear();
+    }
+
+    /**
+     * Removes the rows that are not kept, the kept rows move up in their order. The dictionaries keep the values of
+     * the removed rows until the batch is cleared.
+     *
+     * @param isKept Whether a row is kept, by row.
+     * @return The number of rows kept.
+     */
+    public int retainRows(boolean[] isKept) {
+        Objects.checkFromIndexSize(0, size, isKept.length);
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (!isKept[row]) {
+                exactAmounts.remove(row);
+            } else {
+                if (kept != row) {
+                    moveRow(row, kept);
+                }
+                kept++;
+            }
+        }
+        size = kept;
+        return kept;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return The dictionary of the account numbers of the batch, to intern the account number of a new row.
+     */
+    public StringDictionary accountNumbers() {
+        return accountNumbers;
+    }
+
+    /**
+     * @return The dictionary of the descriptions of the batch, to intern the description of a new row.
+     */
+    public StringDictionary descriptions() {
+        return descriptions;
+    }
+
+    public long reference(int row) {
+        return references.get(Objects.checkIndex(row, size));
+    }
+
+    public String accountNumber(int row) {
+        return accountNumbers.get(accountNumberIds.get(Objects.checkIndex(row, size)));
+    }
+
+    public String description(int row) {
+        return descriptions.get(descriptionIds.get(Objects.checkIndex(row, size)));
+    }
+
+    /**
+     * @param row A row of the batch.
+     * @return The start balance in cents, or {@link FixedPointAmount#NOT_REPRESENTABLE}.
+     */
+    public long startBalanceCents(int row) {
+        return startBalanceCents.get(Objects.checkIndex(row, size));
+    }
+
+    /**
+     * @param row A row of the batch.
+     * @return The mutation in cents, or {@link FixedPointAmount#NOT_REPRESENTABLE}.
+     */
+    public long mutationCents(int row) {
+        return mutationCents.get(Objects.checkIndex(row, size));
+    }
+
+    /**
+     * @param row A row of the batch.
+     * @return The end balance in cents, or {@link FixedPointAmount#NOT_REPRESENTABLE}.
+     */
+    public long endBalanceCents(int row) {
+        return endBalanceCents.get(Objects.checkIndex(row, size));
+    }
+
+    /**
+     * @param row A row of the batch.
+     * @return The start balance with a scale of two, or as parsed if it is not representable in cents.
+     */
+    public BigDecimal startBalance(int row) {
+        return amount(row, startBalanceCents(row), START_BALANCE);
+    }
+
+    /**
+     * @param row A row of the batch.
+     * @return The mutation with a scale of two, or as parsed if it is not representable in cents.
+     */
+    public BigDecimal mutation(int row) {
+        return amount(row, mutationCents(row), MUTATION);
+    }
+
+    /**
+     * @param row A row of the batch.
+     * @return The end balance with a scale of two, or as parsed if it is not representable in cents.
+     */
+    public BigDecimal endBalance(int row) {
+        return amount(row, endBalanceCents(row), END_BALANCE);
+    }
+
+    private void moveRow(int from, int to) {
+        references.put(to, references.get(from));
+        accountNumberIds.put(to, accountNumberIds.get(from));
+        descriptionIds.put(to, descriptionIds.get(from));
+        startBalanceCents.put(to, startBalanceCents.get(from));
+        mutationCents.put(to, mutationCents.get(from));
+        endBalanceCents.put(to, endBalanceCents.get(from));
+        BigDecimal[] amounts = exactAmounts.remove(from);
+        if (amounts != null) {
+            exactAmounts.put(to, amounts);
+        }
+    }
+
+    private BigDecimal amount(int row, long cents, int column) {
+        if (cents != FixedPointAmount.NOT_REPRESENTABLE) {
+            return FixedPointAmount.toBigDecimal(cents);
+        }
+        BigDecimal[] amounts = exactAmounts.get(row);
+        return amounts == null ? null : amounts[column];
+    }
+
+    private static LongBuffer allocateLongs(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    private static IntBuffer allocateInts(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+}
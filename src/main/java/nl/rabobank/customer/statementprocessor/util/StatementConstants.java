@@ -8,4 +8,5 @@ public class StatementConstants {
 
     public static final String DUPLICATE_REFERENCE_DETECTED = "Duplicate transaction reference detected.";
     public static final String INVALID_END_BALANCE = "Invalid end balance.";
+    public static final String REFERENCE_ALREADY_PROCESSED = "Transaction reference already processed.";
 }
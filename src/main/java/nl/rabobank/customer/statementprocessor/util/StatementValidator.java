@@ -2,22 +2,88 @@ package nl.rabobank.customer.statementprocessor.util;
 
 import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
 import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.util.jfr.StatementsValidatedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
 
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.DUPLICATE_REFERENCE_DETECTED;
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.INVALID_END_BALANCE;
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.REFERENCE_ALREADY_PROCESSED;
 
 /**
  * Component responsible for validating a list of {@link CustomerStatement} objects.
  * The validation checks for duplicate references and ensures the end balance is correct.
+ * Lists of at least {@code statement.validation.parallel-threshold} statements are validated in parallel on a
+ * {@link ForkJoinPool}, smaller lists sequentially. Both give the same results in the same order.
+ * Sessions validating a stream of statements against the stored references keep their references in memory up to
+ * {@code statement.validation.memory-budget} and spill them to {@code statement.validation.spill-directory} beyond
+ * it, see {@link ValidationSession}.
  */
 @Component
 public class StatementValidator {
 
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 100_000;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool forkJoinPool;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+
+    public StatementValidator() {
+        this(DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelThreshold The minimum number of statements validated in parallel on the common pool.
+     */
+    public StatementValidator(int parallelThreshold) {
+        this(parallelThreshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param parallelThreshold The minimum number of statements validated in parallel on the common pool.
+     * @param memoryBudget      The memory a session validating a stream may use for its references before spilling.
+     * @param spillDirectory    The directory of the temporary files of spilled references.
+     */
+    @Autowired
+    public StatementValidator(@Value("${statement.validation.parallel-threshold:100000}") int parallelThreshold,
+                              @Value("${statement.validation.memory-budget:32MB}") DataSize memoryBudget,
+                              @Value("${statement.validation.spill-directory:${java.io.tmpdir}}") String spillDirectory) {
+        this(parallelThreshold, ForkJoinPool.commonPool(), memoryBudget.toBytes(), Path.of(spillDirectory));
+    }
+
+    /**
+     * @param parallelThreshold The minimum number of statements validated in parallel.
+     * @param forkJoinPool      The pool running the parallel validation.
+     */
+    public StatementValidator(int parallelThreshold, ForkJoinPool forkJoinPool) {
+        this(parallelThreshold, forkJoinPool, Long.MAX_VALUE, Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param parallelThreshold The minimum number of statements validated in parallel.
+     * @param forkJoinPool      The pool running the parallel validation.
+     * @param memoryBudget      The number of bytes a session validating a stream may use for its references before
+     *                          spilling them to disk.
+     * @param spillDirectory    The directory of the temporary files of spilled references.
+     */
+    public StatementValidator(int parallelThreshold, ForkJoinPool forkJoinPool, long memoryBudget,
+                              Path spillDirectory) {
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+        this.forkJoinPool = forkJoinPool;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
     /**
      * Validates a list of customer statements for duplicate references and end balance correctness.
      *
@@ -25,51 +91,77 @@ public class StatementValidator {
      * @return A list of {@link ValidationResult} objects representing the validation errors for each statement.
      */
     public List<ValidationResult> validateParsedStatements(List<CustomerStatement> customerStatements) {
-        return customerStatements.stream()
-                .collect(Collectors.groupingBy(CustomerStatement::reference))
-                .entrySet().stream()
-                .flatMap(entry -> entry.getValue().stream()
-                        .map(statement ->
-                                validateStatement(statement, entry.getValue().size() > 1)))  // Check for duplicates
-                .filter(Objects::nonNull) // Filter out null results (if no validation error)
-                .toList();
+        var event = new StatementsValidatedEvent();
+        event.begin();
+        List<ValidationResult> validationResults;
+        if (customerStatements.size() >= parallelThreshold && forkJoinPool.getParallelism() > 1) {
+            var statements = customerStatements instanceof RandomAccess
+                    ? customerStatements
+                    : new ArrayList<>(customerStatements);
+            validationResults = ParallelValidation.validate(this, forkJoinPool, statements);
+        } else {
+            var session = newSession(customerStatements.size());
+            customerStatements.forEach(session::validate);
+            validationResults = session.getValidationResults();
+        }
+        if (event.shouldCommit()) {
+            event.recordCount = customerStatements.size();
+            event.failedRecords = validationResults.size();
+            event.commit();
+        }
+        return validationResults;
     }
 
     /**
-     * Validates a single customer statement for duplication and end balance validity.
+     * Starts a new {@link ValidationSession} that validates statements one at a time as they are parsed.
      *
-     * @param customerStatement The {@link CustomerStatement} to be validated.
-     * @param isDuplicate Flag indicating if the statement is a duplicate.
-     * @return A {@link ValidationResult} with the error message if validation fails, otherwise null.
+     * @return A new, empty validation session.
      */
-    private ValidationResult validateStatement(CustomerStatement customerStatement, boolean isDuplicate) {
-        boolean isEndBalanceValid = validateEndBalance(customerStatement);
-
-        // If duplicate reference or invalid end balance, return a validation error
-        if (isDuplicate || !isEndBalanceValid) {
-            return new ValidationResult(
-                    customerStatement.reference(),
-                    customerStatement.description(),
-                    createErrorMessage(isDuplicate, isEndBalanceValid)
-            );
-        }
-        return null; // No validation error
+    public ValidationSession newSession() {
+        return newSession(DEFAULT_EXPECTED_SIZE);
     }
 
     /**
-     * Creates an error message based on whether the statement is a duplicate and if the end balance is valid.
+     * Starts a new {@link ValidationSession} that also rejects references stored by earlier uploads. The session
+     * spills its references to disk beyond the memory budget, it must be finished before its results are complete
+     * and closed when it is not.
+     *
+     * @param processedReferences The references stored by earlier uploads.
+     * @return A new, empty validation session.
+     */
+    public ValidationSession newSession(ProcessedReferences processedReferences) {
+        return new ValidationSession(this, processedReferences, DEFAULT_EXPECTED_SIZE, memoryBudget, spillDirectory);
+    }
+
+    /**
+     * Starts a new {@link ValidationSession} sized for the expected number of distinct references.
+     *
+     * @param expectedSize The number of records the session is expected to validate.
+     * @return A new, empty validation session.
+     */
+    public ValidationSession newSession(int expectedSize) {
+        return new ValidationSession(this, ProcessedReferences.NONE, expectedSize, Long.MAX_VALUE, spillDirectory);
+    }
+
+    /**
+     * Creates an error message based on whether the statement is a duplicate, if the end balance is valid and if
+     * the reference was already processed by an earlier upload.
      *
      * @param isDuplicate Flag indicating if the statement has a duplicate reference.
      * @param isEndBalanceValid Flag indicating if the end balance is valid.
+     * @param isAlreadyProcessed Flag indicating if the reference is already stored.
      * @return The error message as a string.
      */
-    private String createErrorMessage(boolean isDuplicate, boolean isEndBalanceValid) {
+    String createErrorMessage(boolean isDuplicate, boolean isEndBalanceValid, boolean isAlreadyProcessed) {
         StringBuilder errorMessage = new StringBuilder();
 
-        // Append a relevant error message for duplicate or invalid balance
+        // Append a relevant error message for duplicate, already processed or invalid balance
         if (isDuplicate) {
             errorMessage.append(DUPLICATE_REFERENCE_DETECTED);
         }
+        if (isAlreadyProcessed) {
+            errorMessage.append(REFERENCE_ALREADY_PROCESSED);
+        }
         if (!isEndBalanceValid) {
             errorMessage.append(INVALID_END_BALANCE);
         }
@@ -79,13 +171,40 @@ public class StatementValidator {
     /**
      * Validates the end balance of the given customer statement by checking if
      * the sum of the start balance and mutation equals the end balance.
+     * The check runs on the amounts in cents and only falls back to {@link java.math.BigDecimal} arithmetic
+     * when one of the amounts has no exact fixed-point representation.
      *
      * @param customerStatement The {@link CustomerStatement} whose end balance is to be validated.
      * @return True if the end balance is valid, otherwise false.
      */
-    private boolean validateEndBalance(CustomerStatement customerStatement) {
+    boolean validateEndBalance(CustomerStatement customerStatement) {
+        long startBalance = customerStatement.startBalanceCents();
+        long mutation = customerStatement.mutationCents();
+        long endBalance = customerStatement.endBalanceCents();
+        if (FixedPointAmount.isRepresentable(startBalance, mutation, endBalance)) {
+            return startBalance + mutation == endBalance;
+        }
         return customerStatement.startBalance()
                 .add(customerStatement.mutation())
                 .compareTo(customerStatement.endBalance()) == 0;
     }
+
+    /**
+     * Validates the end balance of a row of a columnar batch, like {@link #validateEndBalance(CustomerStatement)}.
+     *
+     * @param columns The batch holding the statement.
+     * @param row     The row of the statement in the batch.
+     * @return True if the end balance is valid, otherwise false.
+     */
+    boolean validateEndBalance(StatementColumns columns, int row) {
+        long startBalance = columns.startBalanceCents(row);
+        long mutation = columns.mutationCents(row);
+        long endBalance = columns.endBalanceCents(row);
+        if (FixedPointAmount.isRepresentable(startBalance, mutation, endBalance)) {
+            return startBalance + mutation == endBalance;
+        }
+        return columns.startBalance(row)
+                .add(columns.mutation(row))
+                .compareTo(columns.endBalance(row)) == 0;
+    }
 }
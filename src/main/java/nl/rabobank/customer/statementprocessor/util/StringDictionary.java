@@ -0,0 +1,143 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of strings: every distinct value gets a dense {@code int} id, so a column of repeating values
+ * such as account numbers can be held as ids and every value as a single string.
+ * Values can be interned as strings or as UTF-8 bytes. The bytes are looked up in an open-addressing table of their
+ * own, so a value that was seen before is found without decoding the bytes into a string again. Both ways give the
+ * same id for the same value.
+ * Not thread-safe.
+ */
+public final class StringDictionary {
+
+    /**
+     * The id of {@code null}.
+     */
+    public static final int NULL_ID = -1;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int EMPTY_SLOT = 0;
+
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> idsByValue = new HashMap<>();
+
+    // Slots of the byte table hold the id + 1 of their value, so EMPTY_SLOT marks a free slot
+    private int[] slotIds = new int[MIN_CAPACITY];
+    private int[] slotHashes = new int[MIN_CAPACITY];
+    private byte[][] slotBytes = new byte[MIN_CAPACITY][];
+    private int slotCount;
+
+    /**
+     * @param value The value to intern, may be {@code null}.
+     * @return The id of the value, {@link #NULL_ID} for {@code null}.
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = idsByValue.get(value);
+        return id != null ? id : add(value);
+    }
+
+    /**
+     * Interns the value encoded by a range of UTF-8 bytes. The bytes are only decoded for a value that is not in the
+     * dictionary yet.
+     *
+     * @param utf8   The bytes holding the value.
+     * @param offset The first byte of the value.
+     * @param length The number of bytes of the value.
+     * @return The id of the value.
+     */
+    public int intern(byte[] utf8, int offset, int length) {
+        int hash = hash(utf8, offset, length);
+        int mask = slotIds.length - 1;
+        int slot = hash & mask;
+        for (; slotIds[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            byte[] bytes = slotBytes[slot];
+            if (slotHashes[slot] == hash
+                    && Arrays.equals(bytes, 0, bytes.length, utf8, offset, offset + length)) {
+                return slotIds[slot] - 1;
+            }
+        }
+        // The value may have been interned as a string before
+        int id = intern(new String(utf8, offset, length, StandardCharsets.UTF_8));
+        slotIds[slot] = id + 1;
+        slotHashes[slot] = hash;
+        slotBytes[slot] = Arrays.copyOfRange(utf8, offset, offset + length);
+        if (++slotCount > slotIds.length / 2) {
+            growSlots();
+        }
+        return id;
+    }
+
+    /**
+     * @param id An id returned by this dictionary.
+     * @return The value of the id, {@code null} for {@link #NULL_ID}.
+     */
+    public String get(int id) {
+        return id == NULL_ID ? null : values.get(id);
+    }
+
+    /**
+     * @return The number of distinct values.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Removes all values, ids are handed out from {@code 0} again.
+     */
+    public void clear() {
+        values.clear();
+        idsByValue.clear();
+        Arrays.fill(slotIds, EMPTY_SLOT);
+        Arrays.fill(slotBytes, null);
+        slotCount = 0;
+    }
+
+    private int add(String value) {
+        int id = values.size();
+        values.add(value);
+        idsByValue.put(value, id);
+        return id;
+    }
+
+    private void growSlots() {
+        int[] oldIds = slotIds;
+        int[] oldHashes = slotHashes;
+        byte[][] oldBytes = slotBytes;
+        slotIds = new int[oldIds.length * 2];
+        slotHashes = new int[oldIds.length * 2];
+        slotBytes = new byte[oldIds.length * 2][];
+        int mask = slotIds.length - 1;
+        for (int oldSlot = 0; oldSlot < oldIds.length; oldSlot++) {
+            if (oldIds[oldSlot] == EMPTY_SLOT) {
+                continue;
+            }
+            int slot = oldHashes[oldSlot] & mask;
+            while (slotIds[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            slotIds[slot] = oldIds[oldSlot];
+            slotHashes[slot] = oldHashes[oldSlot];
+            slotBytes[slot] = oldBytes[oldSlot];
+        }
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int index = offset; index < offset + length; index++) {
+            hash = 31 * hash + bytes[index];
+        }
+        // Spreads the high bits into the low bits that select the slot
+        return hash ^ (hash >>> 16);
+    }
+}
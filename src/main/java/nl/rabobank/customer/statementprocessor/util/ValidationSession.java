@@ -0,0 +1,526 @@
+package nl.rabobank.customer.statementprocessor.util;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.util.jfr.StatementsValidatedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Incrementally validates a stream of {@link CustomerStatement} records, one record at a time.
+ * Only the first occurrence of every reference is remembered, so the retained state grows with the number
+ * of distinct references instead of with the size of the file.
+ * Duplicate detection is backed by a primitive {@link LongIntHashMap}: a record that passes validation costs one
+ * probe of the map and no allocation, objects are only created for records that fail.
+ * References seen for the first time are also looked up in the {@link ProcessedReferences} of the session, every
+ * occurrence of a reference stored by an earlier upload fails validation.
+ * <p>
+ * The first occurrences are kept in memory up to an estimated memory budget. Beyond it the session spills: the first
+ * occurrences and every further occurrence are recorded in {@link SpilledReferences}, which writes them to sorted
+ * run files, and duplicates are found by merging the runs in {@link #finish()}. As long as the references arrive
+ * sorted, a repeated reference can only follow its first occurrence, so duplicates are still detected right away
+ * without holding any references in memory, and the runs are deleted without being merged.
+ * <p>
+ * A statement that passes validation can still turn out to be a duplicate of a later statement. The references of
+ * such statements are collected, once per statement, see {@link #drainRetractedReferences()}, so a caller saving the
+ * statements that pass can take them back.
+ * <p>
+ * A finished session is recorded as a {@link StatementsValidatedEvent} when Flight Recorder is recording.
+ * <p>
+ * A session is not thread-safe and is meant to validate a single file.
+ */
+public class ValidationSession implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationSession.class);
+
+    /**
+     * Estimated heap size of a first occurrence held in memory besides the characters of its description: two
+     * slots of the hash map at its load factor, its position, its list slot and the header of the description.
+     */
+    private static final int FIRST_OCCURRENCE_OVERHEAD = 80;
+    private static final int VALID_OCCURRENCE = 0;
+    private static final long[] NO_REFERENCES = new long[0];
+
+    private final StatementValidator validator;
+    private final ProcessedReferences processedReferences;
+    private final long memoryBudget;
+    private final Path spillDirectory;
+    private final StatementsValidatedEvent event = new StatementsValidatedEvent();
+
+    /**
+     * Maps every reference seen so far to the state of its first occurrence. A value {@code >= 0} is the index of
+     * the description of a first occurrence that passed validation, a negative value {@code -(i + 1)} points to
+     * the failure at index {@code i} that was already reported for it.
+     */
+    private LongIntHashMap firstOccurrences;
+    private List<String> firstDescriptions;
+    /**
+     * Position of every first occurrence in {@link #firstDescriptions}.
+     */
+    private long[] firstPositions;
+    private final List<Failure> failures = new ArrayList<>();
+    /**
+     * References of statements that passed validation and turned out to be duplicates, since they were last drained.
+     */
+    private long[] retractedReferences = new long[16];
+    private int retractedCount;
+    private long recordCount;
+    private long retainedBytes;
+    private boolean isFinished;
+
+    private boolean isSortedByReference = true;
+    private long lastReference;
+    /**
+     * Occurrences of all references once the first occurrences exceed the memory budget, {@code null} before.
+     */
+    private SpilledReferences spilledReferences;
+    /**
+     * While spilling sorted references, the state of the first occurrence of {@link #lastReference}: either
+     * {@link #VALID_OCCURRENCE} with its position and description, or a pointer to its failure, as in
+     * {@link #firstOccurrences}.
+     */
+    private int lastOccurrence;
+    private long lastOccurrencePosition;
+    private String lastOccurrenceDescription;
+
+    ValidationSession(StatementValidator validator, ProcessedReferences processedReferences, int expectedSize,
+                      long memoryBudget, Path spillDirectory) {
+        this.validator = validator;
+        this.processedReferences = processedReferences;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.firstOccurrences = new LongIntHashMap(expectedSize);
+        this.firstDescriptions = new ArrayList<>(expectedSize);
+        this.firstPositions = new long[Math.max(16, expectedSize)];
+        event.begin();
+    }
+
+    /**
+     * Validates the next statement of the stream for duplicate references and end balance correctness.
+     * When a reference is seen for the second time, the first occurrence is reported as a duplicate too.
+     *
+     * @param customerStatement The {@link CustomerStatement} to be validated.
+     */
+    public void validate(CustomerStatement customerStatement) {
+        validate(customerStatement, recordCount);
+    }
+
+    /**
+     * Validates a statement at a given position of the input. Used when a session only sees part of the input, the
+     * positions order the failures of all parts the same way a single session over the whole input would. Also used
+     * when the statements of an input arrive out of order, see {@link #getValidationResultsInInputOrder()}.
+     *
+     * @param customerStatement The {@link CustomerStatement} to be validated.
+     * @param recordIndex       The position of the statement in the whole input, at most {@code 2^62 - 1}.
+     * @throws IllegalStateException if the session is finished.
+     * @throws java.io.UncheckedIOException if references cannot be spilled.
+     */
+    public void validate(CustomerStatement customerStatement, long recordIndex) {
+        validate(customerStatement.reference(), customerStatement.description(),
+                validator.validateEndBalance(customerStatement), recordIndex);
+    }
+
+    /**
+     * Validates a row of a columnar batch at a given position of the input, like
+     * {@link #validate(CustomerStatement, long)} does for a statement. The end balance is checked on the cents
+     * columns and the description is only read from the dictionary of the batch, no statement is created.
+     *
+     * @param columns     The batch holding the statement.
+     * @param row         The row of the statement in the batch.
+     * @param recordIndex The position of the statement in the whole input, at most {@code 2^62 - 1}.
+     * @return {@code true} if the statement passed validation, until a later statement with the same reference
+     * retracts it.
+     * @throws IllegalStateException if the session is finished.
+     * @throws java.io.UncheckedIOException if references cannot be spilled.
+     */
+    public boolean validate(StatementColumns columns, int row, long recordIndex) {
+        return validate(columns.reference(row), columns.description(row),
+                validator.validateEndBalance(columns, row), recordIndex);
+    }
+
+    private boolean validate(long reference, String description, boolean isEndBalanceValid, long recordIndex) {
+        if (isFinished) {
+            throw new IllegalStateException("The validation session is finished");
+        }
+        boolean isRepeated = recordCount > 0 && reference == lastReference;
+        if (recordCount > 0 && reference < lastReference) {
+            isSortedByReference = false;
+        }
+        lastReference = reference;
+        recordCount++;
+        // At most two failures are added per record, the first occurrence of a reference before the record itself
+        long detectionOrder = recordIndex << 1;
+
+        if (spilledReferences != null) {
+            return validateSpilled(reference, description, recordIndex, isRepeated, isEndBalanceValid,
+                    detectionOrder);
+        }
+
+        int firstOccurrence = firstOccurrences.putIfAbsent(reference, firstDescriptions.size());
+        if (firstOccurrence == LongIntHashMap.MISSING) {
+            boolean isAlreadyProcessed = processedReferences.contains(reference);
+            if (isEndBalanceValid && !isAlreadyProcessed) {
+                addFirstOccurrence(description, recordIndex);
+                if (retainedBytes > memoryBudget) {
+                    startSpilling();
+                }
+                return true;
+            }
+            firstOccurrences.put(reference, toFailurePointer(addFailure(detectionOrder, recordIndex, reference,
+                    description, false, isEndBalanceValid, isAlreadyProcessed)));
+            return false;
+        }
+
+        // A repeated reference invalidates the first occurrence as well
+        boolean isAlreadyProcessed = false;
+        if (firstOccurrence >= 0) {
+            firstOccurrences.put(reference, toFailurePointer(addFailure(detectionOrder++,
+                    firstPositions[firstOccurrence], reference, firstDescriptions.get(firstOccurrence), true, true,
+                    false)));
+            retract(reference);
+        } else {
+            var firstFailure = failures.get(toFailureIndex(firstOccurrence));
+            firstFailure.isDuplicate = true;
+            isAlreadyProcessed = firstFailure.isAlreadyProcessed;
+        }
+        addFailure(detectionOrder, recordIndex, reference, description, true, isEndBalanceValid, isAlreadyProcessed);
+        return false;
+    }
+
+    /**
+     * Reports the duplicates among the spilled references and releases the spilled references. Statements cannot be
+     * validated afterwards. The results of a session that stayed within its memory budget are complete already.
+     *
+     * @throws java.io.UncheckedIOException if the spilled references cannot be merged.
+     */
+    public void finish() {
+        if (isFinished) {
+            return;
+        }
+        isFinished = true;
+        long finishStart = System.nanoTime();
+        int spilledRuns = 0;
+        if (spilledReferences != null) {
+            spilledRuns = spilledReferences.getRunCount();
+            try (var spilled = spilledReferences) {
+                // Sorted references had their duplicates detected while they were validated
+                if (!isSortedByReference) {
+                    addSpilledDuplicates(spilled);
+                }
+            } finally {
+                spilledReferences = null;
+            }
+        }
+        if (event.shouldCommit()) {
+            event.recordCount = recordCount;
+            event.failedRecords = failures.size();
+            event.spilledRuns = spilledRuns;
+            event.finishDuration = System.nanoTime() - finishStart;
+            event.commit();
+        }
+    }
+
+    /**
+     * Deletes the spilled references of a session that is not finished, for instance when parsing fails.
+     */
+    @Override
+    public void close() {
+        if (spilledReferences != null) {
+            spilledReferences.close();
+            spilledReferences = null;
+        }
+    }
+
+    /**
+     * @return {@code true} if any statement validated so far failed validation. Duplicates of spilled references
+     * that are not sorted only count once the session is finished.
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * @return {@code true} if the session exceeded its memory budget with references that are not sorted, so
+     * duplicate references are only detected by {@link #finish()}.
+     */
+    public boolean isDuplicateDetectionDeferred() {
+        return spilledReferences != null && !isSortedByReference;
+    }
+
+    /**
+     * @return The number of failed statements with a duplicate reference. Duplicates of spilled references that are
+     * not sorted only count once the session is finished.
+     */
+    public long getDuplicateCount() {
+        return failures.stream().filter(failure -> failure.isDuplicate).count();
+    }
+
+    /**
+     * @return The number of failed statements with an invalid end balance.
+     */
+    public long getEndBalanceFailureCount() {
+        return failures.stream().filter(failure -> !failure.isEndBalanceValid).count();
+    }
+
+    /**
+     * Returns the references of statements that passed validation and turned out to be duplicates of a later
+     * statement. In memory and while spilling sorted references a duplicate retracts the statement right away,
+     * duplicates of spilled references that are not sorted retract all statements with the reference that passed
+     * validation once the session is finished.
+     *
+     * @return The reference of every statement retracted since the last call, a reference is listed once for every
+     * retracted statement with it.
+     */
+    public long[] drainRetractedReferences() {
+        if (retractedCount == 0) {
+            return NO_REFERENCES;
+        }
+        long[] drained = Arrays.copyOf(retractedReferences, retractedCount);
+        retractedCount = 0;
+        return drained;
+    }
+
+    /**
+     * @return The number of statements validated so far.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the validation errors of the statements validated so far.
+     * The list is a read-only view on the failures of the session, every {@link ValidationResult} is created when
+     * it is read, so a report of many failures is not held in memory twice while it is stored and written out. The
+     * view does not keep the rest of the session alive. It is meant to be taken when the session is done, a
+     * statement validated afterwards may still mark a listed failure as a duplicate. A session that spilled its
+     * references only lists all duplicates after {@link #finish()}.
+     *
+     * @return A list of {@link ValidationResult} objects, one for every failed statement.
+     */
+    public List<ValidationResult> getValidationResults() {
+        return new ValidationResultList(failures.toArray(Failure[]::new), validator);
+    }
+
+    /**
+     * Returns the validation errors ordered by the position of the failed statements, instead of the order in which
+     * they were detected. For statements that are validated out of order, this order does not depend on the order in
+     * which they arrived.
+     *
+     * @return A list of {@link ValidationResult} objects, one for every failed statement.
+     */
+    public List<ValidationResult> getValidationResultsInInputOrder() {
+        Failure[] ordered = failures.toArray(Failure[]::new);
+        Arrays.sort(ordered, Comparator.comparingLong(failure -> failure.position));
+        return new ValidationResultList(ordered, validator);
+    }
+
+    /**
+     * Merges the validation errors of sessions that each validated a disjoint set of references of one input.
+     *
+     * @param sessions The sessions, each having validated its statements with their position in the input.
+     * @return The validation errors in the order a single session over the whole input reports them.
+     */
+    static List<ValidationResult> mergeValidationResults(List<ValidationSession> sessions) {
+        if (sessions.isEmpty()) {
+            return List.of();
+        }
+        List<Failure> merged = new ArrayList<>();
+        sessions.forEach(session -> merged.addAll(session.failures));
+        merged.sort(Comparator.comparingLong(failure -> failure.detectionOrder));
+        return new ValidationResultList(merged.toArray(Failure[]::new), sessions.getFirst().validator);
+    }
+
+    /**
+     * Validates a statement once the references are spilled. Every occurrence is recorded for the merge in
+     * {@link #finish()}, only references repeated in sorted order are detected right away.
+     */
+    private boolean validateSpilled(long reference, String description, long recordIndex, boolean isRepeated,
+                                    boolean isEndBalanceValid, long detectionOrder) {
+        spilledReferences.add(reference, recordIndex, description);
+        if (isRepeated && isSortedByReference) {
+            boolean isAlreadyProcessed = false;
+            if (lastOccurrence == VALID_OCCURRENCE) {
+                lastOccurrence = toFailurePointer(addFailure(detectionOrder++, lastOccurrencePosition, reference,
+                        lastOccurrenceDescription, true, true, false));
+                retract(reference);
+            } else {
+                var firstFailure = failures.get(toFailureIndex(lastOccurrence));
+                firstFailure.isDuplicate = true;
+                isAlreadyProcessed = firstFailure.isAlreadyProcessed;
+            }
+            addFailure(detectionOrder, recordIndex, reference, description, true, isEndBalanceValid,
+                    isAlreadyProcessed);
+            return false;
+        }
+
+        boolean isAlreadyProcessed = processedReferences.contains(reference);
+        if (isEndBalanceValid && !isAlreadyProcessed) {
+            rememberLastOccurrence(VALID_OCCURRENCE, recordIndex, description);
+            return true;
+        }
+        rememberLastOccurrence(toFailurePointer(addFailure(detectionOrder, recordIndex, reference,
+                description, false, isEndBalanceValid, isAlreadyProcessed)), recordIndex, null);
+        return false;
+    }
+
+    /**
+     * Moves the first occurrences held in memory to {@link SpilledReferences} and releases them.
+     */
+    private void startSpilling() {
+        log.info("Validation exceeds the memory budget of {} bytes with {} references, spilling references to {}",
+                memoryBudget, firstOccurrences.size(), spillDirectory);
+        spilledReferences = new SpilledReferences(spillDirectory, memoryBudget);
+        firstOccurrences.forEach((reference, firstOccurrence) -> {
+            if (firstOccurrence >= 0) {
+                spilledReferences.add(reference, firstPositions[firstOccurrence],
+                        firstDescriptions.get(firstOccurrence));
+            } else {
+                var failure = failures.get(toFailureIndex(firstOccurrence));
+                spilledReferences.add(reference, failure.position, failure.description);
+            }
+        });
+        int last = firstOccurrences.get(lastReference);
+        if (last >= 0) {
+            rememberLastOccurrence(VALID_OCCURRENCE, firstPositions[last], firstDescriptions.get(last));
+        } else {
+            rememberLastOccurrence(last, failures.get(toFailureIndex(last)).position, null);
+        }
+        firstOccurrences = null;
+        firstDescriptions = null;
+        firstPositions = null;
+    }
+
+    private void rememberLastOccurrence(int occurrence, long position, String description) {
+        lastOccurrence = occurrence;
+        lastOccurrencePosition = position;
+        lastOccurrenceDescription = description;
+    }
+
+    /**
+     * Adds the failures of all occurrences of references that the merge of the spilled references finds more than
+     * once, in the same order as if the duplicates were detected in memory: the first occurrence right before the
+     * second one and every further occurrence at its own position. Occurrences that already failed are only marked
+     * as duplicates, every occurrence that passed validation is retracted.
+     */
+    private void addSpilledDuplicates(SpilledReferences spilled) {
+        var failuresByPosition = new LongIntHashMap(failures.size());
+        for (int index = 0; index < failures.size(); index++) {
+            failuresByPosition.put(failures.get(index).position, index);
+        }
+        spilled.forEachDuplicate((reference, occurrences) -> {
+            long secondPosition = occurrences.get(1).position();
+            boolean isFirstAdded = false;
+            for (int index = 0; index < occurrences.size(); index++) {
+                var occurrence = occurrences.get(index);
+                int failureIndex = failuresByPosition.get(occurrence.position());
+                if (failureIndex != LongIntHashMap.MISSING) {
+                    failures.get(failureIndex).isDuplicate = true;
+                    continue;
+                }
+                long detectionOrder;
+                if (index == 0) {
+                    detectionOrder = secondPosition << 1;
+                    isFirstAdded = true;
+                } else {
+                    detectionOrder = (occurrence.position() << 1) + (index == 1 && isFirstAdded ? 1 : 0);
+                }
+                addFailure(detectionOrder, occurrence.position(), reference, occurrence.description(), true, true,
+                        false);
+                retract(reference);
+            }
+        });
+        failures.sort(Comparator.<Failure>comparingLong(failure -> failure.detectionOrder)
+                .thenComparingLong(failure -> failure.position));
+    }
+
+    private void addFirstOccurrence(String description, long position) {
+        int index = firstDescriptions.size();
+        if (index == firstPositions.length) {
+            firstPositions = Arrays.copyOf(firstPositions, index + (index >> 1));
+        }
+        firstPositions[index] = position;
+        firstDescriptions.add(description);
+        retainedBytes += FIRST_OCCURRENCE_OVERHEAD + (description == null ? 0 : description.length());
+    }
+
+    private int addFailure(long detectionOrder, long position, long reference, String description,
+                           boolean isDuplicate, boolean isEndBalanceValid, boolean isAlreadyProcessed) {
+        failures.add(new Failure(detectionOrder, position, reference, description, isDuplicate, isEndBalanceValid,
+                isAlreadyProcessed));
+        return failures.size() - 1;
+    }
+
+    private void retract(long reference) {
+        if (retractedCount == retractedReferences.length) {
+            retractedReferences = Arrays.copyOf(retractedReferences, retractedCount * 2);
+        }
+        retractedReferences[retractedCount++] = reference;
+    }
+
+    private static int toFailurePointer(int failureIndex) {
+        return -(failureIndex + 1);
+    }
+
+    private static int toFailureIndex(int failurePointer) {
+        return -failurePointer - 1;
+    }
+
+    /**
+     * Read-only list of the validation errors of failures, mapping a failure when it is read. There are only eight
+     * combinations of error flags, their messages are created once per list and shared by all results.
+     */
+    private static final class ValidationResultList extends AbstractList<ValidationResult> implements RandomAccess {
+        private final Failure[] failures;
+        private final String[] errorMessages = new String[8];
+
+        private ValidationResultList(Failure[] failures, StatementValidator validator) {
+            this.failures = failures;
+            for (int flags = 0; flags < errorMessages.length; flags++) {
+                errorMessages[flags] = validator.createErrorMessage((flags & 1) != 0, (flags & 2) != 0,
+                        (flags & 4) != 0);
+            }
+        }
+
+        @Override
+        public ValidationResult get(int index) {
+            var failure = failures[index];
+            int flags = (failure.isDuplicate ? 1 : 0) | (failure.isEndBalanceValid ? 2 : 0)
+                    | (failure.isAlreadyProcessed ? 4 : 0);
+            return new ValidationResult(failure.reference, failure.description, errorMessages[flags]);
+        }
+
+        @Override
+        public int size() {
+            return failures.length;
+        }
+    }
+
+    private static final class Failure {
+        private final long detectionOrder;
+        private final long position;
+        private final long reference;
+        private final String description;
+        private final boolean isEndBalanceValid;
+        private final boolean isAlreadyProcessed;
+        private boolean isDuplicate;
+
+        private Failure(long detectionOrder, long position, long reference, String description, boolean isDuplicate,
+                        boolean isEndBalanceValid, boolean isAlreadyProcessed) {
+            this.detectionOrder = detectionOrder;
+            this.position = position;
+            this.reference = reference;
+            this.description = description;
+            this.isDuplicate = isDuplicate;
+            this.isEndBalanceValid = isEndBalanceValid;
+            this.isAlreadyProcessed = isAlreadyProcessed;
+        }
+    }
+}
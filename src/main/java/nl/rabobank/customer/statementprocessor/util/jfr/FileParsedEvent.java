@@ -0,0 +1,74 @@
+package nl.rabobank.customer.statementprocessor.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import nl.rabobank.customer.statementprocessor.util.CountingInputStream;
+
+import java.io.InputStream;
+
+/**
+ * Flight Recorder event of a statement file parsed by one of the parsers. Its duration includes the time the
+ * consumers of the records spend, as they are called while the file is parsed.
+ */
+@Name(FileParsedEvent.NAME)
+@Label("Statement File Parsed")
+@Description("A statement file streamed through a parser")
+@Category({"Statement Processor"})
+@StackTrace(false)
+public final class FileParsedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "nl.rabobank.statement.FileParsed";
+
+    @Label("Parser")
+    public String parser;
+
+    @Label("File Name")
+    public String fileName;
+
+    @Label("Record Count")
+    public long recordCount;
+
+    @Label("Bytes")
+    @Description("The bytes read by the parser, after inflating a compressed file")
+    @DataAmount
+    public long bytes;
+
+    private transient CountingInputStream countedInput;
+
+    /**
+     * Starts the event of a parser.
+     *
+     * @param parser      The parser, its simple class name identifies it in the recording.
+     * @param fileName    The name of the file.
+     * @param inputStream The content the parser reads.
+     * @return The content to parse, counting its bytes while the event is recorded.
+     */
+    public InputStream begin(Object parser, String fileName, InputStream inputStream) {
+        begin();
+        this.parser = parser.getClass().getSimpleName();
+        this.fileName = fileName;
+        if (!isEnabled()) {
+            return inputStream;
+        }
+        this.countedInput = new CountingInputStream(inputStream);
+        return countedInput;
+    }
+
+    /**
+     * Records the event, if it is enabled and lasted longer than its threshold.
+     *
+     * @param recordCount The number of records parsed.
+     */
+    public void commit(long recordCount) {
+        if (shouldCommit()) {
+            this.recordCount = recordCount;
+            // A recording may have started while the file was parsed
+            this.bytes = countedInput == null ? 0 : countedInput.getCount();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package nl.rabobank.customer.statementprocessor.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a statement file processed from its upload to its report, including the time spent
+ * waiting for a transaction permit.
+ */
+@Name(FileProcessedEvent.NAME)
+@Label("Statement File Processed")
+@Description("A statement file processed from its upload to its report")
+@Category({"Statement Processor"})
+@StackTrace(false)
+public final class FileProcessedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "nl.rabobank.statement.FileProcessed";
+
+    @Label("File Name")
+    public String fileName;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Record Count")
+    public long recordCount;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Failed Records")
+    public long failedRecords;
+
+    @Label("Processed Before")
+    @Description("The report of an earlier upload with the same content was returned")
+    public boolean isProcessedBefore;
+}
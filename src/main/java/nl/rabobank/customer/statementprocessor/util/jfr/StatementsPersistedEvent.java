@@ -0,0 +1,27 @@
+package nl.rabobank.customer.statementprocessor.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a batch of statements saved by the {@code StatementsEventListener}.
+ */
+@Name(StatementsPersistedEvent.NAME)
+@Label("Statements Persisted")
+@Description("A batch of accepted statements saved to the database")
+@Category({"Statement Processor"})
+@StackTrace(false)
+public final class StatementsPersistedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "nl.rabobank.statement.StatementsPersisted";
+
+    @Label("Event")
+    @Description("The application event that carried the batch")
+    public String event;
+
+    @Label("Record Count")
+    public long recordCount;
+}
@@ -0,0 +1,38 @@
+package nl.rabobank.customer.statementprocessor.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event of the statements of a file validated by the {@code StatementValidator}. A session
+ * validating a stream lasts from its start to its end of file checks, statements are validated as they are parsed
+ * in between.
+ */
+@Name(StatementsValidatedEvent.NAME)
+@Label("Statements Validated")
+@Description("The statements of a file validated for duplicate references and end balances")
+@Category({"Statement Processor"})
+@StackTrace(false)
+public final class StatementsValidatedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "nl.rabobank.statement.StatementsValidated";
+
+    @Label("Record Count")
+    public long recordCount;
+
+    @Label("Failed Records")
+    public long failedRecords;
+
+    @Label("Spilled Runs")
+    @Description("The sorted runs of references written to disk beyond the memory budget")
+    public long spilledRuns;
+
+    @Label("End of File Checks")
+    @Description("The time spent checking for duplicate references after the last statement")
+    @Timespan
+    public long finishDuration;
+}
@@ -0,0 +1,22 @@
+-- V3__create_statement_report_tables.sql
+-- The V2 tables never matched the StatementReport and ValidationError entities and were never written to
+DROP TABLE validation_result;
+DROP TABLE report;
+
+CREATE TABLE statement_report (
+                                  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                  report_id BIGINT NOT NULL,
+                                  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                  UNIQUE (report_id)
+);
+
+CREATE TABLE validation_error (
+                                  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                  report_id BIGINT NOT NULL,
+                                  failure_index INT NOT NULL,
+                                  reference BIGINT,
+                                  description VARCHAR(255),
+                                  error_message VARCHAR(255),
+                                  FOREIGN KEY (report_id) REFERENCES statement_report(id) ON DELETE CASCADE,
+                                  UNIQUE (report_id, failure_index)
+);
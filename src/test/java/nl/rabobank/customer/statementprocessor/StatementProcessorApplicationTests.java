@@ -1,14 +1,30 @@
 package nl.rabobank.customer.statementprocessor;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 
 @SpringBootTest
 class StatementProcessorApplicationTests {
 
+	@Autowired
+	@Qualifier("applicationTaskExecutor")
+	private AsyncTaskExecutor applicationTaskExecutor;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void keepsTheApplicationTaskExecutorApartFromTheStatementPools() {
+		assertThat(applicationTaskExecutor).isInstanceOf(ThreadPoolTaskExecutor.class);
+		assertThat(((ThreadPoolTaskExecutor) applicationTaskExecutor).getThreadNamePrefix()).isEqualTo("task-");
+	}
+
 }
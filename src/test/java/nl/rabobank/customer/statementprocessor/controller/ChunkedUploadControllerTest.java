@@ -0,0 +1,107 @@
+package nl.rabobank.customer.statementprocessor.controller;
+
+import nl.rabobank.customer.statementprocessor.boundary.controller.ChunkedUploadController;
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobState;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.UploadStatus;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidChunkException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadConflictException;
+import nl.rabobank.customer.statementprocessor.control.service.ChunkedUploadService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(ChunkedUploadController.class)
+class ChunkedUploadControllerTest {
+
+    private static final String UPLOAD_ID = "9b2e6f0c-1d4a-4e8b-b7c3-5a0f2d9e8c71";
+    private static final String CONTENT_DIGEST = "sha-256=:n4bQgYhMfWWaL+qgxVrQFaO/TxsrC4Is0V1sFbDwCgg=:";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ChunkedUploadService uploadService;
+
+    @Test
+    void shouldStartUpload() throws Exception {
+        when(uploadService.create("records.csv"))
+                .thenReturn(new UploadStatus(UPLOAD_ID, JobState.RUNNING, "records.csv", 0, 0, 0, null, null));
+
+        mockMvc.perform(post("/api/v1/statements/uploads").param("fileName", "records.csv"))
+                .andExpect(status().isCreated())  // HTTP 201
+                .andExpect(header().string("Location", "http://localhost/api/v1/statements/uploads/" + UPLOAD_ID))
+                .andExpect(jsonPath("$.uploadId").value(UPLOAD_ID))
+                .andExpect(jsonPath("$.receivedChunks").value(0));
+    }
+
+    @Test
+    void shouldReceiveChunk() throws Exception {
+        when(uploadService.appendChunk(eq(UPLOAD_ID), eq(1), eq(CONTENT_DIGEST), any()))
+                .thenReturn(new UploadStatus(UPLOAD_ID, JobState.RUNNING, "records.csv", 1, 4, 0, null, null));
+
+        mockMvc.perform(put("/api/v1/statements/uploads/{uploadId}/chunks/{chunkNumber}", UPLOAD_ID, 1)
+                        .header("Content-Digest", CONTENT_DIGEST)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("data".getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.receivedChunks").value(1))
+                .andExpect(jsonPath("$.receivedBytes").value(4));
+    }
+
+    @Test
+    void shouldReturn400ForChunkNotMatchingItsDigestAnd409ForChunkOutOfOrder() throws Exception {
+        when(uploadService.appendChunk(eq(UPLOAD_ID), eq(1), eq(CONTENT_DIGEST), any()))
+                .thenThrow(new InvalidChunkException("Checksum of chunk 1 does not match its content"));
+        when(uploadService.appendChunk(eq(UPLOAD_ID), eq(3), eq(CONTENT_DIGEST), any()))
+                .thenThrow(new UploadConflictException("Expected chunk 2 of upload " + UPLOAD_ID + " but got chunk 3"));
+
+        mockMvc.perform(put("/api/v1/statements/uploads/{uploadId}/chunks/{chunkNumber}", UPLOAD_ID, 1)
+                        .header("Content-Digest", CONTENT_DIGEST)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("dat4".getBytes()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid chunk"));
+        mockMvc.perform(put("/api/v1/statements/uploads/{uploadId}/chunks/{chunkNumber}", UPLOAD_ID, 3)
+                        .header("Content-Digest", CONTENT_DIGEST)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("data".getBytes()))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Upload conflict"))
+                .andExpect(jsonPath("$.details").value("Expected chunk 2 of upload " + UPLOAD_ID + " but got chunk 3"));
+    }
+
+    @Test
+    void shouldReturnReportWhenCompletedOrAcceptWhileProcessing() throws Exception {
+        var report = new Report(1L, List.of());
+        when(uploadService.complete(UPLOAD_ID))
+                .thenReturn(new UploadStatus(UPLOAD_ID, JobState.COMPLETED, "records.csv", 2, 8, 10, report, null))
+                .thenReturn(new UploadStatus(UPLOAD_ID, JobState.RUNNING, "records.csv", 2, 8, 5, null, null));
+
+        mockMvc.perform(post("/api/v1/statements/uploads/{uploadId}/complete", UPLOAD_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.report.reportId").value(1L));
+        mockMvc.perform(post("/api/v1/statements/uploads/{uploadId}/complete", UPLOAD_ID))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.report").doesNotExist());
+    }
+}
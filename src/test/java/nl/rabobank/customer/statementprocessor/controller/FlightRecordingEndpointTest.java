@@ -0,0 +1,83 @@
+package nl.rabobank.customer.statementprocessor.controller;
+
+import jdk.jfr.consumer.RecordingFile;
+import nl.rabobank.customer.statementprocessor.boundary.actuator.FlightRecordingEndpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlightRecordingEndpointTest {
+
+    private final FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint(Duration.ofMillis(100),
+            Duration.ofSeconds(1));
+
+    @Test
+    void shouldReturnRecordingOfTheDefaultDuration(@TempDir Path directory) throws IOException {
+        WebEndpointResponse<Resource> response = endpoint.record();
+
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        Path recordingFile = directory.resolve("recording.jfr");
+        try (InputStream inputStream = response.getBody().getInputStream()) {
+            Files.copy(inputStream, recordingFile);
+        }
+        assertThat(RecordingFile.readAllEvents(recordingFile)).isNotEmpty();
+    }
+
+    @Test
+    void shouldLeaveOutEnvironmentVariablesAndSystemProperties(@TempDir Path directory) throws IOException {
+        WebEndpointResponse<Resource> response = endpoint.record(Duration.ofMillis(50), "profile");
+
+        Path recordingFile = directory.resolve("recording.jfr");
+        try (InputStream inputStream = response.getBody().getInputStream()) {
+            Files.copy(inputStream, recordingFile);
+        }
+        assertThat(RecordingFile.readAllEvents(recordingFile))
+                .extracting(event -> event.getEventType().getName())
+                .isNotEmpty()
+                .doesNotContain("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty",
+                        "jdk.InitialSecurityProperty", "jdk.JVMInformation");
+    }
+
+    @Test
+    void shouldRecordWithProfileSettings() throws IOException {
+        WebEndpointResponse<Resource> response = endpoint.record(Duration.ofMillis(50), "profile");
+
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        try (InputStream inputStream = response.getBody().getInputStream()) {
+            // Every recording starts with the magic bytes of the file format
+            assertThat(new String(inputStream.readNBytes(3), StandardCharsets.US_ASCII)).isEqualTo("FLR");
+        }
+    }
+
+    @Test
+    void shouldRejectRecordingLongerThanTheMaximum() {
+        WebEndpointResponse<Resource> response = endpoint.record(Duration.ofMinutes(1));
+
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void shouldNotAllowAMaximumDurationBeyondFiveMinutes() {
+        assertThatThrownBy(() -> new FlightRecordingEndpoint(Duration.ofSeconds(30), Duration.ofMinutes(6)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectUnknownSettings() {
+        WebEndpointResponse<Resource> response = endpoint.record(Duration.ofMillis(50), "unknown");
+
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+    }
+}
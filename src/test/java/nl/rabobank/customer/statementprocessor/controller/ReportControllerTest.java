@@ -0,0 +1,65 @@
+package nl.rabobank.customer.statementprocessor.controller;
+
+import nl.rabobank.customer.statementprocessor.boundary.controller.ReportController;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ReportPage;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.control.exception.ReportNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.service.ReportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(ReportController.class)
+class ReportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReportService reportService;
+
+    @Test
+    void shouldReturnPageOfReport() throws Exception {
+        var failedRecord = new ValidationResult(112806L, "Clothes for Willem Dekker", "Invalid end balance.");
+        when(reportService.getReportPage(42L, 9L, 1)).thenReturn(new ReportPage(42L, List.of(failedRecord), 10L));
+
+        mockMvc.perform(get("/api/v1/reports/{reportId}", 42L)
+                        .param("cursor", "9")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reportId").value(42L))
+                .andExpect(jsonPath("$.failedRecords[0].reference").value(112806L))
+                .andExpect(jsonPath("$.nextCursor").value(10L));
+    }
+
+    @Test
+    void shouldOmitCursorOnLastPage() throws Exception {
+        when(reportService.getReportPage(42L, null, 100)).thenReturn(new ReportPage(42L, List.of(), null));
+
+        mockMvc.perform(get("/api/v1/reports/{reportId}", 42L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldReturn404ForUnknownReport() throws Exception {
+        when(reportService.getReportPage(42L, null, 100)).thenThrow(new ReportNotFoundException("No report found with id 42"));
+
+        mockMvc.perform(get("/api/v1/reports/{reportId}", 42L))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Report not found"));
+    }
+}
@@ -0,0 +1,90 @@
+package nl.rabobank.customer.statementprocessor.controller;
+
+import nl.rabobank.customer.statementprocessor.boundary.controller.StatementJobController;
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobState;
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobStatus;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.control.exception.JobNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.service.StatementJobService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(StatementJobController.class)
+class StatementJobControllerTest {
+
+    private static final String JOB_ID = "3f1c9a52-8d0e-4b7a-9a3e-2f6f0b8f4c11";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private StatementJobService jobService;
+
+    @Test
+    void shouldAcceptUploadAsJob() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
+        when(jobService.submit(file)).thenReturn(new JobStatus(JOB_ID, JobState.QUEUED, "test.csv", 0, null, null));
+
+        mockMvc.perform(multipart("/api/v1/statements/jobs")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isAccepted())  // HTTP 202
+                .andExpect(header().string("Location", "http://localhost/api/v1/statements/jobs/" + JOB_ID))
+                .andExpect(jsonPath("$.jobId").value(JOB_ID))
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andExpect(jsonPath("$.report").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnCompletedJobWithReport() throws Exception {
+        var report = new Report(1L, List.of());
+        when(jobService.getJob(JOB_ID)).thenReturn(new JobStatus(JOB_ID, JobState.COMPLETED, "test.csv", 10, report, null));
+
+        mockMvc.perform(get("/api/v1/statements/jobs/{jobId}", JOB_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.recordsProcessed").value(10))
+                .andExpect(jsonPath("$.report.reportId").value(1L))
+                .andExpect(jsonPath("$.report.failedRecords").isEmpty());
+    }
+
+    @Test
+    void shouldReturn404ForUnknownJob() throws Exception {
+        when(jobService.getJob("unknown")).thenThrow(new JobNotFoundException("No job found with id unknown"));
+
+        mockMvc.perform(get("/api/v1/statements/jobs/{jobId}", "unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Job not found"))
+                .andExpect(jsonPath("$.details").value("No job found with id unknown"));
+    }
+
+    @Test
+    void shouldReturn503WhenJobQueueIsFull() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
+        when(jobService.submit(file)).thenThrow(new TaskRejectedException("Queue full"));
+
+        mockMvc.perform(multipart("/api/v1/statements/jobs")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("Too many jobs"));
+    }
+}
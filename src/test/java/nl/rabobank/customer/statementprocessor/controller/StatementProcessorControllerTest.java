@@ -3,21 +3,35 @@ package nl.rabobank.customer.statementprocessor.controller;
 import nl.rabobank.customer.statementprocessor.boundary.controller.StatementProcessorController;
 import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
 import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.service.AcceptanceMode;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.StageTimings;
 import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -37,7 +51,7 @@ class StatementProcessorControllerTest {
 
         MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
         Report report = new Report(1L, List.of());  // Mock the report response
-        when(processorService.process(file)).thenReturn(report);  // Mock service behavior
+        when(processorService.process(any(String.class), eq(file), argThat(options -> options.acceptanceMode() == null))).thenReturn(report);  // Mock service behavior
 
         mockMvc.perform(multipart("/api/v1/statements")
                         .file(file)
@@ -47,11 +61,45 @@ class StatementProcessorControllerTest {
                 .andExpect(jsonPath("$.failedRecords").isEmpty());  // Check if there are no failed records
     }
 
+    @Test
+    void shouldUploadStatementFileWithPartialAcceptance() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
+        when(processorService.process(eq("test.csv"), eq(file),
+                argThat(options -> options.acceptanceMode() == AcceptanceMode.PARTIAL)))
+                .thenReturn(new Report(1L, List.of(), 4L, 0L));
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .param("acceptanceMode", "PARTIAL")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.acceptedRecords").value(4))
+                .andExpect(jsonPath("$.rejectedRecords").value(0));
+    }
+
+    @Test
+    void shouldReportTheTimeOfEveryStageInServerTimingHeader() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
+        when(processorService.process(any(String.class), eq(file), argThat(options -> options.acceptanceMode() == null))).thenAnswer(invocation -> {
+            StageTimings timings = invocation.<ProcessingOptions>getArgument(2).timings();
+            timings.add(StageTimings.Stage.PARSE, 12_500_000);
+            timings.add(StageTimings.Stage.PERSIST, 3_000_000);
+            return new Report(1L, List.of());
+        });
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing",
+                        "parse;dur=12.500, validate;dur=0.000, map;dur=0.000, persist;dur=3.000"));
+    }
+
     @Test
     void shouldReturn400ForInvalidFile() throws Exception {
 
         MockMultipartFile invalidFile = new MockMultipartFile("file", "invalid.txt", "text/plain", "invalid data".getBytes());
-        when(processorService.process(invalidFile)).thenThrow(new InvalidFileException("Invalid file format"));
+        when(processorService.process(any(String.class), eq(invalidFile), argThat(options -> options.acceptanceMode() == null))).thenThrow(new InvalidFileException("Invalid file format"));
 
         mockMvc.perform(multipart("/api/v1/statements")
                         .file(invalidFile)
@@ -60,4 +108,85 @@ class StatementProcessorControllerTest {
                 .andExpect(jsonPath("$.error").value("Invalid file"))  // Check for 'error' key
                 .andExpect(jsonPath("$.details").value("Invalid file format"));  // Check for 'details' key
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturn429WithRetryAfterWhenNoMemoryIsAvailable() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
+        when(processorService.process(any(String.class), eq(file), argThat(options -> options.acceptanceMode() == null))).thenThrow(new UploadRejectedException(
+                "Too many files are being processed, the queue of files waiting for memory is full.",
+                Duration.ofSeconds(30)));
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"))
+                .andExpect(jsonPath("$.error").value("Too many uploads"));
+    }
+
+    @Test
+    void shouldReturn409WhenAReferenceIsSavedConcurrently() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
+        when(processorService.process(any(String.class), eq(file), argThat(options -> options.acceptanceMode() == null)))
+                .thenThrow(new DuplicateKeyException("Unique index or primary key violation"));
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Duplicate reference"));
+    }
+
+    @Test
+    void shouldReturn500ForOtherIntegrityViolations() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", "data".getBytes());
+        when(processorService.process(any(String.class), eq(file), argThat(options -> options.acceptanceMode() == null)))
+                .thenThrow(new DataIntegrityViolationException("NULL not allowed for column ACCOUNT_NUMBER"));
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("File processing failed"));
+    }
+
+    @Test
+    void shouldProcessCsvRequestBody() throws Exception {
+
+        Report report = new Report(2L, List.of());
+        when(processorService.process(eq("statement.csv"), any(InputStreamSource.class), any(ProcessingOptions.class))).thenReturn(report);
+
+        mockMvc.perform(post("/api/v1/statements")
+                        .contentType("text/csv;charset=UTF-8")
+                        .content("data"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reportId").value(2L));
+    }
+
+    @Test
+    void shouldProcessXmlRequestBody() throws Exception {
+
+        Report report = new Report(3L, List.of());
+        when(processorService.process(eq("statement.xml"), any(InputStreamSource.class), any(ProcessingOptions.class))).thenReturn(report);
+
+        mockMvc.perform(post("/api/v1/statements")
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content("<records/>"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reportId").value(3L));
+    }
+
+    @Test
+    void shouldProcessGzippedRequestBody() throws Exception {
+
+        Report report = new Report(4L, List.of());
+        when(processorService.process(eq("statement.csv.gz"), any(InputStreamSource.class), any(ProcessingOptions.class))).thenReturn(report);
+
+        mockMvc.perform(post("/api/v1/statements")
+                        .contentType("text/csv")
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content(new byte[]{31, -117}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reportId").value(4L));
+    }
+}
@@ -1,15 +1,20 @@
 package nl.rabobank.customer.statementprocessor.events;
 
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.control.events.StatementColumnsEvent;
 import nl.rabobank.customer.statementprocessor.control.events.StatementEvent;
 import nl.rabobank.customer.statementprocessor.control.events.StatementsEventListener;
+import nl.rabobank.customer.statementprocessor.control.events.StatementsRetractedEvent;
 import nl.rabobank.customer.statementprocessor.entity.model.Statement;
-import nl.rabobank.customer.statementprocessor.entity.repository.StatementRepository;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementBatchWriter;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 
@@ -24,14 +29,14 @@ import static org.mockito.Mockito.verify;
 @ExtendWith(MockitoExtension.class)
 class StatementsEventListenerTest {
 
-    private StatementRepository statementRepository;
+    private StatementBatchWriter statementBatchWriter;
     private StatementsEventListener statementsEventListener;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        statementRepository = mock(StatementRepository.class);
-        statementsEventListener = new StatementsEventListener(statementRepository);
+        statementBatchWriter = mock(StatementBatchWriter.class);
+        statementsEventListener = new StatementsEventListener(statementBatchWriter);
     }
 
     @Test
@@ -39,7 +44,7 @@ class StatementsEventListenerTest {
         List<Statement> statements = List.of(new Statement());
         StatementEvent statementEvent = new StatementEvent(this, statements);
         statementsEventListener.handleBatchStartedEvent(statementEvent);
-        verify(statementRepository, times(1)).saveAll(statements);
+        verify(statementBatchWriter, times(1)).write(statements);
     }
 
     @Test
@@ -47,24 +52,47 @@ class StatementsEventListenerTest {
         List<Statement> statements = Collections.emptyList();
         StatementEvent statementEvent = new StatementEvent(this, statements);
         statementsEventListener.handleBatchStartedEvent(statementEvent);
-        verify(statementRepository, never()).saveAll(any());
+        verify(statementBatchWriter, never()).write(any());
     }
 
     @Test
     void shouldDoNothingWhenStatementEventIsNull() {
         statementsEventListener.handleBatchStartedEvent(null);
-        verify(statementRepository, never()).saveAll(any());
+        verify(statementBatchWriter, never()).write(any());
+    }
+
+    @Test
+    void shouldSaveStatementColumnsToDatabase() {
+        var columns = new StatementColumns(2);
+        columns.add(new CustomerStatement(1L, "NL91RABO0315273637", new BigDecimal("1.00"), BigDecimal.ZERO,
+                "Test", new BigDecimal("1.00")));
+        statementsEventListener.handleColumnsEvent(new StatementColumnsEvent(this, columns));
+        verify(statementBatchWriter, times(1)).writeColumns(columns);
+    }
+
+    @Test
+    void shouldNotSaveAnythingWhenColumnsAreEmpty() {
+        statementsEventListener.handleColumnsEvent(new StatementColumnsEvent(this, new StatementColumns(2)));
+        statementsEventListener.handleColumnsEvent(null);
+        verify(statementBatchWriter, never()).writeColumns(any());
+    }
+
+    @Test
+    void shouldDeleteRetractedStatements() {
+        long[] references = {194261L, 183049L};
+        statementsEventListener.handleRetractedEvent(new StatementsRetractedEvent(this, references));
+        verify(statementBatchWriter, times(1)).deleteByReferences(references);
     }
 
     @Test
     void shouldThrowRuntimeExceptionWhenRepositoryFails() {
         List<Statement> statements = List.of(new Statement());
         StatementEvent statementEvent = new StatementEvent(this, statements);
-        doThrow(new RuntimeException("Database error")).when(statementRepository).saveAll(statements);
+        doThrow(new RuntimeException("Database error")).when(statementBatchWriter).write(statements);
         assertThatThrownBy(() -> statementsEventListener.handleBatchStartedEvent(statementEvent))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Database error");
 
-        verify(statementRepository, times(1)).saveAll(statements);
+        verify(statementBatchWriter, times(1)).write(statements);
     }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package nl.rabobank.customer.statementprocessor.events;
 
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.control.events.StatementColumnsEvent;
 import nl.rabobank.customer.statementprocessor.control.events.StatementEvent;
 import nl.rabobank.customer.statementprocessor.control.events.StatementsEventPublisher;
 import nl.rabobank.customer.statementprocessor.entity.model.Statement;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,9 +15,11 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
@@ -57,6 +62,23 @@ import static org.mockito.Mockito.verify;
         verify(publisher, never()).publishEvent(any(StatementEvent.class));
     }
     @Test
+    void shouldPublishStatementColumnsEvent() {
+        var columns = new StatementColumns(2);
+        columns.add(new CustomerStatement(1L, "NL91RABO0315273637", new BigDecimal("1.00"), BigDecimal.ZERO,
+                "Test", new BigDecimal("1.00")));
+        statementsEventPublisher.publishColumns(columns);
+
+        ArgumentCaptor<StatementColumnsEvent> eventCaptor = ArgumentCaptor.forClass(StatementColumnsEvent.class);
+        verify(publisher, times(1)).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getColumns()).isSameAs(columns);
+    }
+    @Test
+    void shouldNotPublishColumnsEventWhenBatchIsEmpty() {
+        statementsEventPublisher.publishColumns(new StatementColumns(2));
+        statementsEventPublisher.publishColumns(null);
+        verify(publisher, never()).publishEvent(any(StatementColumnsEvent.class));
+    }
+    @Test
     void shouldThrowExceptionIfPublisherFails() {
         doThrow(new RuntimeException("Publisher error")).when(publisher).publishEvent(any());
 
@@ -0,0 +1,103 @@
+package nl.rabobank.customer.statementprocessor.intergration.controller;
+
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uploads files whose references exceed the validation memory budget in descending order, so duplicate detection is
+ * deferred until the file is finished while its batches are saved.
+ */
+@SpringBootTest(properties = {
+        "statement.validation.memory-budget=1KB",
+        "statement.processing.batch-size=2"
+})
+@AutoConfigureMockMvc
+class DeferredDuplicateDetectionIntegrationTest {
+
+    private static final String HEADER = "Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n";
+    private static final String DUPLICATE_REFERENCE = "Duplicate transaction reference detected.";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementRepository statementRepository;
+
+    @Test
+    void shouldSaveFileWithDescendingReferences() throws Exception {
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(csvFile(statements(9_100_050L, 9_100_001L)))
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords").isEmpty());
+
+        assertThat(LongStream.rangeClosed(9_100_001L, 9_100_050L)).allMatch(statementRepository::existsByReference);
+    }
+
+    @Test
+    void shouldRejectFileWithDuplicateDetectedWhenFinished() throws Exception {
+        String csvContent = statements(9_200_050L, 9_200_001L) + statement(9_200_050L);
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(csvFile(csvContent))
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords.size()").value(2))
+                .andExpect(jsonPath("$.failedRecords[*].reference", everyItem(is(9_200_050))))
+                .andExpect(jsonPath("$.failedRecords[*].errorMessage", everyItem(is(DUPLICATE_REFERENCE))));
+
+        assertThat(LongStream.rangeClosed(9_200_001L, 9_200_050L)).noneMatch(statementRepository::existsByReference);
+    }
+
+    @Test
+    void shouldPartiallyAcceptFileWithDuplicateDetectedWhenFinished() throws Exception {
+        String csvContent = statements(9_300_050L, 9_300_001L) + statement(9_300_050L);
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(csvFile(csvContent))
+                        .param("acceptanceMode", "PARTIAL")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords.size()").value(2))
+                .andExpect(jsonPath("$.failedRecords[*].errorMessage", everyItem(is(DUPLICATE_REFERENCE))))
+                .andExpect(jsonPath("$.acceptedRecords").value(49))
+                .andExpect(jsonPath("$.rejectedRecords").value(2));
+
+        assertThat(statementRepository.existsByReference(9_300_050L)).isFalse();
+        assertThat(LongStream.rangeClosed(9_300_001L, 9_300_049L)).allMatch(statementRepository::existsByReference);
+    }
+
+    private static MockMultipartFile csvFile(String statements) {
+        return new MockMultipartFile("file", "descending.csv", "text/csv", (HEADER + statements).getBytes());
+    }
+
+    /**
+     * @return Valid statements from the first down to the last reference.
+     */
+    private static String statements(long firstReference, long lastReference) {
+        var statements = new StringBuilder();
+        for (long reference = firstReference; reference >= lastReference; reference--) {
+            statements.append(statement(reference));
+        }
+        return statements.toString();
+    }
+
+    private static String statement(long reference) {
+        return reference + ",NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23\n";
+    }
+}
@@ -1,5 +1,6 @@
 package nl.rabobank.customer.statementprocessor.intergration.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -8,7 +9,9 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -52,12 +55,12 @@ class StatementProcessorControllerIntegrationTest {
 
         String csvContent = """
                 Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
-                194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
-                183049,NL69ABNA0433647324,Clothes for Jan King,86.66,+44.5,131.16
-                183356,NL74ABNA0248990274,Subscription for Peter de Vries,92.98,-46.65,46.33
-                112806,NL69ABNA0433647324,Clothes for Richard de Vries,90.83,-10.91,79.92
-                139524,NL43AEGO0773393871,Flowers from Jan Bakker,99.44,+41.23,140.67
-                179430,NL93ABNA0585619023,Clothes for Vincent Bakker,23.96,-27.43,-3.47
+                294261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                283049,NL69ABNA0433647324,Clothes for Jan King,86.66,+44.5,131.16
+                283356,NL74ABNA0248990274,Subscription for Peter de Vries,92.98,-46.65,46.33
+                212806,NL69ABNA0433647324,Clothes for Richard de Vries,90.83,-10.91,79.92
+                239524,NL43AEGO0773393871,Flowers from Jan Bakker,99.44,+41.23,140.67
+                279430,NL93ABNA0585619023,Clothes for Vincent Bakker,23.96,-27.43,-3.47
             """;
         MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csvContent.getBytes());
 
@@ -113,14 +116,14 @@ class StatementProcessorControllerIntegrationTest {
 
         String csvContent = """
                 <records>
-                   <record reference="130498">
+                   <record reference="230498">
                      <accountNumber>NL69ABNA0433647324</accountNumber>
                      <description>Tickets for Peter Theuß</description>
                      <startBalance>26.9</startBalance>
                      <mutation>-18.78</mutation>
                      <endBalance>8.12</endBalance>
                    </record>
-                   <record reference="147674">
+                   <record reference="247674">
                      <accountNumber>NL93ABNA0585619023</accountNumber>
                      <description>Subscription from Peter Dekker</description>
                      <startBalance>74.69</startBalance>
@@ -184,4 +187,114 @@ class StatementProcessorControllerIntegrationTest {
                 .andExpect(status().isBadRequest())  // HTTP 400
                 .andExpect(jsonPath("$.details").value("Unsupported file type"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRejectReferencesProcessedByAnEarlierUpload() throws Exception {
+
+        String csvContent = """
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                394261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                383049,NL69ABNA0433647324,Clothes for Jan King,86.66,+44.5,131.16
+            """;
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csvContent.getBytes());
+
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords").isEmpty());
+
+        // Another file with the same references
+        String retriedContent = """
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                394261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                383049,NL69ABNA0433647324,Clothes for Jan King,86.66,+44.5,131.16
+                312806,NL27SNSB0917829871,Clothes for Willem Dekker,91.23,+15.57,106.8
+            """;
+        MockMultipartFile retriedFile = new MockMultipartFile("file", "test.csv", "text/csv", retriedContent.getBytes());
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(retriedFile)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords.size()").value(2))
+                .andExpect(jsonPath("$.failedRecords[0].reference").value(394261))
+                .andExpect(jsonPath("$.failedRecords[0].errorMessage").value("Transaction reference already processed."))
+                .andExpect(jsonPath("$.failedRecords[1].reference").value(383049));
+    }
+
+    @Test
+    void shouldServeTheStoredReportPageByPage() throws Exception {
+
+        String csvContent = """
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                412806,NL27SNSB0917829871,Clothes for Willem Dekker,91.23,+15.57,106.8
+                412806,NL69ABNA0433647324,Clothes for Richard de Vries,90.83,-10.91,79.92
+                439524,NL43AEGO0773393871,Flowers from Jan Bakker,99.44,+41.23,140.68
+            """;
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csvContent.getBytes());
+
+        String response = mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords.size()").value(3))
+                .andReturn().getResponse().getContentAsString();
+        long reportId = JsonPath.parse(response).read("$.reportId", Long.class);
+
+        mockMvc.perform(get("/api/v1/reports/{reportId}", reportId).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords.size()").value(2))
+                .andExpect(jsonPath("$.failedRecords[0].reference").value(412806))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+
+        mockMvc.perform(get("/api/v1/reports/{reportId}", reportId).param("cursor", "1").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords.size()").value(1))
+                .andExpect(jsonPath("$.failedRecords[0].reference").value(439524))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnEarlierReportForRepeatedUpload() throws Exception {
+
+        String csvContent = """
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                594261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                583049,NL69ABNA0433647324,Clothes for Jan King,86.66,+44.5,131.16
+            """;
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csvContent.getBytes());
+
+        String response = mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords").isEmpty())
+                .andReturn().getResponse().getContentAsString();
+        long reportId = JsonPath.parse(response).read("$.reportId", Long.class);
+
+        // A retry of the same file gets the report of the first upload
+        mockMvc.perform(multipart("/api/v1/statements")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reportId").value(reportId))
+                .andExpect(jsonPath("$.failedRecords").isEmpty());
+    }
+
+    @Test
+    void shouldProcessCSVStatementFileSentAsRequestBody() throws Exception {
+
+        String csvContent = """
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                694261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                683049,NL69ABNA0433647324,Clothes for Jan King,86.66,+44.5,131.17
+            """;
+
+        mockMvc.perform(post("/api/v1/statements")
+                        .contentType("text/csv")
+                        .content(csvContent))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedRecords.size()").value(1))
+                .andExpect(jsonPath("$.failedRecords[0].reference").value(683049));
+    }
+}
@@ -1,17 +1,25 @@
 package nl.rabobank.customer.statementprocessor.parser;
 
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
 import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
 import nl.rabobank.customer.statementprocessor.control.parser.CsvFileParser;
 import nl.rabobank.customer.statementprocessor.control.mapper.CsvToStatementMapper;
+import nl.rabobank.customer.statementprocessor.util.jfr.FileParsedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,6 +58,52 @@ class CsvFileParserTest {
 
     }
 
+    @Test
+    void shouldStreamRecordsToConsumerInFileOrder() {
+        String csvContent = """
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                112806,NL27SNSB0917829871,Clothes for Willem Dekker,91.23,+15.57,106.8
+            """;
+        List<CustomerStatement> customerStatements = new ArrayList<>();
+
+        long recordCount = csvFileParser.parse(new ByteArrayInputStream(csvContent.getBytes()), "test.csv",
+                customerStatements::add);
+
+        assertThat(recordCount).isEqualTo(2);
+        assertThat(customerStatements)
+                .extracting(CustomerStatement::reference)
+                .containsExactly(194261L, 112806L);
+    }
+
+    @Test
+    void shouldRecordFlightRecorderEventOfParsedFile(@TempDir Path directory) throws IOException {
+        byte[] csvContent = """
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                112806,NL27SNSB0917829871,Clothes for Willem Dekker,91.23,+15.57,106.8
+            """.getBytes();
+        Path recordingFile = directory.resolve("parse.jfr");
+
+        try (var recording = new Recording()) {
+            recording.enable(FileParsedEvent.NAME);
+            recording.start();
+            csvFileParser.parse(new ByteArrayInputStream(csvContent), "test.csv", statement -> { });
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        assertThat(RecordingFile.readAllEvents(recordingFile))
+                .filteredOn(event -> event.getEventType().getName().equals(FileParsedEvent.NAME))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("parser")).isEqualTo("CsvFileParser");
+                    assertThat(event.getString("fileName")).isEqualTo("test.csv");
+                    assertThat(event.getLong("recordCount")).isEqualTo(2);
+                    assertThat(event.getLong("bytes")).isEqualTo(csvContent.length);
+                });
+    }
+
     @Test
     void shouldParseAnEmptyFile(){
         MockMultipartFile mockFile = new MockMultipartFile("file", "test.csv",
@@ -0,0 +1,187 @@
+package nl.rabobank.customer.statementprocessor.parser;
+
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.mapper.CsvToStatementMapper;
+import nl.rabobank.customer.statementprocessor.control.parser.CsvFileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.TokenizingCsvFileParser;
+import nl.rabobank.customer.statementprocessor.util.FixedPointAmount;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class TokenizingCsvFileParserTest {
+
+    private static final String HEADER = "Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n";
+
+    private final TokenizingCsvFileParser tokenizingCsvFileParser = new TokenizingCsvFileParser();
+
+    @Test
+    void shouldParseFileSuccessfully() {
+        String csvContent = HEADER + """
+                194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                112806,NL27SNSB0917829871,Clothes for Willem Dekker,91.23,+15.57,106.8
+                """;
+        MockMultipartFile mockFile = new MockMultipartFile("file", "test.csv",
+                "text/csv", csvContent.getBytes(StandardCharsets.UTF_8));
+
+        List<CustomerStatement> customerStatements = tokenizingCsvFileParser.parseFile(mockFile);
+
+        assertThat(customerStatements).containsExactly(
+                new CustomerStatement(194261L, "NL91RABO0315273637", new BigDecimal("21.6"),
+                        new BigDecimal("-41.83"), "Clothes from Jan Bakker",
+                        new BigDecimal("-20.23")),
+                new CustomerStatement(112806L, "NL27SNSB0917829871", new BigDecimal("91.23"),
+                        new BigDecimal("15.57"), "Clothes for Willem Dekker",
+                        new BigDecimal("106.8")));
+    }
+
+    @Test
+    void shouldParseTheSameStatementsAsJackson() {
+        String csvContent = HEADER + """
+                194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                183049,NL69ABNA0433647324,Tickets for Peter Theuß,86.66,+44.5,131.16
+                183050,NL69ABNA0433647324,Big amounts,12345678901234.5,0.001,1E+3
+                183051,NL69ABNA0433647324,Odd notation,007.50,-0,.5
+                183052,NL69ABNA0433647324,Beyond a long,123456789012345678901234.56,1.,+0.00
+                """;
+        var jacksonCsvFileParser = new CsvFileParser(new CsvToStatementMapper(), new CsvMapper());
+
+        assertThat(parse(csvContent)).isEqualTo(parse(jacksonCsvFileParser::parse, csvContent));
+    }
+
+    @Test
+    void shouldParseQuotedFields() {
+        String csvContent = HEADER
+                + "\"194261\",NL91RABO0315273637,\"Clothes, shoes and a \"\"hat\"\"\nfor Jan\",\"21.60\",-1.60,20.00\r\n"
+                + "112806,\"NL27SNSB0917829871\",\"\",1.00,1.00,2.00";
+
+        List<CustomerStatement> customerStatements = parse(csvContent);
+
+        assertThat(customerStatements)
+                .extracting(CustomerStatement::reference, CustomerStatement::accountNumber,
+                        CustomerStatement::description, CustomerStatement::startBalanceCents)
+                .containsExactly(
+                        tuple(194261L, "NL91RABO0315273637",
+                                "Clothes, shoes and a \"hat\"\nfor Jan", 2160L),
+                        tuple(112806L, "NL27SNSB0917829871", "", 100L));
+    }
+
+    @Test
+    void shouldComputeCentsWithoutBigDecimalArithmetic() {
+        String csvContent = HEADER + """
+                1,NL91RABO0315273637,Test,  21.6 ,-0.01,1.005
+                """;
+
+        var customerStatement = parse(csvContent).getFirst();
+
+        assertThat(customerStatement.startBalanceCents()).isEqualTo(2160L);
+        assertThat(customerStatement.mutationCents()).isEqualTo(-1L);
+        assertThat(customerStatement.endBalanceCents()).isEqualTo(FixedPointAmount.NOT_REPRESENTABLE);
+        assertThat(customerStatement.endBalance()).isEqualByComparingTo("1.005");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 7, 64})
+    void shouldParseRecordsAcrossBufferBoundaries(int bufferSize) {
+        String csvContent = "\uFEFF" + HEADER.replace("\n", "\r\n") + """
+                194261,NL91RABO0315273637,"Clothes from ""Jan"" Bakker",21.6,-41.83,-20.23\r
+                \r
+                112806,NL27SNSB0917829871,Clothes for Willem Dekker,91.23,+15.57,106.8""";
+
+        List<CustomerStatement> customerStatements = new ArrayList<>();
+        long recordCount = new TokenizingCsvFileParser(bufferSize).parse(
+                new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.UTF_8)), "test.csv",
+                customerStatements::add);
+
+        assertThat(recordCount).isEqualTo(2);
+        assertThat(customerStatements).isEqualTo(parse(csvContent));
+        assertThat(customerStatements)
+                .extracting(CustomerStatement::description)
+                .containsExactly("Clothes from \"Jan\" Bakker", "Clothes for Willem Dekker");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64})
+    void shouldParseIntoColumnsLikeIntoStatements(int bufferSize) {
+        String csvContent = HEADER + """
+                194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23
+                183049,NL69ABNA0433647324,"Tickets for ""Peter"" Theuß",86.66,+44.5,131.16
+                183050,NL69ABNA0433647324,Big amounts,12345678901234.5,0.001,1E+3
+                183051,"NL91RABO0315273637",Clothes from Jan Bakker,007.50,-0,.5
+                """;
+        List<CustomerStatement> expected = parse(csvContent);
+
+        var columns = new StatementColumns(2);
+        List<String> rows = new ArrayList<>();
+        long recordCount = new TokenizingCsvFileParser(bufferSize).parse(
+                new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.UTF_8)), "test.csv", columns, row -> {
+                    rows.add(columns.reference(row) + "|" + columns.accountNumber(row) + "|"
+                            + columns.description(row) + "|" + columns.startBalance(row).stripTrailingZeros() + "|"
+                            + columns.mutation(row).stripTrailingZeros() + "|"
+                            + columns.endBalance(row).stripTrailingZeros());
+                    if (columns.isFull()) {
+                        columns.clear();
+                    }
+                });
+
+        assertThat(recordCount).isEqualTo(4);
+        assertThat(rows).containsExactlyElementsOf(expected.stream()
+                .map(statement -> statement.reference() + "|" + statement.accountNumber() + "|"
+                        + statement.description() + "|" + statement.startBalance().stripTrailingZeros() + "|"
+                        + statement.mutation().stripTrailingZeros() + "|"
+                        + statement.endBalance().stripTrailingZeros())
+                .toList());
+    }
+
+    @Test
+    void shouldParseAnEmptyFile() {
+        assertThat(parse("")).isEmpty();
+        assertThat(parse(HEADER + "\n  \n")).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "wwww,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23",
+            "194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,www.83,ttt",
+            "194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83",
+            "194261,NL91RABO0315273637,Clothes from Jan Bakker,21.6,-41.83,-20.23,extra",
+            "194261,NL91RABO0315273637,\"Clothes from Jan Bakker,21.6,-41.83,-20.23",
+            "194261,NL91RABO0315273637,\"Clothes\" from Jan Bakker,21.6,-41.83,-20.23"})
+    void shouldThrowFileParsingExceptionForInvalidRecord(String invalidRecord) {
+        assertThatThrownBy(() -> parse(HEADER + invalidRecord + "\n"))
+                .isInstanceOf(FileParsingException.class)
+                .hasMessageStartingWith("CSV parsing failed: line 2: ");
+    }
+
+    private List<CustomerStatement> parse(String csvContent) {
+        return parse(tokenizingCsvFileParser::parse, csvContent);
+    }
+
+    private static List<CustomerStatement> parse(Parser parser, String csvContent) {
+        List<CustomerStatement> customerStatements = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(csvContent.getBytes(StandardCharsets.UTF_8)), "test.csv",
+                customerStatements::add);
+        return customerStatements;
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        long parse(InputStream inputStream, String fileName, Consumer<CustomerStatement> consumer);
+    }
+}
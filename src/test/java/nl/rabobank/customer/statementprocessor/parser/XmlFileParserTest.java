@@ -13,10 +13,14 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ExtendWith(MockitoExtension.class)
 class XmlFileParserTest {
@@ -55,6 +59,45 @@ class XmlFileParserTest {
                 .hasSize(1);
     }
 
+    @Test
+    void shouldStreamRecordsBeforeTheEndOfTheFileIsReached() {
+        String xmlContent = """
+                <records>
+                   <record reference="130498">
+                     <accountNumber>NL69ABNA0433647324</accountNumber>
+                     <description>Tickets for Peter Theuß</description>
+                     <startBalance>26.9</startBalance>
+                     <mutation>-18.78</mutation>
+                     <endBalance>8.12</endBalance>
+                   </record>
+                   <record reference="167875">
+                     <accountNumber>NL93ABNA0585619023</accountNumber>
+            """;
+        List<CustomerStatement> customerStatements = new ArrayList<>();
+        var inputStream = new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> xmlFileParser.parse(inputStream, "test.xml", customerStatements::add))
+                .isInstanceOf(FileParsingException.class)
+                .hasMessageContaining("XML processing failed:");
+        assertThat(customerStatements)
+                .extracting(CustomerStatement::reference, CustomerStatement::description)
+                .containsExactly(tuple(130498L, "Tickets for Peter Theuß"));
+    }
+
+    @Test
+    void shouldThrowInvalidFileExceptionWhenElementIsNotARecord() {
+        String xmlContent = """
+                <records>
+                   <statement reference="130498"/>
+                </records>
+            """;
+        MockMultipartFile mockFile = new MockMultipartFile("file", "test.xml", "text/xml", xmlContent.getBytes());
+
+        assertThatThrownBy(() -> xmlFileParser.parseFile(mockFile))
+                .isInstanceOf(FileParsingException.class)
+                .hasMessageContaining("Unexpected element <statement>");
+    }
+
     @Test
     void shouldThrowInvalidFileExceptionWhenFieIsEmpty() {
         MockMultipartFile mockFile = new MockMultipartFile("file", "test.xml",
@@ -0,0 +1,95 @@
+package nl.rabobank.customer.statementprocessor.repository;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.entity.model.Statement;
+import nl.rabobank.customer.statementprocessor.entity.repository.ReferenceIndex;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementBatchWriter;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@JdbcTest
+@Import(StatementBatchWriter.class)
+@TestPropertySource(properties = "statement.persistence.jdbc-batch-size=2")
+class StatementBatchWriterTest {
+
+    @Autowired
+    private StatementBatchWriter statementBatchWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private ReferenceIndex referenceIndex;
+
+    @Test
+    void shouldInsertStatementsInBatches() {
+        List<Statement> statements = LongStream.rangeClosed(1, 5)
+                .mapToObj(reference -> new Statement(reference, "NL91RABO0315273637", new BigDecimal("21.60"),
+                        new BigDecimal("-41.83"), "Statement " + reference, new BigDecimal("-20.23")))
+                .toList();
+
+        int savedCount = statementBatchWriter.write(statements);
+
+        assertThat(savedCount).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForList("SELECT reference FROM statement ORDER BY reference", Long.class))
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(jdbcTemplate.queryForObject("SELECT end_balance FROM statement WHERE reference = 3", BigDecimal.class))
+                .isEqualByComparingTo("-20.23");
+        LongStream.rangeClosed(1, 5).forEach(reference -> verify(referenceIndex).add(reference));
+    }
+
+    @Test
+    void shouldInsertStatementColumnsInBatches() {
+        var columns = new StatementColumns(8);
+        LongStream.rangeClosed(1, 5).forEach(reference -> columns.add(new CustomerStatement(reference,
+                "NL91RABO0315273637", new BigDecimal("21.6"), new BigDecimal("-41.83"), "Statement " + reference,
+                new BigDecimal("-20.23"))));
+
+        int savedCount = statementBatchWriter.writeColumns(columns);
+
+        assertThat(savedCount).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForList("SELECT reference FROM statement ORDER BY reference", Long.class))
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT account_number FROM statement", String.class))
+                .containsExactly("NL91RABO0315273637");
+        assertThat(jdbcTemplate.queryForObject("SELECT start_balance FROM statement WHERE reference = 5",
+                BigDecimal.class)).isEqualByComparingTo("21.60");
+        assertThat(jdbcTemplate.queryForObject("SELECT description FROM statement WHERE reference = 4", String.class))
+                .isEqualTo("Statement 4");
+        LongStream.rangeClosed(1, 5).forEach(reference -> verify(referenceIndex).add(reference));
+    }
+
+    @Test
+    void shouldDeleteStatementsByReferenceInBatches() {
+        var columns = new StatementColumns(8);
+        LongStream.rangeClosed(1, 5).forEach(reference -> columns.add(new CustomerStatement(reference,
+                "NL91RABO0315273637", new BigDecimal("21.6"), new BigDecimal("-41.83"), "Statement " + reference,
+                new BigDecimal("-20.23"))));
+        statementBatchWriter.writeColumns(columns);
+
+        int deletedCount = statementBatchWriter.deleteByReferences(new long[]{2L, 4L, 5L, 9L});
+
+        assertThat(deletedCount).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList("SELECT reference FROM statement ORDER BY reference", Long.class))
+                .containsExactly(1L, 3L);
+    }
+
+    @Test
+    void shouldIgnoreEmptyList() {
+        assertThat(statementBatchWriter.write(List.of())).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM statement", Long.class)).isZero();
+    }
+}
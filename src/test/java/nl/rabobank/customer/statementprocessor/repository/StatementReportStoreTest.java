@@ -0,0 +1,51 @@
+package nl.rabobank.customer.statementprocessor.repository;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementReportStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Import(StatementReportStore.class)
+@TestPropertySource(properties = "statement.persistence.jdbc-batch-size=2")
+class StatementReportStoreTest {
+
+    @Autowired
+    private StatementReportStore reportStore;
+
+    @Test
+    void shouldStoreReportAndReadFailuresByKeyset() {
+        List<ValidationResult> failedRecords = LongStream.range(0, 5)
+                .mapToObj(reference -> new ValidationResult(reference, "Statement " + reference, "Invalid end balance."))
+                .toList();
+
+        long reportKey = reportStore.save(new Report(42L, failedRecords));
+
+        assertThat(reportStore.findReportKey(42L)).contains(reportKey);
+        assertThat(reportStore.findValidationErrors(reportKey, -1, 2)).containsExactlyElementsOf(failedRecords.subList(0, 2));
+        assertThat(reportStore.findValidationErrors(reportKey, 1, 10)).containsExactlyElementsOf(failedRecords.subList(2, 5));
+        assertThat(reportStore.findValidationErrors(reportKey, 4, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldStoreReportWithoutFailures() {
+        long reportKey = reportStore.save(new Report(43L, List.of()));
+
+        assertThat(reportStore.findReportKey(43L)).contains(reportKey);
+        assertThat(reportStore.findValidationErrors(reportKey, -1, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldNotFindUnknownReport() {
+        assertThat(reportStore.findReportKey(44L)).isEmpty();
+    }
+}
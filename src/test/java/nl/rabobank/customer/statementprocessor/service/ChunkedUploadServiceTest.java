@@ -0,0 +1,267 @@
+package nl.rabobank.customer.statementprocessor.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobState;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidChunkException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadConflictException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.service.ChunkedUploadService;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadServiceTest {
+
+    private static final String CSV_FILENAME = "records.csv";
+    private static final byte[] FIRST_CHUNK = "Reference,AccountNumber\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SECOND_CHUNK = "194261,NL91RABO0315273637\n".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private StatementProcessorService processorService;
+
+    private final Report report = new Report(1L, List.of());
+    /**
+     * The number of bytes of the file read by the processor, after every read.
+     */
+    private final BlockingQueue<Integer> bytesRead = new LinkedBlockingQueue<>();
+    private final ByteArrayOutputStream processedContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream savedContent = new ByteArrayOutputStream();
+
+    @Test
+    @Timeout(5)
+    void shouldValidateChunksWhileTheyArriveAndSaveTheCompleteFile() throws Exception {
+        var uploadService = newUploadService(Duration.ofSeconds(5));
+        readFileWhenProcessing();
+        saveFileWhenComplete();
+
+        var upload = uploadService.create(CSV_FILENAME);
+        uploadService.appendChunk(upload.uploadId(), 1, contentDigest(FIRST_CHUNK), chunk(FIRST_CHUNK));
+        // The first chunk is validated before the second one is sent, nothing is saved yet
+        assertThat(bytesRead.poll(5, TimeUnit.SECONDS)).isEqualTo(FIRST_CHUNK.length);
+        verify(processorService, never()).process(any(String.class), any(InputStreamSource.class),
+                any(ProcessingOptions.class));
+        var received = uploadService.appendChunk(upload.uploadId(), 2, contentDigest(SECOND_CHUNK),
+                chunk(SECOND_CHUNK));
+        var completed = uploadService.complete(upload.uploadId());
+
+        assertThat(received.receivedChunks()).isEqualTo(2);
+        assertThat(received.receivedBytes()).isEqualTo(FIRST_CHUNK.length + SECOND_CHUNK.length);
+        assertThat(completed.status()).isEqualTo(JobState.COMPLETED);
+        assertThat(completed.fileName()).isEqualTo(CSV_FILENAME);
+        assertThat(completed.recordsProcessed()).isEqualTo(1);
+        assertThat(completed.report()).isEqualTo(report);
+        assertThat(processedContent.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                Reference,AccountNumber
+                194261,NL91RABO0315273637
+                """);
+        assertThat(savedContent.toByteArray()).isEqualTo(processedContent.toByteArray());
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldValidateCompleteFileWhenValidationWhileArrivingIsNotAdmitted() throws Exception {
+        var uploadService = newUploadService(Duration.ofSeconds(5));
+        when(processorService.validate(eq(CSV_FILENAME), any(), any()))
+                .thenThrow(new UploadRejectedException("Too many files are being processed.", Duration.ofSeconds(1)));
+        saveFileWhenComplete();
+
+        var upload = uploadService.create(CSV_FILENAME);
+        uploadService.appendChunk(upload.uploadId(), 1, contentDigest(FIRST_CHUNK), chunk(FIRST_CHUNK));
+        uploadService.appendChunk(upload.uploadId(), 2, contentDigest(SECOND_CHUNK), chunk(SECOND_CHUNK));
+        var completed = uploadService.complete(upload.uploadId());
+
+        assertThat(completed.status()).isEqualTo(JobState.COMPLETED);
+        assertThat(completed.report()).isEqualTo(report);
+        assertThat(savedContent.toByteArray()).startsWith(FIRST_CHUNK).endsWith(SECOND_CHUNK);
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldRejectChunkNotMatchingItsDigestAndAcceptItAgain() throws Exception {
+        var uploadService = newUploadService(Duration.ofSeconds(5));
+        readFileWhenProcessing();
+        saveFileWhenComplete();
+        var upload = uploadService.create(CSV_FILENAME);
+        uploadService.appendChunk(upload.uploadId(), 1, contentDigest(FIRST_CHUNK), chunk(FIRST_CHUNK));
+
+        var corrupted = SECOND_CHUNK.clone();
+        corrupted[0] = 'X';
+        assertThatThrownBy(() -> uploadService.appendChunk(upload.uploadId(), 2, contentDigest(SECOND_CHUNK),
+                chunk(corrupted)))
+                .isInstanceOf(InvalidChunkException.class)
+                .hasMessage("Checksum of chunk 2 does not match its content");
+        assertThat(uploadService.getUpload(upload.uploadId()).receivedBytes()).isEqualTo(FIRST_CHUNK.length);
+
+        uploadService.appendChunk(upload.uploadId(), 2, contentDigest(SECOND_CHUNK), chunk(SECOND_CHUNK));
+        var completed = uploadService.complete(upload.uploadId());
+
+        assertThat(completed.status()).isEqualTo(JobState.COMPLETED);
+        assertThat(processedContent.toByteArray()).startsWith(FIRST_CHUNK).endsWith(SECOND_CHUNK)
+                .hasSize(FIRST_CHUNK.length + SECOND_CHUNK.length);
+        assertThat(savedContent.toByteArray()).isEqualTo(processedContent.toByteArray());
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldIgnoreLastChunkSentAgainAndRejectChunkOutOfOrder() {
+        var uploadService = newUploadService(Duration.ofSeconds(5));
+        readFileWhenProcessing();
+        var upload = uploadService.create(CSV_FILENAME);
+        uploadService.appendChunk(upload.uploadId(), 1, contentDigest(FIRST_CHUNK), chunk(FIRST_CHUNK));
+
+        var repeated = uploadService.appendChunk(upload.uploadId(), 1, contentDigest(FIRST_CHUNK),
+                chunk(FIRST_CHUNK));
+
+        assertThat(repeated.receivedChunks()).isEqualTo(1);
+        assertThat(repeated.receivedBytes()).isEqualTo(FIRST_CHUNK.length);
+        assertThatThrownBy(() -> uploadService.appendChunk(upload.uploadId(), 3, contentDigest(SECOND_CHUNK),
+                chunk(SECOND_CHUNK)))
+                .isInstanceOf(UploadConflictException.class)
+                .hasMessage("Expected chunk 2 of upload " + upload.uploadId() + " but got chunk 3");
+        awaitProcessing();
+        uploadService.cancel(upload.uploadId());
+    }
+
+    @Test
+    void shouldRejectChunkWithoutSha256Digest() {
+        var uploadService = newUploadService(Duration.ofSeconds(5));
+        readFileWhenProcessing();
+        var upload = uploadService.create(CSV_FILENAME);
+
+        assertThatThrownBy(() -> uploadService.appendChunk(upload.uploadId(), 1, "md5=:HUXZLQLMuI/KZ5KDcJPcOA==:",
+                chunk(FIRST_CHUNK)))
+                .isInstanceOf(InvalidChunkException.class)
+                .hasMessage("Content-Digest of chunk 1 holds no sha-256 digest");
+        awaitProcessing();
+        uploadService.cancel(upload.uploadId());
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldFailUploadWithoutChunkWithinIdleTimeout() throws Exception {
+        var uploadService = newUploadService(Duration.ofMillis(50));
+        readFileWhenProcessing();
+        var upload = uploadService.create(CSV_FILENAME);
+
+        var failed = uploadService.getUpload(upload.uploadId());
+        while (failed.status() != JobState.FAILED) {
+            Thread.sleep(10);
+            failed = uploadService.getUpload(upload.uploadId());
+        }
+
+        assertThat(failed.error()).isEqualTo("No chunk of upload " + upload.uploadId() + " received within PT0.05S");
+        assertThatThrownBy(() -> uploadService.appendChunk(upload.uploadId(), 1, contentDigest(FIRST_CHUNK),
+                chunk(FIRST_CHUNK)))
+                .isInstanceOf(UploadConflictException.class)
+                .hasMessageStartingWith("Processing of upload " + upload.uploadId() + " stopped");
+    }
+
+    @Test
+    void shouldForgetCancelledUpload() {
+        var uploadService = newUploadService(Duration.ofSeconds(5));
+        readFileWhenProcessing();
+        var upload = uploadService.create(CSV_FILENAME);
+        awaitProcessing();
+
+        uploadService.cancel(upload.uploadId());
+
+        assertThatThrownBy(() -> uploadService.getUpload(upload.uploadId()))
+                .isInstanceOf(UploadNotFoundException.class)
+                .hasMessage("No upload found with id " + upload.uploadId());
+    }
+
+    private ChunkedUploadService newUploadService(Duration idleTimeout) {
+        return new ChunkedUploadService(processorService, new SimpleAsyncTaskExecutor(), DataSize.ofKilobytes(1),
+                idleTimeout, Duration.ofSeconds(5), Duration.ofHours(1));
+    }
+
+    /**
+     * Lets the processor validate the file like the parsers read it, reporting one record once it reached the end.
+     */
+    private void readFileWhenProcessing() {
+        when(processorService.validate(eq(CSV_FILENAME), any(), any())).thenAnswer(invocation -> {
+            InputStreamSource source = invocation.getArgument(1);
+            try (InputStream inputStream = source.getInputStream()) {
+                var buffer = new byte[1024];
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    processedContent.write(buffer, 0, read);
+                    bytesRead.add(processedContent.size());
+                }
+            } catch (IOException e) {
+                throw new FileParsingException(e.getMessage());
+            }
+            LongConsumer progressListener = invocation.getArgument(2);
+            progressListener.accept(1);
+            return 0;
+        });
+    }
+
+    /**
+     * Lets the processor save the complete file, which it reads without waiting.
+     */
+    private void saveFileWhenComplete() {
+        when(processorService.process(eq(CSV_FILENAME), any(InputStreamSource.class), any(ProcessingOptions.class)))
+                .thenAnswer(invocation -> {
+                    InputStreamSource source = invocation.getArgument(1);
+                    try (InputStream inputStream = source.getInputStream()) {
+                        inputStream.transferTo(savedContent);
+                    }
+                    return report;
+                });
+    }
+
+    /**
+     * Waits for the worker to start processing the file, which then waits for the chunks.
+     */
+    private void awaitProcessing() {
+        verify(processorService, timeout(5000)).validate(eq(CSV_FILENAME), any(), any());
+    }
+
+    private static InputStream chunk(byte[] content) {
+        return new ByteArrayInputStream(content);
+    }
+
+    private static String contentDigest(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "sha-256=:" + Base64.getEncoder().encodeToString(digest) + ":";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
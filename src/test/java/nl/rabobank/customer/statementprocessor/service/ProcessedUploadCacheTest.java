@@ -0,0 +1,89 @@
+package nl.rabobank.customer.statementprocessor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessedUploadCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessedUploadCacheTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+    private static final byte[] CONTENT_HASH = {1, 2, 3};
+    private static final Report REPORT = new Report(1L, List.of());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Instant now = NOW;
+    private ProcessedUploadCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProcessedUploadCache(meterRegistry, 2, TIME_TO_LIVE, 1, () -> now);
+    }
+
+    @Test
+    void shouldFindReportOfSameContent() {
+        cache.put("csv", 100, CONTENT_HASH, REPORT);
+
+        assertThat(cache.find("csv", 100, () -> CONTENT_HASH)).contains(REPORT);
+        assertThat(cache.find("xml", 100, () -> CONTENT_HASH)).isEmpty();
+        assertThat(cache.find("csv", 100, () -> new byte[]{3, 2, 1})).isEmpty();
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotHashContentWithoutCachedFileOfSameLength() {
+        cache.put("csv", 100, CONTENT_HASH, REPORT);
+        Supplier<byte[]> contentHash = () -> {
+            throw new AssertionError("Content should not be hashed");
+        };
+
+        assertThat(cache.find("csv", 101, contentHash)).isEmpty();
+        assertThat(cache.find("csv", -1, contentHash)).isEmpty();
+        assertThat(count("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldExpireReportsAfterTimeToLive() {
+        cache.put("csv", 100, CONTENT_HASH, REPORT);
+
+        now = NOW.plus(TIME_TO_LIVE).minusSeconds(1);
+        assertThat(cache.find("csv", 100, () -> CONTENT_HASH)).contains(REPORT);
+
+        now = NOW.plus(TIME_TO_LIVE);
+        assertThat(cache.find("csv", 100, () -> CONTENT_HASH)).isEmpty();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedReport() {
+        cache.put("csv", 100, new byte[]{1}, REPORT);
+        cache.put("csv", 100, new byte[]{2}, REPORT);
+        cache.put("csv", 100, new byte[]{3}, REPORT);
+
+        assertThat(cache.find("csv", 100, () -> new byte[]{1})).isEmpty();
+        assertThat(cache.find("csv", 100, () -> new byte[]{3})).contains(REPORT);
+    }
+
+    @Test
+    void shouldNotCacheReportsWithManyFailures() {
+        var failedRecord = new ValidationResult(1L, "Test", "Invalid end balance.");
+        cache.put("csv", 100, CONTENT_HASH, new Report(2L, List.of(failedRecord, failedRecord)));
+        cache.put("csv", -1, CONTENT_HASH, REPORT);
+
+        assertThat(cache.find("csv", 100, () -> CONTENT_HASH)).isEmpty();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("statement.upload.cache").tag("result", result).counter().count();
+    }
+}
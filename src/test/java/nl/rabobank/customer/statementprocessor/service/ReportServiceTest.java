@@ -0,0 +1,108 @@
+package nl.rabobank.customer.statementprocessor.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.control.exception.ReportNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.mapper.ReportMapper;
+import nl.rabobank.customer.statementprocessor.control.service.ReportService;
+import nl.rabobank.customer.statementprocessor.entity.repository.StatementReportStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    private static final long REPORT_ID = 42L;
+    private static final long REPORT_KEY = 7L;
+    private static final int CACHE_MAX_FAILURES = 5;
+    private static final int MAX_PAGE_SIZE = 3;
+
+    @Mock
+    private ReportMapper reportMapper;
+    @Mock
+    private StatementReportStore reportStore;
+
+    private ReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        reportService = new ReportService(reportMapper, reportStore, 10, CACHE_MAX_FAILURES, MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void shouldStoreReportAndServePagesFromCache() {
+        var failedRecords = failedRecords(5);
+        var report = new Report(REPORT_ID, failedRecords);
+        when(reportMapper.mapValidationResultsToReport(failedRecords)).thenReturn(report);
+
+        assertThat(reportService.saveReport(failedRecords)).isEqualTo(report);
+        var firstPage = reportService.getReportPage(REPORT_ID, null, 2);
+        var lastPage = reportService.getReportPage(REPORT_ID, 3L, 2);
+
+        verify(reportStore).save(report);
+        verify(reportStore, never()).findReportKey(anyLong());
+        assertThat(firstPage.failedRecords()).containsExactlyElementsOf(failedRecords.subList(0, 2));
+        assertThat(firstPage.nextCursor()).isEqualTo(1L);
+        assertThat(lastPage.failedRecords()).containsExactly(failedRecords.get(4));
+        assertThat(lastPage.nextCursor()).isNull();
+    }
+
+    @Test
+    void shouldReadLargeReportsFromStore() {
+        var failedRecords = failedRecords(CACHE_MAX_FAILURES + 1);
+        var report = new Report(REPORT_ID, failedRecords);
+        when(reportMapper.mapValidationResultsToReport(failedRecords)).thenReturn(report);
+        when(reportStore.findReportKey(REPORT_ID)).thenReturn(Optional.of(REPORT_KEY));
+        // The page size is limited to 3, one more record is read to detect the next page
+        when(reportStore.findValidationErrors(REPORT_KEY, 2L, MAX_PAGE_SIZE + 1))
+                .thenReturn(failedRecords.subList(3, 6));
+
+        reportService.saveReport(failedRecords);
+        var page = reportService.getReportPage(REPORT_ID, 2L, 100);
+
+        assertThat(page.reportId()).isEqualTo(REPORT_ID);
+        assertThat(page.failedRecords()).containsExactlyElementsOf(failedRecords.subList(3, 6));
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void shouldReturnCursorWhenStoreHasMoreRecords() {
+        var failedRecords = failedRecords(4);
+        when(reportStore.findReportKey(REPORT_ID)).thenReturn(Optional.of(REPORT_KEY));
+        when(reportStore.findValidationErrors(REPORT_KEY, -1L, MAX_PAGE_SIZE + 1)).thenReturn(failedRecords);
+
+        var page = reportService.getReportPage(REPORT_ID, null, MAX_PAGE_SIZE);
+
+        assertThat(page.failedRecords()).containsExactlyElementsOf(failedRecords.subList(0, 3));
+        assertThat(page.nextCursor()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldThrowForUnknownReport() {
+        when(reportStore.findReportKey(REPORT_ID)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> reportService.getReportPage(REPORT_ID, null, 10))
+                .isInstanceOf(ReportNotFoundException.class)
+                .hasMessage("No report found with id 42");
+    }
+
+    private static List<ValidationResult> failedRecords(int count) {
+        return LongStream.range(0, count)
+                .mapToObj(reference -> new ValidationResult(reference, "Statement " + reference, "Invalid end balance."))
+                .toList();
+    }
+}
@@ -0,0 +1,162 @@
+package nl.rabobank.customer.statementprocessor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.boundary.spool.SpoolDirectoryWatcher;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@Timeout(10)
+class SpoolDirectoryWatcherTest {
+
+    private static final String CSV_CONTENT = "Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n";
+
+    @Mock
+    private StatementProcessorService processorService;
+
+    @TempDir
+    private Path directory;
+
+    private SpoolDirectoryWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        watcher = new SpoolDirectoryWatcher(processorService, new ObjectMapper(), directory.toString(),
+                directory.resolve("done").toString(), directory.resolve("failed").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (watcher.isRunning()) {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    void shouldProcessFileInDirectoryAtStartup() throws Exception {
+        Files.writeString(directory.resolve("records.csv"), CSV_CONTENT);
+        var content = new AtomicReference<String>();
+        when(processorService.process(eq("records.csv"), any(InputStreamSource.class), any())).thenAnswer(invocation -> {
+            try (InputStream inputStream = invocation.<InputStreamSource>getArgument(1).getInputStream()) {
+                content.set(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            return new Report(1L, List.of());
+        });
+
+        watcher.start();
+
+        Path report = awaitFile(directory.resolve("done/records.csv.report.json"));
+        assertThat(content.get()).isEqualTo(CSV_CONTENT);
+        assertThat(Files.readString(directory.resolve("done/records.csv"))).isEqualTo(CSV_CONTENT);
+        assertThat(directory.resolve("records.csv")).doesNotExist();
+        assertThat(new ObjectMapper().readValue(report.toFile(), Report.class)).isEqualTo(new Report(1L, List.of()));
+    }
+
+    @Test
+    void shouldMoveNewFileWithValidationErrorsToFailedDirectory() throws Exception {
+        var failedRecord = new ValidationResult(112806L, "Clothes for Willem Dekker", "Invalid end balance.");
+        when(processorService.process(eq("records.xml"), any(InputStreamSource.class), any()))
+                .thenReturn(new Report(2L, List.of(failedRecord)));
+        watcher.start();
+
+        // Written under another name and renamed when complete
+        Path partFile = Files.writeString(directory.resolve("records.xml.part"), "<records/>");
+        Files.move(partFile, directory.resolve("records.xml"));
+
+        Path report = awaitFile(directory.resolve("failed/records.xml.report.json"));
+        assertThat(directory.resolve("failed/records.xml")).exists();
+        assertThat(new ObjectMapper().readValue(report.toFile(), Report.class).failedRecords()).containsExactly(failedRecord);
+    }
+
+    @Test
+    void shouldWriteErrorReportForFileThatCannotBeParsed() throws Exception {
+        Files.writeString(directory.resolve("broken.csv"), "broken");
+        when(processorService.process(eq("broken.csv"), any(InputStreamSource.class), any()))
+                .thenThrow(new FileParsingException("CSV parsing failed: broken"));
+
+        watcher.start();
+
+        Path report = awaitFile(directory.resolve("failed/broken.csv.report.json"));
+        assertThat(Files.readString(report))
+                .contains("File processing failed")
+                .contains("CSV parsing failed: broken");
+    }
+
+    @Test
+    void shouldKeepFileThatIsNotAdmittedAndTryAgain() throws Exception {
+        Files.writeString(directory.resolve("records.csv"), CSV_CONTENT);
+        when(processorService.process(eq("records.csv"), any(InputStreamSource.class), any()))
+                .thenThrow(new UploadRejectedException("Not enough memory to accept records.csv", Duration.ofMillis(50)))
+                .thenReturn(new Report(4L, List.of()));
+
+        watcher.start();
+
+        Path report = awaitFile(directory.resolve("done/records.csv.report.json"));
+        assertThat(new ObjectMapper().readValue(report.toFile(), Report.class)).isEqualTo(new Report(4L, List.of()));
+        assertThat(directory.resolve("failed/records.csv")).doesNotExist();
+        assertThat(directory.resolve("records.csv")).doesNotExist();
+    }
+
+    @Test
+    void shouldLeaveFileThatWaitsForAdmissionWhenStopped() throws Exception {
+        Files.writeString(directory.resolve("records.csv"), CSV_CONTENT);
+        var rejected = new CountDownLatch(1);
+        when(processorService.process(eq("records.csv"), any(InputStreamSource.class), any())).thenAnswer(invocation -> {
+            rejected.countDown();
+            throw new UploadRejectedException("Not enough memory to accept records.csv", Duration.ofMinutes(1));
+        });
+        watcher.start();
+        rejected.await();
+
+        watcher.stop();
+
+        assertThat(directory.resolve("records.csv")).exists();
+        assertThat(directory.resolve("failed/records.csv")).doesNotExist();
+    }
+
+    @Test
+    void shouldIgnoreOtherFiles() throws Exception {
+        Files.writeString(directory.resolve("notes.txt"), "notes");
+        Files.writeString(directory.resolve("records.csv"), CSV_CONTENT);
+        when(processorService.process(eq("records.csv"), any(InputStreamSource.class), any()))
+                .thenReturn(new Report(3L, List.of()));
+
+        watcher.start();
+
+        awaitFile(directory.resolve("done/records.csv.report.json"));
+        assertThat(directory.resolve("notes.txt")).exists();
+    }
+
+    private static Path awaitFile(Path file) throws InterruptedException {
+        while (Files.notExists(file)) {
+            Thread.sleep(10);
+        }
+        return file;
+    }
+}
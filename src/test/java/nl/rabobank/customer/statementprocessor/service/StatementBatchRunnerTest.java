@@ -0,0 +1,112 @@
+package nl.rabobank.customer.statementprocessor.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.cli.StatementBatchRunner;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StatementBatchRunnerTest {
+
+    @Mock
+    private StatementProcessorService processorService;
+
+    @TempDir
+    private Path directory;
+
+    private StatementBatchRunner runner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        runner = new StatementBatchRunner(processorService, 2);
+        Files.writeString(directory.resolve("2019.csv"), "csv");
+        Files.writeString(directory.resolve("notes.txt"), "notes");
+        Files.createDirectories(directory.resolve("2020"));
+        Files.writeString(directory.resolve("2020/records.xml"), "xml");
+    }
+
+    @Test
+    void shouldProcessAllStatementFilesOfDirectory() throws Exception {
+        when(processorService.process(anyString(), any(InputStreamSource.class), any())).thenAnswer(invocation -> {
+            invocation.<ProcessingOptions>getArgument(2).progressListener().accept(10);
+            return new Report(1L, List.of());
+        });
+
+        runner.run(new DefaultApplicationArguments(directory.toString()));
+
+        assertThat(runner.getExitCode()).isZero();
+        verify(processorService).process(eq("2019.csv"), any(InputStreamSource.class), any());
+        verify(processorService).process(eq("records.xml"), any(InputStreamSource.class), any());
+        verify(processorService, times(2)).process(anyString(), any(InputStreamSource.class), any());
+    }
+
+    @Test
+    void shouldExitWithFailureWhenFileFailsValidation() throws Exception {
+        var failedRecord = new ValidationResult(112806L, "Clothes for Willem Dekker", "Invalid end balance.");
+        when(processorService.process(eq("2019.csv"), any(InputStreamSource.class), any()))
+                .thenReturn(new Report(1L, List.of(failedRecord)));
+
+        runner.run(new DefaultApplicationArguments(directory.resolve("2019.csv").toString()));
+
+        assertThat(runner.getExitCode()).isEqualTo(StatementBatchRunner.EXIT_FAILED_FILES);
+    }
+
+    @Test
+    void shouldTryAgainWhenFileIsNotAdmitted() throws Exception {
+        when(processorService.process(eq("2019.csv"), any(InputStreamSource.class), any()))
+                .thenThrow(new UploadRejectedException("Too many files are being processed.", Duration.ofMillis(10)))
+                .thenReturn(new Report(1L, List.of()));
+
+        runner.run(new DefaultApplicationArguments(directory.resolve("2019.csv").toString()));
+
+        assertThat(runner.getExitCode()).isZero();
+        verify(processorService, times(2)).process(eq("2019.csv"), any(InputStreamSource.class), any());
+    }
+
+    @Test
+    void shouldExitWithFailureWhenFileCannotBeProcessed() throws Exception {
+        when(processorService.process(anyString(), any(InputStreamSource.class), any()))
+                .thenThrow(new FileParsingException("CSV parsing failed: broken"))
+                .thenReturn(new Report(1L, List.of()));
+
+        runner.run(new DefaultApplicationArguments(directory.toString()));
+
+        // The other file is still processed
+        assertThat(runner.getExitCode()).isEqualTo(StatementBatchRunner.EXIT_FAILED_FILES);
+        verify(processorService, times(2)).process(anyString(), any(InputStreamSource.class), any());
+    }
+
+    @Test
+    void shouldExitWhenNoFilesAreFound() throws Exception {
+        runner.run(new DefaultApplicationArguments(directory.resolve("notes.txt").toString()));
+
+        assertThat(runner.getExitCode()).isEqualTo(StatementBatchRunner.EXIT_NO_FILES);
+        verify(processorService, never()).process(anyString(), any(InputStreamSource.class), any());
+    }
+}
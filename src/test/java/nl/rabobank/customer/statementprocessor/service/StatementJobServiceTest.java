@@ -0,0 +1,122 @@
+package nl.rabobank.customer.statementprocessor.service;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.JobState;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
+import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
+import nl.rabobank.customer.statementprocessor.control.exception.JobNotFoundException;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.StatementJobService;
+import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StatementJobServiceTest {
+
+    private static final String CSV_FILENAME = "records.csv";
+
+    @Mock
+    private StatementProcessorService processorService;
+
+    private final MockMultipartFile file = new MockMultipartFile("file", CSV_FILENAME, "text/csv", "content".getBytes());
+
+    private StatementJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        jobService = new StatementJobService(processorService, new SyncTaskExecutor(), Duration.ofHours(1));
+    }
+
+    @Test
+    void shouldCompleteJobWithReportAndProgress() {
+        when(processorService.requireSupportedFileName(CSV_FILENAME)).thenReturn(CSV_FILENAME);
+        var report = new Report(1L, List.of());
+        when(processorService.process(eq(CSV_FILENAME), any(), any())).thenAnswer(invocation -> {
+            InputStreamSource source = invocation.getArgument(1);
+            try (InputStream inputStream = source.getInputStream()) {
+                assertThat(inputStream.readAllBytes()).isEqualTo("content".getBytes());
+            }
+            LongConsumer progressListener = invocation.<ProcessingOptions>getArgument(2).progressListener();
+            progressListener.accept(3);
+            return report;
+        });
+
+        var submitted = jobService.submit(file);
+        var job = jobService.getJob(submitted.jobId());
+
+        assertThat(job.status()).isEqualTo(JobState.COMPLETED);
+        assertThat(job.fileName()).isEqualTo(CSV_FILENAME);
+        assertThat(job.recordsProcessed()).isEqualTo(3);
+        assertThat(job.report()).isEqualTo(report);
+        assertThat(job.error()).isNull();
+    }
+
+    @Test
+    void shouldMarkJobAsFailedWhenProcessingFails() {
+        when(processorService.requireSupportedFileName(CSV_FILENAME)).thenReturn(CSV_FILENAME);
+        when(processorService.process(eq(CSV_FILENAME), any(), any()))
+                .thenThrow(new FileParsingException("CSV parsing failed: broken"));
+
+        var submitted = jobService.submit(file);
+        var job = jobService.getJob(submitted.jobId());
+
+        assertThat(job.status()).isEqualTo(JobState.FAILED);
+        assertThat(job.error()).isEqualTo("CSV parsing failed: broken");
+        assertThat(job.report()).isNull();
+    }
+
+    @Test
+    void shouldRejectUnsupportedFileBeforeQueueing() {
+        var invalidFile = new MockMultipartFile("file", "records.txt", "text/plain", "content".getBytes());
+        when(processorService.requireSupportedFileName("records.txt"))
+                .thenThrow(new InvalidFileException("Unsupported file type"));
+
+        assertThatThrownBy(() -> jobService.submit(invalidFile))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessage("Unsupported file type");
+        verify(processorService, never()).process(any(String.class), any(InputStreamSource.class),
+                any(ProcessingOptions.class));
+    }
+
+    @Test
+    void shouldForgetJobWhenQueueIsFull() {
+        when(processorService.requireSupportedFileName(CSV_FILENAME)).thenReturn(CSV_FILENAME);
+        TaskExecutor fullExecutor = task -> {
+            throw new TaskRejectedException("Queue full");
+        };
+        jobService = new StatementJobService(processorService, fullExecutor, Duration.ofHours(1));
+
+        assertThatThrownBy(() -> jobService.submit(file)).isInstanceOf(TaskRejectedException.class);
+        verify(processorService, never()).process(any(String.class), any(InputStreamSource.class),
+                any(ProcessingOptions.class));
+    }
+
+    @Test
+    void shouldThrowForUnknownJob() {
+        assertThatThrownBy(() -> jobService.getJob("unknown"))
+                .isInstanceOf(JobNotFoundException.class)
+                .hasMessage("No job found with id unknown");
+    }
+}
@@ -1,33 +1,84 @@
 package nl.rabobank.customer.statementprocessor.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.rabobank.customer.statementprocessor.control.service.AcceptanceMode;
+import nl.rabobank.customer.statementprocessor.control.service.PipelineMetrics;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessedUploadCache;
+import nl.rabobank.customer.statementprocessor.control.service.ProcessingOptions;
+import nl.rabobank.customer.statementprocessor.control.service.ReportService;
+import nl.rabobank.customer.statementprocessor.control.service.StageTimings;
 import nl.rabobank.customer.statementprocessor.control.service.StatementProcessorService;
+import nl.rabobank.customer.statementprocessor.control.service.UploadAdmissionControl;
 import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
 import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
 import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
 import nl.rabobank.customer.statementprocessor.control.events.StatementsEventPublisher;
+import nl.rabobank.customer.statementprocessor.control.exception.FileParsingException;
 import nl.rabobank.customer.statementprocessor.control.exception.InvalidFileException;
-import nl.rabobank.customer.statementprocessor.control.mapper.CustomerStatementToStatementMapper;
-import nl.rabobank.customer.statementprocessor.control.mapper.ReportMapper;
+import nl.rabobank.customer.statementprocessor.control.parser.CsvEngine;
 import nl.rabobank.customer.statementprocessor.control.parser.CsvFileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.FileParser;
+import nl.rabobank.customer.statementprocessor.control.parser.TokenizingCsvFileParser;
 import nl.rabobank.customer.statementprocessor.control.parser.XmlFileParser;
+import nl.rabobank.customer.statementprocessor.util.ProcessedReferences;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
 import nl.rabobank.customer.statementprocessor.util.StatementValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.SavepointManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.InstantSource;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.DUPLICATE_REFERENCE_DETECTED;
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.INVALID_END_BALANCE;
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.REFERENCE_ALREADY_PROCESSED;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,72 +90,321 @@ class StatementProcessorServiceTest {
     private CsvFileParser csvFileParser;
     @Mock
     private XmlFileParser xmlFileParser;
-    @Mock
+    @Spy
     private StatementValidator validator;
     @Mock
-    private ReportMapper reportMapper;
+    private ProcessedReferences processedReferences;
+    @Mock
+    private ReportService reportService;
     @Mock
     private StatementsEventPublisher statementsEventPublisher;
     @Mock
-    private CustomerStatementToStatementMapper customerStatementToStatementMapper;
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private SavepointManager savepointManager;
     @Mock
     private MultipartFile file;
 
-    @InjectMocks
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UploadAdmissionControl uploadAdmissionControl = new UploadAdmissionControl(meterRegistry,
+            DataSize.ofMegabytes(96), DataSize.ofMegabytes(32), Duration.ofSeconds(1), 1);
     private StatementProcessorService statementProcessorService;
 
     private static final String CSV_FILENAME = "test.csv";
     private static final String XML_FILENAME = "test.xml";
     private static final String UNSUPPORTED_FILENAME = "test.txt";
     private static final String NULL_FILENAME = null;
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_CONCURRENT_UPLOADS = 1;
+    private static final int ARCHIVE_CONCURRENCY = 2;
+    private static final String FILE_CONTENT = "file content";
 
+    private final SimpleTransactionStatus transactionStatus = new SimpleTransactionStatus();
     private List<CustomerStatement> customerStatements;
-    private List<ValidationResult> validationResults;
-    private Report report;
 
     @BeforeEach
     void setUp() {
+        statementProcessorService = new StatementProcessorService(csvFileParser, new TokenizingCsvFileParser(),
+                xmlFileParser, validator,
+                processedReferences, reportService,
+                new ProcessedUploadCache(meterRegistry, 10, Duration.ofHours(1), 100, InstantSource.system()),
+                statementsEventPublisher, new PipelineMetrics(meterRegistry), uploadAdmissionControl,
+                transactionTemplate, savepointManager, BATCH_SIZE, MAX_CONCURRENT_UPLOADS, ARCHIVE_CONCURRENCY,
+                CsvEngine.JACKSON, AcceptanceMode.ALL_OR_NOTHING);
+
         CustomerStatement customerStatement = new CustomerStatement(123L, "NL1234567890",
                 new BigDecimal("1000.00"), new BigDecimal("+200.00"), "Test", new BigDecimal("1200.00"));
         customerStatements = List.of(customerStatement);
-        validationResults = new ArrayList<>();
-        report = new Report(1L, validationResults);
     }
 
     @Test
     void shouldProcessCsvFileSuccessfully() {
         // Given
         prepareFileMock(CSV_FILENAME);
-        when(csvFileParser.parseFile(file)).thenReturn(customerStatements);
-        when(validator.validateParsedStatements(customerStatements)).thenReturn(validationResults);
-        when(reportMapper.mapValidationResultsToReport(validationResults)).thenReturn(report);
-        when(customerStatementToStatementMapper.toStatementList(customerStatements)).thenReturn(new ArrayList<>());
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
 
-        Report result = statementProcessorService.process(file);
+        Report result = process(statementProcessorService, file);
 
         assertThat(result.failedRecords()).isEmpty();
-        verify(validator, times(1)).validateParsedStatements(customerStatements);
-        verify(reportMapper, times(1)).mapValidationResultsToReport(validationResults);
-        verify(csvFileParser, times(1)).parseFile(file);
-        verify(statementsEventPublisher).publish(anyList());
+        assertThat(transactionStatus.isRollbackOnly()).isFalse();
+        verify(validator, times(1)).newSession(any(ProcessedReferences.class));
+        verify(reportService, times(1)).saveReport(List.of());
+        verify(csvFileParser, times(1)).parse(any(), eq(CSV_FILENAME), any());
+        verify(statementsEventPublisher).publishColumns(any());
     }
 
     @Test
     void shouldProcessXmlFileSuccessfully() {
         prepareFileMock(XML_FILENAME);
-        when(xmlFileParser.parseFile(file)).thenReturn(customerStatements);
-        when(validator.validateParsedStatements(customerStatements)).thenReturn(validationResults);
-        when(reportMapper.mapValidationResultsToReport(validationResults)).thenReturn(report);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        prepareParserMock(xmlFileParser, XML_FILENAME);
+        prepareReportServiceMock();
 
-        Report result = statementProcessorService.process(file);
+        Report result = process(statementProcessorService, file);
 
         // Then
         assertThat(result.failedRecords()).isEmpty();
         assertThat(1L).isEqualTo(result.reportId());
-        assertThat(validationResults).isEqualTo(result.failedRecords());
-        verify(validator, times(1)).validateParsedStatements(customerStatements);
-        verify(reportMapper, times(1)).mapValidationResultsToReport(validationResults);
-        verify(statementsEventPublisher).publish(anyList());
+        verify(validator, times(1)).newSession(any(ProcessedReferences.class));
+        verify(reportService, times(1)).saveReport(List.of());
+        verify(statementsEventPublisher).publishColumns(any());
+    }
+
+    @Test
+    void shouldPublishAcceptedStatementsInBatches() {
+        // Given
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        customerStatements = List.of(
+                new CustomerStatement(1L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 1", new BigDecimal("2.00")),
+                new CustomerStatement(2L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 2", new BigDecimal("2.00")),
+                new CustomerStatement(3L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 3", new BigDecimal("2.00")));
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> batchSizes.add(invocation.<StatementColumns>getArgument(0).size()))
+                .when(statementsEventPublisher).publishColumns(any());
+
+        // When
+        process(statementProcessorService, file);
+
+        // Then a full batch of two and the remaining statement are published
+        assertThat(batchSizes).containsExactly(2, 1);
+        verify(statementsEventPublisher, times(2)).publishColumns(any());
+    }
+
+    @Test
+    void shouldTokenizeCsvStraightIntoReusedColumns() {
+        // Given the tokenizing CSV engine
+        var service = new StatementProcessorService(csvFileParser, new TokenizingCsvFileParser(), xmlFileParser,
+                validator, processedReferences, reportService,
+                new ProcessedUploadCache(meterRegistry, 10, Duration.ofHours(1), 100, InstantSource.system()),
+                statementsEventPublisher, new PipelineMetrics(meterRegistry), uploadAdmissionControl,
+                transactionTemplate, savepointManager, BATCH_SIZE, MAX_CONCURRENT_UPLOADS, ARCHIVE_CONCURRENCY,
+                CsvEngine.TOKENIZER, AcceptanceMode.ALL_OR_NOTHING);
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent("""
+                Reference,AccountNumber,Description,Start Balance,Mutation,End Balance
+                1,NL91RABO0315273637,Test 1,21.6,-41.83,-20.23
+                2,NL91RABO0315273637,Test 2,1.005,1,2.005
+                3,NL27SNSB0917829871,Test 3,91.23,+15.57,106.8
+                """);
+        prepareTransaction();
+        prepareReportServiceMock();
+        List<String> publishedRows = new ArrayList<>();
+        doAnswer(invocation -> {
+            StatementColumns columns = invocation.getArgument(0);
+            for (int row = 0; row < columns.size(); row++) {
+                publishedRows.add(columns.reference(row) + " " + columns.accountNumber(row) + " "
+                        + columns.startBalance(row) + " " + columns.endBalance(row));
+            }
+            return null;
+        }).when(statementsEventPublisher).publishColumns(any());
+
+        // When
+        Report result = process(service, file);
+
+        // Then all statements are published in batches of two, without the Jackson parser
+        assertThat(result.failedRecords()).isEmpty();
+        assertThat(publishedRows).containsExactly(
+                "1 NL91RABO0315273637 21.60 -20.23",
+                "2 NL91RABO0315273637 1.005 2.005",
+                "3 NL27SNSB0917829871 91.23 106.80");
+        verify(statementsEventPublisher, times(2)).publishColumns(any());
+        verify(csvFileParser, never()).parse(any(), any(), any());
+    }
+
+    @Test
+    void shouldReportDuplicatesWhenBatchOfSpilledReferencesIsRejected(@TempDir Path spillDirectory) {
+        // Given a validator that spills right away and a duplicate reference out of order
+        var spillingValidator = new StatementValidator(Integer.MAX_VALUE, ForkJoinPool.commonPool(), 1,
+                spillDirectory);
+        var service = new StatementProcessorService(csvFileParser, new TokenizingCsvFileParser(), xmlFileParser,
+                spillingValidator, processedReferences, reportService,
+                new ProcessedUploadCache(meterRegistry, 10, Duration.ofHours(1), 100, InstantSource.system()),
+                statementsEventPublisher, new PipelineMetrics(meterRegistry), uploadAdmissionControl,
+                transactionTemplate, savepointManager, BATCH_SIZE, MAX_CONCURRENT_UPLOADS, ARCHIVE_CONCURRENCY,
+                CsvEngine.JACKSON, AcceptanceMode.ALL_OR_NOTHING);
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        var status = mock(TransactionStatus.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(status));
+        customerStatements = List.of(
+                new CustomerStatement(3L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 1", new BigDecimal("2.00")),
+                new CustomerStatement(1L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 2", new BigDecimal("2.00")),
+                new CustomerStatement(3L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 3", new BigDecimal("2.00")),
+                new CustomerStatement(2L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 4", new BigDecimal("2.00")));
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        // The unique reference column rejects the second batch
+        doNothing().doThrow(new DuplicateKeyException("Duplicate reference 3"))
+                .when(statementsEventPublisher).publishColumns(any());
+
+        // When
+        Report result = process(service, file);
+
+        // Then the rejected batch is undone and the report lists both occurrences of the duplicate
+        assertThat(result.failedRecords())
+                .extracting(ValidationResult::reference, ValidationResult::errorMessage)
+                .containsExactly(tuple(3L, DUPLICATE_REFERENCE_DETECTED), tuple(3L, DUPLICATE_REFERENCE_DETECTED));
+        verify(savepointManager, times(2)).createSavepoint();
+        verify(savepointManager).rollbackToSavepoint(any());
+        verify(status).setRollbackOnly();
+        verify(statementsEventPublisher, times(2)).publishColumns(any());
+    }
+
+    @Test
+    void shouldSaveValidStatementsAndRetractDuplicatesWithPartialAcceptance() {
+        // Given a duplicate of a statement that was saved with the first batch and a wrong end balance
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        customerStatements = List.of(
+                new CustomerStatement(1L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 1", new BigDecimal("2.00")),
+                new CustomerStatement(2L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 2", new BigDecimal("2.00")),
+                new CustomerStatement(1L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 3", new BigDecimal("2.00")),
+                new CustomerStatement(4L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 4", new BigDecimal("3.00")),
+                new CustomerStatement(5L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 5", new BigDecimal("2.00")));
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        List<Long> publishedReferences = recordPublishedReferences();
+
+        // When
+        Report result = statementProcessorService.process(file.getOriginalFilename(), file,
+                ProcessingOptions.defaults().withAcceptanceMode(AcceptanceMode.PARTIAL));
+
+        // Then the valid statements are saved, the saved statement with a duplicate reference is deleted again
+        assertThat(publishedReferences).containsExactly(1L, 2L, 5L);
+        verify(statementsEventPublisher).publishRetracted(new long[]{1L});
+        assertThat(result.failedRecords())
+                .extracting(ValidationResult::reference, ValidationResult::errorMessage)
+                .containsExactly(tuple(1L, DUPLICATE_REFERENCE_DETECTED), tuple(1L, DUPLICATE_REFERENCE_DETECTED),
+                        tuple(4L, INVALID_END_BALANCE));
+        assertThat(result.acceptedRecords()).isEqualTo(2L);
+        assertThat(result.rejectedRecords()).isEqualTo(3L);
+        assertThat(transactionStatus.isRollbackOnly()).isFalse();
+    }
+
+    @Test
+    void shouldSaveRejectedBatchWithoutDuplicatesWithPartialAcceptance(@TempDir Path spillDirectory) {
+        // Given a validator that spills right away and a duplicate reference within a batch, out of order
+        var spillingValidator = new StatementValidator(Integer.MAX_VALUE, ForkJoinPool.commonPool(), 1,
+                spillDirectory);
+        var service = new StatementProcessorService(csvFileParser, new TokenizingCsvFileParser(), xmlFileParser,
+                spillingValidator, processedReferences, reportService,
+                new ProcessedUploadCache(meterRegistry, 10, Duration.ofHours(1), 100, InstantSource.system()),
+                statementsEventPublisher, new PipelineMetrics(meterRegistry), uploadAdmissionControl,
+                transactionTemplate, savepointManager, BATCH_SIZE, MAX_CONCURRENT_UPLOADS, ARCHIVE_CONCURRENCY,
+                CsvEngine.JACKSON, AcceptanceMode.PARTIAL);
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        var status = mock(TransactionStatus.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(status));
+        customerStatements = List.of(
+                new CustomerStatement(3L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 1", new BigDecimal("2.00")),
+                new CustomerStatement(1L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 2", new BigDecimal("2.00")),
+                new CustomerStatement(2L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 3", new BigDecimal("2.00")),
+                new CustomerStatement(2L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 4", new BigDecimal("2.00")));
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        // The unique reference column rejects the second batch the first time it is saved
+        List<Long> publishedReferences = new ArrayList<>();
+        var publishCount = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (publishCount.incrementAndGet() == 2) {
+                throw new DuplicateKeyException("Duplicate reference 2");
+            }
+            StatementColumns columns = invocation.getArgument(0);
+            for (int row = 0; row < columns.size(); row++) {
+                publishedReferences.add(columns.reference(row));
+            }
+            return null;
+        }).when(statementsEventPublisher).publishColumns(any());
+
+        // When
+        Report result = process(service, file);
+
+        // Then the rejected batch is saved again without the duplicates, which were never saved
+        assertThat(publishedReferences).containsExactly(3L, 1L);
+        assertThat(result.failedRecords())
+                .extracting(ValidationResult::reference, ValidationResult::errorMessage)
+                .containsExactly(tuple(2L, DUPLICATE_REFERENCE_DETECTED), tuple(2L, DUPLICATE_REFERENCE_DETECTED));
+        assertThat(result.acceptedRecords()).isEqualTo(2L);
+        assertThat(result.rejectedRecords()).isEqualTo(2L);
+        verify(savepointManager).rollbackToSavepoint(any());
+        verify(status, never()).setRollbackOnly();
+        verify(statementsEventPublisher, never()).publishRetracted(argThat(references -> references.length > 0));
+    }
+
+    @Test
+    void shouldNotReportStatementsSavedByTheFileAsAlreadyProcessed(@TempDir Path spillDirectory) {
+        // Given an index that finds the statements the file saved and a duplicate reference out of order
+        var spillingValidator = new StatementValidator(Integer.MAX_VALUE, ForkJoinPool.commonPool(), 1,
+                spillDirectory);
+        Set<Long> storedReferences = new HashSet<>();
+        var service = new StatementProcessorService(csvFileParser, new TokenizingCsvFileParser(), xmlFileParser,
+                spillingValidator, storedReferences::contains, reportService,
+                new ProcessedUploadCache(meterRegistry, 10, Duration.ofHours(1), 100, InstantSource.system()),
+                statementsEventPublisher, new PipelineMetrics(meterRegistry), uploadAdmissionControl,
+                transactionTemplate, savepointManager, BATCH_SIZE, MAX_CONCURRENT_UPLOADS, ARCHIVE_CONCURRENCY,
+                CsvEngine.JACKSON, AcceptanceMode.ALL_OR_NOTHING);
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        customerStatements = List.of(
+                new CustomerStatement(3L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 1", new BigDecimal("2.00")),
+                new CustomerStatement(1L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 2", new BigDecimal("2.00")),
+                new CustomerStatement(2L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 3", new BigDecimal("2.00")),
+                new CustomerStatement(3L, "NL1234567890", new BigDecimal("1.00"), new BigDecimal("1.00"), "Test 4", new BigDecimal("2.00")));
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        // Saved statements are stored, the unique reference column rejects a stored reference
+        doAnswer(invocation -> {
+            StatementColumns columns = invocation.getArgument(0);
+            for (int row = 0; row < columns.size(); row++) {
+                if (!storedReferences.add(columns.reference(row))) {
+                    throw new DuplicateKeyException("Duplicate reference " + columns.reference(row));
+                }
+            }
+            return null;
+        }).when(statementsEventPublisher).publishColumns(any());
+
+        // When
+        Report result = process(service, file);
+
+        // Then the repeated reference is a duplicate within the file, not a reference of an earlier upload
+        assertThat(result.failedRecords())
+                .extracting(ValidationResult::reference, ValidationResult::errorMessage)
+                .containsExactly(tuple(3L, DUPLICATE_REFERENCE_DETECTED), tuple(3L, DUPLICATE_REFERENCE_DETECTED));
+        verify(savepointManager).rollbackToSavepoint(any());
+        assertThat(transactionStatus.isRollbackOnly()).isTrue();
     }
 
     @Test
@@ -113,7 +413,7 @@ class StatementProcessorServiceTest {
         prepareFileMock(UNSUPPORTED_FILENAME);
 
         // When / Then
-        assertThatThrownBy(() -> statementProcessorService.process(file))
+        assertThatThrownBy(() -> process(statementProcessorService, file))
                 .isInstanceOf(InvalidFileException.class)
                 .hasMessage("Unsupported file type");
     }
@@ -124,7 +424,7 @@ class StatementProcessorServiceTest {
         prepareFileMock(NULL_FILENAME);
 
         // When / Then
-        assertThatThrownBy(() -> statementProcessorService.process(file))
+        assertThatThrownBy(() -> process(statementProcessorService, file))
                 .isInstanceOf(InvalidFileException.class)
                 .hasMessage("File name is missing from the file");
     }
@@ -133,34 +433,319 @@ class StatementProcessorServiceTest {
     void shouldReturnReportWithValidationErrors() {
         // Given
         prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
 
         // Simulate customerStatements with validation errors
         customerStatements = createCustomerStatementsWithErrors();
-        List<ValidationResult> validationErrors = createValidationErrors();
-        when(csvFileParser.parseFile(file)).thenReturn(customerStatements);
-        when(validator.validateParsedStatements(customerStatements)).thenReturn(validationErrors);
-        when(reportMapper.mapValidationResultsToReport(validationErrors)).thenReturn(new Report(1L, validationErrors));
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
 
         // When
-        Report result = statementProcessorService.process(file);
+        Report result = process(statementProcessorService, file);
 
         // Then
         assertThat(result.failedRecords()).isNotEmpty();
         assertThat(result.reportId()).isEqualTo(1L);
-        assertThat(validationErrors).isEqualTo(result.failedRecords());
         assertThat(result.failedRecords())
                 .hasSize(3)
                 .extracting(ValidationResult::errorMessage)
                 .containsExactly(DUPLICATE_REFERENCE_DETECTED, DUPLICATE_REFERENCE_DETECTED, INVALID_END_BALANCE);
+        assertThat(transactionStatus.isRollbackOnly()).isTrue();
+
+        verify(validator, times(1)).newSession(any(ProcessedReferences.class));
+        verify(csvFileParser, times(1)).parse(any(), eq(CSV_FILENAME), any());
+        verify(statementsEventPublisher, never()).publishColumns(any());
+    }
+
+    @Test
+    void shouldValidateWithoutTransactionOrSaving() {
+        // Given
+        customerStatements = createCustomerStatementsWithErrors();
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        List<Long> progress = new ArrayList<>();
+
+        // When
+        int failedRecords = statementProcessorService.validate(CSV_FILENAME,
+                new ByteArrayResource(FILE_CONTENT.getBytes(StandardCharsets.UTF_8)), progress::add);
+
+        // Then
+        assertThat(failedRecords).isEqualTo(3);
+        assertThat(progress).endsWith((long) customerStatements.size());
+        verify(transactionTemplate, never()).execute(any());
+        verify(statementsEventPublisher, never()).publishColumns(any());
+        verify(reportService, never()).saveReport(anyList());
+    }
+
+    @Test
+    void shouldReserveMemoryOfSessionForValidation() {
+        // Given content of unknown length
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        var reservedWhileValidating = new AtomicLong();
+        InputStreamSource source = () -> {
+            reservedWhileValidating.set((long) meterRegistry.get("statement.admission.reserved").gauge().value());
+            return new ByteArrayInputStream(FILE_CONTENT.getBytes(StandardCharsets.UTF_8));
+        };
+
+        // When
+        statementProcessorService.validate(CSV_FILENAME, source, recordCount -> {
+        });
+
+        // Then the session is assumed to reach its memory budget, the reservation is released afterwards
+        assertThat(reservedWhileValidating.get()).isGreaterThan(DataSize.ofMegabytes(32).toBytes());
+        assertThat(meterRegistry.get("statement.admission.reserved").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldRecordStageTimingsAndCountsPerFormat() {
+        // Given
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        customerStatements = createCustomerStatementsWithErrors();
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        var timings = new StageTimings();
+
+        // When
+        statementProcessorService.process(file.getOriginalFilename(), file,
+                ProcessingOptions.defaults().withTimings(timings));
+
+        // Then
+        assertThat(timings.isRecorded()).isTrue();
+        assertThat(timings.get(StageTimings.Stage.VALIDATE)).isPositive();
+        assertThat(meterRegistry.get("statement.pipeline.stage").tags("stage", "parse", "format", "csv").timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("statement.pipeline.records").tag("format", "csv").counter().count())
+                .isEqualTo(4);
+        assertThat(meterRegistry.get("statement.pipeline.bytes").tag("format", "csv").counter().count())
+                .isEqualTo(FILE_CONTENT.length());
+        assertThat(meterRegistry.get("statement.pipeline.duplicates").tag("format", "csv").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("statement.pipeline.balance.failures").tag("format", "csv").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldReleaseUploadPermitWhenProcessingFails() {
+        // Given a single permit and a first file that cannot be parsed
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareReportServiceMock();
+        when(transactionTemplate.execute(any()))
+                .thenThrow(new FileParsingException("CSV parsing failed: broken"))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(transactionStatus));
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+
+        // When / Then the next file still gets the permit
+        assertThatThrownBy(() -> process(statementProcessorService, file)).isInstanceOf(FileParsingException.class);
+        assertThat(uploadAdmissionControl.getReservedBytes()).isZero();
+        assertThat(process(statementProcessorService, file).failedRecords()).isEmpty();
+        assertThat(uploadAdmissionControl.getReservedBytes()).isZero();
+    }
+
+    @Test
+    void shouldRejectReferencesOfEarlierUploads() {
+        // Given
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        when(processedReferences.contains(123L)).thenReturn(true);
+
+        // When
+        Report result = process(statementProcessorService, file);
+
+        // Then
+        assertThat(result.failedRecords())
+                .extracting(ValidationResult::errorMessage)
+                .containsExactly(REFERENCE_ALREADY_PROCESSED);
+        assertThat(transactionStatus.isRollbackOnly()).isTrue();
+        verify(statementsEventPublisher, never()).publishColumns(any());
+    }
+
+    @Test
+    void shouldReturnEarlierReportForRepeatedUpload() {
+        // Given
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
 
-        verify(validator, times(1)).validateParsedStatements(customerStatements);
-        verify(csvFileParser, times(1)).parseFile(file);
+        // When the same file is uploaded twice
+        Report first = process(statementProcessorService, file);
+        Report second = process(statementProcessorService, file);
+
+        // Then the second upload is not processed
+        assertThat(second).isSameAs(first);
+        verify(csvFileParser, times(1)).parse(any(), eq(CSV_FILENAME), any());
+        verify(reportService, times(1)).saveReport(anyList());
+        assertThat(meterRegistry.get("statement.upload.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("statement.upload.cache").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldProcessUploadWithOtherContentOfSameLength() {
+        // Given
+        prepareFileMock(CSV_FILENAME);
+        prepareFileContent(FILE_CONTENT);
+        prepareTransaction();
+        prepareParserMock(csvFileParser, CSV_FILENAME);
+        prepareReportServiceMock();
+        process(statementProcessorService, file);
+
+        // When
+        prepareFileContent("FILE CONTENT");
+        process(statementProcessorService, file);
+
+        // Then
+        verify(csvFileParser, times(2)).parse(any(), eq(CSV_FILENAME), any());
+        assertThat(meterRegistry.get("statement.upload.cache").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldInflateGzippedFile() throws IOException {
+        // Given
+        String filename = CSV_FILENAME + ".gz";
+        prepareFileMock(filename);
+        byte[] compressed = gzip(FILE_CONTENT.getBytes(StandardCharsets.UTF_8));
+        when(file.getSize()).thenReturn((long) compressed.length);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(compressed));
+        prepareTransaction();
+        prepareReportServiceMock();
+        List<String> parsedContent = new ArrayList<>();
+        when(csvFileParser.parse(any(), eq(filename), any())).thenAnswer(invocation -> {
+            parsedContent.add(new String(invocation.<InputStream>getArgument(0).readAllBytes(), StandardCharsets.UTF_8));
+            customerStatements.forEach(invocation.<Consumer<CustomerStatement>>getArgument(2));
+            return (long) customerStatements.size();
+        });
+
+        // When
+        Report result = process(statementProcessorService, file);
+
+        // Then the parser reads the inflated content
+        assertThat(result.failedRecords()).isEmpty();
+        assertThat(parsedContent).containsExactly(FILE_CONTENT);
+        verify(statementsEventPublisher).publishColumns(any());
+    }
+
+    @Test
+    void shouldValidateEntriesOfArchiveAsOneFile() throws IOException {
+        // Given an archive with a reference that is repeated in another entry
+        prepareFileMock("statements.zip");
+        byte[] archive = zip(Map.of("first.csv", "first", "second.xml", "second", "readme.txt", "skipped"));
+        when(file.getSize()).thenReturn((long) archive.length);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(archive));
+        prepareTransaction();
+        prepareReportServiceMock();
+        customerStatements = createCustomerStatementsWithErrors();
+        prepareParserMock(csvFileParser, "first.csv");
+        customerStatements = List.of(new CustomerStatement(125L, "NL1234567891",
+                new BigDecimal("1000.00"), new BigDecimal("+200.00"), "Test 5", new BigDecimal("1200.00")));
+        prepareParserMock(xmlFileParser, "second.xml");
+
+        // When
+        Report result = process(statementProcessorService, file);
+
+        // Then there is one report, in the order of the entries, and nothing of the archive is kept. The entries are
+        // parsed concurrently, a batch of valid statements may be published before the first failure and is rolled back
+        assertThat(result.failedRecords())
+                .extracting(ValidationResult::description)
+                .containsExactly("Test 1", "Test 2", "Test 3", "Test 4", "Test 5");
+        assertThat(transactionStatus.isRollbackOnly()).isTrue();
+        verify(reportService, times(1)).saveReport(anyList());
+    }
+
+    @Test
+    void shouldRejectArchiveWithoutStatementFiles() throws IOException {
+        // Given
+        prepareFileMock("statements.zip");
+        byte[] archive = zip(Map.of("readme.txt", "skipped"));
+        when(file.getSize()).thenReturn((long) archive.length);
+        when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(archive));
+        prepareTransaction();
+
+        // When / Then
+        assertThatThrownBy(() -> process(statementProcessorService, file))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessage("The archive contains no CSV or XML files");
+    }
+
+    private Report process(StatementProcessorService service, MultipartFile file) {
+        return service.process(file.getOriginalFilename(), file, ProcessingOptions.defaults());
     }
 
     private void prepareFileMock(String filename) {
         when(file.getOriginalFilename()).thenReturn(filename);
     }
 
+    private void prepareFileContent(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        when(file.getSize()).thenReturn((long) bytes.length);
+        try {
+            when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void prepareTransaction() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(transactionStatus));
+    }
+
+    private void prepareParserMock(FileParser fileParser, String filename) {
+        List<CustomerStatement> statements = customerStatements;
+        when(fileParser.parse(any(), eq(filename), any())).thenAnswer(invocation -> {
+            Consumer<CustomerStatement> consumer = invocation.getArgument(2);
+            statements.forEach(consumer);
+            return (long) statements.size();
+        });
+    }
+
+    /**
+     * @return The references of the published statements, in the order they are published.
+     */
+    private List<Long> recordPublishedReferences() {
+        List<Long> publishedReferences = new ArrayList<>();
+        doAnswer(invocation -> {
+            StatementColumns columns = invocation.getArgument(0);
+            for (int row = 0; row < columns.size(); row++) {
+                publishedReferences.add(columns.reference(row));
+            }
+            return null;
+        }).when(statementsEventPublisher).publishColumns(any());
+        return publishedReferences;
+    }
+
+    private void prepareReportServiceMock() {
+        when(reportService.saveReport(anyList()))
+                .thenAnswer(invocation -> new Report(1L, invocation.getArgument(0)));
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(content);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        var archive = new ByteArrayOutputStream();
+        try (var outputStream = new ZipOutputStream(archive)) {
+            for (var entry : new TreeMap<>(entries).entrySet()) {
+                outputStream.putNextEntry(new ZipEntry(entry.getKey()));
+                outputStream.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                outputStream.closeEntry();
+            }
+        }
+        return archive.toByteArray();
+    }
+
     private List<CustomerStatement> createCustomerStatementsWithErrors() {
         CustomerStatement statement1 = new CustomerStatement(123L, "NL1234567890",
                 new BigDecimal("1000.00"), new BigDecimal("+200.00"), "Test 1", new BigDecimal("1200.00"));
@@ -173,11 +758,4 @@ class StatementProcessorServiceTest {
         return List.of(statement1, statement2, statement3, statement4);
     }
 
-    private List<ValidationResult> createValidationErrors() {
-        ValidationResult error1 = new ValidationResult(123L, "Test 1", DUPLICATE_REFERENCE_DETECTED);
-        ValidationResult error2 = new ValidationResult(123L, "Test 2", DUPLICATE_REFERENCE_DETECTED);
-        ValidationResult error3 = new ValidationResult(123L, "Test 4", INVALID_END_BALANCE);
-        return List.of(error1, error2, error3);
-    }
-
 }
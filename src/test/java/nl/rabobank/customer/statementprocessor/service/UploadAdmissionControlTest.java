@@ -0,0 +1,115 @@
+package nl.rabobank.customer.statementprocessor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.rabobank.customer.statementprocessor.control.exception.UploadRejectedException;
+import nl.rabobank.customer.statementprocessor.control.service.UploadAdmissionControl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadAdmissionControlTest {
+
+    private static final long MB = DataSize.ofMegabytes(1).toBytes();
+    private static final long FILE_OVERHEAD = 2 * MB;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldEstimateMemoryFromContentLengthAndFormat() {
+        var admissionControl = newAdmissionControl(DataSize.ofMegabytes(96), Duration.ofSeconds(1), 1);
+
+        assertThat(admissionControl.estimateMemory("csv", 10 * MB)).isEqualTo(FILE_OVERHEAD + 12 * MB);
+        assertThat(admissionControl.estimateMemory("xml", 10 * MB)).isEqualTo(FILE_OVERHEAD + 4 * MB);
+        assertThat(admissionControl.estimateMemory("csv.gz", MB)).isEqualTo(FILE_OVERHEAD + MB * 72 / 10);
+        // Beyond its memory budget the validation session spills, a file of unknown length may reach it
+        assertThat(admissionControl.estimateMemory("zip", 30 * MB)).isEqualTo(FILE_OVERHEAD + 32 * MB);
+        assertThat(admissionControl.estimateMemory("csv", -1)).isEqualTo(FILE_OVERHEAD + 32 * MB);
+    }
+
+    @Test
+    void shouldCapEstimateAtTheBudget() {
+        var admissionControl = newAdmissionControl(DataSize.ofMegabytes(16), Duration.ofSeconds(1), 1);
+
+        assertThat(admissionControl.estimateMemory("csv", -1)).isEqualTo(16 * MB);
+        try (var reservation = admissionControl.admit("large.csv", "csv", -1)) {
+            assertThat(reservation.getBytes()).isEqualTo(16 * MB);
+        }
+    }
+
+    @Test
+    void shouldReserveMemoryUntilReservationIsClosed() {
+        var admissionControl = newAdmissionControl(DataSize.ofMegabytes(96), Duration.ofSeconds(1), 1);
+
+        var reservation = admissionControl.admit("test.csv", "csv", 10 * MB);
+
+        assertThat(admissionControl.getReservedBytes()).isEqualTo(FILE_OVERHEAD + 12 * MB);
+        assertThat(meterRegistry.get("statement.admission.reserved").gauge().value())
+                .isEqualTo(FILE_OVERHEAD + 12 * MB);
+        reservation.close();
+        reservation.close();
+        assertThat(admissionControl.getReservedBytes()).isZero();
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldAdmitWaitingFileOnceMemoryIsReleased() throws Exception {
+        var admissionControl = newAdmissionControl(DataSize.ofMegabytes(3), Duration.ofSeconds(5), 1);
+        var first = admissionControl.admit("first.csv", "csv", 0);
+
+        var second = CompletableFuture.supplyAsync(() -> admissionControl.admit("second.csv", "csv", 0));
+        while (admissionControl.getQueueLength() == 0) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("statement.admission.queue").gauge().value()).isEqualTo(1);
+        assertThat(second).isNotDone();
+        first.close();
+
+        try (var reservation = second.get(5, TimeUnit.SECONDS)) {
+            assertThat(reservation.getBytes()).isEqualTo(FILE_OVERHEAD);
+            assertThat(admissionControl.getQueueLength()).isZero();
+        }
+    }
+
+    @Test
+    void shouldRejectFileWhenQueueIsFull() {
+        var admissionControl = newAdmissionControl(DataSize.ofMegabytes(3), Duration.ofSeconds(30), 0);
+
+        try (var reservation = admissionControl.admit("first.csv", "csv", 0)) {
+            assertThatThrownBy(() -> admissionControl.admit("second.csv", "csv", 0))
+                    .isInstanceOf(UploadRejectedException.class)
+                    .hasMessageContaining("Too many files are being processed")
+                    .extracting(e -> ((UploadRejectedException) e).getRetryAfter())
+                    .isEqualTo(Duration.ofSeconds(30));
+        }
+        assertThat(meterRegistry.get("statement.admission.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @Timeout(5)
+    void shouldRejectFileThatWaitedTooLong() {
+        var admissionControl = newAdmissionControl(DataSize.ofMegabytes(3), Duration.ofMillis(50), 1);
+
+        try (var reservation = admissionControl.admit("first.csv", "csv", 0)) {
+            assertThatThrownBy(() -> admissionControl.admit("second.csv", "csv", 0))
+                    .isInstanceOf(UploadRejectedException.class)
+                    .hasMessageContaining("no memory became available within PT0.05S")
+                    .extracting(e -> ((UploadRejectedException) e).getRetryAfter())
+                    .isEqualTo(Duration.ofSeconds(1));
+        }
+        assertThat(admissionControl.getQueueLength()).isZero();
+        assertThat(admissionControl.getReservedBytes()).isZero();
+    }
+
+    private UploadAdmissionControl newAdmissionControl(DataSize memoryBudget, Duration queueTimeout,
+                                                       int maxQueueLength) {
+        return new UploadAdmissionControl(meterRegistry, memoryBudget, DataSize.ofMegabytes(32), queueTimeout,
+                maxQueueLength);
+    }
+}
@@ -0,0 +1,47 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.FixedPointAmount;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixedPointAmountTest {
+
+    @ParameterizedTest
+    @CsvSource({"21.6, 2160", "-41.83, -4183", "+15.57, 1557", "5429, 542900", "0, 0", "-0.01, -1",
+            "9999999999999.99, 999999999999999"})
+    void shouldConvertTwoDecimalAmountsToCents(String amount, long expectedCents) {
+        assertThat(FixedPointAmount.toCents(new BigDecimal(amount))).isEqualTo(expectedCents);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1.005", "0.000", "10000000000000", "1E+3"})
+    void shouldNotRepresentAmountsWithMoreScaleOrTooManyDigits(String amount) {
+        assertThat(FixedPointAmount.toCents(new BigDecimal(amount))).isEqualTo(FixedPointAmount.NOT_REPRESENTABLE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"21.6", "-41.83", "5429", "0", "0.00", "-0.01", "9999999999999.99", "1.005", "0.000",
+            "10000000000000", "99999999999999.9"})
+    void shouldConvertUnscaledAmountsLikeBigDecimals(String amount) {
+        var value = new BigDecimal(amount);
+
+        assertThat(FixedPointAmount.toCents(value.unscaledValue().longValueExact(), value.scale()))
+                .isEqualTo(FixedPointAmount.toCents(value));
+    }
+
+    @Test
+    void shouldNotRepresentMissingAmount() {
+        assertThat(FixedPointAmount.toCents(null)).isEqualTo(FixedPointAmount.NOT_REPRESENTABLE);
+    }
+
+    @Test
+    void shouldConvertCentsBackToBigDecimal() {
+        assertThat(FixedPointAmount.toBigDecimal(-2023)).isEqualByComparingTo("-20.23");
+    }
+}
@@ -0,0 +1,49 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.LongBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongBloomFilterTest {
+
+    @Test
+    void shouldContainEveryAddedValue() {
+        var bloomFilter = new LongBloomFilter(10_000, 0.01);
+
+        LongStream.range(0, 10_000).map(value -> value * 7 - 20_000).forEach(bloomFilter::put);
+
+        assertThat(LongStream.range(0, 10_000).map(value -> value * 7 - 20_000))
+                .allMatch(bloomFilter::mightContain);
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredProbability() {
+        var bloomFilter = new LongBloomFilter(100_000, 0.01);
+        LongStream.range(0, 100_000).forEach(bloomFilter::put);
+
+        long falsePositives = LongStream.range(1_000_000, 1_100_000)
+                .filter(bloomFilter::mightContain)
+                .count();
+
+        // 1% expected, allow for variance
+        assertThat(falsePositives).isLessThan(1_500);
+    }
+
+    @Test
+    void shouldNotContainValuesOfEmptyFilter() {
+        var bloomFilter = new LongBloomFilter(1_000, 0.01);
+
+        assertThat(bloomFilter.mightContain(0L)).isFalse();
+        assertThat(bloomFilter.mightContain(42L)).isFalse();
+    }
+
+    @Test
+    void shouldRejectInvalidSizing() {
+        assertThatThrownBy(() -> new LongBloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LongBloomFilter(1_000, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,84 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.LongIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntHashMapTest {
+
+    @Test
+    void shouldReturnMissingForUnknownKeys() {
+        var map = new LongIntHashMap();
+
+        assertThat(map.get(42L)).isEqualTo(LongIntHashMap.MISSING);
+        assertThat(map.get(0L)).isEqualTo(LongIntHashMap.MISSING);
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    void shouldOnlyInsertAbsentKeysWithPutIfAbsent() {
+        var map = new LongIntHashMap();
+
+        assertThat(map.putIfAbsent(7L, 1)).isEqualTo(LongIntHashMap.MISSING);
+        assertThat(map.putIfAbsent(7L, 2)).isEqualTo(1);
+        assertThat(map.get(7L)).isEqualTo(1);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSupportZeroAndNegativeKeys() {
+        var map = new LongIntHashMap();
+
+        map.put(0L, 10);
+        map.put(-1L, 20);
+        map.put(Long.MIN_VALUE, 30);
+
+        assertThat(map.get(0L)).isEqualTo(10);
+        assertThat(map.get(-1L)).isEqualTo(20);
+        assertThat(map.get(Long.MIN_VALUE)).isEqualTo(30);
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldBehaveLikeHashMapWhileGrowing() {
+        var map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        var random = new Random(7);
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(20_000) * 31L;
+            map.put(key, i);
+            expected.put(key, i);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+    }
+
+    @Test
+    void shouldRejectReservedValue() {
+        var map = new LongIntHashMap();
+
+        assertThatThrownBy(() -> map.put(1L, LongIntHashMap.MISSING))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldVisitEveryEntry() {
+        var map = new LongIntHashMap();
+        map.put(0L, 1);
+        map.put(-5L, 2);
+        map.put(42L, 3);
+        Map<Long, Integer> visited = new HashMap<>();
+
+        map.forEach(visited::put);
+
+        assertThat(visited).containsExactlyInAnyOrderEntriesOf(Map.of(0L, 1, -5L, 2, 42L, 3));
+    }
+}
@@ -0,0 +1,34 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.LruCache;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruCacheTest {
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntry() {
+        var cache = new LruCache<Long, String>(2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        // Reading 1 makes 2 the least recently used entry
+        assertThat(cache.get(1L)).isEqualTo("one");
+        cache.put(3L, "three");
+
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(1L)).isEqualTo("one");
+        assertThat(cache.get(3L)).isEqualTo("three");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCacheNothingWithZeroSize() {
+        var cache = new LruCache<Long, String>(0);
+        cache.put(1L, "one");
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+}
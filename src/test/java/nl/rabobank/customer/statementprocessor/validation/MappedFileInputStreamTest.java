@@ -0,0 +1,54 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.MappedFileInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedFileInputStreamTest {
+
+    private static final String CONTENT = "Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n";
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReadFileAcrossWindows() throws IOException {
+        Path file = Files.writeString(directory.resolve("records.csv"), CONTENT);
+
+        try (var inputStream = new MappedFileInputStream(file, 4)) {
+            assertThat(inputStream.read()).isEqualTo('R');
+            assertThat(inputStream.skip(9)).isEqualTo(9);
+            assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(CONTENT.substring(10));
+            assertThat(inputStream.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void shouldReadEmptyFile() throws IOException {
+        Path file = Files.createFile(directory.resolve("empty.csv"));
+
+        try (var inputStream = new MappedFileInputStream(file)) {
+            assertThat(inputStream.read()).isEqualTo(-1);
+            assertThat(inputStream.read(new byte[8], 0, 8)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void shouldFailToReadClosedStream() throws IOException {
+        Path file = Files.writeString(directory.resolve("records.csv"), CONTENT);
+        var inputStream = new MappedFileInputStream(file);
+        inputStream.close();
+
+        assertThatThrownBy(inputStream::read)
+                .isInstanceOf(IOException.class)
+                .hasMessage("Stream closed");
+    }
+}
@@ -0,0 +1,49 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.ScalableLongBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScalableLongBloomFilterTest {
+
+    @Test
+    void shouldContainEveryAddedValueBeyondInitialCapacity() {
+        var bloomFilter = new ScalableLongBloomFilter(1_000, 0.01);
+
+        LongStream.range(0, 50_000).map(value -> value * 7 - 20_000).forEach(bloomFilter::put);
+
+        assertThat(LongStream.range(0, 50_000).map(value -> value * 7 - 20_000))
+                .allMatch(bloomFilter::mightContain);
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredProbabilityWhileGrowing() {
+        var bloomFilter = new ScalableLongBloomFilter(1_000, 0.01);
+        LongStream.range(0, 100_000).forEach(bloomFilter::put);
+
+        long falsePositives = LongStream.range(1_000_000, 1_100_000)
+                .filter(bloomFilter::mightContain)
+                .count();
+
+        // At most 2% expected over all filters, allow for variance
+        assertThat(falsePositives).isLessThan(2_500);
+        assertThat(bloomFilter.bitCount()).isGreaterThan(100_000L * 9);
+    }
+
+    @Test
+    void shouldNotContainValuesOfEmptyFilter() {
+        var bloomFilter = new ScalableLongBloomFilter(1_000, 0.01);
+
+        assertThat(bloomFilter.mightContain(0L)).isFalse();
+        assertThat(bloomFilter.mightContain(42L)).isFalse();
+    }
+
+    @Test
+    void shouldRejectInvalidSizing() {
+        assertThatThrownBy(() -> new ScalableLongBloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
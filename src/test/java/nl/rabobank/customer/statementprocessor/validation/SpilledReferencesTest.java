@@ -0,0 +1,78 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.SpilledReferences;
+import nl.rabobank.customer.statementprocessor.util.SpilledReferences.Occurrence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpilledReferencesTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldFindDuplicatesAcrossRuns() {
+        var random = new Random(11);
+        Map<Long, List<Occurrence>> occurrences = new HashMap<>();
+        Map<Long, List<Occurrence>> duplicates = new HashMap<>();
+
+        try (var spilled = new SpilledReferences(directory, 1_000)) {
+            for (int position = 0; position < 20_000; position++) {
+                long reference = random.nextInt(15_000) - 5_000;
+                String description = position % 7 == 0 ? null : "Statement " + position + " für Jan";
+                spilled.add(reference, position, description);
+                occurrences.computeIfAbsent(reference, key -> new ArrayList<>())
+                        .add(new Occurrence(reference, position, description));
+            }
+            // More runs than are merged at once
+            assertThat(spilled.getRunCount()).isGreaterThan(64);
+
+            spilled.forEachDuplicate((reference, group) -> duplicates.put(reference, group));
+        }
+
+        occurrences.values().removeIf(group -> group.size() < 2);
+        assertThat(duplicates).isEqualTo(occurrences);
+    }
+
+    @Test
+    void shouldWriteSortedReferencesAsOneRun() {
+        try (var spilled = new SpilledReferences(directory, 1_000)) {
+            for (int position = 0; position < 10_000; position++) {
+                spilled.add(position / 3, position, "Statement " + position);
+            }
+
+            assertThat(spilled.getRunCount()).isEqualTo(1);
+            List<Long> duplicates = new ArrayList<>();
+            spilled.forEachDuplicate((reference, group) -> {
+                assertThat(group).hasSize(3);
+                duplicates.add(reference);
+            });
+            assertThat(duplicates).hasSize(3_333);
+        }
+    }
+
+    @Test
+    void shouldDeleteRunsWhenClosed() throws IOException {
+        var spilled = new SpilledReferences(directory, 1);
+        spilled.add(2L, 0, "First");
+        spilled.add(1L, 1, "Second");
+        spilled.add(2L, 2, "Third");
+
+        spilled.close();
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
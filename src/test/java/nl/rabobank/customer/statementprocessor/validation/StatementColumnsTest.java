@@ -0,0 +1,80 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.util.FixedPointAmount;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementColumnsTest {
+
+    @Test
+    void shouldHoldStatementsColumnByColumn() {
+        var columns = new StatementColumns(4);
+
+        int first = columns.add(new CustomerStatement(194261L, "NL91RABO0315273637", new BigDecimal("21.6"),
+                new BigDecimal("-41.83"), "Clothes from Jan Bakker", new BigDecimal("-20.23")));
+        int second = columns.add(new CustomerStatement(194262L, "NL91RABO0315273637", new BigDecimal("1.005"),
+                new BigDecimal("1"), null, new BigDecimal("2.005")));
+
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(columns.reference(first)).isEqualTo(194261L);
+        assertThat(columns.accountNumber(second)).isEqualTo("NL91RABO0315273637");
+        assertThat(columns.accountNumbers().size()).isEqualTo(1);
+        assertThat(columns.description(first)).isEqualTo("Clothes from Jan Bakker");
+        assertThat(columns.description(second)).isNull();
+        assertThat(columns.startBalanceCents(first)).isEqualTo(2160L);
+        assertThat(columns.startBalance(first)).isEqualTo(new BigDecimal("21.60"));
+        assertThat(columns.endBalance(first)).isEqualTo(new BigDecimal("-20.23"));
+        assertThat(columns.startBalanceCents(second)).isEqualTo(FixedPointAmount.NOT_REPRESENTABLE);
+        assertThat(columns.startBalance(second)).isEqualTo(new BigDecimal("1.005"));
+        assertThat(columns.mutation(second)).isEqualTo(new BigDecimal("1.00"));
+    }
+
+    @Test
+    void shouldBeReusableAfterClear() {
+        var columns = new StatementColumns(1);
+        columns.add(new CustomerStatement(1L, "NL91RABO0315273637", new BigDecimal("0.001"), BigDecimal.ZERO,
+                "First", new BigDecimal("0.001")));
+
+        assertThat(columns.isFull()).isTrue();
+        assertThatThrownBy(() -> columns.add(2L, 0, 0, 0, 0, 0)).isInstanceOf(IllegalStateException.class);
+
+        columns.clear();
+        int row = columns.add(new CustomerStatement(2L, "NL27SNSB0917829871", BigDecimal.ONE, BigDecimal.ONE,
+                "Second", new BigDecimal("2")));
+
+        assertThat(row).isZero();
+        assertThat(columns.accountNumber(row)).isEqualTo("NL27SNSB0917829871");
+        assertThat(columns.startBalance(row)).isEqualTo(new BigDecimal("1.00"));
+        assertThatThrownBy(() -> columns.reference(1)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void shouldRetainKeptRowsInOrder() {
+        var columns = new StatementColumns(4);
+        columns.add(new CustomerStatement(1L, "NL91RABO0315273637", new BigDecimal("0.001"), BigDecimal.ZERO,
+                "Removed", new BigDecimal("0.001")));
+        columns.add(new CustomerStatement(2L, "NL91RABO0315273637", BigDecimal.ONE, BigDecimal.ONE, "Second",
+                new BigDecimal("2")));
+        columns.add(new CustomerStatement(3L, "NL27SNSB0917829871", new BigDecimal("1.005"), BigDecimal.ONE,
+                "Third", new BigDecimal("2.005")));
+
+        int kept = columns.retainRows(new boolean[]{false, true, true});
+
+        assertThat(kept).isEqualTo(2);
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(columns.reference(0)).isEqualTo(2L);
+        assertThat(columns.description(0)).isEqualTo("Second");
+        assertThat(columns.startBalance(0)).isEqualTo(new BigDecimal("1.00"));
+        assertThat(columns.reference(1)).isEqualTo(3L);
+        assertThat(columns.accountNumber(1)).isEqualTo("NL27SNSB0917829871");
+        assertThat(columns.startBalance(1)).isEqualTo(new BigDecimal("1.005"));
+        assertThat(columns.endBalance(1)).isEqualTo(new BigDecimal("2.005"));
+        assertThatThrownBy(() -> columns.reference(2)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
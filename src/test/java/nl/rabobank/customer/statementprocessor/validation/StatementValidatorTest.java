@@ -1,27 +1,43 @@
 package nl.rabobank.customer.statementprocessor.validation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import nl.rabobank.customer.statementprocessor.boundary.dto.CustomerStatement;
+import nl.rabobank.customer.statementprocessor.boundary.dto.Report;
 import nl.rabobank.customer.statementprocessor.boundary.dto.ValidationResult;
+import nl.rabobank.customer.statementprocessor.util.StatementColumns;
 import nl.rabobank.customer.statementprocessor.util.StatementValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.DUPLICATE_REFERENCE_DETECTED;
 import static nl.rabobank.customer.statementprocessor.util.StatementConstants.INVALID_END_BALANCE;
+import static nl.rabobank.customer.statementprocessor.util.StatementConstants.REFERENCE_ALREADY_PROCESSED;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
 class StatementValidatorTest {
 
-    @InjectMocks
-    private StatementValidator statementValidator;
+    private final StatementValidator statementValidator = new StatementValidator();
+
+    @TempDir
+    private Path spillDirectory;
 
     private CustomerStatement validCustomerStatement;
     private CustomerStatement invalidEndBalanceCustomerStatement;
@@ -92,6 +108,35 @@ class StatementValidatorTest {
 
     }
 
+    @Test
+    void testValidateParsedStatements_everyOccurrenceOfRepeatedReferenceIsReported() {
+        var invalidFirstOccurrence = new CustomerStatement(1L, "NL93ABNA0585619023", new BigDecimal("100.00"),
+                new BigDecimal("50.00"), "Invalid first occurrence", new BigDecimal("160.00"));
+        var statements = List.of(invalidFirstOccurrence, validCustomerStatement, duplicateCustomerStatement);
+        var results = statementValidator.validateParsedStatements(statements);
+
+        // Then all three occurrences are reported and the first one keeps its balance error
+        assertEquals(3, results.size());
+        assertEquals(DUPLICATE_REFERENCE_DETECTED + INVALID_END_BALANCE, results.getFirst().errorMessage());
+        assertEquals("Invalid first occurrence", results.getFirst().description());
+        assertTrue(results.stream().skip(1)
+                .allMatch(result -> DUPLICATE_REFERENCE_DETECTED.equals(result.errorMessage())));
+    }
+
+    @Test
+    void testValidateParsedStatements_fallsBackToBigDecimalForAmountsWithMoreScale() {
+        var validWithThreeDecimals = new CustomerStatement(3L, "NL69ABNA0433647324", new BigDecimal("100.005"),
+                new BigDecimal("0.005"), "Three decimals", new BigDecimal("100.01"));
+        var invalidWithThreeDecimals = new CustomerStatement(4L, "NL69ABNA0433647324", new BigDecimal("100.005"),
+                new BigDecimal("0.004"), "Three decimals off by a fraction", new BigDecimal("100.01"));
+        var results = statementValidator.validateParsedStatements(List.of(validWithThreeDecimals, invalidWithThreeDecimals));
+
+        // Then only the statement that is off by a fraction of a cent fails
+        assertEquals(1, results.size());
+        assertEquals(4L, results.getFirst().reference());
+        assertEquals(INVALID_END_BALANCE, results.getFirst().errorMessage());
+    }
+
     @Test
     void testValidateParsedStatements_noErrorsWhenAllValid() {
         var statements = List.of(validCustomerStatement, new CustomerStatement(2L, "NL987654321",
@@ -102,4 +147,176 @@ class StatementValidatorTest {
         // Then there should be no validation errors
         assertTrue(results.isEmpty());
     }
+
+    @Test
+    void testValidateParsedStatements_parallelMatchesSequential() {
+        // Given a list with duplicates, balance errors and references that repeat across the whole list
+        var random = new Random(42);
+        List<CustomerStatement> statements = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long reference = random.nextInt(15_000);
+            String endBalance = random.nextInt(50) == 0 ? "151.00" : "150.00";
+            statements.add(new CustomerStatement(reference, "NL93ABNA0585619023", new BigDecimal("100.00"),
+                    new BigDecimal("50.00"), "Statement " + i, new BigDecimal(endBalance)));
+        }
+        var forkJoinPool = new ForkJoinPool(4);
+        try {
+            var parallelValidator = new StatementValidator(1, forkJoinPool);
+
+            // Then the parallel validation reports the same failures in the same order
+            var expected = statementValidator.validateParsedStatements(statements);
+            var results = parallelValidator.validateParsedStatements(statements);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, results);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    void testSession_rejectsEveryOccurrenceOfProcessedReference() {
+        // Given reference 1 was stored by an earlier upload
+        var session = statementValidator.newSession(reference -> reference == 1L);
+
+        session.validate(validCustomerStatement);
+        session.validate(invalidEndBalanceCustomerStatement);
+        session.validate(duplicateCustomerStatement);
+
+        // Then both occurrences of reference 1 fail in detection order and the messages are combined
+        var results = session.getValidationResults();
+        assertEquals(3, results.size());
+        assertEquals(List.of(1L, 2L, 1L), results.stream().map(ValidationResult::reference).toList());
+        assertEquals(DUPLICATE_REFERENCE_DETECTED + REFERENCE_ALREADY_PROCESSED, results.get(0).errorMessage());
+        assertEquals(INVALID_END_BALANCE, results.get(1).errorMessage());
+        assertEquals(DUPLICATE_REFERENCE_DETECTED + REFERENCE_ALREADY_PROCESSED, results.get(2).errorMessage());
+    }
+
+    @Test
+    void testSession_validationResultsSerializeLikeAMaterializedList() throws Exception {
+        var session = statementValidator.newSession(reference -> false);
+        session.validate(validCustomerStatement);
+        session.validate(invalidEndBalanceCustomerStatement);
+        session.validate(duplicateCustomerStatement);
+
+        // Then the results are created when read and the report JSON is the same as for a plain list
+        var results = session.getValidationResults();
+        var objectMapper = new ObjectMapper();
+        assertEquals(List.copyOf(results), results);
+        assertSame(results.get(1).errorMessage(), results.get(2).errorMessage());
+        assertEquals(objectMapper.writeValueAsString(new Report(1L, List.copyOf(results))),
+                objectMapper.writeValueAsString(new Report(1L, results)));
+    }
+
+    @Test
+    void testSession_spillingBeyondMemoryBudgetMatchesInMemoryValidation() throws IOException {
+        // Given references that repeat across the whole input and a budget of a few references
+        var statements = randomStatements(5_000, 3_000);
+        var spillingValidator = new StatementValidator(Integer.MAX_VALUE, ForkJoinPool.commonPool(), 4_000,
+                spillDirectory);
+
+        var expected = statementValidator.newSession(reference -> reference == 7L);
+        statements.forEach(expected::validate);
+        try (var session = spillingValidator.newSession(reference -> reference == 7L)) {
+            statements.forEach(session::validate);
+            assertTrue(session.isDuplicateDetectionDeferred());
+            session.finish();
+
+            // Then the merged runs report the same failures in the same order, and the runs are deleted
+            assertFalse(expected.getValidationResults().isEmpty());
+            assertEquals(expected.getValidationResults(), session.getValidationResults());
+        }
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testSession_sortedReferencesBeyondMemoryBudgetAreValidatedWithoutMerging() {
+        // Given references sorted in the input
+        var statements = new ArrayList<>(randomStatements(5_000, 3_000));
+        statements.sort(Comparator.comparingLong(CustomerStatement::reference));
+        var spillingValidator = new StatementValidator(Integer.MAX_VALUE, ForkJoinPool.commonPool(), 4_000,
+                spillDirectory);
+
+        var expected = statementValidator.newSession(reference -> false);
+        statements.forEach(expected::validate);
+        try (var session = spillingValidator.newSession(reference -> false)) {
+            statements.forEach(session::validate);
+
+            // Then every duplicate is known before the session is finished
+            assertFalse(session.isDuplicateDetectionDeferred());
+            assertEquals(expected.getValidationResults(), session.getValidationResults());
+            session.finish();
+            assertEquals(expected.getValidationResults(), session.getValidationResults());
+        }
+    }
+
+    @Test
+    void testSession_retractsStatementsThatPassedBeforeTheirDuplicate() {
+        // Given a reference repeated out of order, validated in memory and with spilled references
+        var columns = new StatementColumns(4);
+        for (long reference : new long[]{3L, 1L, 3L, 2L}) {
+            columns.add(new CustomerStatement(reference, "NL93ABNA0585619023", new BigDecimal("1.00"),
+                    new BigDecimal("1.00"), "Reference " + reference, new BigDecimal("2.00")));
+        }
+        var spillingValidator = new StatementValidator(Integer.MAX_VALUE, ForkJoinPool.commonPool(), 1,
+                spillDirectory);
+
+        var inMemory = statementValidator.newSession(reference -> false);
+        try (var spilling = spillingValidator.newSession(reference -> false)) {
+            boolean[] inMemoryPassed = new boolean[columns.size()];
+            boolean[] spillingPassed = new boolean[columns.size()];
+            for (int row = 0; row < columns.size(); row++) {
+                inMemoryPassed[row] = inMemory.validate(columns, row, row);
+                spillingPassed[row] = spilling.validate(columns, row, row);
+            }
+
+            // Then the first occurrence is retracted once the duplicate is detected, with spilled references every
+            // occurrence that passed when the session is finished
+            assertArrayEquals(new boolean[]{true, true, false, true}, inMemoryPassed);
+            assertArrayEquals(new long[]{3L}, inMemory.drainRetractedReferences());
+            assertEquals(0, inMemory.drainRetractedReferences().length);
+            assertArrayEquals(new boolean[]{true, true, true, true}, spillingPassed);
+            assertEquals(0, spilling.drainRetractedReferences().length);
+            spilling.finish();
+            assertArrayEquals(new long[]{3L, 3L}, spilling.drainRetractedReferences());
+        }
+    }
+
+    @Test
+    void testSession_columnsAreValidatedLikeStatements() {
+        // Given statements in batches of a reused columnar batch, including amounts that are not in cents
+        var statements = new ArrayList<>(randomStatements(2_000, 1_500));
+        statements.add(new CustomerStatement(5_000L, "NL93ABNA0585619023", new BigDecimal("0.005"),
+                new BigDecimal("0.005"), "More scale", new BigDecimal("0.010")));
+        statements.add(new CustomerStatement(5_001L, "NL93ABNA0585619023", new BigDecimal("0.005"),
+                new BigDecimal("0.005"), "More scale", new BigDecimal("0.011")));
+
+        var expected = statementValidator.newSession(reference -> reference == 7L);
+        statements.forEach(expected::validate);
+        var session = statementValidator.newSession(reference -> reference == 7L);
+        var columns = new StatementColumns(64);
+        for (int index = 0; index < statements.size(); index++) {
+            if (columns.isFull()) {
+                columns.clear();
+            }
+            session.validate(columns, columns.add(statements.get(index)), index);
+        }
+
+        // Then the columns give the same failures in the same order
+        assertFalse(expected.getValidationResults().isEmpty());
+        assertEquals(expected.getValidationResults(), session.getValidationResults());
+    }
+
+    private static List<CustomerStatement> randomStatements(int count, int referenceRange) {
+        var random = new Random(42);
+        List<CustomerStatement> statements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long reference = random.nextInt(referenceRange);
+            String endBalance = random.nextInt(50) == 0 ? "151.00" : "150.00";
+            statements.add(new CustomerStatement(reference, "NL93ABNA0585619023", new BigDecimal("100.00"),
+                    new BigDecimal("50.00"), "Statement " + i, new BigDecimal(endBalance)));
+        }
+        return statements;
+    }
 }
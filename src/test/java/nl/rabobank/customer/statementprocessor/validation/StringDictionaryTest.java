@@ -0,0 +1,54 @@
+package nl.rabobank.customer.statementprocessor.validation;
+
+import nl.rabobank.customer.statementprocessor.util.StringDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StringDictionaryTest {
+
+    @Test
+    void shouldGiveEveryDistinctValueADenseId() {
+        var dictionary = new StringDictionary();
+
+        assertThat(dictionary.intern("NL91RABO0315273637")).isZero();
+        assertThat(dictionary.intern("NL27SNSB0917829871")).isEqualTo(1);
+        assertThat(dictionary.intern("NL91RABO0315273637")).isZero();
+        assertThat(dictionary.intern(null)).isEqualTo(StringDictionary.NULL_ID);
+        assertThat(dictionary.get(1)).isEqualTo("NL27SNSB0917829871");
+        assertThat(dictionary.get(StringDictionary.NULL_ID)).isNull();
+        assertThat(dictionary.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldGiveTheSameIdToStringsAndTheirUtf8Bytes() {
+        var dictionary = new StringDictionary();
+        byte[] line = "x,Tickets for Peter Theuß,y".getBytes(StandardCharsets.UTF_8);
+        int length = "Tickets for Peter Theuß".getBytes(StandardCharsets.UTF_8).length;
+
+        int id = dictionary.intern(line, 2, length);
+
+        assertThat(dictionary.get(id)).isEqualTo("Tickets for Peter Theuß");
+        assertThat(dictionary.intern("Tickets for Peter Theuß")).isEqualTo(id);
+        assertThat(dictionary.intern("Clothes")).isEqualTo(dictionary.intern("Clothes".getBytes(StandardCharsets.UTF_8),
+                0, 7));
+    }
+
+    @Test
+    void shouldGrowAndStartOverWhenCleared() {
+        var dictionary = new StringDictionary();
+        for (int i = 0; i < 1_000; i++) {
+            byte[] value = ("Statement " + i).getBytes(StandardCharsets.UTF_8);
+            assertThat(dictionary.intern(value, 0, value.length)).isEqualTo(i);
+        }
+        byte[] value = "Statement 500".getBytes(StandardCharsets.UTF_8);
+        assertThat(dictionary.intern(value, 0, value.length)).isEqualTo(500);
+
+        dictionary.clear();
+
+        assertThat(dictionary.size()).isZero();
+        assertThat(dictionary.intern(value, 0, value.length)).isZero();
+    }
+}